@@ -82,6 +82,8 @@ public class CreaturesMain implements WorldCreator, ActionListener {
         view.repaint();
 
         if (WorldModel.speedFactor > 0) {
+            worldModel.getPerception().update();
+
             for (Creature c : worldModel.getCreatures()) {
                 c.update();
             }
@@ -89,6 +91,9 @@ public class CreaturesMain implements WorldCreator, ActionListener {
             mainWindow.update(delta);
             controller.updateWorld(delta);
             statistics.update(delta);
+        } else {
+            //Creatures added while paused have to show up
+            controller.publishRenderSnapshotIfChanged();
         }
     }
 
@@ -98,12 +103,21 @@ public class CreaturesMain implements WorldCreator, ActionListener {
             timer.stop();
         }
 
+        if (this.worldModel != null) {
+            this.worldModel.getLineageLog().close();
+
+            if (this.worldModel.getTrajectoryRecorder() != null) {
+                this.worldModel.getTrajectoryRecorder().close();
+            }
+        }
+        controller.stopCheckpoints();
         this.worldModel = worldModel;
 
 
         view = new WorldView(worldModel);
         controller = new WorldController(worldModel, view);
         listener = new WorldInputListener(controller);
+        statistics.close();
         statistics = new Statistics(worldModel);
 
         view.addKeyListener(listener);
@@ -2,6 +2,10 @@ package de.thomas.creatures.implementation.ai;
 
 import de.thomas.creatures.implementation.model.Creature;
 import de.thomas.creatures.implementation.model.Food;
+import de.thomas.creatures.implementation.model.FoodField;
+import de.thomas.creatures.implementation.model.Perception;
+import de.thomas.creatures.implementation.model.WorldModel;
+import de.thomas.creatures.implementation.model.WayPointGrid;
 
 import java.awt.geom.Point2D;
 import java.util.ArrayList;
@@ -12,48 +16,38 @@ import java.util.List;
  * It extends the CreatureAI class and provides basic behavior for the creature.
  */
 public class BasicAI extends CreatureAI {
-    private final List<Point2D.Double> wayPoints;
+    private final long wayPointSeed;
 
     /**
      * Constructs a BasicAI object.
-     * Initializes the list of waypoints.
+     * Draws the seed from which this creature's waypoints are derived.
      */
     public BasicAI() {
-        wayPoints = new ArrayList<>();
+        this((long) (Math.random() * Long.MAX_VALUE));
     }
 
     /**
-     * Initializes the waypoints by calculating their positions based on the world model dimensions.
+     * Constructs a BasicAI object whose waypoints are derived from the given seed.
+     * @param wayPointSeed The seed of the waypoints.
      */
-    @Override
-    public void init() {
-        initWayPoints();
+    public BasicAI(long wayPointSeed) {
+        this.wayPointSeed = wayPointSeed;
     }
 
     /**
-     * Initializes the waypoints by calculating their positions based on the world model dimensions.
-     * The number of waypoints is determined by the WAY_POINT_NUMBER constant.
-     * The deviationX and deviationY values are calculated based on the world model dimensions and the number of waypoints.
-     * Randomness is added to the waypoint positions to introduce variation.
+     * Returns the seed from which this creature's waypoints are derived.
+     * @return The seed of the waypoints.
      */
-    private void initWayPoints() {
-        int WAY_POINT_NUMBER = 10;
-        int wayPointNumberX = WAY_POINT_NUMBER;
-        int wayPointNumberY = (int) (WAY_POINT_NUMBER * (worldModel.getHeight() / worldModel.getWidth()));
-
-        double deviationX = worldModel.getWidth() / wayPointNumberX;
-        double deviationY = worldModel.getHeight() / wayPointNumberY;
-
-        double maxRandom = deviationX / 2;
-
-        for (int y = 0; y < wayPointNumberY; y++) {
-            for (int x = 0; x < wayPointNumberX; x++) {
-                Point2D.Double point = new Point2D.Double(x * deviationX + Math.random() * maxRandom,
-                        y * deviationY + Math.random() * maxRandom);
+    public long getWayPointSeed() {
+        return wayPointSeed;
+    }
 
-                wayPoints.add(point);
-            }
-        }
+    /**
+     * Initializes the AI. The waypoints are shared by the world, so nothing has to be prepared here.
+     */
+    @Override
+    public void init() {
+        //Nothing is done here
     }
 
     /**
@@ -67,15 +61,20 @@ public class BasicAI extends CreatureAI {
     public void update() {
         // Move random
         if (creature.getTarget() == null) {
-            Point2D.Double point = wayPoints.get((int) (Math.random() * wayPoints.size()));
+            WayPointGrid wayPointGrid = worldModel.getWayPointGrid();
+            Point2D.Double point = wayPointGrid.getWayPoint((int) (worldModel.getRandom().nextDouble() * wayPointGrid.size()), wayPointSeed);
             creature.setTarget(point);
         }
 
-        Food nearestFood = getNearestFood();
-
         // Go to food
-        if (nearestFood != null && creature.getEnergy() + nearestFood.getValue() <= creature.getMaxEnergy()) {
-            creature.setTarget(nearestFood.getPosition());
+        if (worldModel.getFoodField() != null) {
+            goToRichestFoodCell(worldModel.getFoodField());
+        } else {
+            Food nearestFood = getNearestFood();
+
+            if (nearestFood != null && creature.getEnergy() + nearestFood.getValue() <= creature.getMaxEnergy()) {
+                creature.setTarget(nearestFood.getPosition());
+            }
         }
 
         // Go to mate
@@ -86,11 +85,39 @@ public class BasicAI extends CreatureAI {
         }
     }
 
+    /**
+     * Sets the center of the richest food cell within the vision range as target,
+     * if the creature could use a full bite of it.
+     * @param foodField The food field of the world.
+     */
+    private void goToRichestFoodCell(FoodField foodField) {
+        Point2D.Double position = creature.getPosition();
+        int cell = foodField.getRichestCellWithin(position.x, position.y, creature.getVisionRange());
+
+        if (cell >= 0 && creature.getEnergy() + Math.min(foodField.getEnergy(cell), worldModel.getMaxFoodEnergy()) <= creature.getMaxEnergy()) {
+            double x = foodField.getCellCenterX(cell);
+            double y = foodField.getCellCenterY(cell);
+            Point2D.Double target = creature.getTarget();
+
+            if (target == null || target.x != x || target.y != y) {
+                creature.setTarget(new Point2D.Double(x, y));
+            }
+        }
+    }
+
     /**
      * Finds the nearest food to the creature's position within its vision range.
+     * The result of the world's batch perception is used if it covers this creature,
+     * otherwise all food is scanned.
      * @return The nearest food object, or null if no food is found within the vision range.
      */
     private Food getNearestFood() {
+        Perception perception = getWorldModel().getPerception();
+
+        if (perception.isCurrent(getCreature())) {
+            return perception.getNearestFood(getCreature());
+        }
+
         Food nearestFood = null;
         double nearestDistance = Double.MAX_VALUE;
 
@@ -109,9 +136,17 @@ public class BasicAI extends CreatureAI {
     /**
      * Finds the nearest mate to the creature's position within its vision range,
      * considering the mating conditions and the gender of the mate.
+     * The result of the world's batch perception is used if it covers this creature,
+     * otherwise all creatures are scanned.
      * @return The nearest mate object, or null if no suitable mate is found within the vision range.
      */
     private Creature getNearestMate() {
+        Perception perception = getWorldModel().getPerception();
+
+        if (perception.isCurrent(getCreature())) {
+            return perception.getNearestMate(getCreature());
+        }
+
         Creature nearestMate = null;
         double nearestDistance = Double.MAX_VALUE;
 
@@ -134,10 +169,18 @@ public class BasicAI extends CreatureAI {
     }
 
     /**
-     * Gets the list of waypoints.
+     * Gets the list of waypoints as seen by this creature.
+     * The list is created on every call, it is meant for inspection and not for the update loop.
      * @return The list of waypoints.
      */
     public List<Point2D.Double> getWayPoints() {
+        WayPointGrid wayPointGrid = worldModel.getWayPointGrid();
+        List<Point2D.Double> wayPoints = new ArrayList<>(wayPointGrid.size());
+
+        for (int i = 0; i < wayPointGrid.size(); i++) {
+            wayPoints.add(wayPointGrid.getWayPoint(i, wayPointSeed));
+        }
+
         return wayPoints;
     }
 }
@@ -0,0 +1,34 @@
+package de.thomas.creatures.implementation.controller;
+
+import de.thomas.creatures.implementation.model.CreatureColumns;
+
+/**
+ * The CreatureAccumulator interface lets observers fold per-creature values into their own state
+ * during the world update, reading the primitive creature columns of the update instead of the creature objects.
+ * Accumulators are registered at the WorldController, optionally only seeing every Nth creature.
+ */
+public interface CreatureAccumulator {
+
+    /**
+     * Called once at the start of every world update, before any creature is accumulated.
+     *
+     * @param columns the creature columns of the update
+     */
+    void beginUpdate(CreatureColumns columns);
+
+    /**
+     * Called for every creature (or every Nth creature) surviving the world update.
+     * Position, energy and life are the values after movement and depletion.
+     *
+     * @param columns the creature columns of the update
+     * @param slot    the slot of the creature
+     */
+    void accumulate(CreatureColumns columns, int slot);
+
+    /**
+     * Called once every world update, after all creatures were accumulated and before the dead ones are removed.
+     *
+     * @param columns the creature columns of the update
+     */
+    void endUpdate(CreatureColumns columns);
+}
@@ -0,0 +1,111 @@
+package de.thomas.creatures.implementation.controller;
+
+import de.thomas.creatures.implementation.model.CreatureColumns;
+import de.thomas.creatures.implementation.model.WorldModel;
+
+/**
+ * The CreatureIntegrator class advances the per-creature arithmetic of a world update for the whole population at once.
+ * Every step is a tight loop over the primitive arrays of a CreatureColumns object. The depletion loops are branch-free.
+ * The energy loop also sums up the depleted energy, a floating point sum the JIT compiler may not reorder,
+ * so it stays a scalar loop.
+ */
+public class CreatureIntegrator {
+
+    private CreatureIntegrator() {
+    }
+
+    /**
+     * Moves every creature with a target towards it.
+     * A creature which is closer to its target than one step is placed on the target and loses it.
+     *
+     * @param columns the creature columns
+     * @param world   the world whose parameters apply
+     * @param delta   the time elapsed since the last update
+     */
+    public static void move(CreatureColumns columns, WorldModel world, double delta) {
+        double[] x = columns.getX();
+        double[] y = columns.getY();
+        double[] targetX = columns.getTargetX();
+        double[] targetY = columns.getTargetY();
+        double[] hasTarget = columns.getHasTarget();
+        double[] speed = columns.getSpeed();
+        double step = delta * world.getSpeedFactor();
+
+        for (int i = 0; i < columns.size(); i++) {
+            if (hasTarget[i] == 0) {
+                continue;
+            }
+
+            double dx = targetX[i] - x[i];
+            double dy = targetY[i] - y[i];
+            double distance = Math.sqrt(dx * dx + dy * dy);
+            double stepLength = speed[i] * step;
+
+            if (distance > stepLength * WorldUpdater.MIN_DISTANCE) {
+                double alpha = stepLength / distance;
+                x[i] += alpha * dx;
+                y[i] += alpha * dy;
+            } else {
+                x[i] = targetX[i];
+                y[i] = targetY[i];
+                hasTarget[i] = 0;
+            }
+        }
+    }
+
+    /**
+     * Depletes the energy and advances the life of every creature.
+     * Moving costs the speed of the creature, being pregnant costs its breed progress speed.
+     *
+     * @param columns the creature columns
+     * @param world   the world whose parameters apply
+     * @param delta   the time elapsed since the last update
+     * @return the energy depleted over all creatures
+     */
+    public static double deplete(CreatureColumns columns, WorldModel world, double delta) {
+        double[] energy = columns.getEnergy();
+        double[] life = columns.getLife();
+        double[] hasTarget = columns.getHasTarget();
+        double[] pregnant = columns.getPregnant();
+        double[] speed = columns.getSpeed();
+        double[] breedProgressSpeed = columns.getBreedProgressSpeed();
+        double step = delta * world.getSpeedFactor();
+        double baseDepletion = world.getBaseEnergyDepletionRate();
+        int size = columns.size();
+        double totalDepletion = 0;
+
+        for (int i = 0; i < size; i++) {
+            double depletion = (baseDepletion + hasTarget[i] * speed[i] + pregnant[i] * breedProgressSpeed[i]) * step;
+            energy[i] -= depletion;
+            totalDepletion += depletion;
+        }
+
+        for (int i = 0; i < size; i++) {
+            life[i] += step;
+        }
+
+        return totalDepletion;
+    }
+
+    /**
+     * Collects the slots of all creatures which ran out of energy or reached their maximum life.
+     *
+     * @param columns the creature columns
+     * @param deaths  receives the slots in ascending order, must be at least as large as the columns
+     * @return the number of dead creatures
+     */
+    public static int collectDeaths(CreatureColumns columns, int[] deaths) {
+        double[] energy = columns.getEnergy();
+        double[] life = columns.getLife();
+        double[] maxLife = columns.getMaxLife();
+        int deathAmount = 0;
+
+        for (int i = 0; i < columns.size(); i++) {
+            if (energy[i] <= 1 || life[i] >= maxLife[i]) {
+                deaths[deathAmount++] = i;
+            }
+        }
+
+        return deathAmount;
+    }
+}
@@ -0,0 +1,586 @@
+package de.thomas.creatures.implementation.controller;
+
+import de.thomas.creatures.implementation.model.CreatureTemplate;
+import de.thomas.creatures.implementation.model.Food;
+import de.thomas.creatures.implementation.model.WorldModel;
+import de.thomas.creatures.implementation.model.WorldParameters;
+import de.thomas.creatures.implementation.statistics.ConvergenceDetector;
+import de.thomas.creatures.implementation.statistics.ConvergenceDetector.Reason;
+import de.thomas.creatures.implementation.statistics.CsvStatisticsWriter;
+import de.thomas.creatures.implementation.statistics.StatColumns;
+import de.thomas.creatures.implementation.statistics.StatElement;
+import de.thomas.creatures.implementation.statistics.TraitDistributions;
+import de.thomas.creatures.implementation.statistics.TraitDistributions.Trait;
+import de.thomas.creatures.implementation.util.WorldRandom;
+
+import java.awt.geom.Point2D;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * The ParameterSweep class runs a world under many combinations of parameters and aggregates the outcome.
+ * <p>
+ * Every factor varies one parameter over a number of levels. A grid design runs every combination of the levels,
+ * a random design draws every factor uniformly between its lowest and highest level. Each configuration is run
+ * several times with different seeds. Replicate k of every configuration uses the same seed, so differences between
+ * configurations are not hidden by different luck. All runs are tasks of a work stealing pool over all cores.
+ * With a convergence detector set, a run stops as soon as its population died out or settled, and the reason is kept.
+ * <p>
+ * The results are written into one csv file. For every configuration there is one row per statistics sample with
+ * the mean and the 95% confidence interval over the replicates, followed by a final row over the last sample of
+ * every replicate. A replicate which stopped early counts with its last sample for the rest of the time.
+ * The trait distributions of the final populations of all replicates are merged per configuration, their quantiles
+ * are written into a second csv file.
+ */
+public class ParameterSweep {
+    //Two-sided 95% quantiles of the t-distribution for 1 to 30 degrees of freedom
+    private static final double[] T_QUANTILES = {12.706, 4.303, 3.182, 2.776, 2.571, 2.447, 2.365, 2.306, 2.262,
+            2.228, 2.201, 2.179, 2.160, 2.145, 2.131, 2.120, 2.110, 2.101, 2.093, 2.086, 2.080, 2.074, 2.069, 2.064,
+            2.060, 2.056, 2.052, 2.048, 2.045, 2.042};
+    private static final double NORMAL_QUANTILE = 1.96;
+    private static final double[] TRAIT_QUANTILES = {0.1, 0.5, 0.9};
+    private static final String[] TRAIT_QUANTILE_LABELS = {"P10", "Median", "P90"};
+
+    private final List<Factor> factors = new ArrayList<>();
+    private final List<Configuration> configurations = new ArrayList<>();
+    private int width = 600;
+    private int height = 400;
+    private int foodCreationRate = 50;
+    private WorldParameters parameters = new WorldParameters();
+    private CreatureTemplate template = new CreatureTemplate();
+    private int replicateAmount = 5;
+    private long seed = 1;
+    //Settings of the detector every run gets, or null to run every replicate for the whole duration
+    private ConvergenceDetector convergenceDetector;
+
+    public void addFactor(Factor factor) {
+        factors.add(factor);
+    }
+
+    public List<Factor> getFactors() {
+        return factors;
+    }
+
+    public List<Configuration> getConfigurations() {
+        return configurations;
+    }
+
+    /**
+     * Replaces the configurations with every combination of the levels of all factors.
+     */
+    public void createGrid() {
+        configurations.clear();
+
+        int[] levels = new int[factors.size()];
+        while (true) {
+            double[] values = new double[factors.size()];
+            for (int k = 0; k < factors.size(); k++) {
+                values[k] = factors.get(k).getLevels()[levels[k]];
+            }
+            configurations.add(createConfiguration(values));
+
+            //Counts through the combinations, the last factor changes fastest
+            int k = factors.size() - 1;
+            while (k >= 0 && ++levels[k] == factors.get(k).getLevels().length) {
+                levels[k] = 0;
+                k--;
+            }
+            if (k < 0) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Replaces the configurations with random ones, every factor is drawn between its lowest and highest level.
+     *
+     * @param amount the number of configurations
+     */
+    public void createRandomDesign(int amount) {
+        configurations.clear();
+        WorldRandom random = new WorldRandom(seed);
+
+        for (int i = 0; i < amount; i++) {
+            double[] values = new double[factors.size()];
+
+            for (int k = 0; k < factors.size(); k++) {
+                double min = factors.get(k).getMin();
+                values[k] = min + random.nextDouble() * (factors.get(k).getMax() - min);
+            }
+
+            configurations.add(createConfiguration(values));
+        }
+    }
+
+    private Configuration createConfiguration(double[] values) {
+        Configuration configuration = new Configuration(values, foodCreationRate, new WorldParameters(parameters),
+                new CreatureTemplate(template));
+
+        for (int k = 0; k < factors.size(); k++) {
+            factors.get(k).getSetter().set(configuration, values[k]);
+        }
+
+        return configuration;
+    }
+
+    /**
+     * Runs every replicate of every configuration and keeps their statistics.
+     *
+     * @param duration       the world time of a run in seconds
+     * @param delta          the time of one update
+     * @param sampleInterval the time between two statistics samples
+     */
+    public void run(double duration, double delta, double sampleInterval) throws InterruptedException {
+        long[] seeds = new long[replicateAmount];
+        WorldRandom random = new WorldRandom(seed);
+        for (int r = 0; r < replicateAmount; r++) {
+            seeds[r] = random.nextLong();
+        }
+
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (Configuration configuration : configurations) {
+            configuration.replicates = new StatColumns[replicateAmount];
+            configuration.stopReasons = new Reason[replicateAmount];
+            configuration.traitDistributions = new TraitDistributions();
+
+            for (int r = 0; r < replicateAmount; r++) {
+                int replicate = r;
+                tasks.add(() -> {
+                    WorldModel world = createWorld(configuration, seeds[replicate]);
+                    ConvergenceDetector detector = convergenceDetector != null ? new ConvergenceDetector(convergenceDetector) : null;
+
+                    try {
+                        configuration.replicates[replicate] = new WorldController(world, null)
+                                .runHeadless(duration, delta, sampleInterval, detector);
+                        configuration.stopReasons[replicate] = detector != null ? detector.getReason() : null;
+
+                        //The replicates of a configuration finish on different threads
+                        synchronized (configuration) {
+                            configuration.traitDistributions.merge(world.getPopulationTotals().getTraitDistributions());
+                        }
+                    } finally {
+                        world.getLineageLog().close();
+                    }
+                    return null;
+                });
+            }
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        try {
+            for (Future<Void> result : pool.invokeAll(tasks)) {
+                result.get();
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("A run of the sweep failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Creates the world of one run, the creatures are created from the template of the configuration.
+     *
+     * @param configuration the configuration
+     * @param seed          the seed of the random number generator of the world
+     * @return the world
+     */
+    public WorldModel createWorld(Configuration configuration, long seed) {
+        WorldModel world = new WorldModel(width, height, configuration.getFoodCreationRate());
+        world.setParameters(new WorldParameters(configuration.getParameters()));
+        world.getRandom().setState(seed);
+
+        WorldRandom random = world.getRandom();
+        WorldController controller = new WorldController(world, null);
+        CreatureTemplate creatures = configuration.getTemplate();
+
+        for (int i = 0; i < creatures.getAmount(); i++) {
+            controller.addCreature(creatures.createCreature(width, height, random));
+        }
+
+        for (int i = 0; i < creatures.getAmount() * 10; i++) {
+            Point2D.Double position = new Point2D.Double(width * random.nextDouble(), height * random.nextDouble());
+            world.addFood(new Food(position, (int) (random.nextDouble() * world.getMaxFoodEnergy())));
+        }
+
+        return world;
+    }
+
+    /**
+     * Writes the aggregated statistics of all configurations.
+     *
+     * @param file the csv file
+     */
+    public void writeResults(File file) throws IOException {
+        List<String> labels = new ArrayList<>();
+        labels.add("Configuration");
+        for (Factor factor : factors) {
+            labels.add(factor.getName());
+        }
+        labels.add("Final");
+        labels.add("Time");
+        labels.add("Running Replicates");
+        labels.add("Extinct");
+        labels.add("Single Gender");
+        labels.add("Steady State");
+        for (int metric = 0; metric < StatElement.METRIC_AMOUNT; metric++) {
+            labels.add(CsvStatisticsWriter.getMetricLabel(metric) + " Mean");
+            labels.add(CsvStatisticsWriter.getMetricLabel(metric) + " CI");
+        }
+
+        try (CsvStatisticsWriter writer = CsvStatisticsWriter.withColumns(file, labels.toArray(new String[0]))) {
+            double[] row = new double[labels.size()];
+            double[] values = new double[replicateAmount];
+
+            for (int c = 0; c < configurations.size(); c++) {
+                Configuration configuration = configurations.get(c);
+                StatColumns[] replicates = configuration.replicates;
+                if (replicates == null) {
+                    continue;
+                }
+
+                row[0] = c;
+                System.arraycopy(configuration.getValues(), 0, row, 1, factors.size());
+                int first = 1 + factors.size();
+
+                int sampleAmount = 0;
+                for (StatColumns replicate : replicates) {
+                    sampleAmount = Math.max(sampleAmount, replicate.size());
+                }
+
+                for (int i = 0; i <= sampleAmount; i++) {
+                    //The row after the last sample aggregates the last sample of every replicate
+                    boolean last = i == sampleAmount;
+                    int amount = 0;
+                    double time = 0;
+
+                    for (StatColumns replicate : replicates) {
+                        if (last ? replicate.size() > 0 : i < replicate.size()) {
+                            time += replicate.getTime(last ? replicate.size() - 1 : i);
+                            amount++;
+                        }
+                    }
+
+                    row[first] = last ? 1 : 0;
+                    row[first + 1] = amount > 0 ? time / amount : Double.NaN;
+                    row[first + 2] = last ? replicates.length : amount;
+                    for (Reason reason : Reason.values()) {
+                        row[first + 3 + reason.ordinal()] = countStopped(configuration, reason);
+                    }
+                    int metricColumn = first + 3 + Reason.values().length;
+
+                    for (int metric = 0; metric < StatElement.METRIC_AMOUNT; metric++) {
+                        int valueAmount = 0;
+
+                        for (StatColumns replicate : replicates) {
+                            //Stopped replicates keep their last sample
+                            int index = Math.min(i, replicate.size() - 1);
+
+                            if (index >= 0 && !Double.isNaN(replicate.getValue(metric, index))) {
+                                values[valueAmount++] = replicate.getValue(metric, index);
+                            }
+                        }
+
+                        row[metricColumn + 2 * metric] = getMean(values, valueAmount);
+                        row[metricColumn + 1 + 2 * metric] = getConfidence(values, valueAmount);
+                    }
+
+                    writer.writeValues(row);
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the quantiles of the traits of the final populations, with one row per configuration.
+     * Every replicate contributes its creatures alive at the end of its run.
+     *
+     * @param file the csv file
+     */
+    public void writeTraitResults(File file) throws IOException {
+        List<String> labels = new ArrayList<>();
+        labels.add("Configuration");
+        for (Factor factor : factors) {
+            labels.add(factor.getName());
+        }
+        labels.add("Final Creatures");
+        for (Trait trait : Trait.values()) {
+            for (String quantileLabel : TRAIT_QUANTILE_LABELS) {
+                labels.add(CreatureTemplate.getLabel(trait) + " " + quantileLabel);
+            }
+        }
+
+        try (CsvStatisticsWriter writer = CsvStatisticsWriter.withColumns(file, labels.toArray(new String[0]))) {
+            double[] row = new double[labels.size()];
+
+            for (int c = 0; c < configurations.size(); c++) {
+                TraitDistributions distributions = configurations.get(c).traitDistributions;
+                if (distributions == null) {
+                    continue;
+                }
+
+                row[0] = c;
+                System.arraycopy(configurations.get(c).getValues(), 0, row, 1, factors.size());
+                int column = 1 + factors.size();
+                row[column++] = distributions.getSketch(Trait.SPEED).getCount();
+
+                for (Trait trait : Trait.values()) {
+                    for (double quantile : TRAIT_QUANTILES) {
+                        row[column++] = distributions.getQuantile(trait, quantile);
+                    }
+                }
+
+                writer.writeValues(row);
+            }
+        }
+    }
+
+    private static int countStopped(Configuration configuration, Reason reason) {
+        int amount = 0;
+
+        for (Reason stopReason : configuration.stopReasons) {
+            if (stopReason == reason) {
+                amount++;
+            }
+        }
+
+        return amount;
+    }
+
+    private static double getMean(double[] values, int amount) {
+        if (amount == 0) {
+            return Double.NaN;
+        }
+
+        double sum = 0;
+        for (int i = 0; i < amount; i++) {
+            sum += values[i];
+        }
+
+        return sum / amount;
+    }
+
+    /**
+     * Returns the half width of the 95% confidence interval of the mean.
+     *
+     * @param values the values, at least two are needed
+     * @param amount the number of values
+     * @return the half width, or NaN for less than two values
+     */
+    private static double getConfidence(double[] values, int amount) {
+        if (amount < 2) {
+            return Double.NaN;
+        }
+
+        double mean = getMean(values, amount);
+        double squares = 0;
+        for (int i = 0; i < amount; i++) {
+            squares += (values[i] - mean) * (values[i] - mean);
+        }
+
+        double quantile = amount - 1 <= T_QUANTILES.length ? T_QUANTILES[amount - 2] : NORMAL_QUANTILE;
+        return quantile * Math.sqrt(squares / (amount - 1) / amount);
+    }
+
+    public void setWorldSize(int width, int height) {
+        this.width = width;
+        this.height = height;
+    }
+
+    public void setFoodCreationRate(int foodCreationRate) {
+        this.foodCreationRate = foodCreationRate;
+    }
+
+    /**
+     * @return the parameters every configuration starts from, before the factors are applied
+     */
+    public WorldParameters getParameters() {
+        return parameters;
+    }
+
+    public void setParameters(WorldParameters parameters) {
+        this.parameters = parameters;
+    }
+
+    /**
+     * @return the initial population every configuration starts from, before the factors are applied
+     */
+    public CreatureTemplate getTemplate() {
+        return template;
+    }
+
+    public void setTemplate(CreatureTemplate template) {
+        this.template = template;
+    }
+
+    public int getReplicateAmount() {
+        return replicateAmount;
+    }
+
+    public void setReplicateAmount(int replicateAmount) {
+        this.replicateAmount = replicateAmount;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    public ConvergenceDetector getConvergenceDetector() {
+        return convergenceDetector;
+    }
+
+    /**
+     * Lets every run stop early once it converged. Each run gets its own detector with the given settings.
+     *
+     * @param convergenceDetector the settings, or null to run every replicate for the whole duration
+     */
+    public void setConvergenceDetector(ConvergenceDetector convergenceDetector) {
+        this.convergenceDetector = convergenceDetector;
+    }
+
+    /**
+     * Sets one parameter of a configuration.
+     */
+    public interface Setter {
+        void set(Configuration configuration, double value);
+    }
+
+    /**
+     * A parameter which is varied by the sweep, with the levels it takes.
+     */
+    public static class Factor {
+        private final String name;
+        private final Setter setter;
+        private final double[] levels;
+
+        public Factor(String name, Setter setter, double... levels) {
+            this.name = name;
+            this.setter = setter;
+            this.levels = levels;
+        }
+
+        public static Factor mutationRate(double... levels) {
+            return new Factor("Mutation Rate", (c, value) -> c.getParameters().setMutationRate(value), levels);
+        }
+
+        public static Factor foodCreationRate(double... levels) {
+            return new Factor("Food Creation Rate", (c, value) -> c.setFoodCreationRate((int) Math.round(value)), levels);
+        }
+
+        public static Factor maxFoodAmount(double... levels) {
+            return new Factor("Max Food Amount", (c, value) -> c.getParameters().setMaxFoodAmount((int) Math.round(value)), levels);
+        }
+
+        public static Factor baseEnergyDepletionRate(double... levels) {
+            return new Factor("Base Energy Depletion Rate", (c, value) -> c.getParameters().setBaseEnergyDepletionRate(value), levels);
+        }
+
+        public static Factor creatureAmount(double... levels) {
+            return new Factor("Creature Amount", (c, value) -> c.getTemplate().setAmount((int) Math.round(value)), levels);
+        }
+
+        public static Factor trait(Trait trait, double... levels) {
+            return new Factor("Initial " + CreatureTemplate.getLabel(trait), (c, value) -> c.getTemplate().setValue(trait, value), levels);
+        }
+
+        public static Factor traitVariance(Trait trait, double... levels) {
+            return new Factor("Initial " + CreatureTemplate.getLabel(trait) + " Variance", (c, value) -> c.getTemplate().setVariance(trait, value), levels);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Setter getSetter() {
+            return setter;
+        }
+
+        public double[] getLevels() {
+            return levels;
+        }
+
+        public double getMin() {
+            double min = Double.POSITIVE_INFINITY;
+            for (double level : levels) {
+                min = Math.min(min, level);
+            }
+            return min;
+        }
+
+        public double getMax() {
+            double max = Double.NEGATIVE_INFINITY;
+            for (double level : levels) {
+                max = Math.max(max, level);
+            }
+            return max;
+        }
+    }
+
+    /**
+     * One combination of factor values, with the statistics of its replicates once the sweep has run.
+     */
+    public static class Configuration {
+        private final double[] values;
+        private int foodCreationRate;
+        private final WorldParameters parameters;
+        private final CreatureTemplate template;
+        private StatColumns[] replicates;
+        private Reason[] stopReasons;
+        private TraitDistributions traitDistributions;
+
+        private Configuration(double[] values, int foodCreationRate, WorldParameters parameters, CreatureTemplate template) {
+            this.values = values;
+            this.foodCreationRate = foodCreationRate;
+            this.parameters = parameters;
+            this.template = template;
+        }
+
+        public double[] getValues() {
+            return values;
+        }
+
+        public int getFoodCreationRate() {
+            return foodCreationRate;
+        }
+
+        public void setFoodCreationRate(int foodCreationRate) {
+            this.foodCreationRate = foodCreationRate;
+        }
+
+        public WorldParameters getParameters() {
+            return parameters;
+        }
+
+        public CreatureTemplate getTemplate() {
+            return template;
+        }
+
+        /**
+         * @return the statistics of every replicate, or null if the sweep has not run yet
+         */
+        public StatColumns[] getReplicates() {
+            return replicates;
+        }
+
+        /**
+         * @return why every replicate stopped early, null for replicates which ran the whole duration
+         */
+        public Reason[] getStopReasons() {
+            return stopReasons;
+        }
+
+        /**
+         * @return the trait distributions of the final populations of all replicates merged,
+         * or null if the sweep has not run yet
+         */
+        public TraitDistributions getTraitDistributions() {
+            return traitDistributions;
+        }
+    }
+}
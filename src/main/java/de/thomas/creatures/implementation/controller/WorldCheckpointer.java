@@ -0,0 +1,843 @@
+package de.thomas.creatures.implementation.controller;
+
+import de.thomas.creatures.implementation.model.Creature;
+import de.thomas.creatures.implementation.model.CreatureColumns;
+import de.thomas.creatures.implementation.model.CreatureTraits;
+import de.thomas.creatures.implementation.model.Food;
+import de.thomas.creatures.implementation.model.FoodField;
+import de.thomas.creatures.implementation.model.WorldModel;
+import de.thomas.creatures.implementation.model.WorldParameters;
+
+import java.awt.geom.Point2D;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32;
+
+/**
+ * The WorldCheckpointer class writes periodic checkpoints of a running world to a file without pausing the simulation.
+ * <p>
+ * A checkpoint is taken at the end of a world update. The WorldUpdater hands over its CreatureColumns, which hold the
+ * complete state of all creatures after the update, and continues with a spare set. The food field regrows into a spare
+ * array in the update of a checkpoint and hands over its energy from before the regrowth in the same way, the writer
+ * repeats the regrowth. Only the food and the state of the creatures born in this update are copied on the simulation
+ * thread. The checkpoint is serialized on a background thread, reading nothing from the Creature objects but their
+ * immutable traits. If the previous checkpoint is still being written, the checkpoint is postponed to the next update.
+ * <p>
+ * Every FULL_INTERVAL-th checkpoint is full. The checkpoints in between are deltas: a creature which was already
+ * written since the last full checkpoint is stored with its changing state only, its traits and AI are not repeated.
+ * Of the food field, only the cells whose energy changed are stored, and of the food only the eaten and the added ones.
+ * Creatures missing from a checkpoint have died.
+ * AI targets are stored as points, a creature following another creature picks it up again on its next AI update.
+ * The lineage log is not part of the checkpoints.
+ * <p>
+ * Every frame starts with its length and a CRC32 of its content, so a restore only reads the frames from the latest
+ * full checkpoint on, and a frame which was cut off or damaged ends the restore at the checkpoint before it.
+ * A frame whose write failed is cut off the file again and the next checkpoint is full. If even that fails,
+ * no more checkpoints are taken and the error is kept for the user interface.
+ */
+public class WorldCheckpointer {
+    public static final int FRAME_MAGIC = 0x43524350;
+    public static final int VERSION = 3;
+    public static final String EXTENSION = "ccheck";
+    public static final double DEFAULT_INTERVAL = 60;
+    public static final int FULL_INTERVAL = 10;
+
+    private static final byte FRAME_FULL = 0;
+    private static final byte FRAME_DELTA = 1;
+    private static final byte RECORD_FULL = 0;
+    private static final byte RECORD_STATE = 1;
+    //Magic, length of the content and CRC32 of the content
+    private static final int FRAME_HEADER_LENGTH = Integer.BYTES + Long.BYTES + Integer.BYTES;
+    private static final int BUFFER_SIZE = 1 << 16;
+    //Upper bound of the bytes of one creature: id, record type, traits, state, target and fetus
+    private static final int MAX_CREATURE_LENGTH = Long.BYTES + 1 + CreatureTraits.LENGTH + 5 * Double.BYTES + 1
+            + 2 * Double.BYTES + 1 + CreatureTraits.LENGTH;
+
+    private final double interval;
+    private final FileChannel channel;
+    //Only used on the writer thread
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private final ByteBuffer header = ByteBuffer.allocate(FRAME_HEADER_LENGTH);
+    private final CRC32 crc = new CRC32();
+    private long position;
+    //Start of the frame being written and whether the next frame has to be full after a failed one
+    private long frameStart;
+    private boolean fullNeeded;
+    private volatile Exception failure;
+    private final ExecutorService executor;
+    private final AtomicBoolean writing = new AtomicBoolean();
+    private double nextTime;
+    private long epoch;
+
+    //Owned by the writer while a checkpoint is written, reused by the next capture afterwards
+    private CreatureColumns spareColumns = new CreatureColumns();
+    private double[] spareFieldEnergy;
+    //Ids of the creatures written since the last full checkpoint and the last written food field, only used on the writer thread
+    private final BitSet written = new BitSet();
+    private double[] writtenFieldEnergy;
+    //The food of the last written checkpoint, and the indices of the food removed since then
+    private double[] writtenFoodX;
+    private double[] writtenFoodY;
+    private int[] writtenFoodValue;
+    private int[] removedFood = new int[0];
+
+    /**
+     * Constructs a WorldCheckpointer writing to the given file. The first checkpoint is taken on the next update.
+     *
+     * @param file     the checkpoint file, which is overwritten
+     * @param interval the world time between two checkpoints in seconds
+     */
+    public WorldCheckpointer(File file, double interval) throws IOException {
+        this.interval = interval;
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        buffer.putInt(VERSION);
+        flushBuffer();
+        executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "World Checkpoint");
+            thread.setDaemon(true);
+            //The simulation should not wait for the writer where both share a core
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+    }
+
+    /**
+     * Checks if a checkpoint should be taken at the given world time.
+     *
+     * @param time the world time
+     * @return true if a checkpoint is due and the previous one is written
+     */
+    public boolean isDue(double time) {
+        return time >= nextTime && !writing.get() && !executor.isShutdown();
+    }
+
+    /**
+     * Returns an array the food field regrows into in the update of a due checkpoint, see FoodField.regrow.
+     * Must only be called after isDue returned true.
+     *
+     * @param cellAmount the amount of cells of the food field
+     * @return the array, which belongs to the food field afterwards
+     */
+    public double[] getSpareFieldEnergy(int cellAmount) {
+        if (spareFieldEnergy == null || spareFieldEnergy.length != cellAmount) {
+            spareFieldEnergy = new double[cellAmount];
+        }
+
+        return spareFieldEnergy;
+    }
+
+    /**
+     * Takes a checkpoint of the world after an update. Must be called on the simulation thread.
+     *
+     * @param world                     the world
+     * @param columns                   the columns of the finished update, which are taken over by the checkpoint
+     * @param deaths                    the slots of the creatures which died in the update, in ascending order
+     * @param deathAmount               the amount of deaths
+     * @param newBornAmount             the amount of creatures born in the update, which are the last ones in the world
+     * @param fieldEnergyBeforeRegrowth the energy the food field returned from its regrowth in this update,
+     *                                  which is taken over by the checkpoint, or null without food field
+     * @return the columns to use for the next update
+     */
+    public CreatureColumns capture(WorldModel world, CreatureColumns columns, int[] deaths, int deathAmount, int newBornAmount,
+                                   double[] fieldEnergyBeforeRegrowth) {
+        if (!writing.compareAndSet(false, true)) {
+            return columns;
+        }
+
+        Checkpoint checkpoint = new Checkpoint();
+        checkpoint.full = epoch % FULL_INTERVAL == 0;
+        checkpoint.epoch = epoch++;
+        checkpoint.time = world.getTime();
+        checkpoint.randomState = world.getRandom().getState();
+        checkpoint.width = world.getWidth();
+        checkpoint.height = world.getHeight();
+        checkpoint.foodCreationRate = world.getFoodCreationRate();
+        checkpoint.maxFoodEnergy = world.getMaxFoodEnergy();
+        checkpoint.maxFoodAmount = world.getMaxFoodAmount();
+        checkpoint.baseEnergyDepletionRate = world.getBaseEnergyDepletionRate();
+        checkpoint.speedEnergyDepletionFactor = world.getSpeedEnergyDepletionFactor();
+        checkpoint.mutationRate = world.getMutationRate();
+        checkpoint.speedFactor = world.getSpeedFactor();
+
+        checkpoint.columns = columns;
+        checkpoint.deaths = Arrays.copyOf(deaths, deathAmount);
+
+        List<Creature> creatures = world.getCreatures();
+        checkpoint.newBorns = new CreatureColumns();
+        checkpoint.newBorns.load(creatures.subList(creatures.size() - newBornAmount, creatures.size()));
+        //Loading assigns slots, which have to be the indices in the world again
+        for (int i = creatures.size() - newBornAmount; i < creatures.size(); i++) {
+            creatures.get(i).setSlot(i);
+        }
+
+        //The food field is taken over as it was before its regrowth, the writer repeats the regrowth
+        FoodField foodField = world.getFoodField();
+        if (foodField != null) {
+            checkpoint.foodField = foodField;
+            checkpoint.fieldEnergy = fieldEnergyBeforeRegrowth;
+            checkpoint.fieldGrowth = foodField.getGrowth(world);
+            checkpoint.fieldCapacity = foodField.getCapacity(world);
+            spareFieldEnergy = fieldEnergyBeforeRegrowth;
+        }
+
+        List<Food> foods = world.getFoods();
+        checkpoint.foodX = new double[foods.size()];
+        checkpoint.foodY = new double[foods.size()];
+        checkpoint.foodValue = new int[foods.size()];
+        for (int i = 0; i < foods.size(); i++) {
+            checkpoint.foodX[i] = foods.get(i).getPosition().x;
+            checkpoint.foodY[i] = foods.get(i).getPosition().y;
+            checkpoint.foodValue[i] = foods.get(i).getValue();
+        }
+
+        nextTime = world.getTime() + interval;
+        CreatureColumns next = spareColumns;
+        spareColumns = columns;
+
+        executor.execute(() -> {
+            try {
+                write(checkpoint);
+            } catch (IOException | RuntimeException e) {
+                e.printStackTrace();
+                discardFrame(e);
+            } finally {
+                writing.set(false);
+            }
+        });
+
+        return next;
+    }
+
+    /**
+     * Cuts a frame whose write failed off the file, so the frames before it stay restorable, and forgets what it
+     * wrote. The next frame is full, as later deltas can not build on the discarded one.
+     * If the file can not be cut, the checkpoints are stopped.
+     */
+    private void discardFrame(Exception cause) {
+        buffer.clear();
+        written.clear();
+        writtenFieldEnergy = null;
+        writtenFoodX = null;
+        fullNeeded = true;
+
+        try {
+            channel.truncate(frameStart);
+            position = frameStart;
+        } catch (IOException e) {
+            e.printStackTrace();
+            failure = cause;
+            executor.shutdown();
+
+            try {
+                channel.close();
+            } catch (IOException closeException) {
+                closeException.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * @return the error which stopped the checkpoints, or null while they are written
+     */
+    public Exception getFailure() {
+        return failure;
+    }
+
+    private void write(Checkpoint checkpoint) throws IOException {
+        if (checkpoint.full || fullNeeded || writtenFoodX == null) {
+            checkpoint.full = true;
+            fullNeeded = false;
+            written.clear();
+        }
+
+        //A delta needs the same food field layout as the checkpoint before
+        if (!checkpoint.full && checkpoint.foodField != null
+                && (writtenFieldEnergy == null || writtenFieldEnergy.length != checkpoint.foodField.getCellAmount())) {
+            checkpoint.full = true;
+            written.clear();
+        }
+
+        //The header is written once the length and checksum of the content are known. Until then it stays zero,
+        //so a frame cut off by a crash is never mistaken for a complete one
+        frameStart = position;
+        position += FRAME_HEADER_LENGTH;
+        crc.reset();
+
+        buffer.put(checkpoint.full ? FRAME_FULL : FRAME_DELTA);
+        buffer.putLong(checkpoint.epoch);
+        buffer.putDouble(checkpoint.time);
+        buffer.putLong(checkpoint.randomState);
+        buffer.putDouble(checkpoint.width);
+        buffer.putDouble(checkpoint.height);
+        buffer.putInt(checkpoint.foodCreationRate);
+        buffer.putInt(checkpoint.maxFoodEnergy);
+        buffer.putInt(checkpoint.maxFoodAmount);
+        buffer.putDouble(checkpoint.baseEnergyDepletionRate);
+        buffer.putDouble(checkpoint.speedEnergyDepletionFactor);
+        buffer.putDouble(checkpoint.mutationRate);
+        buffer.putDouble(checkpoint.speedFactor);
+
+        FoodField foodField = checkpoint.foodField;
+        buffer.put((byte) (foodField != null ? 1 : 0));
+        if (foodField != null) {
+            writeFoodField(checkpoint, foodField);
+        }
+
+        writeFood(checkpoint);
+
+        CreatureColumns columns = checkpoint.columns;
+        int[] deaths = checkpoint.deaths;
+        ensureRemaining(Integer.BYTES);
+        buffer.putInt(columns.size() - deaths.length + checkpoint.newBorns.size());
+
+        int death = 0;
+        for (int slot = 0; slot < columns.size(); slot++) {
+            if (death < deaths.length && deaths[death] == slot) {
+                death++;
+            } else {
+                writeCreature(columns, slot);
+            }
+        }
+        for (int slot = 0; slot < checkpoint.newBorns.size(); slot++) {
+            writeCreature(checkpoint.newBorns, slot);
+        }
+
+        flushBuffer();
+
+        header.clear();
+        header.putInt(FRAME_MAGIC);
+        header.putLong(position - frameStart - FRAME_HEADER_LENGTH);
+        header.putInt((int) crc.getValue());
+        header.flip();
+
+        long headerPosition = frameStart;
+        while (header.hasRemaining()) {
+            headerPosition += channel.write(header, headerPosition);
+        }
+    }
+
+    private void ensureRemaining(int length) throws IOException {
+        if (buffer.remaining() < length) {
+            flushBuffer();
+        }
+    }
+
+    //Writes the buffer at the end of the file and adds its content to the checksum of the frame
+    private void flushBuffer() throws IOException {
+        buffer.flip();
+        crc.update(buffer.array(), 0, buffer.limit());
+
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+
+        buffer.clear();
+    }
+
+    private void writeFoodField(Checkpoint checkpoint, FoodField foodField) throws IOException {
+        double[] energy = checkpoint.fieldEnergy;
+        int cellAmount = foodField.getCellAmount();
+
+        for (int cell = 0; cell < cellAmount; cell++) {
+            energy[cell] = FoodField.regrowCell(energy[cell], checkpoint.fieldGrowth, foodField.getFertility(cell), checkpoint.fieldCapacity);
+        }
+
+        ensureRemaining(Double.BYTES + Integer.BYTES);
+        buffer.putDouble(foodField.getCellSize());
+        buffer.putInt(cellAmount);
+
+        if (checkpoint.full || writtenFieldEnergy == null || writtenFieldEnergy.length != cellAmount) {
+            writtenFieldEnergy = new double[cellAmount];
+
+            for (int cell = 0; cell < cellAmount; cell++) {
+                ensureRemaining(Double.BYTES);
+                buffer.putDouble(energy[cell]);
+            }
+            //The fertility never changes during a run
+            for (int cell = 0; cell < cellAmount; cell++) {
+                ensureRemaining(Double.BYTES);
+                buffer.putDouble(foodField.getFertility(cell));
+            }
+        } else {
+            //Cells which are full or untouched keep their energy, only the changed ones are written
+            int changedAmount = 0;
+            for (int cell = 0; cell < cellAmount; cell++) {
+                if (energy[cell] != writtenFieldEnergy[cell]) {
+                    changedAmount++;
+                }
+            }
+
+            ensureRemaining(Integer.BYTES);
+            buffer.putInt(changedAmount);
+            for (int cell = 0; cell < cellAmount; cell++) {
+                if (energy[cell] != writtenFieldEnergy[cell]) {
+                    ensureRemaining(Integer.BYTES + Double.BYTES);
+                    buffer.putInt(cell);
+                    buffer.putDouble(energy[cell]);
+                }
+            }
+        }
+
+        System.arraycopy(energy, 0, writtenFieldEnergy, 0, cellAmount);
+    }
+
+    /**
+     * Writes all food of a full checkpoint, or the food removed from and appended to the last written food list.
+     * Eaten food is removed from the list without changing the order of the rest and new food is appended, so
+     * matching both lists in order finds the changes. Any other change is still stored correctly, only larger.
+     */
+    private void writeFood(Checkpoint checkpoint) throws IOException {
+        double[] foodX = checkpoint.foodX;
+        double[] foodY = checkpoint.foodY;
+        int[] foodValue = checkpoint.foodValue;
+        int first = 0;
+
+        if (checkpoint.full) {
+            ensureRemaining(Integer.BYTES);
+            buffer.putInt(foodX.length);
+        } else {
+            if (removedFood.length < writtenFoodX.length) {
+                removedFood = new int[writtenFoodX.length];
+            }
+
+            int removedAmount = 0;
+            for (int i = 0; i < writtenFoodX.length; i++) {
+                if (first < foodX.length && writtenFoodX[i] == foodX[first] && writtenFoodY[i] == foodY[first]
+                        && writtenFoodValue[i] == foodValue[first]) {
+                    first++;
+                } else {
+                    removedFood[removedAmount++] = i;
+                }
+            }
+
+            ensureRemaining(Integer.BYTES);
+            buffer.putInt(removedAmount);
+            for (int i = 0; i < removedAmount; i++) {
+                ensureRemaining(Integer.BYTES);
+                buffer.putInt(removedFood[i]);
+            }
+
+            ensureRemaining(Integer.BYTES);
+            buffer.putInt(foodX.length - first);
+        }
+
+        for (int i = first; i < foodX.length; i++) {
+            ensureRemaining(2 * Double.BYTES + Integer.BYTES);
+            buffer.putDouble(foodX[i]);
+            buffer.putDouble(foodY[i]);
+            buffer.putInt(foodValue[i]);
+        }
+
+        writtenFoodX = foodX;
+        writtenFoodY = foodY;
+        writtenFoodValue = foodValue;
+    }
+
+    private void writeCreature(CreatureColumns columns, int slot) throws IOException {
+        Creature creature = columns.getCreature(slot);
+        int id = (int) creature.getId();
+
+        ensureRemaining(MAX_CREATURE_LENGTH);
+        buffer.putLong(creature.getId());
+        if (written.get(id)) {
+            buffer.put(RECORD_STATE);
+        } else {
+            buffer.put(RECORD_FULL);
+            CreatureTraits.put(buffer, creature);
+            written.set(id);
+        }
+
+        buffer.putDouble(columns.getX()[slot]);
+        buffer.putDouble(columns.getY()[slot]);
+        buffer.putDouble(columns.getEnergy()[slot]);
+        buffer.putDouble(columns.getLife()[slot]);
+        buffer.putDouble(columns.getBreedTime()[slot]);
+        buffer.put((byte) (columns.getHasTarget()[slot] != 0 ? 1 : 0));
+        if (columns.getHasTarget()[slot] != 0) {
+            buffer.putDouble(columns.getTargetX()[slot]);
+            buffer.putDouble(columns.getTargetY()[slot]);
+        }
+
+        //The fetus keeps its initial state until birth, so its traits describe it completely
+        Creature fetus = columns.getPregnant()[slot] != 0 ? columns.getFetuses()[slot] : null;
+        buffer.put((byte) (fetus != null ? 1 : 0));
+        if (fetus != null) {
+            CreatureTraits.put(buffer, fetus);
+        }
+    }
+
+    /**
+     * Writes the checkpoints still waiting and closes the file.
+     */
+    public void close() {
+        if (executor.isShutdown()) {
+            return;
+        }
+
+        executor.execute(() -> {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        });
+        executor.shutdown();
+    }
+
+    /**
+     * Waits until the file is closed.
+     *
+     * @param timeout the maximum time to wait in milliseconds
+     * @return true if the file was closed in time
+     */
+    public boolean awaitTermination(long timeout) throws InterruptedException {
+        return executor.awaitTermination(timeout, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Restores the world of the latest complete checkpoint in a file.
+     * Only the frames from the latest full checkpoint on are read. A frame which was cut off, for example by a crash,
+     * or whose checksum does not match ends the restore, the world of the checkpoint before it is restored then.
+     * The static parameters of WorldModel are set to the values of the checkpoint.
+     *
+     * @param file the checkpoint file
+     * @return the restored world
+     */
+    public static WorldModel restore(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer version = ByteBuffer.allocate(Integer.BYTES);
+            if (channel.read(version, 0) < Integer.BYTES || version.getInt(0) != VERSION) {
+                throw new IOException("Unsupported checkpoint file: " + file);
+            }
+
+            List<FrameHeader> headers = readHeaders(channel);
+
+            //A damaged full checkpoint falls back to the full checkpoint before it and the deltas following that one
+            for (int first = headers.size() - 1; first >= 0; first--) {
+                if (!headers.get(first).full) {
+                    continue;
+                }
+
+                Frame latest = null;
+                for (int i = first; i < headers.size(); i++) {
+                    Frame frame = readFrame(channel, headers.get(i), latest);
+
+                    if (frame == null) {
+                        break;
+                    }
+                    latest = frame;
+                }
+
+                if (latest != null) {
+                    return latest.createWorld();
+                }
+            }
+        }
+
+        throw new IOException("No complete checkpoint in file: " + file);
+    }
+
+    /**
+     * Reads the headers of all frames up to the end of the file or the first frame which was cut off,
+     * jumping from header to header without reading the content.
+     */
+    private static List<FrameHeader> readHeaders(FileChannel channel) throws IOException {
+        List<FrameHeader> headers = new ArrayList<>();
+        ByteBuffer header = ByteBuffer.allocate(FRAME_HEADER_LENGTH + 1);
+        long size = channel.size();
+        long position = Integer.BYTES;
+
+        while (position + header.capacity() <= size) {
+            header.clear();
+            while (header.hasRemaining()) {
+                channel.read(header, position + header.position());
+            }
+
+            long length = header.getLong(Integer.BYTES);
+            if (header.getInt(0) != FRAME_MAGIC || length <= 0 || length > size - position - FRAME_HEADER_LENGTH) {
+                break;
+            }
+
+            FrameHeader frameHeader = new FrameHeader();
+            frameHeader.position = position + FRAME_HEADER_LENGTH;
+            frameHeader.length = length;
+            frameHeader.crc = header.getInt(Integer.BYTES + Long.BYTES);
+            frameHeader.full = header.get(FRAME_HEADER_LENGTH) == FRAME_FULL;
+            headers.add(frameHeader);
+
+            position = frameHeader.position + length;
+        }
+
+        return headers;
+    }
+
+    /**
+     * Reads a frame, or returns null if it is damaged or does not continue the previous frame.
+     */
+    private static Frame readFrame(FileChannel channel, FrameHeader header, Frame previous) throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, header.position, header.length);
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer);
+        if ((int) crc.getValue() != header.crc) {
+            return null;
+        }
+        buffer.rewind();
+
+        try {
+            Frame frame = readFrame(buffer, previous);
+            return buffer.hasRemaining() ? null : frame;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            return null;
+        }
+    }
+
+    private static Frame readFrame(MappedByteBuffer buffer, Frame previous) {
+        Frame frame = new Frame();
+        boolean full = buffer.get() == FRAME_FULL;
+        if (!full && previous == null) {
+            return null;
+        }
+
+        buffer.getLong();
+        frame.time = buffer.getDouble();
+        frame.randomState = buffer.getLong();
+        frame.width = buffer.getDouble();
+        frame.height = buffer.getDouble();
+        frame.foodCreationRate = buffer.getInt();
+        frame.parameters = new WorldParameters();
+        frame.parameters.setMaxFoodEnergy(buffer.getInt());
+        frame.parameters.setMaxFoodAmount(buffer.getInt());
+        frame.parameters.setBaseEnergyDepletionRate(buffer.getDouble());
+        frame.parameters.setSpeedEnergyDepletionFactor(buffer.getDouble());
+        frame.parameters.setMutationRate(buffer.getDouble());
+        frame.parameters.setSpeedFactor(buffer.getDouble());
+
+        if (buffer.get() != 0) {
+            frame.cellSize = buffer.getDouble();
+            int cellAmount = buffer.getInt();
+
+            if (full) {
+                frame.fieldEnergy = new double[cellAmount];
+                buffer.asDoubleBuffer().get(frame.fieldEnergy);
+                buffer.position(buffer.position() + cellAmount * Double.BYTES);
+                frame.fertility = new double[cellAmount];
+                buffer.asDoubleBuffer().get(frame.fertility);
+                buffer.position(buffer.position() + cellAmount * Double.BYTES);
+            } else {
+                if (previous.fieldEnergy == null || previous.fieldEnergy.length != cellAmount) {
+                    return null;
+                }
+
+                frame.fieldEnergy = previous.fieldEnergy.clone();
+                frame.fertility = previous.fertility;
+                int changedAmount = buffer.getInt();
+                for (int i = 0; i < changedAmount; i++) {
+                    frame.fieldEnergy[buffer.getInt()] = buffer.getDouble();
+                }
+            }
+        }
+
+        readFood(buffer, full, previous, frame);
+
+        int creatureAmount = buffer.getInt();
+        frame.creatures = new HashMap<>(creatureAmount * 2);
+        frame.order = new ArrayList<>(creatureAmount);
+
+        for (int i = 0; i < creatureAmount; i++) {
+            long id = buffer.getLong();
+            CreatureRecord record = new CreatureRecord();
+
+            if (buffer.get() == RECORD_FULL) {
+                record.traits = CreatureTraits.get(buffer);
+            } else {
+                CreatureRecord known = previous.creatures.get(id);
+                if (known == null) {
+                    return null;
+                }
+                record.traits = known.traits;
+            }
+
+            record.x = buffer.getDouble();
+            record.y = buffer.getDouble();
+            record.energy = buffer.getDouble();
+            record.life = buffer.getDouble();
+            record.breedTime = buffer.getDouble();
+            if (buffer.get() != 0) {
+                record.target = new Point2D.Double(buffer.getDouble(), buffer.getDouble());
+            }
+            if (buffer.get() != 0) {
+                record.fetus = CreatureTraits.get(buffer);
+            }
+
+            frame.creatures.put(id, record);
+            frame.order.add(record);
+        }
+
+        return frame;
+    }
+
+    /**
+     * Reads the food of a frame, a delta removes food from the food of the previous frame and appends new food.
+     */
+    private static void readFood(MappedByteBuffer buffer, boolean full, Frame previous, Frame frame) {
+        int keptAmount = 0;
+        int[] removed = new int[0];
+
+        if (!full) {
+            removed = new int[buffer.getInt()];
+            for (int i = 0; i < removed.length; i++) {
+                removed[i] = buffer.getInt();
+            }
+            keptAmount = previous.foodX.length - removed.length;
+        }
+
+        int addedAmount = buffer.getInt();
+        frame.foodX = new double[keptAmount + addedAmount];
+        frame.foodY = new double[keptAmount + addedAmount];
+        frame.foodValue = new int[keptAmount + addedAmount];
+
+        int food = 0;
+        int nextRemoved = 0;
+        for (int i = 0; i < keptAmount + removed.length; i++) {
+            if (nextRemoved < removed.length && removed[nextRemoved] == i) {
+                nextRemoved++;
+            } else {
+                frame.foodX[food] = previous.foodX[i];
+                frame.foodY[food] = previous.foodY[i];
+                frame.foodValue[food] = previous.foodValue[i];
+                food++;
+            }
+        }
+
+        for (int i = 0; i < addedAmount; i++) {
+            frame.foodX[food] = buffer.getDouble();
+            frame.foodY[food] = buffer.getDouble();
+            frame.foodValue[food] = buffer.getInt();
+            food++;
+        }
+    }
+
+    private static class Checkpoint {
+        private boolean full;
+        private long epoch;
+        private double time;
+        private long randomState;
+        private double width;
+        private double height;
+        private int foodCreationRate;
+        private int maxFoodEnergy;
+        private int maxFoodAmount;
+        private double baseEnergyDepletionRate;
+        private double speedEnergyDepletionFactor;
+        private double mutationRate;
+        private double speedFactor;
+        private CreatureColumns columns;
+        private int[] deaths;
+        private CreatureColumns newBorns;
+        private FoodField foodField;
+        private double[] fieldEnergy;
+        private double fieldGrowth;
+        private double fieldCapacity;
+        private double[] foodX;
+        private double[] foodY;
+        private int[] foodValue;
+    }
+
+    private static class FrameHeader {
+        //Position of the content in the file
+        private long position;
+        private long length;
+        private int crc;
+        private boolean full;
+    }
+
+    private static class Frame {
+        private double time;
+        private long randomState;
+        private double width;
+        private double height;
+        private int foodCreationRate;
+        private WorldParameters parameters;
+        private double cellSize;
+        private double[] fieldEnergy;
+        private double[] fertility;
+        private double[] foodX;
+        private double[] foodY;
+        private int[] foodValue;
+        private Map<Long, CreatureRecord> creatures;
+        private List<CreatureRecord> order;
+
+        private WorldModel createWorld() {
+            WorldModel world = new WorldModel((int) width, (int) height, foodCreationRate);
+            world.setWidth(width);
+            world.setHeight(height);
+            world.advanceTime(time);
+            world.getRandom().setState(randomState);
+
+            parameters.applyToStatics();
+
+            if (fieldEnergy != null) {
+                FoodField foodField = new FoodField(width, height, cellSize);
+
+                for (int cell = 0; cell < fieldEnergy.length; cell++) {
+                    foodField.setEnergy(cell, fieldEnergy[cell]);
+                    foodField.setFertility(cell, fertility[cell]);
+                }
+
+                world.setFoodField(foodField);
+            }
+
+            for (int i = 0; i < foodX.length; i++) {
+                world.addFood(new Food(new Point2D.Double(foodX[i], foodY[i]), foodValue[i]));
+            }
+
+            for (CreatureRecord record : order) {
+                Creature creature = record.traits.createCreature(record.energy, new Point2D.Double(record.x, record.y));
+                creature.setLife(record.life);
+                creature.setBreedTime(record.breedTime);
+                creature.setTarget(record.target);
+
+                if (record.fetus != null) {
+                    //A fetus starts with the breed length of its mother as energy
+                    creature.setPregnant(true);
+                    creature.setFetus(record.fetus.createCreature(record.traits.getBreedLength(), null));
+                }
+
+                world.addCreature(creature);
+                creature.getAi().setCreature(creature);
+                creature.getAi().setWorldModel(world);
+                creature.getAi().init();
+            }
+
+            return world;
+        }
+    }
+
+    private static class CreatureRecord {
+        //Shared with the records of the same creature in earlier frames
+        private CreatureTraits traits;
+        private double x;
+        private double y;
+        private double energy;
+        private double life;
+        private double breedTime;
+        private Point2D.Double target;
+        private CreatureTraits fetus;
+    }
+}
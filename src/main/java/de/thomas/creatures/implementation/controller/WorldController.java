@@ -2,9 +2,17 @@ package de.thomas.creatures.implementation.controller;
 
 import de.thomas.creatures.implementation.model.Creature;
 import de.thomas.creatures.implementation.model.WorldModel;
+import de.thomas.creatures.implementation.statistics.ConvergenceDetector;
+import de.thomas.creatures.implementation.statistics.StatAccumulator;
+import de.thomas.creatures.implementation.statistics.StatColumns;
+import de.thomas.creatures.implementation.statistics.StatHistory;
+import de.thomas.creatures.implementation.statistics.Statistics;
 import de.thomas.creatures.implementation.view.MainWindow;
 import de.thomas.creatures.implementation.view.WorldView;
 
+import java.io.File;
+import java.io.IOException;
+
 /**
  * The WorldController class is responsible for controlling the world state and updating the world view.
  * It manages the interaction between the WorldModel and WorldView classes.
@@ -17,6 +25,10 @@ public class WorldController {
      */
     private WorldUpdater worldUpdater;
     private MainWindow mainWindow;
+    //Every how many creatures headless runs fold into their statistics during the update, 0 uses the running totals
+    private int statisticsStride;
+    //Set when creatures were added since the last render snapshot
+    private boolean worldChanged;
 
     /**
      * Constructs a new WorldController with the specified WorldModel and WorldView.
@@ -40,6 +52,167 @@ public class WorldController {
         worldUpdater.updateWorld(delta);
     }
 
+    /**
+     * Updates the world without a view, the same way the main loop does, until the given world time has passed.
+     * Used to run worlds in the background, several worlds can be run this way at the same time.
+     *
+     * @param duration       the world time to run in seconds
+     * @param delta          the time of one update
+     * @param sampleInterval the time between two statistics samples
+     * @return the statistics sampled during the run
+     */
+    public StatColumns runHeadless(double duration, double delta, double sampleInterval) {
+        return runHeadless(duration, delta, sampleInterval, null);
+    }
+
+    /**
+     * Updates the world without a view until the given world time has passed or the run has converged.
+     *
+     * @param duration       the world time to run at most in seconds
+     * @param delta          the time of one update
+     * @param sampleInterval the time between two statistics samples
+     * @param detector       fed with the statistics samples, or null to always run the whole duration
+     * @return the statistics sampled during the run
+     */
+    public StatColumns runHeadless(double duration, double delta, double sampleInterval, ConvergenceDetector detector) {
+        StatColumns samples = new StatColumns();
+        runHeadless(duration, delta, sampleInterval, detector, samples::add);
+
+        return samples;
+    }
+
+    /**
+     * Updates the world without a view until the given world time has passed or the run has converged.
+     * The samples are only passed on as they are taken, so the run itself needs constant memory.
+     *
+     * @param duration       the world time to run at most in seconds
+     * @param delta          the time of one update
+     * @param sampleInterval the time between two statistics samples
+     * @param detector       fed with the statistics samples, or null to always run the whole duration
+     * @param consumer       receives every statistics sample, the value array is reused between samples
+     */
+    public void runHeadless(double duration, double delta, double sampleInterval, ConvergenceDetector detector,
+                            StatHistory.SampleConsumer consumer) {
+        Statistics statistics = new Statistics(worldModel);
+        statistics.setSampleInterval(sampleInterval);
+        statistics.setConvergenceDetector(detector);
+        statistics.setSampleConsumer(consumer);
+        StatAccumulator accumulator = statisticsStride > 0 ? attachAccumulator(statistics, statisticsStride) : null;
+        double end = worldModel.getTime() + duration;
+
+        try {
+            while (worldModel.getTime() < end && (detector == null || !detector.isConverged())) {
+                worldModel.getPerception().update();
+
+                for (Creature c : worldModel.getCreatures()) {
+                    c.update();
+                }
+
+                updateWorld(delta);
+                statistics.update(delta);
+            }
+        } finally {
+            if (accumulator != null) {
+                removeAccumulator(accumulator);
+            }
+            statistics.close();
+        }
+    }
+
+    /**
+     * Lets the statistics take their samples from a StatAccumulator fed during every world update,
+     * instead of the running totals of the world.
+     *
+     * @param statistics the statistics
+     * @param stride     only every stride-th creature is accumulated, 1 accumulates all creatures
+     * @return the registered accumulator, to remove it again
+     */
+    public StatAccumulator attachAccumulator(Statistics statistics, int stride) {
+        StatAccumulator accumulator = new StatAccumulator();
+        addAccumulator(accumulator, stride);
+        statistics.setAccumulator(accumulator);
+
+        return accumulator;
+    }
+
+    public int getStatisticsStride() {
+        return statisticsStride;
+    }
+
+    /**
+     * Sets whether headless runs take their statistics from an accumulator during the world update.
+     *
+     * @param statisticsStride every how many creatures are accumulated, 0 to use the running totals
+     */
+    public void setStatisticsStride(int statisticsStride) {
+        this.statisticsStride = statisticsStride;
+    }
+
+    /**
+     * Publishes the current state of the world to the view. Must be called from the thread which updates the world.
+     */
+    public void publishRenderSnapshot() {
+        worldChanged = false;
+
+        if (worldModel.getRenderBuffer() != null) {
+            worldModel.getRenderBuffer().publish(worldModel);
+        }
+    }
+
+    /**
+     * Publishes the current state of the world to the view if creatures were added since the last snapshot,
+     * for example by the user while the world is paused. Must be called from the thread which updates the world.
+     */
+    public void publishRenderSnapshotIfChanged() {
+        if (worldChanged) {
+            publishRenderSnapshot();
+        }
+    }
+
+    /**
+     * Registers an accumulator which is fed with the creatures during every world update.
+     *
+     * @param accumulator the accumulator
+     * @param stride      only every stride-th creature is accumulated, 1 accumulates all creatures
+     */
+    public void addAccumulator(CreatureAccumulator accumulator, int stride) {
+        worldUpdater.addAccumulator(accumulator, stride);
+    }
+
+    /**
+     * Starts writing checkpoints of the world to a file, replacing the checkpoints written so far.
+     *
+     * @param file     the checkpoint file
+     * @param interval the world time between two checkpoints in seconds
+     */
+    public void startCheckpoints(File file, double interval) throws IOException {
+        stopCheckpoints();
+        worldUpdater.setCheckpointer(new WorldCheckpointer(file, interval));
+    }
+
+    public WorldCheckpointer getCheckpointer() {
+        return worldUpdater.getCheckpointer();
+    }
+
+    /**
+     * Stops writing checkpoints. The checkpoint being written is completed in the background.
+     */
+    public void stopCheckpoints() {
+        if (worldUpdater.getCheckpointer() != null) {
+            worldUpdater.getCheckpointer().close();
+            worldUpdater.setCheckpointer(null);
+        }
+    }
+
+    /**
+     * Removes a previously registered accumulator.
+     *
+     * @param accumulator the accumulator
+     */
+    public void removeAccumulator(CreatureAccumulator accumulator) {
+        worldUpdater.removeAccumulator(accumulator);
+    }
+
     /**
      * Changes the zoom factor of the world view.
      *
@@ -94,6 +267,7 @@ public class WorldController {
         creature.getAi().setCreature(creature);
         creature.getAi().setWorldModel(worldModel);
         creature.getAi().init();
+        worldChanged = true;
     }
 
     /**
@@ -128,9 +302,13 @@ public class WorldController {
     }
 
     /**
-     * Sets the input focus to the world view in the MainWindow.
+     * Sets the input focus to the world view in the MainWindow, or to the world view itself without a MainWindow.
      */
     public void setViewInputFocus() {
-        mainWindow.setViewInputFocus();
+        if (mainWindow != null) {
+            mainWindow.setViewInputFocus();
+        } else if (worldView != null) {
+            worldView.requestFocus();
+        }
     }
 }
@@ -0,0 +1,188 @@
+package de.thomas.creatures.implementation.controller;
+
+import de.thomas.creatures.implementation.model.WorldModel;
+import de.thomas.creatures.implementation.model.WorldParameters;
+import de.thomas.creatures.implementation.model.WorldSnapshot;
+import de.thomas.creatures.implementation.statistics.CsvStatisticsWriter;
+import de.thomas.creatures.implementation.statistics.StatColumns;
+import de.thomas.creatures.implementation.statistics.StatElement;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * The WorldFork class answers what-if questions by running branches of one world side by side.
+ * The world is encoded once into a snapshot and every branch is decoded from it, so the branches share no objects.
+ * Each branch gets its own parameters and random seed and is updated headless on a thread pool, one thread per core.
+ * The statistics of all branches are written into one csv file, one row per sample with the branches side by side.
+ */
+public class WorldFork {
+    private final byte[] snapshot;
+    private final List<Branch> branches = new ArrayList<>();
+
+    /**
+     * Forks a world. Must not be called while the world is updated, the world itself is not changed.
+     *
+     * @param world the world to fork
+     */
+    public WorldFork(WorldModel world) throws IOException {
+        snapshot = WorldSnapshot.encode(world);
+    }
+
+    /**
+     * Forks a world saved by WorldSnapshot.
+     *
+     * @param snapshotFile the snapshot file
+     */
+    public WorldFork(File snapshotFile) throws IOException {
+        snapshot = Files.readAllBytes(snapshotFile.toPath());
+    }
+
+    /**
+     * Adds a branch. Its parameters default to the ones of the forked world.
+     *
+     * @param name      the name of the branch in the statistics
+     * @param seed      the seed of the random number generator of the branch
+     * @param overrides changes the parameters of the branch, or null to keep them
+     * @return the branch
+     */
+    public Branch addBranch(String name, long seed, ParameterOverrides overrides) throws IOException {
+        WorldModel world = WorldSnapshot.decode(snapshot);
+        world.getRandom().setState(seed);
+
+        if (overrides != null) {
+            overrides.apply(world.getParameters());
+        }
+
+        Branch branch = new Branch(name, world);
+        branches.add(branch);
+        return branch;
+    }
+
+    public List<Branch> getBranches() {
+        return branches;
+    }
+
+    /**
+     * Runs all branches for the same world time and collects their statistics.
+     * The lineage log of every branch is closed afterwards, which deletes its spill file.
+     *
+     * @param duration       the world time to run in seconds
+     * @param delta          the time of one update
+     * @param sampleInterval the time between two statistics samples
+     */
+    public void run(double duration, double delta, double sampleInterval) throws IOException, InterruptedException {
+        int threadAmount = Math.max(Math.min(branches.size(), Runtime.getRuntime().availableProcessors()), 1);
+        ExecutorService executor = Executors.newFixedThreadPool(threadAmount, runnable -> {
+            Thread thread = new Thread(runnable, "World Fork");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            List<Callable<Void>> tasks = new ArrayList<>();
+            for (Branch branch : branches) {
+                tasks.add(() -> {
+                    branch.run(duration, delta, sampleInterval);
+                    return null;
+                });
+            }
+
+            for (Future<Void> future : executor.invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IllegalStateException("A branch failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Writes the statistics of all branches side by side. Only samples which every branch has are written.
+     *
+     * @param file the csv file
+     */
+    public void writeStatistics(File file) throws IOException {
+        String[] names = new String[branches.size()];
+        int sampleAmount = Integer.MAX_VALUE;
+        for (int k = 0; k < branches.size(); k++) {
+            names[k] = branches.get(k).getName();
+            sampleAmount = Math.min(sampleAmount, branches.get(k).getSamples().size());
+        }
+
+        try (CsvStatisticsWriter writer = CsvStatisticsWriter.sideBySide(file, names)) {
+            double[][] samples = new double[branches.size()][StatElement.METRIC_AMOUNT];
+
+            for (int i = 0; i < sampleAmount; i++) {
+                for (int k = 0; k < branches.size(); k++) {
+                    StatColumns columns = branches.get(k).getSamples();
+
+                    for (int metric = 0; metric < StatElement.METRIC_AMOUNT; metric++) {
+                        samples[k][metric] = columns.getValue(metric, i);
+                    }
+                }
+
+                writer.writeRow(branches.get(0).getSamples().getTime(i), samples);
+            }
+        }
+    }
+
+    /**
+     * Changes the parameters of a branch before it runs.
+     */
+    public interface ParameterOverrides {
+        void apply(WorldParameters parameters);
+    }
+
+    /**
+     * A single branch of the fork with its own world and statistics.
+     */
+    public static class Branch {
+        private final String name;
+        private final WorldModel world;
+        private final WorldController controller;
+        private StatColumns samples = new StatColumns();
+
+        private Branch(String name, WorldModel world) {
+            this.name = name;
+            this.world = world;
+            controller = new WorldController(world, null);
+        }
+
+        private void run(double duration, double delta, double sampleInterval) {
+            try {
+                samples = controller.runHeadless(duration, delta, sampleInterval);
+            } finally {
+                world.getLineageLog().close();
+            }
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public WorldModel getWorld() {
+            return world;
+        }
+
+        public WorldController getController() {
+            return controller;
+        }
+
+        public StatColumns getSamples() {
+            return samples;
+        }
+    }
+}
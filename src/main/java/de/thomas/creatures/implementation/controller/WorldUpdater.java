@@ -2,14 +2,24 @@ package de.thomas.creatures.implementation.controller;
 
 import de.thomas.creatures.implementation.ai.BasicAI;
 import de.thomas.creatures.implementation.ai.CreatureAI;
+import de.thomas.creatures.implementation.kernel.DistanceKernel;
+import de.thomas.creatures.implementation.kernel.DistanceKernels;
 import de.thomas.creatures.implementation.model.Creature;
 import de.thomas.creatures.implementation.model.Creature.Gender;
+import de.thomas.creatures.implementation.model.CreatureColumns;
 import de.thomas.creatures.implementation.model.Food;
+import de.thomas.creatures.implementation.model.FoodField;
 import de.thomas.creatures.implementation.model.WorldModel;
+import de.thomas.creatures.implementation.statistics.LineageLog;
+import de.thomas.creatures.implementation.statistics.PopulationHeatmap;
+import de.thomas.creatures.implementation.statistics.PopulationTotals;
+import de.thomas.creatures.implementation.statistics.TrajectoryRecorder;
 import de.thomas.creatures.implementation.util.VariationHelper;
+import de.thomas.creatures.implementation.util.WorldRandom;
 
 import java.awt.geom.Point2D;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 
@@ -22,6 +32,21 @@ public class WorldUpdater {
     private WorldModel worldModel;
     private WorldController worldController;
     private List<Creature> newBornList = new ArrayList<>();
+    private final DistanceKernel kernel = DistanceKernels.get();
+
+    //Primitive working set of the update, loaded at the start of every update
+    private CreatureColumns columns = new CreatureColumns();
+    private int[] deaths = new int[0];
+    private Food[] foodColumn = new Food[0];
+    private double[] foodX = new double[0];
+    private double[] foodY = new double[0];
+    private boolean[] eaten = new boolean[0];
+    private int foodAmount;
+    private double energyEaten;
+    private final List<AccumulatorRegistration> accumulators = new ArrayList<>();
+    private WorldCheckpointer checkpointer;
+    //The recorder of the world during the current update, or null
+    private TrajectoryRecorder recorder;
 
     /**
      * Constructs a WorldUpdater object with the specified WorldModel and WorldController.
@@ -40,80 +65,164 @@ public class WorldUpdater {
      * @param delta the time elapsed since the last update
      */
     public void updateWorld(double delta) {
-        Iterator<Creature> creatureIterator = worldModel.getCreatures().iterator();
+        PopulationTotals totals = worldModel.getPopulationTotals();
+        worldModel.advanceTime(delta);
+        recorder = worldModel.getTrajectoryRecorder();
+        columns.load(worldModel.getCreatures());
+        gatherFood();
+        energyEaten = 0;
+
+        for (AccumulatorRegistration registration : accumulators) {
+            registration.accumulator.beginUpdate(columns);
+        }
+
+        CreatureIntegrator.move(columns, worldModel, delta);
+        FoodField foodField = worldModel.getFoodField();
+
+        for (int slot = 0; slot < columns.size(); slot++) {
+            Creature creature = columns.getCreature(slot);
 
-        while (creatureIterator.hasNext()) {
-            Creature creature = creatureIterator.next();
+            handleMating(delta, slot);
 
-            handleMoving(delta, creature);
-            handleMating(delta, creature);
-            handleFoodIntake(delta, creature);
+            if (foodField != null) {
+                handleFieldFoodIntake(foodField, slot);
+            } else {
+                handleFoodIntake(delta, slot);
+            }
 
             if (creature.isPregnant()) {
-                handlePregnancy(creature, delta);
+                handlePregnancy(creature, slot, delta);
             }
+        }
 
-            handleEnergyDepletion(delta, creatureIterator, creature);
-            handleLifeDepletion(delta, creatureIterator, creature);
+        double energyDepleted = CreatureIntegrator.deplete(columns, worldModel, delta);
+        totals.addEnergy(energyEaten - energyDepleted);
+        totals.addLife(columns.size() * delta * worldModel.getSpeedFactor());
+
+        PopulationHeatmap heatmap = worldModel.getHeatmap();
+        if (heatmap != null) {
+            heatmap.update(columns);
+        }
+
+        if (deaths.length < columns.size()) {
+            deaths = new int[Math.max(columns.size(), deaths.length * 2)];
         }
+        int deathAmount = CreatureIntegrator.collectDeaths(columns, deaths);
+        accumulateSurvivors(deathAmount);
 
+        columns.store();
+        removeDeadCreatures(deathAmount);
+        removeEatenFood();
+
+        int newBornAmount = newBornList.size();
         Iterator<Creature> newBornIterator = newBornList.iterator();
         while (newBornIterator.hasNext()) {
             Creature newBorn = newBornIterator.next();
             worldController.addCreature(newBorn);
+            if (recorder != null) {
+                recorder.birth(newBorn);
+            }
             newBornIterator.remove();
         }
 
-        handleFoodCreation();
+        //A due checkpoint takes over the columns of this update and the food field energy before the regrowth,
+        //the next update continues with spare arrays
+        boolean checkpointDue = checkpointer != null && checkpointer.isDue(worldModel.getTime());
+        double[] fieldEnergyBeforeRegrowth = handleFoodCreation(checkpointDue);
+
+        if (recorder != null) {
+            recorder.recordTick(worldModel);
+        }
+
+        worldController.publishRenderSnapshot();
+
+        if (checkpointDue) {
+            columns = checkpointer.capture(worldModel, columns, deaths, deathAmount, newBornAmount, fieldEnergyBeforeRegrowth);
+        }
     }
 
     /**
-     * Handles the movement of the creature towards its target position.
-     *
-     * @param delta    the time elapsed since the last update
-     * @param creature the creature to handle the movement for
+     * Feeds the accumulators with the creatures not dying in this update, deaths holds their slots in ascending order.
      */
-    private void handleMoving(double delta, Creature creature) {
-        //TODO Maybe only compute stuff if target changes, else let speed be the same
+    private void accumulateSurvivors(int deathAmount) {
+        if (accumulators.isEmpty()) {
+            return;
+        }
+
+        int nextDeath = 0;
+        for (int slot = 0; slot < columns.size(); slot++) {
+            if (nextDeath < deathAmount && deaths[nextDeath] == slot) {
+                nextDeath++;
+                continue;
+            }
 
-        Point2D.Double target = creature.getTarget();
-        Point2D.Double position = creature.getPosition();
+            for (AccumulatorRegistration registration : accumulators) {
+                if (slot % registration.stride == 0) {
+                    registration.accumulator.accumulate(columns, slot);
+                }
+            }
+        }
 
-        //Move nearer to target
-        if (target != null) {
-            if (target.distance(position) > (creature.getSpeed() * delta * WorldModel.speedFactor * MIN_DISTANCE)) {
-                double x = target.x - position.x;
-                double y = target.y - position.y;
-                double speed = creature.getSpeed() * delta * WorldModel.speedFactor;
+        for (AccumulatorRegistration registration : accumulators) {
+            registration.accumulator.endUpdate(columns);
+        }
+    }
 
-                double alpha = speed / Math.sqrt(x * x + y * y);
+    public WorldCheckpointer getCheckpointer() {
+        return checkpointer;
+    }
 
-                double speedX = alpha * x;
-                double speedY = alpha * y;
+    public void setCheckpointer(WorldCheckpointer checkpointer) {
+        this.checkpointer = checkpointer;
+    }
 
-                creature.getPosition().x += speedX;
-                creature.getPosition().y += speedY;
-            } else {
-                creature.setPosition(new Point2D.Double(creature.getTarget().x, creature.getTarget().y));
-                creature.setTarget(null);
-            }
-        }
+    /**
+     * Registers an accumulator which is fed with the creatures during every update.
+     *
+     * @param accumulator the accumulator
+     * @param stride      only every stride-th creature is accumulated, 1 accumulates all creatures
+     */
+    public void addAccumulator(CreatureAccumulator accumulator, int stride) {
+        accumulators.add(new AccumulatorRegistration(accumulator, Math.max(stride, 1)));
+    }
+
+    /**
+     * Removes a previously registered accumulator.
+     *
+     * @param accumulator the accumulator
+     */
+    public void removeAccumulator(CreatureAccumulator accumulator) {
+        accumulators.removeIf(registration -> registration.accumulator == accumulator);
     }
 
     /**
      * Handles the mating behavior of the creature.
      *
-     * @param delta    the time elapsed since the last update
-     * @param creature the creature to handle the mating for
+     * @param delta the time elapsed since the last update
+     * @param slot  the slot of the creature to handle the mating for
      */
-    private void handleMating(double delta, Creature creature) {
-        Iterator<Creature> secondIterator = worldModel.getCreatures().iterator();
-        while (secondIterator.hasNext()) {
-            Creature secondCreature = secondIterator.next();
-
-            if (creature.getPosition().distance(secondCreature.getPosition()) < (creature.getSpeed() * delta * WorldModel.speedFactor * 1.25) &&
-                    creature.getEnergy() > creature.getMatingEnergyNeeded() &&
-                    secondCreature.getEnergy() > secondCreature.getMatingEnergyNeeded() &&
+    private void handleMating(double delta, int slot) {
+        Creature creature = columns.getCreature(slot);
+        double[] energy = columns.getEnergy();
+
+        if (energy[slot] <= creature.getMatingEnergyNeeded() || creature.isPregnant()) {
+            return;
+        }
+
+        double[] creatureX = columns.getX();
+        double[] creatureY = columns.getY();
+        double x = creatureX[slot];
+        double y = creatureY[slot];
+        double range = creature.getSpeed() * delta * worldModel.getSpeedFactor() * 1.25;
+        double rangeSq = range * range;
+
+        for (int i = kernel.nextWithin(creatureX, creatureY, 0, columns.size(), x, y, rangeSq);
+             i >= 0;
+             i = kernel.nextWithin(creatureX, creatureY, i + 1, columns.size(), x, y, rangeSq)) {
+            Creature secondCreature = columns.getCreature(i);
+
+            if (energy[slot] > creature.getMatingEnergyNeeded() &&
+                    energy[i] > secondCreature.getMatingEnergyNeeded() &&
                     creature.getGender() != secondCreature.getGender() &&
                     !creature.isPregnant() && !secondCreature.isPregnant()) {
 
@@ -129,8 +238,15 @@ public class WorldUpdater {
                 }
 
                 mother.setPregnant(true);
+                columns.getPregnant()[mother.getSlot()] = 1;
+                worldModel.getPopulationTotals().addPregnancies(1);
                 Creature fetus = createFetus(father, mother);
                 mother.setFetus(fetus);
+                columns.getFetuses()[mother.getSlot()] = fetus;
+
+                if (recorder != null) {
+                    recorder.conceive(mother, father);
+                }
             }
         }
     }
@@ -138,110 +254,194 @@ public class WorldUpdater {
     /**
      * Handles the food intake of the creature.
      *
-     * @param delta    the time elapsed since the last update
-     * @param creature the creature to handle the food intake for
+     * @param delta the time elapsed since the last update
+     * @param slot  the slot of the creature to handle the food intake for
      */
-    private void handleFoodIntake(double delta, Creature creature) {
-        Iterator<Food> foodIterator = worldModel.getFoods().iterator();
+    private void handleFoodIntake(double delta, int slot) {
+        double[] energy = columns.getEnergy();
+        double maxEnergy = columns.getMaxEnergy()[slot];
+        double x = columns.getX()[slot];
+        double y = columns.getY()[slot];
+        double range = columns.getSpeed()[slot] * delta * 1.25 * worldModel.getSpeedFactor();
+        double rangeSq = range * range;
+
+        //Eat food and add energy to creature if it is close enough, the food is removed after the update
+        for (int i = kernel.nextWithin(foodX, foodY, 0, foodAmount, x, y, rangeSq);
+             i >= 0;
+             i = kernel.nextWithin(foodX, foodY, i + 1, foodAmount, x, y, rangeSq)) {
+            if (!eaten[i]) {
+                double energyBefore = energy[slot];
+                energy[slot] += foodColumn[i].getValue();
+                eaten[i] = true;
+
+                if (energy[slot] > maxEnergy)
+                    energy[slot] = maxEnergy;
+
+                energyEaten += energy[slot] - energyBefore;
+
+                if (recorder != null) {
+                    recorder.eat(columns.getCreature(slot));
+                }
+            }
+        }
+    }
 
-        //Remove food and add energy to creature if it is close enough
-        while (foodIterator.hasNext()) {
-            Food f = foodIterator.next();
+    /**
+     * Handles the food intake of the creature in a world with a food field.
+     * The creature eats from the cell it stands in, at most one food item worth of energy per update.
+     *
+     * @param foodField the food field of the world
+     * @param slot      the slot of the creature to handle the food intake for
+     */
+    private void handleFieldFoodIntake(FoodField foodField, int slot) {
+        double[] energy = columns.getEnergy();
+        int cell = foodField.getCell(columns.getX()[slot], columns.getY()[slot]);
+        double hunger = columns.getMaxEnergy()[slot] - energy[slot];
 
-            if (creature.getPosition().distance(f.getPosition()) < (creature.getSpeed() * delta * 1.25 * WorldModel.speedFactor)) {
-                creature.setEnergy(creature.getEnergy() + f.getValue());
-                foodIterator.remove();
+        double eaten = foodField.consume(cell, Math.min(hunger, worldModel.getMaxFoodEnergy()));
 
-                if (creature.getEnergy() > creature.getMaxEnergy())
-                    creature.setEnergy(creature.getMaxEnergy());
-            }
+        energy[slot] += eaten;
+        energyEaten += eaten;
+
+        if (recorder != null && eaten > 0) {
+            recorder.eat(columns.getCreature(slot));
         }
     }
 
     /**
-     * Handles the energy depletion of the creature.
-     *
-     * @param delta            the time elapsed since the last update
-     * @param creatureIterator the iterator for iterating over the creatures in the world
-     * @param creature         the creature to handle the energy depletion for
+     * Copies the positions of all food into the packed arrays used by the food intake.
      */
-    private void handleEnergyDepletion(double delta, Iterator<Creature> creatureIterator, Creature creature) {
-        double energyDepletion = WorldModel.baseEnergyDepletionRate;
+    private void gatherFood() {
+        List<Food> foods = worldModel.getFoods();
+
+        foodAmount = foods.size();
+        if (foodColumn.length < foodAmount) {
+            int capacity = Math.max(foodAmount, foodColumn.length * 2);
+            foodColumn = new Food[capacity];
+            foodX = new double[capacity];
+            foodY = new double[capacity];
+            eaten = new boolean[capacity];
+        }
 
-        if (creature.getTarget() != null) {
-            energyDepletion += creature.getSpeed();
+        for (int i = 0; i < foodAmount; i++) {
+            Food food = foods.get(i);
+            foodColumn[i] = food;
+            foodX[i] = food.getPosition().x;
+            foodY[i] = food.getPosition().y;
+            eaten[i] = false;
         }
+        Arrays.fill(foodColumn, foodAmount, foodColumn.length, null);
+    }
 
-        if (creature.isPregnant()) {
-            energyDepletion += creature.getBreedProgressSpeed();
+    /**
+     * Removes all creatures which died during this update from the world in a single pass.
+     *
+     * @param deathAmount the number of slots in the death list
+     */
+    private void removeDeadCreatures(int deathAmount) {
+        if (deathAmount == 0) {
+            return;
         }
 
-        creature.setEnergy(creature.getEnergy() - (energyDepletion * delta * WorldModel.speedFactor));
+        List<Creature> creatures = worldModel.getCreatures();
+        PopulationTotals totals = worldModel.getPopulationTotals();
+        LineageLog lineageLog = worldModel.getLineageLog();
+        PopulationHeatmap heatmap = worldModel.getHeatmap();
+        int kept = 0;
+        int death = 0;
 
-        if (creature.getEnergy() <= 1) {
-            creatureIterator.remove();
+        for (int slot = 0; slot < columns.size(); slot++) {
+            if (death < deathAmount && deaths[death] == slot) {
+                totals.remove(creatures.get(slot));
+                lineageLog.addDeath(creatures.get(slot).getId(), worldModel.getTime());
 
-            if (creatureIterator.hasNext()) {
-                creatureIterator.next();
+                if (heatmap != null) {
+                    heatmap.remove(creatures.get(slot));
+                }
+                death++;
+            } else {
+                creatures.set(kept++, creatures.get(slot));
             }
         }
+
+        creatures.subList(kept, columns.size()).clear();
     }
 
     /**
-     * Handles the life depletion of the creature.
-     *
-     * @param delta            the time elapsed since the last update
-     * @param creatureIterator the iterator for iterating over the creatures in the world
-     * @param creature         the creature to handle the life depletion for
+     * Removes all food eaten during this update from the world in a single pass.
      */
-    private void handleLifeDepletion(double delta, Iterator<Creature> creatureIterator, Creature creature) {
-        creature.setLife(creature.getLife() + (1 * delta * WorldModel.speedFactor));
+    private void removeEatenFood() {
+        int kept = 0;
+        List<Food> foods = worldModel.getFoods();
 
-        if (creature.getLife() >= creature.getMaxLife()) {
-            creatureIterator.remove();
-
-            if (creatureIterator.hasNext()) {
-                creatureIterator.next();
+        for (int i = 0; i < foodAmount; i++) {
+            if (!eaten[i]) {
+                foods.set(kept++, foodColumn[i]);
             }
         }
+
+        foods.subList(kept, foodAmount).clear();
     }
 
     /**
      * Handles the creation of food in the world.
+     * In a world with a food field, the field regrows instead.
+     *
+     * @param checkpointDue whether a checkpoint takes over the energy of the food field before the regrowth
+     * @return the energy of the food field before the regrowth if a checkpoint is due, otherwise null
      */
-    private void handleFoodCreation() {
-        for (int i = 0; i < WorldModel.speedFactor; i++) {
-            if (worldModel.getFoods().size() < WorldModel.maxFoodAmount &&
-                    (int) (Math.random() * 100) < worldModel.getFoodCreationRate()) {
-                double xPos = worldModel.getWidth() * Math.random();
-                double yPos = worldModel.getHeight() * Math.random();
-
-                Food food = new Food(new Point2D.Double(xPos, yPos), (int) (Math.random() * WorldModel.maxFoodEnergy));
+    private double[] handleFoodCreation(boolean checkpointDue) {
+        FoodField foodField = worldModel.getFoodField();
+
+        if (foodField != null) {
+            if (checkpointDue) {
+                return foodField.regrow(worldModel, checkpointer.getSpareFieldEnergy(foodField.getCellAmount()));
+            }
+
+            foodField.regrow(worldModel);
+            return null;
+        }
+
+        WorldRandom random = worldModel.getRandom();
+
+        for (int i = 0; i < worldModel.getSpeedFactor(); i++) {
+            if (worldModel.getFoods().size() < worldModel.getMaxFoodAmount() &&
+                    (int) (random.nextDouble() * 100) < worldModel.getFoodCreationRate()) {
+                double xPos = worldModel.getWidth() * random.nextDouble();
+                double yPos = worldModel.getHeight() * random.nextDouble();
+
+                Food food = new Food(new Point2D.Double(xPos, yPos), (int) (random.nextDouble() * worldModel.getMaxFoodEnergy()));
                 worldModel.addFood(food);
             }
         }
+
+        return null;
     }
 
     /**
      * Handles the pregnancy of the creature.
      *
      * @param creature the creature to handle the pregnancy for
+     * @param slot     the slot of the creature
      * @param delta    the time elapsed since the last update
      */
-    private void handlePregnancy(Creature creature, double delta) {
+    private void handlePregnancy(Creature creature, int slot, double delta) {
         if (creature.getBreedTime() > 1) {
-            creature.setBreedTime(creature.getBreedTime() - (creature.getBreedProgressSpeed() * delta * WorldModel.speedFactor));
+            creature.setBreedTime(creature.getBreedTime() - (creature.getBreedProgressSpeed() * delta * worldModel.getSpeedFactor()));
         } else {
             creature.setBreedTime(creature.getBreedLength());
             creature.setPregnant(false);
-            Point2D.Double motherPosition = creature.getPosition();
+            columns.getPregnant()[slot] = 0;
+            worldModel.getPopulationTotals().addPregnancies(-1);
 
             Creature newBorn = creature.getFetus();
-            newBorn.setPosition(new Point2D.Double(motherPosition.x, motherPosition.y));
+            newBorn.setPosition(new Point2D.Double(columns.getX()[slot], columns.getY()[slot]));
 
             newBornList.add(newBorn);
             creature.setFetus(null);
+            columns.getFetuses()[slot] = null;
         }
+        columns.getBreedTime()[slot] = creature.getBreedTime();
     }
 
     /**
@@ -252,26 +452,28 @@ public class WorldUpdater {
      * @return the created fetus creature
      */
     private Creature createFetus(Creature father, Creature mother) {
+        WorldRandom random = worldModel.getRandom();
+        double mutationRate = worldModel.getMutationRate();
         double energy = mother.getBreedLength();
-        double maxEnergy = ((father.getMaxEnergy() + mother.getMaxEnergy()) / 2) * VariationHelper.mutationFactor(WorldModel.mutationRate);
-        double maxLife = ((father.getMaxLife() + mother.getMaxLife()) / 2) * VariationHelper.mutationFactor(WorldModel.mutationRate);
+        double maxEnergy = ((father.getMaxEnergy() + mother.getMaxEnergy()) / 2) * VariationHelper.mutationFactor(mutationRate, random);
+        double maxLife = ((father.getMaxLife() + mother.getMaxLife()) / 2) * VariationHelper.mutationFactor(mutationRate, random);
         //Position will be added later
         Point2D.Double position = null;
-        double speed = ((father.getSpeed() + mother.getSpeed()) / 2) * VariationHelper.mutationFactor(WorldModel.mutationRate);
-        double visionRange = ((father.getVisionRange() + mother.getVisionRange()) / 2) * VariationHelper.mutationFactor(WorldModel.mutationRate);
+        double speed = ((father.getSpeed() + mother.getSpeed()) / 2) * VariationHelper.mutationFactor(mutationRate, random);
+        double visionRange = ((father.getVisionRange() + mother.getVisionRange()) / 2) * VariationHelper.mutationFactor(mutationRate, random);
         Gender gender;
-        if (Math.random() >= 0.5) {
+        if (random.nextDouble() >= 0.5) {
             gender = Gender.MALE;
         } else {
             gender = Gender.FEMALE;
         }
-        CreatureAI ai = new BasicAI();
+        CreatureAI ai = new BasicAI(random.nextLong());
         double matingEnergyNeeded = ((father.getMatingEnergyNeeded() + mother.getMatingEnergyNeeded()) / 2)
-                * VariationHelper.mutationFactor(WorldModel.mutationRate);
+                * VariationHelper.mutationFactor(mutationRate, random);
         double breedLength = ((father.getBreedLength() + mother.getBreedLength()) / 2) *
-                VariationHelper.mutationFactor(WorldModel.mutationRate);
+                VariationHelper.mutationFactor(mutationRate, random);
         double breedProgressSpeed = ((father.getBreedProgressSpeed() + mother.getBreedProgressSpeed()) / 2) *
-                VariationHelper.mutationFactor(WorldModel.mutationRate);
+                VariationHelper.mutationFactor(mutationRate, random);
 
         Creature fetus = new Creature(energy,
                 maxEnergy,
@@ -284,7 +486,19 @@ public class WorldUpdater {
                 matingEnergyNeeded,
                 breedLength,
                 breedProgressSpeed);
+        fetus.setFatherId(father.getId());
+        fetus.setMotherId(mother.getId());
 
         return fetus;
     }
+
+    private static class AccumulatorRegistration {
+        private final CreatureAccumulator accumulator;
+        private final int stride;
+
+        private AccumulatorRegistration(CreatureAccumulator accumulator, int stride) {
+            this.accumulator = accumulator;
+            this.stride = stride;
+        }
+    }
 }
@@ -0,0 +1,38 @@
+package de.thomas.creatures.implementation.kernel;
+
+/**
+ * The DistanceKernel interface describes the squared-distance-and-threshold scans used for perception and contact tests.
+ * All scans work on packed x/y coordinate arrays and only consider the index range [from, to).
+ */
+public interface DistanceKernel {
+
+    /**
+     * Finds the point nearest to (x, y) whose squared distance is smaller than rangeSq.
+     * If several points are equally near, the one with the lowest index is returned.
+     *
+     * @param xs      the x coordinates
+     * @param ys      the y coordinates
+     * @param from    the first index to scan
+     * @param to      the index after the last index to scan
+     * @param x       the x coordinate of the reference point
+     * @param y       the y coordinate of the reference point
+     * @param rangeSq the exclusive squared distance threshold
+     * @return the index of the nearest point, or -1 if no point is in range
+     */
+    int nearestWithin(double[] xs, double[] ys, int from, int to, double x, double y, double rangeSq);
+
+    /**
+     * Finds the first point at or after from whose squared distance to (x, y) is smaller than rangeSq.
+     * Callers iterate over all points in range by continuing the scan after the returned index.
+     *
+     * @param xs      the x coordinates
+     * @param ys      the y coordinates
+     * @param from    the first index to scan
+     * @param to      the index after the last index to scan
+     * @param x       the x coordinate of the reference point
+     * @param y       the y coordinate of the reference point
+     * @param rangeSq the exclusive squared distance threshold
+     * @return the index of the first point in range, or -1 if no point is in range
+     */
+    int nextWithin(double[] xs, double[] ys, int from, int to, double x, double y, double rangeSq);
+}
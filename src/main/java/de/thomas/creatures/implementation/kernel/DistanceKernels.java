@@ -0,0 +1,38 @@
+package de.thomas.creatures.implementation.kernel;
+
+/**
+ * The DistanceKernels class selects the distance kernel implementation once at startup.
+ * The Vector API implementation is used if the jdk.incubator.vector module is present and it has not been disabled
+ * with the system property creatures.vectorKernel=false, otherwise the scalar fallback is used.
+ */
+public class DistanceKernels {
+    public static final String VECTOR_KERNEL_PROPERTY = "creatures.vectorKernel";
+
+    private static final DistanceKernel KERNEL = selectKernel();
+
+    private DistanceKernels() {
+    }
+
+    /**
+     * Returns the distance kernel selected at startup.
+     *
+     * @return the distance kernel
+     */
+    public static DistanceKernel get() {
+        return KERNEL;
+    }
+
+    private static DistanceKernel selectKernel() {
+        if (Boolean.parseBoolean(System.getProperty(VECTOR_KERNEL_PROPERTY, "true"))) {
+            try {
+                return (DistanceKernel) Class.forName("de.thomas.creatures.implementation.kernel.VectorDistanceKernel")
+                        .getDeclaredConstructor()
+                        .newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                //Vector API module not available, use the scalar kernel
+            }
+        }
+
+        return new ScalarDistanceKernel();
+    }
+}
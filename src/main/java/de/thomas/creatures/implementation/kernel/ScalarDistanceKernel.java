@@ -0,0 +1,41 @@
+package de.thomas.creatures.implementation.kernel;
+
+/**
+ * The ScalarDistanceKernel class is the portable implementation of the distance scans.
+ * It is used whenever the Vector API is not available.
+ */
+public class ScalarDistanceKernel implements DistanceKernel {
+
+    @Override
+    public int nearestWithin(double[] xs, double[] ys, int from, int to, double x, double y, double rangeSq) {
+        int nearest = -1;
+        double nearestDistanceSq = rangeSq;
+
+        for (int i = from; i < to; i++) {
+            double dx = xs[i] - x;
+            double dy = ys[i] - y;
+            double distanceSq = dx * dx + dy * dy;
+
+            if (distanceSq < nearestDistanceSq) {
+                nearestDistanceSq = distanceSq;
+                nearest = i;
+            }
+        }
+
+        return nearest;
+    }
+
+    @Override
+    public int nextWithin(double[] xs, double[] ys, int from, int to, double x, double y, double rangeSq) {
+        for (int i = from; i < to; i++) {
+            double dx = xs[i] - x;
+            double dy = ys[i] - y;
+
+            if (dx * dx + dy * dy < rangeSq) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+}
@@ -0,0 +1,80 @@
+package de.thomas.creatures.implementation.kernel;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The VectorDistanceKernel class implements the distance scans with the incubating Vector API.
+ * Distances of a whole vector of points are computed at once; only vectors which contain a hit are looked at lane by lane.
+ * The class can only be loaded if the JVM was started with the jdk.incubator.vector module, see DistanceKernels.
+ */
+public class VectorDistanceKernel implements DistanceKernel {
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    @Override
+    public int nearestWithin(double[] xs, double[] ys, int from, int to, double x, double y, double rangeSq) {
+        int nearest = -1;
+        double nearestDistanceSq = rangeSq;
+        int i = from;
+        int upperBound = from + SPECIES.loopBound(to - from);
+
+        for (; i < upperBound; i += SPECIES.length()) {
+            DoubleVector dx = DoubleVector.fromArray(SPECIES, xs, i).sub(x);
+            DoubleVector dy = DoubleVector.fromArray(SPECIES, ys, i).sub(y);
+            DoubleVector distanceSq = dx.mul(dx).add(dy.mul(dy));
+            VectorMask<Double> closer = distanceSq.lt(nearestDistanceSq);
+
+            if (closer.anyTrue()) {
+                double[] lanes = distanceSq.toArray();
+
+                for (int lane = closer.firstTrue(); lane < lanes.length; lane++) {
+                    if (lanes[lane] < nearestDistanceSq) {
+                        nearestDistanceSq = lanes[lane];
+                        nearest = i + lane;
+                    }
+                }
+            }
+        }
+
+        for (; i < to; i++) {
+            double dx = xs[i] - x;
+            double dy = ys[i] - y;
+            double distanceSq = dx * dx + dy * dy;
+
+            if (distanceSq < nearestDistanceSq) {
+                nearestDistanceSq = distanceSq;
+                nearest = i;
+            }
+        }
+
+        return nearest;
+    }
+
+    @Override
+    public int nextWithin(double[] xs, double[] ys, int from, int to, double x, double y, double rangeSq) {
+        int i = from;
+        int upperBound = from + SPECIES.loopBound(Math.max(to - from, 0));
+
+        for (; i < upperBound; i += SPECIES.length()) {
+            DoubleVector dx = DoubleVector.fromArray(SPECIES, xs, i).sub(x);
+            DoubleVector dy = DoubleVector.fromArray(SPECIES, ys, i).sub(y);
+            VectorMask<Double> inRange = dx.mul(dx).add(dy.mul(dy)).lt(rangeSq);
+
+            if (inRange.anyTrue()) {
+                return i + inRange.firstTrue();
+            }
+        }
+
+        for (; i < to; i++) {
+            double dx = xs[i] - x;
+            double dy = ys[i] - y;
+
+            if (dx * dx + dy * dy < rangeSq) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+}
@@ -23,6 +23,15 @@ public class Creature {
     private boolean pregnant;
     private Creature fetus;
     private Point2D.Double target;
+    //Position in the creature list at the last batch pass, see Perception
+    private int slot = -1;
+    //Assigned by the lineage log of the world, -1 if unknown
+    private long id = -1;
+    private long fatherId = -1;
+    private long motherId = -1;
+    //Cell and energy last applied to the heatmap of the world, see PopulationHeatmap
+    private int heatmapCell = -1;
+    private double heatmapEnergy;
 
     //For test purposes
     public Creature(Point2D.Double position, Gender gender) {
@@ -203,5 +212,53 @@ public class Creature {
         this.fetus = fetus;
     }
 
+    public int getSlot() {
+        return slot;
+    }
+
+    public void setSlot(int slot) {
+        this.slot = slot;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    public long getFatherId() {
+        return fatherId;
+    }
+
+    public void setFatherId(long fatherId) {
+        this.fatherId = fatherId;
+    }
+
+    public long getMotherId() {
+        return motherId;
+    }
+
+    public void setMotherId(long motherId) {
+        this.motherId = motherId;
+    }
+
+    public int getHeatmapCell() {
+        return heatmapCell;
+    }
+
+    public void setHeatmapCell(int heatmapCell) {
+        this.heatmapCell = heatmapCell;
+    }
+
+    public double getHeatmapEnergy() {
+        return heatmapEnergy;
+    }
+
+    public void setHeatmapEnergy(double heatmapEnergy) {
+        this.heatmapEnergy = heatmapEnergy;
+    }
+
     public enum Gender {MALE, FEMALE}
 }
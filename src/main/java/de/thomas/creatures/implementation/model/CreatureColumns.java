@@ -0,0 +1,185 @@
+package de.thomas.creatures.implementation.model;
+
+import java.awt.geom.Point2D;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The CreatureColumns class is the primitive working set of one world update.
+ * The state the update loop changes every tick is copied out of the Creature objects into one array per field,
+ * the update runs over these arrays and the result is written back at the end.
+ * The flags hasTarget and pregnant are stored as 1 or 0, so they can be used as factors in branch-free loops.
+ */
+public class CreatureColumns {
+    private Creature[] creatures = new Creature[0];
+    private double[] x = new double[0];
+    private double[] y = new double[0];
+    private double[] targetX = new double[0];
+    private double[] targetY = new double[0];
+    private double[] hasTarget = new double[0];
+    private double[] speed = new double[0];
+    private double[] energy = new double[0];
+    private double[] maxEnergy = new double[0];
+    private double[] life = new double[0];
+    private double[] maxLife = new double[0];
+    private double[] breedProgressSpeed = new double[0];
+    private double[] pregnant = new double[0];
+    private double[] breedTime = new double[0];
+    private Creature[] fetuses = new Creature[0];
+    private int size;
+
+    /**
+     * Copies the state of the given creatures into the columns.
+     * Every creature gets assigned its slot, which is its index in the list.
+     *
+     * @param creatureList the creatures to load
+     */
+    public void load(List<Creature> creatureList) {
+        int amount = creatureList.size();
+        ensureCapacity(amount);
+
+        if (amount < size) {
+            Arrays.fill(creatures, amount, size, null);
+            Arrays.fill(fetuses, amount, size, null);
+        }
+        size = amount;
+
+        for (int i = 0; i < size; i++) {
+            Creature creature = creatureList.get(i);
+            Point2D.Double target = creature.getTarget();
+
+            creature.setSlot(i);
+            creatures[i] = creature;
+            x[i] = creature.getPosition().x;
+            y[i] = creature.getPosition().y;
+            targetX[i] = target != null ? target.x : 0;
+            targetY[i] = target != null ? target.y : 0;
+            hasTarget[i] = target != null ? 1 : 0;
+            speed[i] = creature.getSpeed();
+            energy[i] = creature.getEnergy();
+            maxEnergy[i] = creature.getMaxEnergy();
+            life[i] = creature.getLife();
+            maxLife[i] = creature.getMaxLife();
+            breedProgressSpeed[i] = creature.getBreedProgressSpeed();
+            pregnant[i] = creature.isPregnant() ? 1 : 0;
+            breedTime[i] = creature.getBreedTime();
+            fetuses[i] = creature.getFetus();
+        }
+    }
+
+    /**
+     * Writes position, target, energy, life and pregnancy back into the Creature objects.
+     * A creature which reached its target during the update loses it.
+     */
+    public void store() {
+        for (int i = 0; i < size; i++) {
+            Creature creature = creatures[i];
+
+            creature.getPosition().x = x[i];
+            creature.getPosition().y = y[i];
+            if (hasTarget[i] == 0) {
+                creature.setTarget(null);
+            }
+            creature.setEnergy(energy[i]);
+            creature.setLife(life[i]);
+            creature.setPregnant(pregnant[i] != 0);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public Creature getCreature(int slot) {
+        return creatures[slot];
+    }
+
+    public double[] getX() {
+        return x;
+    }
+
+    public double[] getY() {
+        return y;
+    }
+
+    public double[] getTargetX() {
+        return targetX;
+    }
+
+    public double[] getTargetY() {
+        return targetY;
+    }
+
+    public double[] getHasTarget() {
+        return hasTarget;
+    }
+
+    public double[] getSpeed() {
+        return speed;
+    }
+
+    public double[] getEnergy() {
+        return energy;
+    }
+
+    public double[] getMaxEnergy() {
+        return maxEnergy;
+    }
+
+    public double[] getLife() {
+        return life;
+    }
+
+    public double[] getMaxLife() {
+        return maxLife;
+    }
+
+    public double[] getBreedProgressSpeed() {
+        return breedProgressSpeed;
+    }
+
+    public double[] getPregnant() {
+        return pregnant;
+    }
+
+    /**
+     * Returns the breed time of every creature. The column is not written back by store(),
+     * the update keeps it in line with the Creature objects so a finished update is fully described by the columns.
+     *
+     * @return the breed time column
+     */
+    public double[] getBreedTime() {
+        return breedTime;
+    }
+
+    /**
+     * Returns the fetus of every creature, or null for creatures which are not pregnant.
+     * Like the breed time, the column is kept in line with the Creature objects by the update.
+     *
+     * @return the fetus column
+     */
+    public Creature[] getFetuses() {
+        return fetuses;
+    }
+
+    private void ensureCapacity(int amount) {
+        if (creatures.length < amount) {
+            int capacity = Math.max(amount, creatures.length * 2);
+            creatures = Arrays.copyOf(creatures, capacity);
+            x = new double[capacity];
+            y = new double[capacity];
+            targetX = new double[capacity];
+            targetY = new double[capacity];
+            hasTarget = new double[capacity];
+            speed = new double[capacity];
+            energy = new double[capacity];
+            maxEnergy = new double[capacity];
+            life = new double[capacity];
+            maxLife = new double[capacity];
+            breedProgressSpeed = new double[capacity];
+            pregnant = new double[capacity];
+            breedTime = new double[capacity];
+            fetuses = new Creature[capacity];
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package de.thomas.creatures.implementation.model;
+
+import de.thomas.creatures.implementation.ai.BasicAI;
+import de.thomas.creatures.implementation.model.Creature.Gender;
+import de.thomas.creatures.implementation.statistics.TraitDistributions.Trait;
+import de.thomas.creatures.implementation.util.AssertionException;
+import de.thomas.creatures.implementation.util.AssertionHelper;
+import de.thomas.creatures.implementation.util.VariationHelper;
+import de.thomas.creatures.implementation.util.WorldRandom;
+
+import java.awt.geom.Point2D;
+
+/**
+ * The CreatureTemplate class describes an initial population, as entered in the CreateCreaturesView.
+ * Every trait has a value and a variance, a created creature gets the value changed by up to the variance.
+ * The creatures start near the middle of the world.
+ */
+public class CreatureTemplate {
+    private final double[] values = new double[Trait.values().length];
+    private final double[] variances = new double[Trait.values().length];
+    private int amount = 60;
+    //Percentage of male creatures (0-100)
+    private double maleRatio = 50;
+
+    /**
+     * Constructs a template with the traits of the test creature and no variance.
+     */
+    public CreatureTemplate() {
+        setValue(Trait.MAX_ENERGY, 1000);
+        setValue(Trait.MAX_LIFE, 500);
+        setValue(Trait.SPEED, 24);
+        setValue(Trait.VISION_RANGE, 100);
+        setValue(Trait.MATING_ENERGY_NEEDED, 100);
+        setValue(Trait.BREED_LENGTH, 200);
+        setValue(Trait.BREED_PROGRESS_SPEED, 5);
+    }
+
+    public CreatureTemplate(CreatureTemplate other) {
+        System.arraycopy(other.values, 0, values, 0, values.length);
+        System.arraycopy(other.variances, 0, variances, 0, variances.length);
+        amount = other.amount;
+        maleRatio = other.maleRatio;
+    }
+
+    /**
+     * Checks that all values are at least 0, the male ratio is at most 100 and no variance exceeds its value.
+     */
+    public void check() throws AssertionException {
+        AssertionHelper.checkSmallerZero(amount, "Amount");
+        AssertionHelper.checkSmallerZero(maleRatio, "Male Ratio");
+        AssertionHelper.checkSmallerEqualThan(maleRatio, 100, "Male Ratio");
+
+        for (Trait trait : Trait.values()) {
+            AssertionHelper.checkSmallerZero(getValue(trait), getLabel(trait));
+            AssertionHelper.checkSmallerZero(getVariance(trait), getLabel(trait) + " Variance");
+            AssertionHelper.checkSmallerEqualThan(getVariance(trait), getValue(trait), getLabel(trait) + " Variance");
+        }
+    }
+
+    /**
+     * Creates one creature of the population. Its AI still has to be initialized by adding it to a world.
+     *
+     * @param sizeX  the width of the world
+     * @param sizeY  the height of the world
+     * @param random the random number generator the variation is drawn from
+     * @return the creature
+     */
+    public Creature createCreature(double sizeX, double sizeY, WorldRandom random) {
+        Gender gender = random.nextDouble() * 100 > maleRatio ? Gender.FEMALE : Gender.MALE;
+        double middleWidth = sizeX / 2;
+        double middleHeight = sizeY / 2;
+        double maxEnergy = vary(Trait.MAX_ENERGY, random);
+
+        return new Creature(
+                getValue(Trait.MAX_ENERGY),
+                maxEnergy,
+                vary(Trait.MAX_LIFE, random),
+                new Point2D.Double(middleWidth * VariationHelper.mutationFactor(0.95, random),
+                        middleHeight * VariationHelper.mutationFactor(0.95, random)),
+                vary(Trait.SPEED, random),
+                vary(Trait.VISION_RANGE, random),
+                gender,
+                new BasicAI(random.nextLong()),
+                vary(Trait.MATING_ENERGY_NEEDED, random),
+                vary(Trait.BREED_LENGTH, random),
+                vary(Trait.BREED_PROGRESS_SPEED, random));
+    }
+
+    private double vary(Trait trait, WorldRandom random) {
+        double value = getValue(trait);
+        if (getVariance(trait) == 0) {
+            return value;
+        }
+
+        return value * VariationHelper.mutationFactor(getVariance(trait) / value, random);
+    }
+
+    /**
+     * @param trait the trait
+     * @return the name of the trait as shown to the user
+     */
+    public static String getLabel(Trait trait) {
+        switch (trait) {
+            case SPEED:
+                return "Speed";
+            case VISION_RANGE:
+                return "Vision Range";
+            case MAX_LIFE:
+                return "Max Life";
+            case MAX_ENERGY:
+                return "Max Energy";
+            case MATING_ENERGY_NEEDED:
+                return "Mating Energy Needed";
+            case BREED_LENGTH:
+                return "Breed Length";
+            default:
+                return "Breed Progress Speed";
+        }
+    }
+
+    public double getValue(Trait trait) {
+        return values[trait.ordinal()];
+    }
+
+    public void setValue(Trait trait, double value) {
+        values[trait.ordinal()] = value;
+    }
+
+    public double getVariance(Trait trait) {
+        return variances[trait.ordinal()];
+    }
+
+    public void setVariance(Trait trait, double variance) {
+        variances[trait.ordinal()] = variance;
+    }
+
+    public int getAmount() {
+        return amount;
+    }
+
+    public void setAmount(int amount) {
+        this.amount = amount;
+    }
+
+    public double getMaleRatio() {
+        return maleRatio;
+    }
+
+    public void setMaleRatio(double maleRatio) {
+        this.maleRatio = maleRatio;
+    }
+}
@@ -0,0 +1,99 @@
+package de.thomas.creatures.implementation.model;
+
+import de.thomas.creatures.implementation.ai.BasicAI;
+import de.thomas.creatures.implementation.ai.CreatureAI;
+import de.thomas.creatures.implementation.ai.DoNothingAI;
+import de.thomas.creatures.implementation.model.Creature.Gender;
+
+import java.awt.geom.Point2D;
+import java.nio.ByteBuffer;
+
+/**
+ * The CreatureTraits class holds what never changes during the life of a creature: its heritable traits, its gender
+ * and its AI. It is the binary encoding of them shared by world snapshots and checkpoints.
+ * The AI is stored as its type and the seed of its way points, so a BasicAI walks the same way points after loading.
+ */
+public class CreatureTraits {
+    //Seven traits, gender, AI type and way point seed
+    public static final int LENGTH = 7 * Double.BYTES + 2 + Long.BYTES;
+
+    private static final byte AI_NONE = 0;
+    private static final byte AI_BASIC = 1;
+
+    private final double maxLife;
+    private final double maxEnergy;
+    private final double speed;
+    private final double visionRange;
+    private final double matingEnergyNeeded;
+    private final double breedLength;
+    private final double breedProgressSpeed;
+    private final Gender gender;
+    private final byte aiType;
+    private final long wayPointSeed;
+
+    private CreatureTraits(ByteBuffer buffer) {
+        maxLife = buffer.getDouble();
+        maxEnergy = buffer.getDouble();
+        speed = buffer.getDouble();
+        visionRange = buffer.getDouble();
+        matingEnergyNeeded = buffer.getDouble();
+        breedLength = buffer.getDouble();
+        breedProgressSpeed = buffer.getDouble();
+        gender = Gender.values()[buffer.get()];
+        aiType = buffer.get();
+        wayPointSeed = buffer.getLong();
+    }
+
+    /**
+     * Writes the traits of a creature, LENGTH bytes.
+     *
+     * @param buffer   the buffer to write to
+     * @param creature the creature
+     */
+    public static void put(ByteBuffer buffer, Creature creature) {
+        buffer.putDouble(creature.getMaxLife());
+        buffer.putDouble(creature.getMaxEnergy());
+        buffer.putDouble(creature.getSpeed());
+        buffer.putDouble(creature.getVisionRange());
+        buffer.putDouble(creature.getMatingEnergyNeeded());
+        buffer.putDouble(creature.getBreedLength());
+        buffer.putDouble(creature.getBreedProgressSpeed());
+        buffer.put((byte) creature.getGender().ordinal());
+
+        if (creature.getAi() instanceof BasicAI) {
+            buffer.put(AI_BASIC);
+            buffer.putLong(((BasicAI) creature.getAi()).getWayPointSeed());
+        } else {
+            buffer.put(AI_NONE);
+            buffer.putLong(0);
+        }
+    }
+
+    /**
+     * Reads traits written by put.
+     *
+     * @param buffer the buffer to read from
+     * @return the traits
+     */
+    public static CreatureTraits get(ByteBuffer buffer) {
+        return new CreatureTraits(buffer);
+    }
+
+    /**
+     * Creates a creature with these traits and a new AI, which is not yet attached to a world.
+     *
+     * @param energy   the energy of the creature
+     * @param position the position of the creature, null for a fetus
+     * @return the creature
+     */
+    public Creature createCreature(double energy, Point2D.Double position) {
+        CreatureAI ai = aiType == AI_BASIC ? new BasicAI(wayPointSeed) : new DoNothingAI();
+
+        return new Creature(energy, maxEnergy, maxLife, position, speed, visionRange, gender, ai,
+                matingEnergyNeeded, breedLength, breedProgressSpeed);
+    }
+
+    public double getBreedLength() {
+        return breedLength;
+    }
+}
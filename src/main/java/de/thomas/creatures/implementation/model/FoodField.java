@@ -0,0 +1,255 @@
+package de.thomas.creatures.implementation.model;
+
+import java.util.Arrays;
+
+/**
+ * The FoodField class is an alternative to individual Food objects for large worlds.
+ * The world is divided into square cells, each holding an amount of food energy which regrows over time.
+ * The regrowth of a cell is scaled by its fertility, so landscapes with rich and poor regions can be modelled.
+ * Memory use depends only on the number of cells, not on the amount of food.
+ */
+public class FoodField {
+    public static final double DEFAULT_CELL_SIZE = 25;
+
+    private final double cellSize;
+    private final int cellsX;
+    private final int cellsY;
+    private double[] energy;
+    private final double[] fertility;
+
+    /**
+     * Constructs an empty FoodField covering a world with the given dimensions.
+     *
+     * @param width    the width of the world
+     * @param height   the height of the world
+     * @param cellSize the edge length of a cell
+     */
+    public FoodField(double width, double height, double cellSize) {
+        this.cellSize = cellSize;
+        cellsX = Math.max((int) Math.ceil(width / cellSize), 1);
+        cellsY = Math.max((int) Math.ceil(height / cellSize), 1);
+        energy = new double[cellsX * cellsY];
+        fertility = new double[cellsX * cellsY];
+
+        Arrays.fill(fertility, 1);
+    }
+
+    private FoodField(FoodField other) {
+        cellSize = other.cellSize;
+        cellsX = other.cellsX;
+        cellsY = other.cellsY;
+        energy = new double[other.energy.length];
+        fertility = other.fertility.clone();
+    }
+
+    /**
+     * Copies the energy of all cells into another field of the same size, for example a field kept for painting.
+     *
+     * @param target the field to copy into, or null
+     * @return the target, or a new field if the target was null or of another size
+     */
+    public FoodField copyEnergyTo(FoodField target) {
+        if (target == null || target.cellSize != cellSize || target.cellsX != cellsX || target.cellsY != cellsY) {
+            target = new FoodField(this);
+        }
+
+        System.arraycopy(energy, 0, target.energy, 0, energy.length);
+        return target;
+    }
+
+    /**
+     * Returns the amount of energy a single cell can hold under the parameters of the given world.
+     * The capacity of all cells together equals maxFoodAmount food items of average energy.
+     *
+     * @param world the world the field belongs to
+     * @return the capacity of a cell
+     */
+    public double getCapacity(WorldModel world) {
+        return world.getMaxFoodAmount() * (world.getMaxFoodEnergy() / 2.0) / energy.length;
+    }
+
+    /**
+     * Fills every cell to the given fraction of its capacity.
+     *
+     * @param world    the world the field belongs to
+     * @param fraction the fraction of the capacity, between 0 and 1
+     */
+    public void fill(WorldModel world, double fraction) {
+        double capacity = getCapacity(world);
+
+        for (int cell = 0; cell < energy.length; cell++) {
+            energy[cell] = capacity * fraction * Math.min(fertility[cell], 1);
+        }
+    }
+
+    /**
+     * Lets the food of all cells regrow.
+     * On average, one update adds as much energy as the food creation loop would create in form of Food objects.
+     *
+     * @param world the world the field belongs to
+     */
+    public void regrow(WorldModel world) {
+        regrowInto(world, energy);
+    }
+
+    /**
+     * Lets the food of all cells regrow into the given array, which becomes the energy of the field.
+     * The field does not touch the returned array anymore, so the energy before the regrowth is kept without a copy.
+     *
+     * @param world  the world the field belongs to
+     * @param target an array of getCellAmount() values
+     * @return the energy of all cells before the regrowth
+     */
+    public double[] regrow(WorldModel world, double[] target) {
+        double[] previous = energy;
+        regrowInto(world, target);
+        return previous;
+    }
+
+    private void regrowInto(WorldModel world, double[] target) {
+        double capacity = getCapacity(world);
+        double growth = getGrowth(world);
+
+        for (int cell = 0; cell < energy.length; cell++) {
+            target[cell] = regrowCell(energy[cell], growth, fertility[cell], capacity);
+        }
+
+        energy = target;
+    }
+
+    /**
+     * Returns the energy one regrowth adds to a cell with fertility 1.
+     *
+     * @param world the world the field belongs to
+     * @return the growth of a cell
+     */
+    public double getGrowth(WorldModel world) {
+        return world.getSpeedFactor() * (world.getFoodCreationRate() / 100.0) * (world.getMaxFoodEnergy() / 2.0) / energy.length;
+    }
+
+    /**
+     * Computes the energy of a cell after one regrowth.
+     *
+     * @param energy    the energy before the regrowth
+     * @param growth    the growth of a cell with fertility 1
+     * @param fertility the fertility of the cell
+     * @param capacity  the capacity of a cell
+     * @return the energy after the regrowth
+     */
+    public static double regrowCell(double energy, double growth, double fertility, double capacity) {
+        return Math.min(energy + growth * fertility, capacity);
+    }
+
+    /**
+     * Removes up to the given amount of energy from a cell.
+     *
+     * @param cell   the cell to eat from
+     * @param amount the amount of energy wanted
+     * @return the amount of energy actually eaten
+     */
+    public double consume(int cell, double amount) {
+        double eaten = Math.min(Math.max(amount, 0), energy[cell]);
+        energy[cell] -= eaten;
+        return eaten;
+    }
+
+    /**
+     * Finds the cell with the most energy whose center is within the given range of a position.
+     *
+     * @param x     the x coordinate of the position
+     * @param y     the y coordinate of the position
+     * @param range the range
+     * @return the richest cell, or -1 if no cell within range has any energy
+     */
+    public int getRichestCellWithin(double x, double y, double range) {
+        int minX = clamp((int) ((x - range) / cellSize), cellsX);
+        int maxX = clamp((int) ((x + range) / cellSize), cellsX);
+        int minY = clamp((int) ((y - range) / cellSize), cellsY);
+        int maxY = clamp((int) ((y + range) / cellSize), cellsY);
+        double rangeSq = range * range;
+
+        int richest = -1;
+        double richestEnergy = 0;
+
+        for (int cellY = minY; cellY <= maxY; cellY++) {
+            double dy = (cellY + 0.5) * cellSize - y;
+
+            for (int cellX = minX; cellX <= maxX; cellX++) {
+                double dx = (cellX + 0.5) * cellSize - x;
+                int cell = cellY * cellsX + cellX;
+
+                if (energy[cell] > richestEnergy && dx * dx + dy * dy < rangeSq) {
+                    richest = cell;
+                    richestEnergy = energy[cell];
+                }
+            }
+        }
+
+        return richest;
+    }
+
+    /**
+     * Returns the cell containing the given position. Positions outside the world are mapped to the nearest cell.
+     *
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @return the cell index
+     */
+    public int getCell(double x, double y) {
+        return clamp((int) (y / cellSize), cellsY) * cellsX + clamp((int) (x / cellSize), cellsX);
+    }
+
+    public double getCellCenterX(int cell) {
+        return (cell % cellsX + 0.5) * cellSize;
+    }
+
+    public double getCellCenterY(int cell) {
+        return (cell / cellsX + 0.5) * cellSize;
+    }
+
+    public double getEnergy(int cell) {
+        return energy[cell];
+    }
+
+    public void setEnergy(int cell, double energy) {
+        this.energy[cell] = energy;
+    }
+
+    public double getTotalEnergy() {
+        double total = 0;
+
+        for (double cellEnergy : energy) {
+            total += cellEnergy;
+        }
+
+        return total;
+    }
+
+    public double getFertility(int cell) {
+        return fertility[cell];
+    }
+
+    public void setFertility(int cell, double fertility) {
+        this.fertility[cell] = fertility;
+    }
+
+    public double getCellSize() {
+        return cellSize;
+    }
+
+    public int getCellsX() {
+        return cellsX;
+    }
+
+    public int getCellsY() {
+        return cellsY;
+    }
+
+    public int getCellAmount() {
+        return energy.length;
+    }
+
+    private static int clamp(int cell, int cells) {
+        return Math.min(Math.max(cell, 0), cells - 1);
+    }
+}
@@ -0,0 +1,291 @@
+package de.thomas.creatures.implementation.model;
+
+import de.thomas.creatures.implementation.kernel.DistanceKernel;
+import de.thomas.creatures.implementation.kernel.DistanceKernels;
+import de.thomas.creatures.implementation.model.Creature.Gender;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * The Perception class computes what the creatures of a world can see in one batch pass.
+ * For the nearest visible food, food and creatures are bucketed into square cells at least as large as the largest
+ * vision range, so every creature only has to be tested against the food of its own and the eight neighbouring cells.
+ * The result is stored per creature slot. Creatures ready to mate are collected per gender, so the nearest mate is
+ * a single scan over the opposite gender.
+ * All coordinates are read from packed primitive arrays by the selected DistanceKernel.
+ */
+public class Perception {
+    public static final int MAX_CELLS_PER_AXIS = 256;
+    public static final int PARALLEL_THRESHOLD = 10000;
+
+    private final WorldModel worldModel;
+    private final DistanceKernel kernel = DistanceKernels.get();
+
+    private Creature[] creatures = new Creature[0];
+    private double[] creatureX = new double[0];
+    private double[] creatureY = new double[0];
+    private double[] creatureVisionRange = new double[0];
+    private int[] creatureCell = new int[0];
+    private int[] creatureOrder = new int[0];
+    private int[] nearestFood = new int[0];
+    private int creatureAmount;
+
+    private Food[] foods = new Food[0];
+    private double[] foodX = new double[0];
+    private double[] foodY = new double[0];
+    private int[] foodCell = new int[0];
+
+    private final Creature[][] mates = {new Creature[0], new Creature[0]};
+    private final double[][] mateX = {new double[0], new double[0]};
+    private final double[][] mateY = {new double[0], new double[0]};
+    private final int[] mateAmount = new int[2];
+
+    private int[] foodCellStart = new int[1];
+    private int[] creatureCellStart = new int[1];
+    private double cellSize;
+    private int cellsX;
+    private int cellsY;
+
+    /**
+     * Constructs a Perception for the given world.
+     *
+     * @param worldModel the world whose creatures and food are perceived
+     */
+    public Perception(WorldModel worldModel) {
+        this.worldModel = worldModel;
+    }
+
+    /**
+     * Recomputes the nearest visible food of every creature and collects the creatures ready to mate.
+     * Every creature gets assigned its slot in the result arrays, which stays valid until the next call.
+     */
+    public void update() {
+        List<Creature> creatureList = worldModel.getCreatures();
+        List<Food> foodList = worldModel.getFoods();
+
+        int foodAmount = foodList.size();
+        ensureCreatureCapacity(creatureList.size());
+        ensureFoodCapacity(foodAmount);
+        creatureAmount = creatureList.size();
+
+        double maxVisionRange = 0;
+        clearMates();
+
+        for (int i = 0; i < creatureAmount; i++) {
+            Creature creature = creatureList.get(i);
+            creature.setSlot(i);
+            creatures[i] = creature;
+            creatureX[i] = creature.getPosition().x;
+            creatureY[i] = creature.getPosition().y;
+            creatureVisionRange[i] = creature.getVisionRange();
+            maxVisionRange = Math.max(maxVisionRange, creature.getVisionRange());
+
+            if (isReadyToMate(creature)) {
+                addMate(creature);
+            }
+        }
+
+        initCells(maxVisionRange);
+
+        for (int i = 0; i < creatureAmount; i++) {
+            creatureCell[i] = cellOf(creatureX[i], creatureY[i]);
+        }
+
+        for (int i = 0; i < foodAmount; i++) {
+            Food food = foodList.get(i);
+            foodCell[i] = cellOf(food.getPosition().x, food.getPosition().y);
+        }
+
+        //Counting sort of food and creatures by cell
+        foodCellStart = countCells(foodCell, foodAmount, foodCellStart);
+        creatureCellStart = countCells(creatureCell, creatureAmount, creatureCellStart);
+
+        int[] foodFill = foodCellStart.clone();
+        for (int i = 0; i < foodAmount; i++) {
+            Food food = foodList.get(i);
+            int target = foodFill[foodCell[i]]++;
+            foods[target] = food;
+            foodX[target] = food.getPosition().x;
+            foodY[target] = food.getPosition().y;
+        }
+
+        int[] creatureFill = creatureCellStart.clone();
+        for (int i = 0; i < creatureAmount; i++) {
+            creatureOrder[creatureFill[creatureCell[i]]++] = i;
+        }
+
+        IntStream cells = IntStream.range(0, cellsX * cellsY);
+        if (creatureAmount >= PARALLEL_THRESHOLD) {
+            cells = cells.parallel();
+        }
+        cells.forEach(this::perceiveCell);
+    }
+
+    /**
+     * Returns whether the given creature was part of the last batch pass.
+     *
+     * @param creature the creature to check
+     * @return true if a result for the creature is available
+     */
+    public boolean isCurrent(Creature creature) {
+        int slot = creature.getSlot();
+        return slot >= 0 && slot < creatureAmount && creatures[slot] == creature;
+    }
+
+    /**
+     * Returns the nearest food within the vision range of the creature, as computed by the last batch pass.
+     *
+     * @param creature the creature, which must be current
+     * @return the nearest food, or null if no food is within the vision range
+     */
+    public Food getNearestFood(Creature creature) {
+        int foodIndex = nearestFood[creature.getSlot()];
+        return foodIndex >= 0 ? foods[foodIndex] : null;
+    }
+
+    /**
+     * Returns the nearest creature of the opposite gender within the vision range of the creature,
+     * if both are ready to mate, as of the last batch pass.
+     *
+     * @param creature the creature looking for a mate
+     * @return the nearest mate, or null if there is none
+     */
+    public Creature getNearestMate(Creature creature) {
+        if (!isReadyToMate(creature)) {
+            return null;
+        }
+
+        int gender = creature.getGender() == Gender.MALE ? Gender.FEMALE.ordinal() : Gender.MALE.ordinal();
+        int nearest = kernel.nearestWithin(mateX[gender], mateY[gender], 0, mateAmount[gender],
+                creature.getPosition().x, creature.getPosition().y,
+                creature.getVisionRange() * creature.getVisionRange());
+
+        return nearest >= 0 ? mates[gender][nearest] : null;
+    }
+
+    private static boolean isReadyToMate(Creature creature) {
+        return creature.getEnergy() > creature.getMatingEnergyNeeded() && !creature.isPregnant();
+    }
+
+    private void addMate(Creature creature) {
+        int gender = creature.getGender().ordinal();
+        int index = mateAmount[gender]++;
+
+        if (index == mates[gender].length) {
+            int capacity = Math.max(16, index * 2);
+            mates[gender] = Arrays.copyOf(mates[gender], capacity);
+            mateX[gender] = Arrays.copyOf(mateX[gender], capacity);
+            mateY[gender] = Arrays.copyOf(mateY[gender], capacity);
+        }
+
+        mates[gender][index] = creature;
+        mateX[gender][index] = creature.getPosition().x;
+        mateY[gender][index] = creature.getPosition().y;
+    }
+
+    private void clearMates() {
+        for (int gender = 0; gender < mateAmount.length; gender++) {
+            Arrays.fill(mates[gender], 0, mateAmount[gender], null);
+            mateAmount[gender] = 0;
+        }
+    }
+
+    private void perceiveCell(int cell) {
+        int cellX = cell % cellsX;
+        int cellY = cell / cellsX;
+
+        int minX = Math.max(cellX - 1, 0);
+        int maxX = Math.min(cellX + 1, cellsX - 1);
+        int minY = Math.max(cellY - 1, 0);
+        int maxY = Math.min(cellY + 1, cellsY - 1);
+
+        for (int k = creatureCellStart[cell]; k < creatureCellStart[cell + 1]; k++) {
+            int slot = creatureOrder[k];
+            double x = creatureX[slot];
+            double y = creatureY[slot];
+            double nearestDistanceSq = creatureVisionRange[slot] * creatureVisionRange[slot];
+            int nearest = -1;
+
+            //The neighbouring cells of one row are stored contiguously
+            for (int neighbourY = minY; neighbourY <= maxY; neighbourY++) {
+                int from = foodCellStart[neighbourY * cellsX + minX];
+                int to = foodCellStart[neighbourY * cellsX + maxX + 1];
+                int f = kernel.nearestWithin(foodX, foodY, from, to, x, y, nearestDistanceSq);
+
+                if (f >= 0) {
+                    double dx = foodX[f] - x;
+                    double dy = foodY[f] - y;
+                    nearestDistanceSq = dx * dx + dy * dy;
+                    nearest = f;
+                }
+            }
+
+            nearestFood[slot] = nearest;
+        }
+    }
+
+    private void initCells(double maxVisionRange) {
+        double width = worldModel.getWidth();
+        double height = worldModel.getHeight();
+
+        cellSize = Math.max(maxVisionRange, Math.max(width, height) / MAX_CELLS_PER_AXIS);
+        if (cellSize <= 0) {
+            cellSize = 1;
+        }
+
+        cellsX = (int) (width / cellSize) + 1;
+        cellsY = (int) (height / cellSize) + 1;
+    }
+
+    private int cellOf(double x, double y) {
+        int cellX = Math.min(Math.max((int) (x / cellSize), 0), cellsX - 1);
+        int cellY = Math.min(Math.max((int) (y / cellSize), 0), cellsY - 1);
+        return cellY * cellsX + cellX;
+    }
+
+    private int[] countCells(int[] cellOfElement, int amount, int[] cellStart) {
+        int cells = cellsX * cellsY;
+        int[] start = cellStart.length == cells + 1 ? cellStart : new int[cells + 1];
+        Arrays.fill(start, 0);
+
+        for (int i = 0; i < amount; i++) {
+            start[cellOfElement[i] + 1]++;
+        }
+
+        for (int c = 0; c < cells; c++) {
+            start[c + 1] += start[c];
+        }
+
+        return start;
+    }
+
+    private void ensureCreatureCapacity(int amount) {
+        if (creatures.length < amount) {
+            int capacity = Math.max(amount, creatures.length * 2);
+            creatures = new Creature[capacity];
+            creatureX = new double[capacity];
+            creatureY = new double[capacity];
+            creatureVisionRange = new double[capacity];
+            creatureCell = new int[capacity];
+            creatureOrder = new int[capacity];
+            nearestFood = new int[capacity];
+        } else if (amount < creatureAmount) {
+            //Drop references to creatures that are gone
+            Arrays.fill(creatures, amount, creatureAmount, null);
+        }
+    }
+
+    private void ensureFoodCapacity(int amount) {
+        if (foods.length < amount) {
+            int capacity = Math.max(amount, foods.length * 2);
+            foods = new Food[capacity];
+            foodX = new double[capacity];
+            foodY = new double[capacity];
+            foodCell = new int[capacity];
+        } else {
+            Arrays.fill(foods, amount, foods.length, null);
+        }
+    }
+}
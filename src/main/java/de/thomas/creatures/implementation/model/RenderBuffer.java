@@ -0,0 +1,60 @@
+package de.thomas.creatures.implementation.model;
+
+import de.thomas.creatures.implementation.statistics.TrajectoryReader;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The RenderBuffer class hands RenderSnapshots from the simulation to the view without locks.
+ * It holds three snapshots: the simulation captures into the back one, the view paints the front one,
+ * and the one in between is the latest published snapshot. Publishing and reading swap a snapshot with the middle one
+ * in one atomic step, so the simulation never waits for painting and the view never sees a snapshot being captured.
+ * There must be only one publishing and one reading thread.
+ */
+public class RenderBuffer {
+    //Set in the state while the middle snapshot was published and not yet read
+    private static final int FRESH = 4;
+    private static final int INDEX_MASK = 3;
+
+    private final RenderSnapshot[] snapshots = {new RenderSnapshot(), new RenderSnapshot(), new RenderSnapshot()};
+    //Index of the middle snapshot, combined with FRESH
+    private final AtomicInteger middle = new AtomicInteger(1);
+    //Only used by the publishing thread
+    private int back = 0;
+    //Only used by the reading thread
+    private int front = 2;
+
+    /**
+     * Captures the world into the back snapshot and makes it the latest one. Called by the simulation.
+     *
+     * @param world the world
+     */
+    public void publish(WorldModel world) {
+        snapshots[back].capture(world);
+        back = middle.getAndSet(back | FRESH) & INDEX_MASK;
+    }
+
+    /**
+     * Captures the current tick of a replayed recording into the back snapshot and makes it the latest one.
+     * Called by the replay instead of a simulation.
+     *
+     * @param reader the reader of the recording
+     */
+    public void publish(TrajectoryReader reader) {
+        snapshots[back].capture(reader);
+        back = middle.getAndSet(back | FRESH) & INDEX_MASK;
+    }
+
+    /**
+     * Returns the latest published snapshot. Called by the view, the snapshot stays unchanged until the next call.
+     *
+     * @return the snapshot to paint
+     */
+    public RenderSnapshot read() {
+        if ((middle.get() & FRESH) != 0) {
+            front = middle.getAndSet(front) & INDEX_MASK;
+        }
+
+        return snapshots[front];
+    }
+}
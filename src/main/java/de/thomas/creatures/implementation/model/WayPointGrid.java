@@ -0,0 +1,98 @@
+package de.thomas.creatures.implementation.model;
+
+import java.awt.geom.Point2D;
+
+/**
+ * The WayPointGrid class holds the waypoints of a world which creatures wander between when they have nothing better to do.
+ * Only the regular base grid is stored, as packed primitive arrays shared by all creatures of the world.
+ * The randomized variant of a waypoint is derived on demand from a per-creature seed, so every creature still sees
+ * its own jittered set of waypoints without keeping it in memory.
+ */
+public class WayPointGrid {
+    public static final int WAY_POINT_NUMBER = 10;
+
+    private final double[] baseX;
+    private final double[] baseY;
+    private final double maxRandom;
+
+    /**
+     * Constructs a WayPointGrid for a world with the given dimensions.
+     * The number of waypoints is determined by the WAY_POINT_NUMBER constant.
+     *
+     * @param width  the width of the world
+     * @param height the height of the world
+     */
+    public WayPointGrid(double width, double height) {
+        int wayPointNumberX = WAY_POINT_NUMBER;
+        int wayPointNumberY = (int) (WAY_POINT_NUMBER * (height / width));
+
+        double deviationX = width / wayPointNumberX;
+        double deviationY = height / wayPointNumberY;
+
+        maxRandom = deviationX / 2;
+        baseX = new double[wayPointNumberX * wayPointNumberY];
+        baseY = new double[wayPointNumberX * wayPointNumberY];
+
+        for (int y = 0; y < wayPointNumberY; y++) {
+            for (int x = 0; x < wayPointNumberX; x++) {
+                baseX[y * wayPointNumberX + x] = x * deviationX;
+                baseY[y * wayPointNumberX + x] = y * deviationY;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of waypoints in the grid.
+     *
+     * @return the number of waypoints
+     */
+    public int size() {
+        return baseX.length;
+    }
+
+    /**
+     * Returns the x coordinate of a waypoint as seen by the creature with the given seed.
+     *
+     * @param index the index of the waypoint
+     * @param seed  the waypoint seed of the creature
+     * @return the jittered x coordinate
+     */
+    public double getX(int index, long seed) {
+        return baseX[index] + jitter(seed, 2L * index) * maxRandom;
+    }
+
+    /**
+     * Returns the y coordinate of a waypoint as seen by the creature with the given seed.
+     *
+     * @param index the index of the waypoint
+     * @param seed  the waypoint seed of the creature
+     * @return the jittered y coordinate
+     */
+    public double getY(int index, long seed) {
+        return baseY[index] + jitter(seed, 2L * index + 1) * maxRandom;
+    }
+
+    /**
+     * Creates the waypoint with the given index as seen by the creature with the given seed.
+     *
+     * @param index the index of the waypoint
+     * @param seed  the waypoint seed of the creature
+     * @return a new point holding the jittered waypoint
+     */
+    public Point2D.Double getWayPoint(int index, long seed) {
+        return new Point2D.Double(getX(index, seed), getY(index, seed));
+    }
+
+    /**
+     * Maps a seed and a stream position to a uniformly distributed value in [0, 1).
+     * The mixing function is the one of SplittableRandom, so equal inputs always yield the same value.
+     */
+    private static double jitter(long seed, long position) {
+        long z = seed + (position + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z = z ^ (z >>> 31);
+
+        return (z >>> 11) * 0x1.0p-53;
+    }
+}
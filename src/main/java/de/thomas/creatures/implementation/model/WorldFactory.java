@@ -49,6 +49,17 @@ public class WorldFactory {
         return world;
     }
 
+    public static WorldModel createEmptyFieldWorld(int width, int height, int foodRate) {
+        // Create a new WorldModel object whose food grows on a field instead of being placed as Food objects
+        WorldModel world = new WorldModel(width, height, foodRate);
+
+        FoodField foodField = new FoodField(width, height, FoodField.DEFAULT_CELL_SIZE);
+        foodField.fill(world, 0.5);
+        world.setFoodField(foodField);
+
+        return world;
+    }
+
     public static WorldModel createBasicWorld(int width, int height, int creatureAmount, int foodRate) {
         // Create a new WorldModel object with the specified dimensions and food rate
         WorldModel world = new WorldModel(width, height, foodRate);
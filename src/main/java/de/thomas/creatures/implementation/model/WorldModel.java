@@ -1,5 +1,11 @@
 package de.thomas.creatures.implementation.model;
 
+import de.thomas.creatures.implementation.statistics.LineageLog;
+import de.thomas.creatures.implementation.statistics.PopulationHeatmap;
+import de.thomas.creatures.implementation.statistics.TrajectoryRecorder;
+import de.thomas.creatures.implementation.statistics.PopulationTotals;
+import de.thomas.creatures.implementation.util.WorldRandom;
+
 import java.util.ArrayList;
 import java.util.List;
 
@@ -16,6 +22,23 @@ public class WorldModel {
     private double width;
     private double height;
     private int foodCreationRate;
+    private WayPointGrid wayPointGrid;
+    //Only set if food grows on a field instead of being placed as Food objects
+    private FoodField foodField;
+    private final Perception perception;
+    private final PopulationTotals populationTotals = new PopulationTotals();
+    private final LineageLog lineageLog = new LineageLog();
+    //Only set while a heatmap is shown or recorded
+    private PopulationHeatmap heatmap;
+    //Only set while the run is recorded
+    private TrajectoryRecorder trajectoryRecorder;
+    //Only set while the world is shown in a view
+    private RenderBuffer renderBuffer;
+    //Simulated seconds since the world was created
+    private double time;
+    private final WorldRandom random = new WorldRandom(System.nanoTime() ^ (long) (Math.random() * Long.MAX_VALUE));
+    //Only set if the world does not follow the static parameters
+    private WorldParameters parameters;
 
     public WorldModel(int width, int height, int foodCreationRate) {
         creatures = new ArrayList<>();
@@ -23,6 +46,7 @@ public class WorldModel {
         this.width = width;
         this.height = height;
         this.foodCreationRate = foodCreationRate;
+        perception = new Perception(this);
     }
 
     public List<Creature> getCreatures() {
@@ -31,10 +55,113 @@ public class WorldModel {
 
     public void addCreature(Creature creature) {
         creatures.add(creature);
+        populationTotals.add(creature);
+        creature.setId(lineageLog.addBirth(creature, time));
+
+        if (heatmap != null) {
+            heatmap.add(creature);
+        }
     }
 
     public void removeCreature(Creature creature) {
-        creatures.remove(creature);
+        if (creatures.remove(creature)) {
+            populationTotals.remove(creature);
+            lineageLog.addDeath(creature.getId(), time);
+
+            if (heatmap != null) {
+                heatmap.remove(creature);
+            }
+        }
+    }
+
+    public PopulationTotals getPopulationTotals() {
+        return populationTotals;
+    }
+
+    public LineageLog getLineageLog() {
+        return lineageLog;
+    }
+
+    public PopulationHeatmap getHeatmap() {
+        return heatmap;
+    }
+
+    /**
+     * Attaches a heatmap to the world, all current creatures are added to it.
+     *
+     * @param heatmap the heatmap, or null to stop maintaining one
+     */
+    public void setHeatmap(PopulationHeatmap heatmap) {
+        this.heatmap = heatmap;
+
+        if (heatmap != null) {
+            heatmap.rebuild(creatures);
+        }
+    }
+
+    public TrajectoryRecorder getTrajectoryRecorder() {
+        return trajectoryRecorder;
+    }
+
+    public void setTrajectoryRecorder(TrajectoryRecorder trajectoryRecorder) {
+        this.trajectoryRecorder = trajectoryRecorder;
+    }
+
+    public RenderBuffer getRenderBuffer() {
+        return renderBuffer;
+    }
+
+    public void setRenderBuffer(RenderBuffer renderBuffer) {
+        this.renderBuffer = renderBuffer;
+    }
+
+    public WorldRandom getRandom() {
+        return random;
+    }
+
+    public WorldParameters getParameters() {
+        return parameters;
+    }
+
+    /**
+     * Gives the world its own parameters, the static parameters no longer apply to it.
+     *
+     * @param parameters the parameters, or null to follow the static parameters again
+     */
+    public void setParameters(WorldParameters parameters) {
+        this.parameters = parameters;
+    }
+
+    public int getMaxFoodEnergy() {
+        return parameters != null ? parameters.getMaxFoodEnergy() : maxFoodEnergy;
+    }
+
+    public int getMaxFoodAmount() {
+        return parameters != null ? parameters.getMaxFoodAmount() : maxFoodAmount;
+    }
+
+    public double getBaseEnergyDepletionRate() {
+        return parameters != null ? parameters.getBaseEnergyDepletionRate() : baseEnergyDepletionRate;
+    }
+
+    public double getSpeedEnergyDepletionFactor() {
+        return parameters != null ? parameters.getSpeedEnergyDepletionFactor() : speedEnergyDepletionFactor;
+    }
+
+    public double getMutationRate() {
+        return parameters != null ? parameters.getMutationRate() : mutationRate;
+    }
+
+    public double getSpeedFactor() {
+        return parameters != null ? parameters.getSpeedFactor() : speedFactor;
+    }
+
+    public double getTime() {
+        return time;
+    }
+
+    public void advanceTime(double delta) {
+        time += delta;
     }
 
     public List<Food> getFoods() {
@@ -55,6 +182,7 @@ public class WorldModel {
 
     public void setWidth(double width) {
         this.width = width;
+        wayPointGrid = null;
     }
 
     public double getHeight() {
@@ -63,6 +191,27 @@ public class WorldModel {
 
     public void setHeight(double height) {
         this.height = height;
+        wayPointGrid = null;
+    }
+
+    public FoodField getFoodField() {
+        return foodField;
+    }
+
+    public void setFoodField(FoodField foodField) {
+        this.foodField = foodField;
+    }
+
+    public WayPointGrid getWayPointGrid() {
+        if (wayPointGrid == null) {
+            wayPointGrid = new WayPointGrid(width, height);
+        }
+
+        return wayPointGrid;
+    }
+
+    public Perception getPerception() {
+        return perception;
     }
 
     public int getFoodCreationRate() {
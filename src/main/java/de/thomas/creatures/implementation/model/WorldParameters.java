@@ -0,0 +1,96 @@
+package de.thomas.creatures.implementation.model;
+
+/**
+ * The WorldParameters class holds the simulation parameters of a single world.
+ * A world without own parameters follows the static parameters of WorldModel, which the user interface changes.
+ * Worlds which are updated side by side, like the branches of a WorldFork, need their own parameters instead.
+ */
+public class WorldParameters {
+    private int maxFoodEnergy;
+    private int maxFoodAmount;
+    private double baseEnergyDepletionRate;
+    private double speedEnergyDepletionFactor;
+    private double mutationRate;
+    private double speedFactor;
+
+    /**
+     * Constructs parameters with the current values of the static parameters of WorldModel.
+     */
+    public WorldParameters() {
+        maxFoodEnergy = WorldModel.maxFoodEnergy;
+        maxFoodAmount = WorldModel.maxFoodAmount;
+        baseEnergyDepletionRate = WorldModel.baseEnergyDepletionRate;
+        speedEnergyDepletionFactor = WorldModel.speedEnergyDepletionFactor;
+        mutationRate = WorldModel.mutationRate;
+        speedFactor = WorldModel.speedFactor;
+    }
+
+    public WorldParameters(WorldParameters other) {
+        maxFoodEnergy = other.maxFoodEnergy;
+        maxFoodAmount = other.maxFoodAmount;
+        baseEnergyDepletionRate = other.baseEnergyDepletionRate;
+        speedEnergyDepletionFactor = other.speedEnergyDepletionFactor;
+        mutationRate = other.mutationRate;
+        speedFactor = other.speedFactor;
+    }
+
+    /**
+     * Sets the static parameters of WorldModel to these values.
+     */
+    public void applyToStatics() {
+        WorldModel.maxFoodEnergy = maxFoodEnergy;
+        WorldModel.maxFoodAmount = maxFoodAmount;
+        WorldModel.baseEnergyDepletionRate = baseEnergyDepletionRate;
+        WorldModel.speedEnergyDepletionFactor = speedEnergyDepletionFactor;
+        WorldModel.mutationRate = mutationRate;
+        WorldModel.speedFactor = speedFactor;
+    }
+
+    public int getMaxFoodEnergy() {
+        return maxFoodEnergy;
+    }
+
+    public void setMaxFoodEnergy(int maxFoodEnergy) {
+        this.maxFoodEnergy = maxFoodEnergy;
+    }
+
+    public int getMaxFoodAmount() {
+        return maxFoodAmount;
+    }
+
+    public void setMaxFoodAmount(int maxFoodAmount) {
+        this.maxFoodAmount = maxFoodAmount;
+    }
+
+    public double getBaseEnergyDepletionRate() {
+        return baseEnergyDepletionRate;
+    }
+
+    public void setBaseEnergyDepletionRate(double baseEnergyDepletionRate) {
+        this.baseEnergyDepletionRate = baseEnergyDepletionRate;
+    }
+
+    public double getSpeedEnergyDepletionFactor() {
+        return speedEnergyDepletionFactor;
+    }
+
+    public void setSpeedEnergyDepletionFactor(double speedEnergyDepletionFactor) {
+        this.speedEnergyDepletionFactor = speedEnergyDepletionFactor;
+    }
+
+    public double getMutationRate() {
+        return mutationRate;
+    }
+
+    public void setMutationRate(double mutationRate) {
+        this.mutationRate = mutationRate;
+    }
+
+    public double getSpeedFactor() {
+        return speedFactor;
+    }
+
+    public void setSpeedFactor(double speedFactor) {
+        this.speedFactor = speedFactor;
+    }
+}
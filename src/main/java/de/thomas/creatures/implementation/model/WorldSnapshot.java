@@ -0,0 +1,317 @@
+package de.thomas.creatures.implementation.model;
+
+import java.awt.geom.Point2D;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The WorldSnapshot class saves a complete world to a binary file and loads it again.
+ * <p>
+ * The file holds the world parameters (including the static ones of WorldModel), the state of the world random
+ * number generator, the food field, all food and all creatures with their pregnancy state, fetus and AI target.
+ * Targets which point at another creature or at a food are stored as index, so the creature keeps following it
+ * after loading. The file is written sequentially through a file channel and loaded from a memory mapping.
+ * The same format encoded into a byte array copies a world, which is how a WorldFork creates its branches.
+ * <p>
+ * The lineage log is not part of the snapshot, loaded creatures are recorded as founders of the loaded world.
+ */
+public class WorldSnapshot {
+    public static final int MAGIC = 0x43525753;
+    public static final int VERSION = 2;
+    public static final String EXTENSION = "cworld";
+
+    private static final int BUFFER_SIZE = 1 << 20;
+    //Upper bound of the bytes of one creature including its fetus
+    private static final int MAX_CREATURE_LENGTH = 256;
+
+    private static final byte TARGET_NONE = 0;
+    private static final byte TARGET_POINT = 1;
+    private static final byte TARGET_CREATURE = 2;
+    private static final byte TARGET_FOOD = 3;
+
+    private WorldSnapshot() {
+    }
+
+    /**
+     * Saves a world. Must not be called while the world is updated.
+     *
+     * @param world the world
+     * @param file  the snapshot file to create
+     */
+    public static void save(WorldModel world, File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            write(world, channel);
+        }
+    }
+
+    /**
+     * Encodes a world into a byte array. Must not be called while the world is updated.
+     *
+     * @param world the world
+     * @return the snapshot
+     */
+    public static byte[] encode(WorldModel world) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        write(world, Channels.newChannel(out));
+        return out.toByteArray();
+    }
+
+    private static void write(WorldModel world, WritableByteChannel channel) throws IOException {
+        List<Creature> creatures = world.getCreatures();
+        List<Food> foods = world.getFoods();
+
+        //Targets are shared position objects, so they are resolved by identity
+        Map<Point2D.Double, Integer> creaturePositions = new IdentityHashMap<>(creatures.size() * 2);
+        for (int i = 0; i < creatures.size(); i++) {
+            creaturePositions.put(creatures.get(i).getPosition(), i);
+        }
+        Map<Point2D.Double, Integer> foodPositions = new IdentityHashMap<>(foods.size() * 2);
+        for (int i = 0; i < foods.size(); i++) {
+            foodPositions.put(foods.get(i).getPosition(), i);
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putDouble(world.getWidth());
+        buffer.putDouble(world.getHeight());
+        buffer.putInt(world.getFoodCreationRate());
+        buffer.putDouble(world.getTime());
+        buffer.putLong(world.getRandom().getState());
+
+        buffer.putInt(world.getMaxFoodEnergy());
+        buffer.putInt(world.getMaxFoodAmount());
+        buffer.putDouble(world.getBaseEnergyDepletionRate());
+        buffer.putDouble(world.getSpeedEnergyDepletionFactor());
+        buffer.putDouble(world.getMutationRate());
+        buffer.putDouble(world.getSpeedFactor());
+
+        FoodField foodField = world.getFoodField();
+        buffer.put((byte) (foodField != null ? 1 : 0));
+        if (foodField != null) {
+            buffer.putDouble(foodField.getCellSize());
+            buffer.putInt(foodField.getCellAmount());
+
+            for (int cell = 0; cell < foodField.getCellAmount(); cell++) {
+                ensureRemaining(channel, buffer, 2 * Double.BYTES);
+                buffer.putDouble(foodField.getEnergy(cell));
+                buffer.putDouble(foodField.getFertility(cell));
+            }
+        }
+
+        ensureRemaining(channel, buffer, Integer.BYTES);
+        buffer.putInt(foods.size());
+        for (Food food : foods) {
+            ensureRemaining(channel, buffer, 2 * Double.BYTES + Integer.BYTES);
+            buffer.putDouble(food.getPosition().x);
+            buffer.putDouble(food.getPosition().y);
+            buffer.putInt(food.getValue());
+        }
+
+        ensureRemaining(channel, buffer, Integer.BYTES);
+        buffer.putInt(creatures.size());
+        for (Creature creature : creatures) {
+            ensureRemaining(channel, buffer, MAX_CREATURE_LENGTH);
+            putCreature(buffer, creature);
+            putTarget(buffer, creature.getTarget(), creaturePositions, foodPositions);
+
+            Creature fetus = creature.getFetus();
+            buffer.put((byte) (fetus != null ? 1 : 0));
+            if (fetus != null) {
+                putCreature(buffer, fetus);
+            }
+        }
+
+        writeBuffer(channel, buffer);
+    }
+
+    private static void putCreature(ByteBuffer buffer, Creature creature) {
+        CreatureTraits.put(buffer, creature);
+        buffer.putDouble(creature.getLife());
+        buffer.putDouble(creature.getEnergy());
+        //The position of a fetus is only set on birth
+        Point2D.Double position = creature.getPosition();
+        buffer.putDouble(position != null ? position.x : Double.NaN);
+        buffer.putDouble(position != null ? position.y : Double.NaN);
+        buffer.putDouble(creature.getBreedTime());
+        buffer.put((byte) (creature.isPregnant() ? 1 : 0));
+    }
+
+    private static void putTarget(ByteBuffer buffer, Point2D.Double target,
+                                  Map<Point2D.Double, Integer> creaturePositions, Map<Point2D.Double, Integer> foodPositions) {
+        if (target == null) {
+            buffer.put(TARGET_NONE);
+        } else if (creaturePositions.containsKey(target)) {
+            buffer.put(TARGET_CREATURE);
+            buffer.putInt(creaturePositions.get(target));
+        } else if (foodPositions.containsKey(target)) {
+            buffer.put(TARGET_FOOD);
+            buffer.putInt(foodPositions.get(target));
+        } else {
+            buffer.put(TARGET_POINT);
+            buffer.putDouble(target.x);
+            buffer.putDouble(target.y);
+        }
+    }
+
+    private static void ensureRemaining(WritableByteChannel channel, ByteBuffer buffer, int length) throws IOException {
+        if (buffer.remaining() < length) {
+            writeBuffer(channel, buffer);
+        }
+    }
+
+    private static void writeBuffer(WritableByteChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+
+        buffer.clear();
+    }
+
+    /**
+     * Loads a world. The static parameters of WorldModel are set to the saved values.
+     *
+     * @param file the snapshot file
+     * @return the loaded world
+     */
+    public static WorldModel load(File file) throws IOException {
+        MappedByteBuffer buffer;
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        WorldModel world = read(buffer, file.toString());
+        world.getParameters().applyToStatics();
+        world.setParameters(null);
+
+        return world;
+    }
+
+    /**
+     * Decodes a world from a byte array created by encode. Unlike a loaded world, the decoded world gets its own
+     * parameters with the saved values, the static parameters of WorldModel are not changed.
+     *
+     * @param snapshot the snapshot
+     * @return the decoded world
+     */
+    public static WorldModel decode(byte[] snapshot) throws IOException {
+        return read(ByteBuffer.wrap(snapshot), "snapshot");
+    }
+
+    private static WorldModel read(ByteBuffer buffer, String source) throws IOException {
+        if (buffer.getInt() != MAGIC) {
+            throw new IOException("Not a world snapshot: " + source);
+        }
+        if (buffer.getInt() != VERSION) {
+            throw new IOException("Unsupported world snapshot version: " + source);
+        }
+
+        double width = buffer.getDouble();
+        double height = buffer.getDouble();
+        WorldModel world = new WorldModel((int) width, (int) height, buffer.getInt());
+        world.setWidth(width);
+        world.setHeight(height);
+        world.advanceTime(buffer.getDouble());
+        world.getRandom().setState(buffer.getLong());
+
+        WorldParameters parameters = new WorldParameters();
+        parameters.setMaxFoodEnergy(buffer.getInt());
+        parameters.setMaxFoodAmount(buffer.getInt());
+        parameters.setBaseEnergyDepletionRate(buffer.getDouble());
+        parameters.setSpeedEnergyDepletionFactor(buffer.getDouble());
+        parameters.setMutationRate(buffer.getDouble());
+        parameters.setSpeedFactor(buffer.getDouble());
+        world.setParameters(parameters);
+
+        if (buffer.get() == 1) {
+            FoodField foodField = new FoodField(width, height, buffer.getDouble());
+            int cellAmount = buffer.getInt();
+
+            if (cellAmount != foodField.getCellAmount()) {
+                throw new IOException("Food field does not match the world size: " + source);
+            }
+
+            for (int cell = 0; cell < cellAmount; cell++) {
+                foodField.setEnergy(cell, buffer.getDouble());
+                foodField.setFertility(cell, buffer.getDouble());
+            }
+
+            world.setFoodField(foodField);
+        }
+
+        int foodAmount = buffer.getInt();
+        for (int i = 0; i < foodAmount; i++) {
+            Point2D.Double position = new Point2D.Double(buffer.getDouble(), buffer.getDouble());
+            world.addFood(new Food(position, buffer.getInt()));
+        }
+
+        int creatureAmount = buffer.getInt();
+        byte[] targetTypes = new byte[creatureAmount];
+        int[] targetIndices = new int[creatureAmount];
+
+        for (int i = 0; i < creatureAmount; i++) {
+            Creature creature = getCreature(buffer);
+
+            targetTypes[i] = buffer.get();
+            if (targetTypes[i] == TARGET_POINT) {
+                creature.setTarget(new Point2D.Double(buffer.getDouble(), buffer.getDouble()));
+            } else if (targetTypes[i] != TARGET_NONE) {
+                targetIndices[i] = buffer.getInt();
+            }
+
+            if (buffer.get() == 1) {
+                creature.setFetus(getCreature(buffer));
+            }
+
+            world.addCreature(creature);
+            creature.getAi().setCreature(creature);
+            creature.getAi().setWorldModel(world);
+            creature.getAi().init();
+        }
+
+        //Targets on other creatures can only be resolved once all creatures exist
+        List<Creature> creatures = world.getCreatures();
+        for (int i = 0; i < creatureAmount; i++) {
+            if (targetTypes[i] == TARGET_CREATURE) {
+                creatures.get(i).setTarget(creatures.get(targetIndices[i]).getPosition());
+            } else if (targetTypes[i] == TARGET_FOOD) {
+                creatures.get(i).setTarget(world.getFoods().get(targetIndices[i]).getPosition());
+            }
+        }
+
+        return world;
+    }
+
+    private static Creature getCreature(ByteBuffer buffer) {
+        CreatureTraits traits = CreatureTraits.get(buffer);
+        double life = buffer.getDouble();
+        double energy = buffer.getDouble();
+        double x = buffer.getDouble();
+        double y = buffer.getDouble();
+        double breedTime = buffer.getDouble();
+        boolean pregnant = buffer.get() == 1;
+
+        Point2D.Double position = Double.isNaN(x) ? null : new Point2D.Double(x, y);
+
+        Creature creature = traits.createCreature(energy, position);
+        creature.setLife(life);
+        creature.setBreedTime(breedTime);
+        creature.setPregnant(pregnant);
+
+        return creature;
+    }
+}
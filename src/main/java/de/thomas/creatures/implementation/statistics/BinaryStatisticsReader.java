@@ -0,0 +1,102 @@
+package de.thomas.creatures.implementation.statistics;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The BinaryStatisticsReader class memory maps a file written by {@link BinaryStatisticsWriter}.
+ * Values are read straight from the mapping, so opening a file does not depend on the number of samples.
+ * Only the chunks present when the file is opened are visible.
+ */
+public class BinaryStatisticsReader implements StatSeries {
+    private final int chunkRows;
+    private final int chunkLength;
+    private final int chunksPerRegion;
+    private final MappedByteBuffer[] regions;
+    private final int size;
+
+    public BinaryStatisticsReader(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            //The header is read through a stream on the channel, which leaves the channel position after it
+            DataInputStream in = new DataInputStream(Channels.newInputStream(channel));
+
+            if (in.readInt() != BinaryStatisticsWriter.MAGIC) {
+                throw new IOException("Not a statistics file: " + file);
+            }
+            if (in.readInt() != BinaryStatisticsWriter.VERSION) {
+                throw new IOException("Unsupported statistics file version: " + file);
+            }
+
+            chunkRows = in.readInt();
+            //Larger chunks would not fit into one int offset
+            if (chunkRows <= 0 || chunkRows > (Integer.MAX_VALUE - Long.BYTES) / (BinaryStatisticsWriter.COLUMN_NAMES.length * Double.BYTES)) {
+                throw new IOException("Invalid chunk size: " + chunkRows);
+            }
+            int columnAmount = in.readInt();
+            if (columnAmount != BinaryStatisticsWriter.COLUMN_NAMES.length) {
+                throw new IOException("Unexpected number of columns: " + columnAmount);
+            }
+            for (int column = 0; column < columnAmount; column++) {
+                in.readUTF();
+            }
+
+            long headerLength = (channel.position() + 7) / 8 * 8;
+            chunkLength = BinaryStatisticsWriter.getChunkLength(chunkRows);
+            chunksPerRegion = Math.max(1, Integer.MAX_VALUE / chunkLength);
+
+            int chunkAmount = (int) ((channel.size() - headerLength) / chunkLength);
+            regions = new MappedByteBuffer[(chunkAmount + chunksPerRegion - 1) / chunksPerRegion];
+
+            for (int region = 0; region < regions.length; region++) {
+                int chunks = Math.min(chunksPerRegion, chunkAmount - region * chunksPerRegion);
+                long position = headerLength + (long) region * chunksPerRegion * chunkLength;
+                regions[region] = channel.map(FileChannel.MapMode.READ_ONLY, position, (long) chunks * chunkLength);
+            }
+
+            if (chunkAmount == 0) {
+                size = 0;
+            } else {
+                long lastRows = getChunk(chunkAmount - 1).getLong(getChunkOffset(chunkAmount - 1));
+                if (lastRows < 0 || lastRows > chunkRows) {
+                    throw new IOException("Invalid row count in the last chunk: " + lastRows);
+                }
+                size = (int) ((long) (chunkAmount - 1) * chunkRows + lastRows);
+            }
+        }
+    }
+
+    private MappedByteBuffer getChunk(int chunk) {
+        return regions[chunk / chunksPerRegion];
+    }
+
+    private int getChunkOffset(int chunk) {
+        return (chunk % chunksPerRegion) * chunkLength;
+    }
+
+    private double get(int column, int index) {
+        int chunk = index / chunkRows;
+        int row = index % chunkRows;
+
+        return getChunk(chunk).getDouble(getChunkOffset(chunk) + Long.BYTES + (column * chunkRows + row) * Double.BYTES);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public double getTime(int index) {
+        return get(0, index);
+    }
+
+    @Override
+    public double getValue(int metric, int index) {
+        return get(metric + 1, index);
+    }
+}
@@ -0,0 +1,136 @@
+package de.thomas.creatures.implementation.statistics;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * The BinaryStatisticsWriter class writes statistics samples in a column chunked binary format.
+ * <p>
+ * The file starts with a header: the magic number, the format version, the rows per chunk, the number of columns and
+ * the name of every column, padded to a multiple of eight bytes. Column 0 holds the time, the others the metrics
+ * in the order of StatElement.getValue. The header is followed by chunks of fixed size: the number of valid rows as
+ * long, then one block of float64 values per column, each as long as the rows per chunk.
+ * Because every chunk has the same size, a sample can be located without scanning the file.
+ * <p>
+ * The chunk being filled is kept in memory and rewritten in place on every flush, so the file is readable
+ * while the run continues.
+ */
+public class BinaryStatisticsWriter implements StatSampleWriter {
+    public static final int MAGIC = 0x43525354;
+    public static final int VERSION = 1;
+    public static final String EXTENSION = "cstat";
+    public static final int DEFAULT_CHUNK_ROWS = 4096;
+    public static final String[] COLUMN_NAMES = {
+            "Time",
+            "Creature Amount",
+            "Average Life",
+            "Average Max Life",
+            "Average Energy",
+            "Average Max Energy",
+            "Average Speed",
+            "Average Vision Range",
+            "Average Mating Energy Needed",
+            "Average Breed Length",
+            "Average Breed Progress Speed",
+            "Gender Ratio",
+            "Pregnancy Ratio"};
+
+    private final FileChannel channel;
+    private final int chunkRows;
+    private final long headerLength;
+    private final ByteBuffer chunk;
+    private long chunkIndex;
+    private int rows;
+
+    public BinaryStatisticsWriter(File file) throws IOException {
+        this(file, DEFAULT_CHUNK_ROWS);
+    }
+
+    public BinaryStatisticsWriter(File file, int chunkRows) throws IOException {
+        this.chunkRows = chunkRows;
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+
+        ByteBuffer header = ByteBuffer.wrap(createHeader(chunkRows));
+        headerLength = header.remaining();
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+
+        chunk = ByteBuffer.allocate(getChunkLength(chunkRows));
+    }
+
+    private static byte[] createHeader(int chunkRows) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(chunkRows);
+        out.writeInt(COLUMN_NAMES.length);
+        for (String name : COLUMN_NAMES) {
+            out.writeUTF(name);
+        }
+
+        //Align the chunks to eight bytes
+        while (out.size() % 8 != 0) {
+            out.writeByte(0);
+        }
+
+        return bytes.toByteArray();
+    }
+
+    static int getChunkLength(int chunkRows) {
+        return Long.BYTES + COLUMN_NAMES.length * chunkRows * Double.BYTES;
+    }
+
+    @Override
+    public void write(double time, double[] sample) throws IOException {
+        chunk.putDouble(getOffset(0, rows), time);
+        for (int metric = 0; metric < StatElement.METRIC_AMOUNT; metric++) {
+            chunk.putDouble(getOffset(metric + 1, rows), sample[metric]);
+        }
+
+        rows++;
+
+        if (rows == chunkRows) {
+            flush();
+
+            chunkIndex++;
+            rows = 0;
+            Arrays.fill(chunk.array(), (byte) 0);
+        }
+    }
+
+    private int getOffset(int column, int row) {
+        return Long.BYTES + (column * chunkRows + row) * Double.BYTES;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (rows == 0) {
+            return;
+        }
+
+        chunk.putLong(0, rows);
+        chunk.clear();
+
+        long position = headerLength + chunkIndex * chunk.capacity();
+        while (chunk.hasRemaining()) {
+            position += channel.write(chunk, position);
+        }
+
+        chunk.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        channel.close();
+    }
+}
@@ -0,0 +1,172 @@
+package de.thomas.creatures.implementation.statistics;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The ConvergenceDetector class decides from the statistics samples of a run whether continuing it is still worth it.
+ * A run has converged when the population is extinct, when only one gender is left without a pregnant female,
+ * or when every watched metric varied less than its threshold over its window of samples.
+ * It is fed by Statistics, the reason and time of the first convergence are kept.
+ */
+public class ConvergenceDetector {
+    public enum Reason {EXTINCTION, SINGLE_GENDER, STEADY_STATE}
+
+    private final List<Watch> watches = new ArrayList<>();
+    private boolean detectExtinction = true;
+    private boolean detectSingleGender = true;
+    private Reason reason;
+    private double time = Double.NaN;
+
+    public ConvergenceDetector() {
+    }
+
+    /**
+     * Constructs a detector with the same settings as another one, for a new run.
+     *
+     * @param other the detector to copy the settings from
+     */
+    public ConvergenceDetector(ConvergenceDetector other) {
+        detectExtinction = other.detectExtinction;
+        detectSingleGender = other.detectSingleGender;
+
+        for (Watch watch : other.watches) {
+            watchVariance(watch.metric, watch.values.length, watch.threshold);
+        }
+    }
+
+    /**
+     * Adds a metric which has to settle before the run counts as converged.
+     *
+     * @param metric    the metric, see StatElement.getValue
+     * @param window    the number of most recent samples the variance is computed over
+     * @param threshold the variance below which the metric counts as settled
+     */
+    public void watchVariance(int metric, int window, double threshold) {
+        watches.add(new Watch(metric, window, threshold));
+    }
+
+    /**
+     * Adds a sample whose gender and pregnancy ratios were taken from all creatures.
+     *
+     * @param time    the time of the sample
+     * @param element the sample
+     */
+    public void add(double time, StatElement element) {
+        double genderRatio = element.getGenderRatio();
+
+        //Males only, or females of which none carries a child of the other gender
+        add(time, element, element.getCreatureAmount() == 0,
+                genderRatio == 0 || genderRatio == 1 && element.getPregnancyRatio() == 0);
+    }
+
+    /**
+     * Adds a sample which may have been taken from a part of the creatures only, extinction and a single gender
+     * are decided from the exact totals instead.
+     *
+     * @param time    the time of the sample
+     * @param element the sample
+     * @param totals  the totals of all creatures at the time of the sample
+     */
+    public void add(double time, StatElement element, PopulationTotals totals) {
+        int creatureAmount = totals.getCreatureAmount();
+        int femaleAmount = totals.getFemaleAmount();
+
+        add(time, element, creatureAmount == 0,
+                femaleAmount == 0 || femaleAmount == creatureAmount && totals.getPregnancyAmount() == 0);
+    }
+
+    private void add(double time, StatElement element, boolean extinct, boolean singleGender) {
+        if (reason != null) {
+            return;
+        }
+
+        if (detectExtinction && extinct) {
+            converge(Reason.EXTINCTION, time);
+        } else if (detectSingleGender && !extinct && singleGender) {
+            converge(Reason.SINGLE_GENDER, time);
+        } else if (!watches.isEmpty()) {
+            boolean settled = true;
+
+            for (Watch watch : watches) {
+                watch.add(element.getValue(watch.metric));
+                settled &= watch.isSettled();
+            }
+
+            if (settled) {
+                converge(Reason.STEADY_STATE, time);
+            }
+        }
+    }
+
+    private void converge(Reason reason, double time) {
+        this.reason = reason;
+        this.time = time;
+    }
+
+    public boolean isConverged() {
+        return reason != null;
+    }
+
+    /**
+     * @return the reason the run converged, or null if it did not
+     */
+    public Reason getReason() {
+        return reason;
+    }
+
+    /**
+     * @return the time of the sample the run converged at, or NaN if it did not
+     */
+    public double getTime() {
+        return time;
+    }
+
+    public void setDetectExtinction(boolean detectExtinction) {
+        this.detectExtinction = detectExtinction;
+    }
+
+    public void setDetectSingleGender(boolean detectSingleGender) {
+        this.detectSingleGender = detectSingleGender;
+    }
+
+    private static class Watch {
+        private final int metric;
+        private final double threshold;
+        //The most recent values as ring buffer
+        private final double[] values;
+        private int amount;
+        private int next;
+
+        private Watch(int metric, int window, double threshold) {
+            this.metric = metric;
+            this.threshold = threshold;
+            values = new double[window];
+        }
+
+        private void add(double value) {
+            values[next] = value;
+            next = (next + 1) % values.length;
+            amount = Math.min(amount + 1, values.length);
+        }
+
+        private boolean isSettled() {
+            if (amount < values.length) {
+                return false;
+            }
+
+            double mean = 0;
+            for (double value : values) {
+                mean += value / values.length;
+            }
+
+            double variance = 0;
+            for (double value : values) {
+                variance += (value - mean) * (value - mean) / values.length;
+            }
+
+            //NaN while the metric is undefined never counts as settled
+            return variance < threshold;
+        }
+    }
+}
@@ -0,0 +1,301 @@
+package de.thomas.creatures.implementation.statistics;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+
+/**
+ * The CsvStatisticsWriter class streams statistics samples into the semicolon separated export format.
+ * Values are formatted directly into a reused byte buffer which is written through a file channel,
+ * so no strings are created per sample. The decimal separator and minus sign are those of the default locale,
+ * like the DecimalFormat the export used before, and values are rounded half even like it does.
+ */
+public class CsvStatisticsWriter implements StatSampleWriter {
+    private static final String[] HEADER = {
+            "Creature Amount",
+            "Average Life",
+            "Average Max Life",
+            "Average Energy",
+            "Average Max Energy",
+            "Average Speed",
+            "Average Vision Range",
+            "Average Mating Energy Needed",
+            "Average Breed Length",
+            "Average Breed Progress Speed",
+            "Gender Ratio",
+            "Pregnancy Ratio"};
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    //Upper bound of the bytes one row can take
+    private static final int VALUE_SIZE = 32;
+    private static final int ROW_SIZE = StatElement.METRIC_AMOUNT * VALUE_SIZE + 8;
+    private static final int DECIMALS = 4;
+    private static final long DECIMAL_FACTOR = 10000;
+    //Larger values do not fit into a long once scaled and are written as plain doubles
+    private static final double MAX_FAST_VALUE = 1E14;
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.US_ASCII);
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private final byte[] digits = new byte[20];
+    private final byte[] decimalSeparator;
+    private final byte[] minusSign;
+    //Formats the values which are possibly exactly between two results, and all values of locales without the digits 0-9
+    private final DecimalFormat decimalFormat = new DecimalFormat("#.0000");
+    private final boolean asciiDigits;
+
+    {
+        DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance();
+        decimalSeparator = String.valueOf(symbols.getDecimalSeparator()).getBytes(StandardCharsets.UTF_8);
+        minusSign = String.valueOf(symbols.getMinusSign()).getBytes(StandardCharsets.UTF_8);
+        asciiDigits = symbols.getZeroDigit() == '0';
+    }
+
+    /**
+     * Opens a csv file for writing. The header is written if the file is empty.
+     *
+     * @param file   the csv file
+     * @param append true to append to an existing file, false to replace it
+     */
+    public CsvStatisticsWriter(File file, boolean append) throws IOException {
+        if (append) {
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        } else {
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        }
+
+        if (channel.size() == 0) {
+            writeHeader();
+        }
+    }
+
+    /**
+     * Opens a csv file for the samples of several runs side by side, an existing file is replaced.
+     * A row holds the time followed by the metrics of every run, the header names each metric after its run.
+     *
+     * @param file     the csv file
+     * @param runNames the names of the runs, without semicolons and quotes
+     * @return the writer
+     */
+    public static CsvStatisticsWriter sideBySide(File file, String[] runNames) throws IOException {
+        return new CsvStatisticsWriter(file, getRunLabels(runNames));
+    }
+
+    private CsvStatisticsWriter(File file, String[] labels) throws IOException {
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+
+        for (int k = 0; k < labels.length; k++) {
+            ensureRemaining(labels[k].length() + 8);
+            if (k > 0) {
+                buffer.put((byte) ';');
+            }
+
+            putLabel(labels[k]);
+        }
+
+        buffer.put(LINE_SEPARATOR);
+    }
+
+    /**
+     * Opens a csv file with arbitrary columns, an existing file is replaced. Rows are written with writeValues.
+     *
+     * @param file   the csv file
+     * @param labels the labels of the columns, without quotes
+     * @return the writer
+     */
+    public static CsvStatisticsWriter withColumns(File file, String[] labels) throws IOException {
+        return new CsvStatisticsWriter(file, labels);
+    }
+
+    private static String[] getRunLabels(String[] runNames) {
+        String[] labels = new String[1 + runNames.length * HEADER.length];
+        labels[0] = "Time";
+
+        for (int run = 0; run < runNames.length; run++) {
+            for (int metric = 0; metric < HEADER.length; metric++) {
+                labels[1 + run * HEADER.length + metric] = runNames[run] + " " + HEADER[metric];
+            }
+        }
+
+        return labels;
+    }
+
+    /**
+     * @param metric the metric, see StatElement.getValue
+     * @return the column label of the metric
+     */
+    public static String getMetricLabel(int metric) {
+        return HEADER[metric];
+    }
+
+    private void writeHeader() throws IOException {
+        for (int metric = 0; metric < HEADER.length; metric++) {
+            if (metric > 0) {
+                buffer.put((byte) ';');
+            }
+
+            putLabel(HEADER[metric]);
+        }
+
+        buffer.put(LINE_SEPARATOR);
+    }
+
+    private void putLabel(String label) {
+        buffer.put((byte) '"');
+        buffer.put(label.getBytes(StandardCharsets.US_ASCII));
+        buffer.put((byte) '"');
+    }
+
+    /**
+     * Writes one sample. The creature amount is written as integer, all other metrics with four decimals.
+     *
+     * @param sample the values indexed by metric, see StatElement.getValue
+     */
+    public void writeRow(double[] sample) throws IOException {
+        ensureRemaining();
+
+        putLong((long) sample[0]);
+        for (int metric = 1; metric < StatElement.METRIC_AMOUNT; metric++) {
+            buffer.put((byte) ';');
+            putDecimal(sample[metric]);
+        }
+
+        buffer.put(LINE_SEPARATOR);
+    }
+
+    @Override
+    public void write(double time, double[] sample) throws IOException {
+        writeRow(sample);
+    }
+
+    /**
+     * Writes one sample of every run into a single row, for files opened with run names.
+     *
+     * @param time    the time of the samples
+     * @param samples the values of every run indexed by metric, see StatElement.getValue
+     */
+    public void writeRow(double time, double[][] samples) throws IOException {
+        ensureRemaining();
+        putDecimal(time);
+
+        for (double[] sample : samples) {
+            ensureRemaining();
+            buffer.put((byte) ';');
+            putLong((long) sample[0]);
+
+            for (int metric = 1; metric < StatElement.METRIC_AMOUNT; metric++) {
+                buffer.put((byte) ';');
+                putDecimal(sample[metric]);
+            }
+        }
+
+        buffer.put(LINE_SEPARATOR);
+    }
+
+    /**
+     * Writes one row of a file opened with arbitrary columns. All values are written with four decimals.
+     *
+     * @param values the values of the row
+     */
+    public void writeValues(double[] values) throws IOException {
+        for (int k = 0; k < values.length; k++) {
+            ensureRemaining(VALUE_SIZE);
+            if (k > 0) {
+                buffer.put((byte) ';');
+            }
+
+            putDecimal(values[k]);
+        }
+
+        buffer.put(LINE_SEPARATOR);
+    }
+
+    private void ensureRemaining() throws IOException {
+        ensureRemaining(ROW_SIZE);
+    }
+
+    private void ensureRemaining(int length) throws IOException {
+        if (buffer.remaining() < length) {
+            flush();
+        }
+    }
+
+    //Same output as DecimalFormat("#.0000"), the integer digits are left out for values below one
+    private void putDecimal(double value) {
+        if (!asciiDigits) {
+            buffer.put(decimalFormat.format(value).getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+
+        if (Double.isNaN(value) || Double.isInfinite(value) || Math.abs(value) >= MAX_FAST_VALUE) {
+            buffer.put(Double.toString(value).getBytes(StandardCharsets.US_ASCII));
+            return;
+        }
+
+        double product = Math.abs(value) * DECIMAL_FACTOR;
+
+        if (product - Math.floor(product) == 0.5) {
+            //Possibly a tie, rounded half even by DecimalFormat. Rare enough to create a string for it
+            buffer.put(decimalFormat.format(value).getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+
+        long scaled = Math.round(product);
+
+        //DecimalFormat keeps the sign of negative values rounded to zero and of -0.0
+        if (Double.doubleToRawLongBits(value) < 0) {
+            buffer.put(minusSign);
+        }
+
+        long integer = scaled / DECIMAL_FACTOR;
+        long fraction = scaled % DECIMAL_FACTOR;
+
+        if (integer != 0) {
+            putLong(integer);
+        }
+
+        buffer.put(decimalSeparator);
+        for (int i = DECIMALS - 1; i >= 0; i--) {
+            digits[i] = (byte) ('0' + fraction % 10);
+            fraction /= 10;
+        }
+        buffer.put(digits, 0, DECIMALS);
+    }
+
+    private void putLong(long value) {
+        if (value < 0) {
+            buffer.put((byte) '-');
+            value = -value;
+        }
+
+        int position = digits.length;
+        do {
+            digits[--position] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+
+        buffer.put(digits, position, digits.length - position);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        buffer.flip();
+
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+
+        buffer.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        channel.close();
+    }
+}
@@ -0,0 +1,35 @@
+package de.thomas.creatures.implementation.statistics;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * The HeatmapRecorder class appends a frame of a PopulationHeatmap to a binary file on every statistics sample.
+ * See PopulationHeatmap.writeFrame for the layout of a frame.
+ */
+public class HeatmapRecorder {
+    private final DataOutputStream out;
+
+    public HeatmapRecorder(File file) throws IOException {
+        out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+    }
+
+    public void record(double time, PopulationHeatmap heatmap) {
+        try {
+            heatmap.writeFrame(out, time);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    public void close() {
+        try {
+            out.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
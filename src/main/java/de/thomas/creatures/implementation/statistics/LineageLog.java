@@ -0,0 +1,325 @@
+package de.thomas.creatures.implementation.statistics;
+
+import de.thomas.creatures.implementation.model.Creature;
+import de.thomas.creatures.implementation.statistics.TraitDistributions.Trait;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Objects;
+
+/**
+ * The LineageLog class records the ancestry of every creature of a run in an append-only columnar log.
+ * <p>
+ * Every creature gets the next id when it is born. Its row holds the ids of father and mother (-1 for creatures
+ * placed into the world), the birth time and the heritable traits as float32. Rows are collected in a chunk of
+ * primitive columns. Full chunks are appended to a spill file with the same column layout and read back through a
+ * memory mapping, so only the current chunk has to be kept in memory. Death times are written long after the birth
+ * row, so they are kept in a separate column in memory, 8 bytes per creature.
+ * <p>
+ * Parents are always born before their children, which lets the queries scan the log once in id order.
+ */
+public class LineageLog {
+    public static final int CHUNK_ROWS = 1 << 16;
+    private static final int TRAIT_AMOUNT = Trait.values().length;
+    //Father, mother and birth time as 8 byte values, the traits as 4 byte values
+    private static final int ROW_LENGTH = 3 * Long.BYTES + TRAIT_AMOUNT * Float.BYTES;
+    private static final long CHUNK_LENGTH = (long) ROW_LENGTH * CHUNK_ROWS;
+
+    private final long[] fatherIds = new long[CHUNK_ROWS];
+    private final long[] motherIds = new long[CHUNK_ROWS];
+    private final double[] birthTimes = new double[CHUNK_ROWS];
+    private final float[][] traits = new float[TRAIT_AMOUNT][CHUNK_ROWS];
+    private int rows;
+
+    private double[] deathTimes = new double[1024];
+    private long size;
+
+    private File spillFile;
+    private FileChannel spillChannel;
+    private ByteBuffer spillBuffer;
+    private int spilledChunks;
+    private MappedByteBuffer[] mappedChunks = new MappedByteBuffer[0];
+
+    /**
+     * Adds a new born creature to the log.
+     *
+     * @param creature the creature, its parent ids are taken from the creature
+     * @param time     the time of the birth
+     * @return the id of the creature
+     */
+    public long addBirth(Creature creature, double time) {
+        if (rows == CHUNK_ROWS) {
+            spillChunk();
+        }
+
+        fatherIds[rows] = creature.getFatherId();
+        motherIds[rows] = creature.getMotherId();
+        birthTimes[rows] = time;
+        for (Trait trait : Trait.values()) {
+            traits[trait.ordinal()][rows] = (float) trait.getValue(creature);
+        }
+        rows++;
+
+        if (size == deathTimes.length) {
+            int oldLength = deathTimes.length;
+            deathTimes = Arrays.copyOf(deathTimes, oldLength * 2);
+            Arrays.fill(deathTimes, oldLength, deathTimes.length, Double.NaN);
+        }
+        deathTimes[(int) size] = Double.NaN;
+
+        return size++;
+    }
+
+    public void addDeath(long id, double time) {
+        if (id >= 0 && id < size) {
+            deathTimes[(int) id] = time;
+        }
+    }
+
+    private void spillChunk() {
+        try {
+            if (spillChannel == null) {
+                spillFile = File.createTempFile("creatures-lineage", ".bin");
+                spillFile.deleteOnExit();
+                spillChannel = FileChannel.open(spillFile.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+                spillBuffer = ByteBuffer.allocate((int) CHUNK_LENGTH);
+            }
+
+            spillBuffer.clear();
+            for (int row = 0; row < CHUNK_ROWS; row++) {
+                spillBuffer.putLong(fatherIds[row]);
+            }
+            for (int row = 0; row < CHUNK_ROWS; row++) {
+                spillBuffer.putLong(motherIds[row]);
+            }
+            for (int row = 0; row < CHUNK_ROWS; row++) {
+                spillBuffer.putDouble(birthTimes[row]);
+            }
+            for (float[] column : traits) {
+                for (int row = 0; row < CHUNK_ROWS; row++) {
+                    spillBuffer.putFloat(column[row]);
+                }
+            }
+            spillBuffer.flip();
+
+            long position = spilledChunks * CHUNK_LENGTH;
+            while (spillBuffer.hasRemaining()) {
+                position += spillChannel.write(spillBuffer, position);
+            }
+
+            spilledChunks++;
+            rows = 0;
+        } catch (IOException e) {
+            //Without the spill file the log cannot grow any further
+            throw new IllegalStateException("Could not spill the lineage log", e);
+        }
+    }
+
+    private MappedByteBuffer getMappedChunk(int chunk) {
+        if (chunk >= mappedChunks.length) {
+            mappedChunks = Arrays.copyOf(mappedChunks, spilledChunks);
+        }
+
+        if (mappedChunks[chunk] == null) {
+            try {
+                mappedChunks[chunk] = spillChannel.map(FileChannel.MapMode.READ_ONLY, chunk * CHUNK_LENGTH, CHUNK_LENGTH);
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not read the lineage log", e);
+            }
+        }
+
+        return mappedChunks[chunk];
+    }
+
+    private int getChunk(long id) {
+        return (int) (id / CHUNK_ROWS);
+    }
+
+    private boolean isInMemory(long id) {
+        return getChunk(id) == spilledChunks;
+    }
+
+    private void checkId(long id) {
+        Objects.checkIndex(id, size);
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public long getFatherId(long id) {
+        checkId(id);
+
+        if (isInMemory(id)) {
+            return fatherIds[(int) (id % CHUNK_ROWS)];
+        }
+
+        return getMappedChunk(getChunk(id)).getLong((int) (id % CHUNK_ROWS) * Long.BYTES);
+    }
+
+    public long getMotherId(long id) {
+        checkId(id);
+
+        if (isInMemory(id)) {
+            return motherIds[(int) (id % CHUNK_ROWS)];
+        }
+
+        return getMappedChunk(getChunk(id)).getLong((CHUNK_ROWS + (int) (id % CHUNK_ROWS)) * Long.BYTES);
+    }
+
+    public double getBirthTime(long id) {
+        checkId(id);
+
+        if (isInMemory(id)) {
+            return birthTimes[(int) (id % CHUNK_ROWS)];
+        }
+
+        return getMappedChunk(getChunk(id)).getDouble((2 * CHUNK_ROWS + (int) (id % CHUNK_ROWS)) * Long.BYTES);
+    }
+
+    /**
+     * @param id the id of the creature
+     * @return the time of death, or NaN if the creature is still alive
+     * @throws IndexOutOfBoundsException if no creature has the id
+     */
+    public double getDeathTime(long id) {
+        checkId(id);
+        return deathTimes[(int) id];
+    }
+
+    public double getTrait(long id, Trait trait) {
+        checkId(id);
+
+        if (isInMemory(id)) {
+            return traits[trait.ordinal()][(int) (id % CHUNK_ROWS)];
+        }
+
+        int offset = 3 * CHUNK_ROWS * Long.BYTES + (trait.ordinal() * CHUNK_ROWS + (int) (id % CHUNK_ROWS)) * Float.BYTES;
+        return getMappedChunk(getChunk(id)).getFloat(offset);
+    }
+
+    /**
+     * Counts all descendants of a creature over all generations.
+     *
+     * @param ancestorId the id of the ancestor
+     * @return the number of descendants
+     */
+    public long countDescendants(long ancestorId) {
+        //Bit i marks the creature with id ancestorId + i as descendant
+        BitSet descendants = new BitSet();
+        descendants.set(0);
+        long count = 0;
+
+        for (long id = ancestorId + 1; id < size; id++) {
+            if (isDescendant(descendants, ancestorId, getFatherId(id))
+                    || isDescendant(descendants, ancestorId, getMotherId(id))) {
+                descendants.set((int) (id - ancestorId));
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    private static boolean isDescendant(BitSet descendants, long ancestorId, long id) {
+        return id >= ancestorId && descendants.get((int) (id - ancestorId));
+    }
+
+    /**
+     * Follows the line of a creature back to its first ancestor and returns the trait of every generation,
+     * which shows how the trait drifted along the line.
+     *
+     * @param id       the id of the creature
+     * @param trait    the trait
+     * @param maternal true to follow the mothers, false to follow the fathers
+     * @return the trait values from the first ancestor to the creature
+     */
+    public double[] getLineTrait(long id, Trait trait, boolean maternal) {
+        double[] values = new double[16];
+        int generations = 0;
+
+        for (long current = id; current >= 0; current = maternal ? getMotherId(current) : getFatherId(current)) {
+            if (generations == values.length) {
+                values = Arrays.copyOf(values, generations * 2);
+            }
+
+            values[generations++] = getTrait(current, trait);
+        }
+
+        double[] line = new double[generations];
+        for (int generation = 0; generation < generations; generation++) {
+            line[generation] = values[generations - 1 - generation];
+        }
+
+        return line;
+    }
+
+    /**
+     * Returns the mean trait of all descendants of a creature, by generation. The generation of a descendant is
+     * one more than the larger generation of its parents, which only depends on rows already scanned.
+     *
+     * @param ancestorId the id of the ancestor
+     * @param trait      the trait
+     * @return the mean trait per generation, starting with the ancestor as generation 0
+     * @throws IndexOutOfBoundsException if no creature has the id
+     */
+    public double[] getDescendantTraitDrift(long ancestorId, Trait trait) {
+        checkId(ancestorId);
+
+        //Generation of every scanned creature relative to the ancestor, 0 if it is not a descendant
+        int[] generations = new int[(int) (size - ancestorId)];
+        double[] sums = {getTrait(ancestorId, trait)};
+        long[] counts = {1};
+        generations[0] = 1;
+
+        for (long id = ancestorId + 1; id < size; id++) {
+            int generation = Math.max(getGeneration(generations, ancestorId, getFatherId(id)),
+                    getGeneration(generations, ancestorId, getMotherId(id)));
+
+            if (generation > 0) {
+                generations[(int) (id - ancestorId)] = generation + 1;
+
+                if (generation == sums.length) {
+                    sums = Arrays.copyOf(sums, generation + 1);
+                    counts = Arrays.copyOf(counts, generation + 1);
+                }
+                sums[generation] += getTrait(id, trait);
+                counts[generation]++;
+            }
+        }
+
+        for (int generation = 0; generation < sums.length; generation++) {
+            sums[generation] /= counts[generation];
+        }
+
+        return sums;
+    }
+
+    //Generation stored with an offset of one, so 0 means no descendant
+    private static int getGeneration(int[] generations, long ancestorId, long id) {
+        return id >= ancestorId ? generations[(int) (id - ancestorId)] : 0;
+    }
+
+    /**
+     * Closes and deletes the spill file.
+     */
+    public void close() {
+        if (spillChannel != null) {
+            try {
+                spillChannel.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+
+            mappedChunks = new MappedByteBuffer[0];
+            spillChannel = null;
+            spillFile.delete();
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package de.thomas.creatures.implementation.statistics;
+
+import de.thomas.creatures.implementation.model.Creature;
+import de.thomas.creatures.implementation.model.CreatureColumns;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The PopulationHeatmap class aggregates the creatures of a world on a coarse grid of square cells.
+ * For every cell it keeps the number of creatures and the sums of their speed and energy.
+ * The sums are maintained incrementally: creatures are added on birth, subtracted on death and moved between cells
+ * when they cross a cell border. Every creature remembers its cell and the energy last applied to the sums, so
+ * removing it is exact and energy changes are applied as deltas. Reading the map never touches the creatures.
+ */
+public class PopulationHeatmap {
+    public static final double DEFAULT_CELL_SIZE = 50;
+    public static final int MAX_CELLS_PER_AXIS = 256;
+
+    private final double cellSize;
+    private final int cellsX;
+    private final int cellsY;
+    private final int[] counts;
+    private final double[] speedSums;
+    private final double[] energySums;
+
+    /**
+     * Constructs an empty PopulationHeatmap covering a world with the given dimensions.
+     *
+     * @param width    the width of the world
+     * @param height   the height of the world
+     * @param cellSize the edge length of a cell, enlarged if the grid would exceed MAX_CELLS_PER_AXIS
+     */
+    public PopulationHeatmap(double width, double height, double cellSize) {
+        this.cellSize = Math.max(cellSize, Math.max(width, height) / MAX_CELLS_PER_AXIS);
+        cellsX = Math.max((int) Math.ceil(width / this.cellSize), 1);
+        cellsY = Math.max((int) Math.ceil(height / this.cellSize), 1);
+        counts = new int[cellsX * cellsY];
+        speedSums = new double[cellsX * cellsY];
+        energySums = new double[cellsX * cellsY];
+    }
+
+    private PopulationHeatmap(PopulationHeatmap other) {
+        cellSize = other.cellSize;
+        cellsX = other.cellsX;
+        cellsY = other.cellsY;
+        counts = new int[cellsX * cellsY];
+        speedSums = new double[cellsX * cellsY];
+        energySums = new double[cellsX * cellsY];
+    }
+
+    /**
+     * Copies the sums of all cells into another map of the same size, for example a map kept for painting.
+     *
+     * @param target the map to copy into, or null
+     * @return the target, or a new map if the target was null or of another size
+     */
+    public PopulationHeatmap copyTo(PopulationHeatmap target) {
+        if (target == null || target.cellSize != cellSize || target.cellsX != cellsX || target.cellsY != cellsY) {
+            target = new PopulationHeatmap(this);
+        }
+
+        System.arraycopy(counts, 0, target.counts, 0, counts.length);
+        System.arraycopy(speedSums, 0, target.speedSums, 0, speedSums.length);
+        System.arraycopy(energySums, 0, target.energySums, 0, energySums.length);
+        return target;
+    }
+
+    public void add(Creature creature) {
+        int cell = getCell(creature.getPosition().x, creature.getPosition().y);
+        double energy = creature.getEnergy();
+
+        counts[cell]++;
+        speedSums[cell] += creature.getSpeed();
+        energySums[cell] += energy;
+
+        creature.setHeatmapCell(cell);
+        creature.setHeatmapEnergy(energy);
+    }
+
+    public void remove(Creature creature) {
+        int cell = creature.getHeatmapCell();
+
+        if (cell < 0) {
+            return;
+        }
+
+        counts[cell]--;
+        speedSums[cell] -= creature.getSpeed();
+        energySums[cell] -= creature.getHeatmapEnergy();
+
+        //Drop rounding residue of empty cells
+        if (counts[cell] == 0) {
+            speedSums[cell] = 0;
+            energySums[cell] = 0;
+        }
+
+        creature.setHeatmapCell(-1);
+    }
+
+    /**
+     * Applies the movement and the energy changes of the last update. Only creatures which crossed a cell border
+     * are moved, for all others the energy delta is added to their cell.
+     *
+     * @param columns the creature columns of the update, after energy depletion
+     */
+    public void update(CreatureColumns columns) {
+        double[] x = columns.getX();
+        double[] y = columns.getY();
+        double[] energy = columns.getEnergy();
+
+        for (int slot = 0; slot < columns.size(); slot++) {
+            Creature creature = columns.getCreature(slot);
+            int oldCell = creature.getHeatmapCell();
+
+            if (oldCell < 0) {
+                continue;
+            }
+
+            int cell = getCell(x[slot], y[slot]);
+
+            if (cell != oldCell) {
+                counts[oldCell]--;
+                speedSums[oldCell] -= creature.getSpeed();
+                energySums[oldCell] -= creature.getHeatmapEnergy();
+
+                counts[cell]++;
+                speedSums[cell] += creature.getSpeed();
+                energySums[cell] += energy[slot];
+
+                creature.setHeatmapCell(cell);
+            } else {
+                energySums[cell] += energy[slot] - creature.getHeatmapEnergy();
+            }
+
+            creature.setHeatmapEnergy(energy[slot]);
+        }
+    }
+
+    /**
+     * Clears the map and adds all creatures again, for example after the heatmap was attached to a running world.
+     *
+     * @param creatures all creatures of the world
+     */
+    public void rebuild(List<Creature> creatures) {
+        Arrays.fill(counts, 0);
+        Arrays.fill(speedSums, 0);
+        Arrays.fill(energySums, 0);
+
+        for (Creature creature : creatures) {
+            add(creature);
+        }
+    }
+
+    /**
+     * Writes the current map as one frame: the time, the grid dimensions and then per cell the number of creatures,
+     * the mean speed and the mean energy.
+     *
+     * @param out  the output
+     * @param time the time of the frame
+     */
+    public void writeFrame(DataOutput out, double time) throws IOException {
+        out.writeDouble(time);
+        out.writeInt(cellsX);
+        out.writeInt(cellsY);
+        out.writeDouble(cellSize);
+
+        for (int count : counts) {
+            out.writeInt(count);
+        }
+        for (int cell = 0; cell < counts.length; cell++) {
+            out.writeFloat((float) getMeanSpeed(cell));
+        }
+        for (int cell = 0; cell < counts.length; cell++) {
+            out.writeFloat((float) getMeanEnergy(cell));
+        }
+    }
+
+    public int getCell(double x, double y) {
+        return clamp((int) (y / cellSize), cellsY) * cellsX + clamp((int) (x / cellSize), cellsX);
+    }
+
+    private static int clamp(int index, int amount) {
+        return Math.min(Math.max(index, 0), amount - 1);
+    }
+
+    public int getCount(int cell) {
+        return counts[cell];
+    }
+
+    public double getMeanSpeed(int cell) {
+        return counts[cell] > 0 ? speedSums[cell] / counts[cell] : 0;
+    }
+
+    public double getMeanEnergy(int cell) {
+        return counts[cell] > 0 ? energySums[cell] / counts[cell] : 0;
+    }
+
+    public double getCellSize() {
+        return cellSize;
+    }
+
+    public int getCellsX() {
+        return cellsX;
+    }
+
+    public int getCellsY() {
+        return cellsY;
+    }
+
+    public int getCellAmount() {
+        return counts.length;
+    }
+}
@@ -0,0 +1,156 @@
+package de.thomas.creatures.implementation.statistics;
+
+import de.thomas.creatures.implementation.model.Creature;
+import de.thomas.creatures.implementation.model.Creature.Gender;
+
+import java.util.List;
+
+/**
+ * The PopulationTotals class keeps running sums over all creatures of a world, so averages are available in O(1).
+ * Creatures are added on birth and subtracted on death, energy, life and pregnancy changes are applied as deltas
+ * by the world update. The distributions of the heritable traits are maintained alongside.
+ */
+public class PopulationTotals {
+    private int creatureAmount;
+    private double totalLife;
+    private double totalMaxLife;
+    private double totalEnergy;
+    private double totalMaxEnergy;
+    private double totalSpeed;
+    private double totalVisionRange;
+    private double totalMatingEnergyNeeded;
+    private double totalBreedLength;
+    private double totalBreedProgressSpeed;
+    private int femaleAmount;
+    private int pregnancyAmount;
+    private final TraitDistributions traitDistributions = new TraitDistributions();
+
+    public void add(Creature creature) {
+        apply(creature, 1);
+        traitDistributions.add(creature);
+    }
+
+    public void remove(Creature creature) {
+        apply(creature, -1);
+        traitDistributions.remove(creature);
+
+        //Drop rounding residue once the population is gone
+        if (creatureAmount == 0) {
+            clear();
+        }
+    }
+
+    public void addEnergy(double energyDelta) {
+        totalEnergy += energyDelta;
+    }
+
+    public void addLife(double lifeDelta) {
+        totalLife += lifeDelta;
+    }
+
+    public void addPregnancies(int pregnancyDelta) {
+        pregnancyAmount += pregnancyDelta;
+    }
+
+    /**
+     * Recomputes all sums from scratch, for example after the creatures were replaced.
+     *
+     * @param creatures all creatures of the world
+     */
+    public void recompute(List<Creature> creatures) {
+        clear();
+
+        for (Creature creature : creatures) {
+            add(creature);
+        }
+    }
+
+    private void apply(Creature creature, int sign) {
+        creatureAmount += sign;
+        totalLife += sign * creature.getLife();
+        totalMaxLife += sign * creature.getMaxLife();
+        totalEnergy += sign * creature.getEnergy();
+        totalMaxEnergy += sign * creature.getMaxEnergy();
+        totalSpeed += sign * creature.getSpeed();
+        totalVisionRange += sign * creature.getVisionRange();
+        totalMatingEnergyNeeded += sign * creature.getMatingEnergyNeeded();
+        totalBreedLength += sign * creature.getBreedLength();
+        totalBreedProgressSpeed += sign * creature.getBreedProgressSpeed();
+
+        if (creature.getGender() == Gender.FEMALE) {
+            femaleAmount += sign;
+        }
+
+        if (creature.isPregnant()) {
+            pregnancyAmount += sign;
+        }
+    }
+
+    private void clear() {
+        creatureAmount = 0;
+        totalLife = 0;
+        totalMaxLife = 0;
+        totalEnergy = 0;
+        totalMaxEnergy = 0;
+        totalSpeed = 0;
+        totalVisionRange = 0;
+        totalMatingEnergyNeeded = 0;
+        totalBreedLength = 0;
+        totalBreedProgressSpeed = 0;
+        femaleAmount = 0;
+        pregnancyAmount = 0;
+        traitDistributions.clear();
+    }
+
+    public int getCreatureAmount() {
+        return creatureAmount;
+    }
+
+    public double getTotalLife() {
+        return totalLife;
+    }
+
+    public double getTotalMaxLife() {
+        return totalMaxLife;
+    }
+
+    public double getTotalEnergy() {
+        return totalEnergy;
+    }
+
+    public double getTotalMaxEnergy() {
+        return totalMaxEnergy;
+    }
+
+    public double getTotalSpeed() {
+        return totalSpeed;
+    }
+
+    public double getTotalVisionRange() {
+        return totalVisionRange;
+    }
+
+    public double getTotalMatingEnergyNeeded() {
+        return totalMatingEnergyNeeded;
+    }
+
+    public double getTotalBreedLength() {
+        return totalBreedLength;
+    }
+
+    public double getTotalBreedProgressSpeed() {
+        return totalBreedProgressSpeed;
+    }
+
+    public int getFemaleAmount() {
+        return femaleAmount;
+    }
+
+    public int getPregnancyAmount() {
+        return pregnancyAmount;
+    }
+
+    public TraitDistributions getTraitDistributions() {
+        return traitDistributions;
+    }
+}
@@ -0,0 +1,75 @@
+package de.thomas.creatures.implementation.statistics;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The RollupTier class keeps rollups of a fixed bucket length (for example one minute) in a bounded ring.
+ * Samples are added in time order; when a sample falls into a new bucket, the current rollup is completed.
+ * Once the ring is full, the oldest rollups are dropped.
+ */
+public class RollupTier {
+    private final double bucketLength;
+    private final StatRollup[] rollups;
+    private int start;
+    private int size;
+    private StatRollup current;
+
+    /**
+     * Constructs a RollupTier.
+     *
+     * @param bucketLength the length of a bucket in seconds
+     * @param capacity     the number of completed rollups kept
+     */
+    public RollupTier(double bucketLength, int capacity) {
+        this.bucketLength = bucketLength;
+        rollups = new StatRollup[capacity];
+    }
+
+    public void add(double time, StatElement element) {
+        long bucket = (long) (time / bucketLength);
+
+        if (current != null && current.getBucket() != bucket) {
+            complete(current);
+            current = null;
+        }
+
+        if (current == null) {
+            current = new StatRollup(bucket);
+        }
+
+        current.add(element);
+    }
+
+    private void complete(StatRollup rollup) {
+        if (size < rollups.length) {
+            rollups[(start + size++) % rollups.length] = rollup;
+        } else {
+            rollups[start] = rollup;
+            start = (start + 1) % rollups.length;
+        }
+    }
+
+    /**
+     * Returns the completed rollups in time order, followed by the rollup of the current bucket.
+     *
+     * @return the rollups of this tier
+     */
+    public List<StatRollup> getRollups() {
+        List<StatRollup> result = new ArrayList<>(size + 1);
+
+        for (int i = 0; i < size; i++) {
+            result.add(rollups[(start + i) % rollups.length]);
+        }
+
+        if (current != null) {
+            result.add(current);
+        }
+
+        return result;
+    }
+
+    public double getBucketLength() {
+        return bucketLength;
+    }
+}
@@ -0,0 +1,103 @@
+package de.thomas.creatures.implementation.statistics;
+
+import de.thomas.creatures.implementation.controller.CreatureAccumulator;
+import de.thomas.creatures.implementation.model.Creature;
+import de.thomas.creatures.implementation.model.Creature.Gender;
+import de.thomas.creatures.implementation.model.CreatureColumns;
+
+/**
+ * The StatAccumulator class computes a StatElement by folding in the creatures during the world update.
+ * If it is registered with a stride greater than 1, the averages are estimated from the visited creatures only,
+ * which keeps the cost bounded for very large populations. The creature amount is always exact, it is passed in
+ * when the element is created.
+ * Only creatures surviving the update are folded in, with their values after depletion. The creatures born during
+ * the update are first seen by the next one.
+ */
+public class StatAccumulator implements CreatureAccumulator {
+    private int sampledAmount;
+    private double totalLife;
+    private double totalMaxLife;
+    private double totalEnergy;
+    private double totalMaxEnergy;
+    private double totalSpeed;
+    private double totalVisionRange;
+    private double totalMatingEnergyNeeded;
+    private double totalBreedLength;
+    private double totalBreedProgressSpeed;
+    private double femaleAmount;
+    private double pregnancyAmount;
+    private boolean updated;
+
+    @Override
+    public void beginUpdate(CreatureColumns columns) {
+        sampledAmount = 0;
+        totalLife = 0;
+        totalMaxLife = 0;
+        totalEnergy = 0;
+        totalMaxEnergy = 0;
+        totalSpeed = 0;
+        totalVisionRange = 0;
+        totalMatingEnergyNeeded = 0;
+        totalBreedLength = 0;
+        totalBreedProgressSpeed = 0;
+        femaleAmount = 0;
+        pregnancyAmount = 0;
+    }
+
+    @Override
+    public void accumulate(CreatureColumns columns, int slot) {
+        Creature creature = columns.getCreature(slot);
+
+        sampledAmount++;
+        totalLife += columns.getLife()[slot];
+        totalMaxLife += columns.getMaxLife()[slot];
+        totalEnergy += columns.getEnergy()[slot];
+        totalMaxEnergy += columns.getMaxEnergy()[slot];
+        totalSpeed += columns.getSpeed()[slot];
+        totalVisionRange += creature.getVisionRange();
+        totalMatingEnergyNeeded += creature.getMatingEnergyNeeded();
+        totalBreedLength += creature.getBreedLength();
+        totalBreedProgressSpeed += columns.getBreedProgressSpeed()[slot];
+        pregnancyAmount += columns.getPregnant()[slot];
+
+        if (creature.getGender() == Gender.FEMALE) {
+            femaleAmount += 1;
+        }
+    }
+
+    @Override
+    public void endUpdate(CreatureColumns columns) {
+        updated = true;
+    }
+
+    /**
+     * @return whether a world update has been accumulated yet
+     */
+    public boolean isUpdated() {
+        return updated;
+    }
+
+    /**
+     * Creates the element of the last world update.
+     *
+     * @param creatureAmount the exact amount of creatures after the update
+     * @return the element
+     */
+    public StatElement createElement(int creatureAmount) {
+        double genderRatio = femaleAmount / sampledAmount;
+
+        return new StatElement(
+                creatureAmount,
+                totalLife / sampledAmount,
+                totalMaxLife / sampledAmount,
+                totalEnergy / sampledAmount,
+                totalMaxEnergy / sampledAmount,
+                totalSpeed / sampledAmount,
+                totalVisionRange / sampledAmount,
+                totalMatingEnergyNeeded / sampledAmount,
+                totalBreedLength / sampledAmount,
+                totalBreedProgressSpeed / sampledAmount,
+                genderRatio,
+                pregnancyAmount / (genderRatio * sampledAmount));
+    }
+}
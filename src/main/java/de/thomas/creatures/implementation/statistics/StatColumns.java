@@ -0,0 +1,138 @@
+package de.thomas.creatures.implementation.statistics;
+
+import java.util.Arrays;
+
+/**
+ * The StatColumns class stores a statistics time series column by column.
+ * Every metric has its own growable primitive array, all metrics share one timestamp column.
+ * Compared to a list of StatElement objects, this needs about a third of the memory and allows
+ * charting, export and aggregates to run over plain double arrays.
+ */
+public class StatColumns implements StatSeries {
+    private double[] times;
+    private final double[][] values = new double[StatElement.METRIC_AMOUNT][];
+    private int size;
+
+    public StatColumns() {
+        this(256);
+    }
+
+    public StatColumns(int initialCapacity) {
+        int capacity = Math.max(initialCapacity, 1);
+        times = new double[capacity];
+
+        for (int metric = 0; metric < values.length; metric++) {
+            values[metric] = new double[capacity];
+        }
+    }
+
+    public void add(double time, StatElement element) {
+        ensureCapacity(size + 1);
+
+        times[size] = time;
+        for (int metric = 0; metric < values.length; metric++) {
+            values[metric][size] = element.getValue(metric);
+        }
+
+        size++;
+    }
+
+    public void add(double time, double[] sample) {
+        ensureCapacity(size + 1);
+
+        times[size] = time;
+        for (int metric = 0; metric < values.length; metric++) {
+            values[metric][size] = sample[metric];
+        }
+
+        size++;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public double getTime(int index) {
+        return times[index];
+    }
+
+    @Override
+    public double getValue(int metric, int index) {
+        return values[metric][index];
+    }
+
+    /**
+     * Returns the backing timestamp array. Only the first size() entries are valid.
+     *
+     * @return the timestamp column
+     */
+    public double[] getTimes() {
+        return times;
+    }
+
+    /**
+     * Returns the backing array of a metric. Only the first size() entries are valid.
+     *
+     * @param metric the metric index, see StatElement.getValue
+     * @return the metric column
+     */
+    public double[] getColumn(int metric) {
+        return values[metric];
+    }
+
+    public StatElement getElement(int index) {
+        double[] sample = new double[values.length];
+
+        for (int metric = 0; metric < values.length; metric++) {
+            sample[metric] = values[metric][index];
+        }
+
+        return StatElement.fromValues(sample);
+    }
+
+    public double getMean(int metric) {
+        double[] column = values[metric];
+        double sum = 0;
+
+        for (int i = 0; i < size; i++) {
+            sum += column[i];
+        }
+
+        return sum / size;
+    }
+
+    public double getMin(int metric) {
+        double[] column = values[metric];
+        double min = Double.POSITIVE_INFINITY;
+
+        for (int i = 0; i < size; i++) {
+            min = Math.min(min, column[i]);
+        }
+
+        return min;
+    }
+
+    public double getMax(int metric) {
+        double[] column = values[metric];
+        double max = Double.NEGATIVE_INFINITY;
+
+        for (int i = 0; i < size; i++) {
+            max = Math.max(max, column[i]);
+        }
+
+        return max;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > times.length) {
+            int newCapacity = Math.max(capacity, times.length * 2);
+            times = Arrays.copyOf(times, newCapacity);
+
+            for (int metric = 0; metric < values.length; metric++) {
+                values[metric] = Arrays.copyOf(values[metric], newCapacity);
+            }
+        }
+    }
+}
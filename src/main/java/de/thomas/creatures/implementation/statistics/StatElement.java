@@ -1,6 +1,8 @@
 package de.thomas.creatures.implementation.statistics;
 
 public class StatElement {
+    public static final int METRIC_AMOUNT = 12;
+
     private final int creatureAmount;
     private final double averageLife;
     private final double averageMaxLife;
@@ -82,4 +84,41 @@ public class StatElement {
     public double getPregnancyRatio() {
         return pregnancyRatio;
     }
+
+    //Metric order is the column order of the CSV export and the statistics view
+    public double getValue(int metric) {
+        switch (metric) {
+            case 0:
+                return creatureAmount;
+            case 1:
+                return averageLife;
+            case 2:
+                return averageMaxLife;
+            case 3:
+                return averageEnergy;
+            case 4:
+                return averageMaxEnergy;
+            case 5:
+                return averageSpeed;
+            case 6:
+                return averageVisionRange;
+            case 7:
+                return averageMatingEnergyNeeded;
+            case 8:
+                return averageBreedLength;
+            case 9:
+                return averageBreedProgressSpeed;
+            case 10:
+                return genderRatio;
+            case 11:
+                return pregnancyRatio;
+            default:
+                throw new IllegalArgumentException("Unknown metric " + metric);
+        }
+    }
+
+    public static StatElement fromValues(double[] values) {
+        return new StatElement((int) values[0], values[1], values[2], values[3], values[4], values[5],
+                values[6], values[7], values[8], values[9], values[10], values[11]);
+    }
 }
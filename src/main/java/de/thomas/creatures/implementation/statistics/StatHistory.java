@@ -0,0 +1,323 @@
+package de.thomas.creatures.implementation.statistics;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * The StatHistory class stores the statistics of a run in constant memory.
+ * The most recent samples are kept at full resolution in a ring buffer, stored as one primitive column per metric
+ * plus a shared timestamp column. The columns grow on demand up to the capacity. Every sample is also folded into
+ * rollup tiers per minute and per hour. Samples leaving the ring buffer are appended to a spill file, so the
+ * full resolution history is still available for export. The spilled samples are only ever read sample by sample,
+ * the whole history is never loaded into memory.
+ */
+public class StatHistory {
+    public static final int DEFAULT_CAPACITY = 3600;
+    public static final int MINUTE_CAPACITY = 7 * 24 * 60;
+    public static final int HOUR_CAPACITY = 366 * 24;
+
+    private final int capacity;
+    private double[] times;
+    private final double[][] values = new double[StatElement.METRIC_AMOUNT][];
+    private int start;
+    private int size;
+
+    private final RollupTier minuteTier = new RollupTier(60, MINUTE_CAPACITY);
+    private final RollupTier hourTier = new RollupTier(3600, HOUR_CAPACITY);
+
+    private File spillFile;
+    //Whether the spill file is a temporary file created on the first spill and deleted on close
+    private final boolean temporarySpillFile;
+    private DataOutputStream spillStream;
+    private long spilledAmount;
+    private long addedAmount;
+    private boolean closed;
+
+    /**
+     * Constructs a StatHistory which spills to a temporary file. The file is created once the first sample is spilled
+     * and deleted when the history is closed.
+     *
+     * @param capacity the number of samples kept in memory at full resolution
+     */
+    public StatHistory(int capacity) {
+        this(capacity, null, true);
+    }
+
+    /**
+     * Constructs a StatHistory.
+     *
+     * @param capacity  the number of samples kept in memory at full resolution
+     * @param spillFile the file older samples are appended to, or null to drop them
+     */
+    public StatHistory(int capacity, File spillFile) {
+        this(capacity, spillFile, false);
+    }
+
+    private StatHistory(int capacity, File spillFile, boolean temporarySpillFile) {
+        this.capacity = capacity;
+        this.spillFile = spillFile;
+        this.temporarySpillFile = temporarySpillFile;
+
+        int initialCapacity = Math.min(capacity, 256);
+        times = new double[initialCapacity];
+        for (int metric = 0; metric < values.length; metric++) {
+            values[metric] = new double[initialCapacity];
+        }
+    }
+
+    /**
+     * Adds a sample.
+     *
+     * @param time    the time of the sample in seconds since the start of the run
+     * @param element the sample
+     */
+    public void add(double time, StatElement element) {
+        if (size == times.length && times.length < capacity) {
+            grow();
+        }
+
+        if (size == times.length) {
+            spill(start);
+            start = (start + 1) % times.length;
+            size--;
+        }
+
+        int index = (start + size++) % times.length;
+        times[index] = time;
+        for (int metric = 0; metric < values.length; metric++) {
+            values[metric][index] = element.getValue(metric);
+        }
+
+        minuteTier.add(time, element);
+        hourTier.add(time, element);
+        addedAmount++;
+    }
+
+    //Only called while the ring is not wrapped around the end of the arrays
+    private void grow() {
+        int newCapacity = Math.min(times.length * 2, capacity);
+        times = Arrays.copyOf(times, newCapacity);
+
+        for (int metric = 0; metric < values.length; metric++) {
+            values[metric] = Arrays.copyOf(values[metric], newCapacity);
+        }
+    }
+
+    private void spill(int index) {
+        if (spillFile == null && !temporarySpillFile || closed) {
+            return;
+        }
+
+        try {
+            if (spillFile == null) {
+                spillFile = File.createTempFile("creatures-statistics", ".bin");
+            }
+
+            if (spillStream == null) {
+                spillStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(spillFile)));
+            }
+
+            spillStream.writeDouble(times[index]);
+            for (double[] column : values) {
+                spillStream.writeDouble(column[index]);
+            }
+
+            spilledAmount++;
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Flushes the spill file. Samples are only ever appended to it, so the returned amount of samples
+     * can be read from another thread while the history keeps growing.
+     *
+     * @return the number of samples in the spill file
+     */
+    public long flushSpill() {
+        if (spillStream != null) {
+            try {
+                spillStream.flush();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+
+        return spilledAmount;
+    }
+
+    /**
+     * @return the spill file, or null while no sample was spilled to a temporary file
+     */
+    public File getSpillFile() {
+        return spillFile;
+    }
+
+    /**
+     * Reads the first samples of a spill file one by one, without keeping them in memory.
+     *
+     * @param spillFile the spill file
+     * @param amount    the number of samples to read
+     * @param consumer  receives every sample, the value array is reused between samples
+     */
+    public static void readSpilled(File spillFile, long amount, SampleConsumer consumer) throws IOException {
+        readSpilled(spillFile, 0, amount, consumer);
+    }
+
+    private static void readSpilled(File spillFile, long from, long amount, SampleConsumer consumer) throws IOException {
+        if (amount <= from) {
+            return;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(spillFile)))) {
+            double[] sample = new double[StatElement.METRIC_AMOUNT];
+            in.skipNBytes(from * (StatElement.METRIC_AMOUNT + 1) * Double.BYTES);
+
+            for (long i = from; i < amount; i++) {
+                double time = in.readDouble();
+                for (int metric = 0; metric < sample.length; metric++) {
+                    sample[metric] = in.readDouble();
+                }
+
+                consumer.accept(time, sample);
+            }
+        } catch (EOFException e) {
+            //Spill file is shorter than expected, the remaining samples are still in memory
+        }
+    }
+
+    /**
+     * Passes all samples starting at the given sample number to the consumer, in time order.
+     * Samples which are no longer in memory are read from the spill file, dropped samples are skipped.
+     *
+     * @param from     the number of the first sample, counted from the start of the run
+     * @param consumer receives every sample, the value array is reused between samples
+     * @return the number of the next sample to be added
+     */
+    public long readSince(long from, SampleConsumer consumer) throws IOException {
+        long firstInMemory = addedAmount - size;
+
+        //The spill file only holds the samples before the ring if none were dropped and it was not deleted yet
+        if (from < firstInMemory && spilledAmount == firstInMemory && !(closed && temporarySpillFile)) {
+            readSpilled(spillFile, from, flushSpill(), consumer);
+        }
+
+        double[] sample = new double[StatElement.METRIC_AMOUNT];
+
+        for (long number = Math.max(from, firstInMemory); number < addedAmount; number++) {
+            int index = (int) ((start + number - firstInMemory) % times.length);
+
+            for (int metric = 0; metric < sample.length; metric++) {
+                sample[metric] = values[metric][index];
+            }
+
+            consumer.accept(times[index], sample);
+        }
+
+        return addedAmount;
+    }
+
+    public interface SampleConsumer {
+        void accept(double time, double[] sample) throws IOException;
+    }
+
+    /**
+     * Returns the samples kept in memory at full resolution, in time order.
+     *
+     * @return new columns holding the recent samples
+     */
+    public StatColumns getRecent() {
+        StatColumns recent = new StatColumns(size);
+        appendRecent(recent);
+        return recent;
+    }
+
+    private void appendRecent(StatColumns target) {
+        double[] sample = new double[StatElement.METRIC_AMOUNT];
+
+        for (int i = 0; i < size; i++) {
+            int index = (start + i) % times.length;
+
+            for (int metric = 0; metric < sample.length; metric++) {
+                sample[metric] = values[metric][index];
+            }
+
+            target.add(times[index], sample);
+        }
+    }
+
+    /**
+     * Returns the latest value of a metric without creating a StatElement.
+     *
+     * @param metric the metric index, see StatElement.getValue
+     * @return the latest value, or NaN if there are no samples
+     */
+    public double getLatestValue(int metric) {
+        return size > 0 ? values[metric][(start + size - 1) % times.length] : Double.NaN;
+    }
+
+    public StatElement getLatest() {
+        if (size == 0) {
+            return null;
+        }
+
+        double[] sample = new double[StatElement.METRIC_AMOUNT];
+        for (int metric = 0; metric < sample.length; metric++) {
+            sample[metric] = getLatestValue(metric);
+        }
+
+        return StatElement.fromValues(sample);
+    }
+
+    public int getRecentAmount() {
+        return size;
+    }
+
+    public long getTotalAmount() {
+        return spilledAmount + size;
+    }
+
+    /**
+     * @return the number of samples added since the start of the run, including dropped ones, see readSince
+     */
+    public long getAddedAmount() {
+        return addedAmount;
+    }
+
+    public RollupTier getMinuteTier() {
+        return minuteTier;
+    }
+
+    public RollupTier getHourTier() {
+        return hourTier;
+    }
+
+    /**
+     * Closes the spill file, a temporary spill file is deleted. Samples added afterwards are still kept in memory
+     * but no longer spilled.
+     */
+    public void close() {
+        closed = true;
+
+        if (spillStream != null) {
+            try {
+                spillStream.close();
+                spillStream = null;
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+
+        if (temporarySpillFile && spillFile != null && !spillFile.delete()) {
+            spillFile.deleteOnExit();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package de.thomas.creatures.implementation.statistics;
+
+import java.util.Arrays;
+
+/**
+ * The StatRollup class summarizes all samples of one time bucket with minimum, maximum and mean of every metric.
+ */
+public class StatRollup {
+    private final long bucket;
+    private final double[] min = new double[StatElement.METRIC_AMOUNT];
+    private final double[] max = new double[StatElement.METRIC_AMOUNT];
+    private final double[] sum = new double[StatElement.METRIC_AMOUNT];
+    private int count;
+
+    public StatRollup(long bucket) {
+        this.bucket = bucket;
+
+        Arrays.fill(min, Double.POSITIVE_INFINITY);
+        Arrays.fill(max, Double.NEGATIVE_INFINITY);
+    }
+
+    public void add(StatElement element) {
+        for (int metric = 0; metric < StatElement.METRIC_AMOUNT; metric++) {
+            double value = element.getValue(metric);
+
+            min[metric] = Math.min(min[metric], value);
+            max[metric] = Math.max(max[metric], value);
+            sum[metric] += value;
+        }
+
+        count++;
+    }
+
+    public long getBucket() {
+        return bucket;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public double getMin(int metric) {
+        return min[metric];
+    }
+
+    public double getMax(int metric) {
+        return max[metric];
+    }
+
+    public double getMean(int metric) {
+        return sum[metric] / count;
+    }
+}
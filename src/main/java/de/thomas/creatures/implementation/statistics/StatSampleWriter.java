@@ -0,0 +1,38 @@
+package de.thomas.creatures.implementation.statistics;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Writes statistics samples to a file, one sample after another.
+ */
+public interface StatSampleWriter extends Closeable {
+    /**
+     * @param time   the simulation time of the sample
+     * @param sample the values indexed by metric, see StatElement.getValue
+     */
+    void write(double time, double[] sample) throws IOException;
+
+    void flush() throws IOException;
+
+    default void write(double time, StatElement element) throws IOException {
+        double[] sample = new double[StatElement.METRIC_AMOUNT];
+        for (int metric = 0; metric < sample.length; metric++) {
+            sample[metric] = element.getValue(metric);
+        }
+
+        write(time, sample);
+    }
+
+    default void writeAll(StatSeries series) throws IOException {
+        double[] sample = new double[StatElement.METRIC_AMOUNT];
+
+        for (int i = 0; i < series.size(); i++) {
+            for (int metric = 0; metric < sample.length; metric++) {
+                sample[metric] = series.getValue(metric, i);
+            }
+
+            write(series.getTime(i), sample);
+        }
+    }
+}
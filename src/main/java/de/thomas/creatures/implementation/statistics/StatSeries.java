@@ -0,0 +1,18 @@
+package de.thomas.creatures.implementation.statistics;
+
+/**
+ * A read only statistics time series, indexed by sample and metric.
+ * Implemented by the in memory columns and by memory mapped statistics files.
+ */
+public interface StatSeries {
+    int size();
+
+    double getTime(int index);
+
+    /**
+     * @param metric the metric index, see StatElement.getValue
+     * @param index  the sample index
+     * @return the value of the metric at the sample
+     */
+    double getValue(int metric, int index);
+}
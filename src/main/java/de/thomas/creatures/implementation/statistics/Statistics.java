@@ -1,26 +1,38 @@
 package de.thomas.creatures.implementation.statistics;
 
-import de.thomas.creatures.implementation.model.Creature;
-import de.thomas.creatures.implementation.model.Creature.Gender;
 import de.thomas.creatures.implementation.model.WorldModel;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.io.File;
+import java.io.IOException;
 
 public class Statistics {
     private final WorldModel worldModel;
-    private final List<StatElement> statElements;
+    private final StatHistory history;
     private double lastTimeUpdated = 0;
+    private double time = 0;
+    //Seconds between two samples, 0 samples on every update
+    private double sampleInterval = 1;
+    //If set, elements are taken from the accumulator fed by the world update instead of the running totals
+    private StatAccumulator accumulator;
+    //Started and stopped from the user interface while the simulation samples
+    private volatile StatisticsExporter exporter;
+    private HeatmapRecorder heatmapRecorder;
+    //Only set if the run may stop early
+    private ConvergenceDetector convergenceDetector;
+    //Receives every sample as it is taken, for runs which process all of their samples
+    private StatHistory.SampleConsumer sampleConsumer;
+    private final double[] sample = new double[StatElement.METRIC_AMOUNT];
 
     public Statistics(WorldModel worldModel) {
         this.worldModel = worldModel;
-        statElements = new ArrayList<>();
+        history = new StatHistory(StatHistory.DEFAULT_CAPACITY);
     }
 
     public void update(double delta) {
         lastTimeUpdated += delta;
+        time += delta;
 
-        if (lastTimeUpdated >= 1) {
+        if (lastTimeUpdated >= sampleInterval) {
             lastTimeUpdated = 0;
 
             addStatElement();
@@ -28,12 +40,46 @@ public class Statistics {
     }
 
     private void addStatElement() {
-        StatElement element = getStatElement();
-        statElements.add(element);
+        StatElement element;
+
+        if (accumulator != null && accumulator.isUpdated()) {
+            element = accumulator.createElement(worldModel.getPopulationTotals().getCreatureAmount());
+        } else {
+            element = getStatElement();
+        }
+
+        history.add(time, element);
+
+        StatisticsExporter exporter = this.exporter;
+        if (exporter != null) {
+            exporter.append(time, element);
+        }
+
+        if (convergenceDetector != null) {
+            convergenceDetector.add(time, element, worldModel.getPopulationTotals());
+        }
+
+        if (sampleConsumer != null) {
+            for (int metric = 0; metric < sample.length; metric++) {
+                sample[metric] = element.getValue(metric);
+            }
+
+            try {
+                sampleConsumer.accept(time, sample);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+
+        if (heatmapRecorder != null && worldModel.getHeatmap() != null) {
+            heatmapRecorder.record(time, worldModel.getHeatmap());
+        }
     }
 
     private StatElement getStatElement() {
-        int creatureAmount = worldModel.getCreatures().size();
+        PopulationTotals totals = worldModel.getPopulationTotals();
+
+        int creatureAmount = totals.getCreatureAmount();
         double averageLife;
         double averageMaxLife;
         double averageEnergy;
@@ -46,37 +92,17 @@ public class Statistics {
         double genderRatio;
         double pregnancyRatio;
 
-        double totalLife = 0;
-        double totalMaxLife = 0;
-        double totalEnergy = 0;
-        double totalMaxEnergy = 0;
-        double totalAverageSpeed = 0;
-        double totalAverageVisionRange = 0;
-        double totalAverageMatingEnergyNeeded = 0;
-        double totalAverageBreedLength = 0;
-        double totalAverageBreedProgressSpeed = 0;
-        double femaleAmount = 0;
-        double pregnancyAmount = 0;
-
-        for (Creature c : worldModel.getCreatures()) {
-            totalLife += c.getLife();
-            totalMaxLife += c.getMaxLife();
-            totalEnergy += c.getEnergy();
-            totalMaxEnergy += c.getMaxEnergy();
-            totalAverageSpeed += c.getSpeed();
-            totalAverageVisionRange += c.getVisionRange();
-            totalAverageMatingEnergyNeeded += c.getMatingEnergyNeeded();
-            totalAverageBreedLength += c.getBreedLength();
-            totalAverageBreedProgressSpeed += c.getBreedProgressSpeed();
-
-            if (c.getGender() == Gender.FEMALE) {
-                femaleAmount += 1;
-            }
-
-            if (c.isPregnant()) {
-                pregnancyAmount += 1;
-            }
-        }
+        double totalLife = totals.getTotalLife();
+        double totalMaxLife = totals.getTotalMaxLife();
+        double totalEnergy = totals.getTotalEnergy();
+        double totalMaxEnergy = totals.getTotalMaxEnergy();
+        double totalAverageSpeed = totals.getTotalSpeed();
+        double totalAverageVisionRange = totals.getTotalVisionRange();
+        double totalAverageMatingEnergyNeeded = totals.getTotalMatingEnergyNeeded();
+        double totalAverageBreedLength = totals.getTotalBreedLength();
+        double totalAverageBreedProgressSpeed = totals.getTotalBreedProgressSpeed();
+        double femaleAmount = totals.getFemaleAmount();
+        double pregnancyAmount = totals.getPregnancyAmount();
 
         averageLife = totalLife / creatureAmount;
         averageMaxLife = totalMaxLife / creatureAmount;
@@ -105,11 +131,118 @@ public class Statistics {
                 pregnancyRatio);
     }
 
-    public List<StatElement> getStatElements() {
-        return statElements;
+    public double getSampleInterval() {
+        return sampleInterval;
+    }
+
+    public void setSampleInterval(double sampleInterval) {
+        this.sampleInterval = sampleInterval;
+    }
+
+    public StatAccumulator getAccumulator() {
+        return accumulator;
+    }
+
+    public void setAccumulator(StatAccumulator accumulator) {
+        this.accumulator = accumulator;
+    }
+
+    public ConvergenceDetector getConvergenceDetector() {
+        return convergenceDetector;
+    }
+
+    public void setConvergenceDetector(ConvergenceDetector convergenceDetector) {
+        this.convergenceDetector = convergenceDetector;
+    }
+
+    public StatHistory.SampleConsumer getSampleConsumer() {
+        return sampleConsumer;
+    }
+
+    /**
+     * @param sampleConsumer receives every sample as it is taken, the value array is reused between samples
+     */
+    public void setSampleConsumer(StatHistory.SampleConsumer sampleConsumer) {
+        this.sampleConsumer = sampleConsumer;
+    }
+
+    public StatHistory getHistory() {
+        return history;
+    }
+
+    //Only the samples still kept in memory at full resolution
+    public StatColumns getRecentColumns() {
+        return history.getRecent();
     }
 
     public StatElement getTopStatElement() {
-        return statElements.get(statElements.size() - 1);
+        return history.getLatest();
+    }
+
+    /**
+     * Exports all samples of the run to a file on a background thread and keeps appending new samples
+     * until the export is stopped. A running export is stopped first.
+     * Files with the binary statistics extension are written in the binary format, all others as csv.
+     *
+     * @param file the export file
+     */
+    public void startExport(File file) throws IOException {
+        stopExport();
+
+        StatSampleWriter writer;
+        if (file.getName().toLowerCase().endsWith("." + BinaryStatisticsWriter.EXTENSION)) {
+            writer = new BinaryStatisticsWriter(file);
+        } else {
+            writer = new CsvStatisticsWriter(file, false);
+        }
+
+        exporter = new StatisticsExporter(writer);
+        exporter.exportHistory(history);
+    }
+
+    public void stopExport() {
+        StatisticsExporter exporter = this.exporter;
+
+        if (exporter != null) {
+            this.exporter = null;
+            exporter.close();
+        }
+    }
+
+    public boolean isExporting() {
+        return exporter != null;
+    }
+
+    /**
+     * Records a frame of the heatmap of the world on every sample, a heatmap is attached to the world if necessary.
+     * A running recording is stopped first.
+     *
+     * @param file the file the frames are written to
+     */
+    public void startHeatmapExport(File file) throws IOException {
+        stopHeatmapExport();
+
+        if (worldModel.getHeatmap() == null) {
+            worldModel.setHeatmap(new PopulationHeatmap(worldModel.getWidth(), worldModel.getHeight(), PopulationHeatmap.DEFAULT_CELL_SIZE));
+        }
+
+        heatmapRecorder = new HeatmapRecorder(file);
+    }
+
+    public void stopHeatmapExport() {
+        if (heatmapRecorder != null) {
+            heatmapRecorder.close();
+            heatmapRecorder = null;
+        }
+    }
+
+    public boolean isHeatmapExporting() {
+        return heatmapRecorder != null;
+    }
+
+    public void close() {
+        stopExport();
+        stopHeatmapExport();
+        history.close();
     }
 }
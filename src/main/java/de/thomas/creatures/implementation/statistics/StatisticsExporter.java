@@ -0,0 +1,107 @@
+package de.thomas.creatures.implementation.statistics;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The StatisticsExporter class exports the statistics of a run to a file on a background thread.
+ * It first writes the history recorded so far and then appends every new sample, so the file grows as the run
+ * progresses. Writes are batched, the file is flushed whenever no more samples are waiting.
+ */
+public class StatisticsExporter {
+    private final ExecutorService executor;
+    private final StatSampleWriter writer;
+    private final AtomicInteger pendingAmount = new AtomicInteger();
+
+    public StatisticsExporter(StatSampleWriter writer) {
+        this.writer = writer;
+        executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Statistics Export");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Exports the samples recorded so far. The spilled samples are read on the export thread,
+     * only the samples in memory are copied on the calling thread.
+     *
+     * @param history the history of the run
+     */
+    public void exportHistory(StatHistory history) {
+        long spilledAmount = history.flushSpill();
+        File spillFile = history.getSpillFile();
+        StatColumns recent = history.getRecent();
+
+        submit(() -> {
+            StatHistory.readSpilled(spillFile, spilledAmount, writer::write);
+            writer.writeAll(recent);
+        });
+    }
+
+    public void append(double time, StatElement element) {
+        submit(() -> writer.write(time, element));
+    }
+
+    private void submit(ExportTask task) {
+        if (executor.isShutdown()) {
+            return;
+        }
+
+        pendingAmount.incrementAndGet();
+        try {
+            executor.execute(() -> {
+                try {
+                    task.run();
+
+                    if (pendingAmount.decrementAndGet() == 0) {
+                        writer.flush();
+                    }
+                } catch (IOException e) {
+                    pendingAmount.decrementAndGet();
+                    e.printStackTrace();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            //The export was stopped by another thread in the meantime
+            pendingAmount.decrementAndGet();
+        }
+    }
+
+    /**
+     * Writes the remaining samples and closes the file.
+     */
+    public void close() {
+        if (executor.isShutdown()) {
+            return;
+        }
+
+        executor.execute(() -> {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        });
+        executor.shutdown();
+    }
+
+    /**
+     * Waits until all submitted samples are written, after close was called.
+     *
+     * @param timeoutMillis the maximum time to wait
+     * @return true if the export finished in time
+     */
+    public boolean awaitTermination(long timeoutMillis) throws InterruptedException {
+        return executor.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private interface ExportTask {
+        void run() throws IOException;
+    }
+}
@@ -0,0 +1,80 @@
+package de.thomas.creatures.implementation.statistics;
+
+import de.thomas.creatures.implementation.model.Creature;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * The TraitDistributions class keeps one {@link TraitSketch} per heritable trait of the population.
+ * It is updated on every birth and death, so the current distributions are available at every update.
+ */
+public class TraitDistributions {
+    public enum Trait {
+        SPEED, VISION_RANGE, MAX_LIFE, MAX_ENERGY, MATING_ENERGY_NEEDED, BREED_LENGTH, BREED_PROGRESS_SPEED;
+
+        public double getValue(Creature creature) {
+            switch (this) {
+                case SPEED:
+                    return creature.getSpeed();
+                case VISION_RANGE:
+                    return creature.getVisionRange();
+                case MAX_LIFE:
+                    return creature.getMaxLife();
+                case MAX_ENERGY:
+                    return creature.getMaxEnergy();
+                case MATING_ENERGY_NEEDED:
+                    return creature.getMatingEnergyNeeded();
+                case BREED_LENGTH:
+                    return creature.getBreedLength();
+                default:
+                    return creature.getBreedProgressSpeed();
+            }
+        }
+    }
+
+    private final Map<Trait, TraitSketch> sketches = new EnumMap<>(Trait.class);
+
+    public TraitDistributions() {
+        for (Trait trait : Trait.values()) {
+            sketches.put(trait, new TraitSketch());
+        }
+    }
+
+    public void add(Creature creature) {
+        for (Map.Entry<Trait, TraitSketch> entry : sketches.entrySet()) {
+            entry.getValue().add(entry.getKey().getValue(creature));
+        }
+    }
+
+    public void remove(Creature creature) {
+        for (Map.Entry<Trait, TraitSketch> entry : sketches.entrySet()) {
+            entry.getValue().remove(entry.getKey().getValue(creature));
+        }
+    }
+
+    /**
+     * Adds the distributions of another population, for example of a parallel run.
+     *
+     * @param other the distributions to merge into this one
+     */
+    public void merge(TraitDistributions other) {
+        for (Map.Entry<Trait, TraitSketch> entry : sketches.entrySet()) {
+            entry.getValue().merge(other.getSketch(entry.getKey()));
+        }
+    }
+
+    public TraitSketch getSketch(Trait trait) {
+        return sketches.get(trait);
+    }
+
+    public double getQuantile(Trait trait, double quantile) {
+        return sketches.get(trait).getQuantile(quantile);
+    }
+
+    public void clear() {
+        for (TraitSketch sketch : sketches.values()) {
+            sketch.clear();
+        }
+    }
+}
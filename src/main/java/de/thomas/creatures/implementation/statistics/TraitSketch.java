@@ -0,0 +1,198 @@
+package de.thomas.creatures.implementation.statistics;
+
+/**
+ * The TraitSketch class tracks the distribution of a positive trait value with bounded memory.
+ * Values are counted in logarithmic buckets, so every quantile is answered within a fixed relative error
+ * (DDSketch). Unlike rank based sketches, values can also be removed again, which is needed when creatures die.
+ * Sketches with the same relative accuracy can be merged, for example across parallel runs.
+ * If more than maxBins buckets would be needed, the lowest buckets are collapsed into one.
+ */
+public class TraitSketch {
+    public static final double DEFAULT_RELATIVE_ACCURACY = 0.01;
+    public static final int DEFAULT_MAX_BINS = 2048;
+
+    private final double relativeAccuracy;
+    private final double gamma;
+    private final double logGamma;
+    private final int maxBins;
+
+    private long[] counts = new long[0];
+    private int minKey;
+    private int collapseKey = Integer.MIN_VALUE;
+    private long zeroCount;
+    private long count;
+
+    public TraitSketch() {
+        this(DEFAULT_RELATIVE_ACCURACY, DEFAULT_MAX_BINS);
+    }
+
+    public TraitSketch(double relativeAccuracy, int maxBins) {
+        this.relativeAccuracy = relativeAccuracy;
+        this.maxBins = maxBins;
+        gamma = (1 + relativeAccuracy) / (1 - relativeAccuracy);
+        logGamma = Math.log(gamma);
+    }
+
+    public void add(double value) {
+        adjust(value, 1);
+    }
+
+    public void remove(double value) {
+        adjust(value, -1);
+    }
+
+    /**
+     * Adds all values of another sketch to this one.
+     *
+     * @param other a sketch with the same relative accuracy
+     */
+    public void merge(TraitSketch other) {
+        if (other.relativeAccuracy != relativeAccuracy) {
+            throw new IllegalArgumentException("Sketches with different accuracy cannot be merged");
+        }
+
+        zeroCount += other.zeroCount;
+        count += other.zeroCount;
+
+        for (int i = 0; i < other.counts.length; i++) {
+            if (other.counts[i] != 0) {
+                adjustKey(other.minKey + i, other.counts[i]);
+            }
+        }
+    }
+
+    /**
+     * Returns the value at the given quantile.
+     *
+     * @param quantile the quantile, between 0 and 1
+     * @return the approximate value, or NaN if the sketch is empty
+     */
+    public double getQuantile(double quantile) {
+        if (count <= 0) {
+            return Double.NaN;
+        }
+
+        long rank = (long) (quantile * (count - 1));
+
+        if (rank < zeroCount) {
+            return 0;
+        }
+
+        long seen = zeroCount;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+
+            if (seen > rank) {
+                return getBucketValue(minKey + i);
+            }
+        }
+
+        return getBucketValue(minKey + counts.length - 1);
+    }
+
+    /**
+     * Distributes the counted values into fixed bins. Every bucket is attributed to the bin of its representative value.
+     * Values below min are counted in the first bin, values at or above max in the last one.
+     *
+     * @param min     the lower bound of the first bin
+     * @param max     the upper bound of the last bin
+     * @param binAmount the number of bins
+     * @return the count per bin
+     */
+    public long[] getHistogram(double min, double max, int binAmount) {
+        long[] bins = new long[binAmount];
+        double binWidth = (max - min) / binAmount;
+
+        bins[binIndex(0, min, binWidth, binAmount)] += zeroCount;
+
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] != 0) {
+                bins[binIndex(getBucketValue(minKey + i), min, binWidth, binAmount)] += counts[i];
+            }
+        }
+
+        return bins;
+    }
+
+    private static int binIndex(double value, double min, double binWidth, int binAmount) {
+        return Math.min(Math.max((int) ((value - min) / binWidth), 0), binAmount - 1);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getRelativeAccuracy() {
+        return relativeAccuracy;
+    }
+
+    public void clear() {
+        counts = new long[0];
+        collapseKey = Integer.MIN_VALUE;
+        zeroCount = 0;
+        count = 0;
+    }
+
+    private double getBucketValue(int key) {
+        return 2 * Math.pow(gamma, key) / (gamma + 1);
+    }
+
+    private void adjust(double value, long delta) {
+        if (value <= Double.MIN_NORMAL) {
+            zeroCount += delta;
+            count += delta;
+        } else {
+            adjustKey((int) Math.ceil(Math.log(value) / logGamma), delta);
+        }
+    }
+
+    private void adjustKey(int key, long delta) {
+        key = Math.max(key, collapseKey);
+        count += delta;
+
+        if (counts.length == 0) {
+            minKey = key;
+            counts = new long[1];
+        } else if (key < minKey) {
+            int maxKey = minKey + counts.length - 1;
+            int newMinKey = Math.max(key, maxKey - maxBins + 1);
+            counts = resize(counts, minKey, newMinKey, maxKey);
+            minKey = newMinKey;
+            key = Math.max(key, minKey);
+        } else if (key >= minKey + counts.length) {
+            int newMinKey = Math.max(minKey, key - maxBins + 1);
+
+            if (newMinKey > minKey) {
+                //Collapse the lowest buckets into the new lowest one
+                long collapsed = 0;
+                for (int i = 0; i < Math.min(newMinKey - minKey, counts.length); i++) {
+                    collapsed += counts[i];
+                }
+
+                counts = resize(counts, minKey, newMinKey, key);
+                counts[0] += collapsed;
+                minKey = newMinKey;
+                collapseKey = newMinKey;
+            } else {
+                counts = resize(counts, minKey, minKey, key);
+            }
+        }
+
+        counts[key - minKey] += delta;
+    }
+
+    private static long[] resize(long[] counts, int oldMinKey, int newMinKey, int newMaxKey) {
+        long[] resized = new long[newMaxKey - newMinKey + 1];
+
+        for (int i = 0; i < counts.length; i++) {
+            int index = oldMinKey + i - newMinKey;
+
+            if (index >= 0 && index < resized.length) {
+                resized[index] = counts[i];
+            }
+        }
+
+        return resized;
+    }
+
+}
@@ -0,0 +1,427 @@
+package de.thomas.creatures.implementation.statistics;
+
+import de.thomas.creatures.implementation.model.Creature.Gender;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * The TrajectoryReader class reads a file written by a TrajectoryRecorder tick by tick, or from any point in time.
+ * Opening the file only reads the block headers. A block is inflated from a memory mapping of its compressed bytes
+ * when the first of its ticks is read. A block cut off at the end of the file, for example by a crash, is ignored.
+ */
+public class TrajectoryReader implements Closeable {
+    private final FileChannel channel;
+    private final Inflater inflater = new Inflater();
+    private final int positionScale;
+    private final double width;
+    private final double height;
+
+    private int blockAmount;
+    private long[] blockOffsets = new long[16];
+    private double[] blockStartTimes = new double[16];
+    private double[] blockEndTimes = new double[16];
+    private int[] blockTicks = new int[16];
+    private int[] rawLengths = new int[16];
+    private int[] compressedLengths = new int[16];
+
+    private byte[] block = new byte[0];
+    private int position;
+    private int blockIndex = -1;
+    private int ticksLeft;
+    private boolean keyframe;
+
+    private double time;
+    private int size;
+    private long[] ids = new long[0];
+    private int[] x = new int[0];
+    private int[] y = new int[0];
+    private byte[] genders = new byte[0];
+    private int deathAmount;
+    private long[] deathIds = new long[0];
+    private int birthAmount;
+    private long[] births = new long[0];
+    private int[] birthX = new int[0];
+    private int[] birthY = new int[0];
+    private int eatAmount;
+    private long[] eatIds = new long[0];
+    private int conceptionAmount;
+    private long[] conceptions = new long[0];
+
+    public TrajectoryReader(File file) throws IOException {
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+
+        ByteBuffer header = ByteBuffer.allocate(TrajectoryRecorder.HEADER_LENGTH);
+        readFully(header, 0);
+        if (header.getInt() != TrajectoryRecorder.MAGIC) {
+            channel.close();
+            throw new IOException("Not a trajectory file: " + file);
+        }
+        if (header.getInt() != TrajectoryRecorder.VERSION) {
+            channel.close();
+            throw new IOException("Unsupported trajectory file version: " + file);
+        }
+        positionScale = header.getInt();
+        header.getInt();
+        width = header.getDouble();
+        height = header.getDouble();
+
+        readBlockHeaders();
+    }
+
+    private void readBlockHeaders() throws IOException {
+        long offset = TrajectoryRecorder.HEADER_LENGTH;
+        long fileSize = channel.size();
+        ByteBuffer header = ByteBuffer.allocate(TrajectoryRecorder.BLOCK_HEADER_LENGTH);
+
+        while (offset + TrajectoryRecorder.BLOCK_HEADER_LENGTH <= fileSize) {
+            header.clear();
+            readFully(header, offset);
+
+            if (header.getInt() != TrajectoryRecorder.BLOCK_MAGIC) {
+                throw new IOException("Broken trajectory file at " + offset);
+            }
+
+            double startTime = header.getDouble();
+            double endTime = header.getDouble();
+            int tickAmount = header.getInt();
+            int rawLength = header.getInt();
+            int compressedLength = header.getInt();
+
+            if (offset + TrajectoryRecorder.BLOCK_HEADER_LENGTH + compressedLength > fileSize) {
+                break;
+            }
+
+            if (blockAmount == blockOffsets.length) {
+                int capacity = blockAmount * 2;
+                blockOffsets = Arrays.copyOf(blockOffsets, capacity);
+                blockStartTimes = Arrays.copyOf(blockStartTimes, capacity);
+                blockEndTimes = Arrays.copyOf(blockEndTimes, capacity);
+                blockTicks = Arrays.copyOf(blockTicks, capacity);
+                rawLengths = Arrays.copyOf(rawLengths, capacity);
+                compressedLengths = Arrays.copyOf(compressedLengths, capacity);
+            }
+
+            blockOffsets[blockAmount] = offset;
+            blockStartTimes[blockAmount] = startTime;
+            blockEndTimes[blockAmount] = endTime;
+            blockTicks[blockAmount] = tickAmount;
+            rawLengths[blockAmount] = rawLength;
+            compressedLengths[blockAmount] = compressedLength;
+            blockAmount++;
+
+            offset += TrajectoryRecorder.BLOCK_HEADER_LENGTH + compressedLength;
+        }
+    }
+
+    private void readFully(ByteBuffer buffer, long offset) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, offset + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of trajectory file");
+            }
+        }
+        buffer.flip();
+    }
+
+    /**
+     * Reads the next tick.
+     *
+     * @return false if there are no more ticks
+     */
+    public boolean nextTick() throws IOException {
+        if (ticksLeft == 0) {
+            if (blockIndex + 1 >= blockAmount) {
+                return false;
+            }
+            loadBlock(blockIndex + 1);
+        }
+
+        readTick();
+        ticksLeft--;
+        return true;
+    }
+
+    /**
+     * Moves to the first tick at or after the given time. Only the block holding the time is inflated, starting
+     * at its keyframe, so seeking takes the same time anywhere in the recording.
+     *
+     * @param time the time to move to
+     * @return false if the recording ends before the time, the last tick is current then
+     */
+    public boolean seek(double time) throws IOException {
+        if (blockAmount == 0) {
+            return false;
+        }
+
+        //The last block starting at or before the time
+        int low = 0;
+        int high = blockAmount - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+
+            if (blockStartTimes[middle] <= time) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+
+        loadBlock(low);
+        while (nextTick()) {
+            if (this.time >= time) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private void loadBlock(int index) throws IOException {
+        MappedByteBuffer compressed = channel.map(FileChannel.MapMode.READ_ONLY,
+                blockOffsets[index] + TrajectoryRecorder.BLOCK_HEADER_LENGTH, compressedLengths[index]);
+
+        if (block.length < rawLengths[index]) {
+            block = new byte[rawLengths[index]];
+        }
+
+        inflater.setInput(compressed);
+        try {
+            int length = 0;
+            while (length < rawLengths[index] && !inflater.finished()) {
+                length += inflater.inflate(block, length, rawLengths[index] - length);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Broken trajectory block " + index, e);
+        } finally {
+            inflater.reset();
+        }
+
+        blockIndex = index;
+        position = 0;
+        ticksLeft = blockTicks[index];
+        keyframe = true;
+    }
+
+    private void readTick() {
+        time = Double.longBitsToDouble(getLong());
+
+        deathAmount = (int) getVarLong();
+        deathIds = ensureCapacity(deathIds, deathAmount);
+        long lastId = 0;
+        for (int k = 0; k < deathAmount; k++) {
+            lastId += getVarLong();
+            deathIds[k] = lastId;
+        }
+
+        birthAmount = (int) getVarLong();
+        births = ensureCapacity(births, 4 * birthAmount);
+        if (birthX.length < birthAmount) {
+            birthX = new int[Math.max(birthAmount, birthX.length * 2)];
+            birthY = new int[birthX.length];
+        }
+        lastId = 0;
+        for (int k = 0; k < birthAmount; k++) {
+            lastId += getVarLong();
+            births[4 * k] = lastId;
+            births[4 * k + 1] = block[position++];
+            births[4 * k + 2] = getVarLong();
+            births[4 * k + 3] = getVarLong();
+            birthX[k] = (int) getVarLong();
+            birthY[k] = (int) getVarLong();
+        }
+
+        if (keyframe) {
+            size = (int) getVarLong();
+            ensureCreatureCapacity(size);
+            lastId = 0;
+
+            for (int i = 0; i < size; i++) {
+                lastId += getVarLong();
+                ids[i] = lastId;
+                genders[i] = block[position++];
+                x[i] = (int) getVarLong();
+                y[i] = (int) getVarLong();
+            }
+            keyframe = false;
+        } else {
+            //Survivors keep their order, the new born creatures follow at the end
+            int kept = 0;
+            int death = 0;
+
+            for (int i = 0; i < size; i++) {
+                if (death < deathAmount && ids[i] == deathIds[death]) {
+                    death++;
+                } else {
+                    ids[kept] = ids[i];
+                    genders[kept] = genders[i];
+                    x[kept] = x[i] + (int) getVarLong();
+                    y[kept] = y[i] + (int) getVarLong();
+                    kept++;
+                }
+            }
+
+            size = kept + birthAmount;
+            ensureCreatureCapacity(size);
+            for (int k = 0; k < birthAmount; k++) {
+                ids[kept + k] = births[4 * k];
+                genders[kept + k] = (byte) births[4 * k + 1];
+                x[kept + k] = birthX[k];
+                y[kept + k] = birthY[k];
+            }
+        }
+
+        eatAmount = (int) getVarLong();
+        eatIds = ensureCapacity(eatIds, eatAmount);
+        lastId = 0;
+        for (int k = 0; k < eatAmount; k++) {
+            lastId += getVarLong();
+            eatIds[k] = lastId;
+        }
+
+        conceptionAmount = (int) getVarLong();
+        conceptions = ensureCapacity(conceptions, 2 * conceptionAmount);
+        for (int k = 0; k < 2 * conceptionAmount; k++) {
+            conceptions[k] = getVarLong();
+        }
+    }
+
+    private long getLong() {
+        long value = 0;
+
+        for (int i = 0; i < Long.BYTES; i++) {
+            value = (value << 8) | (block[position++] & 0xFF);
+        }
+
+        return value;
+    }
+
+    private long getVarLong() {
+        long zigzag = 0;
+        int shift = 0;
+        byte b;
+
+        do {
+            b = block[position++];
+            zigzag |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+
+        return (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+
+    private void ensureCreatureCapacity(int amount) {
+        if (ids.length < amount) {
+            int capacity = Math.max(amount, ids.length * 2);
+            ids = Arrays.copyOf(ids, capacity);
+            x = Arrays.copyOf(x, capacity);
+            y = Arrays.copyOf(y, capacity);
+            genders = Arrays.copyOf(genders, capacity);
+        }
+    }
+
+    private static long[] ensureCapacity(long[] values, int amount) {
+        return values.length < amount ? new long[Math.max(amount, values.length * 2)] : values;
+    }
+
+    public double getWidth() {
+        return width;
+    }
+
+    public double getHeight() {
+        return height;
+    }
+
+    public int getBlockAmount() {
+        return blockAmount;
+    }
+
+    public double getStartTime() {
+        return blockAmount > 0 ? blockStartTimes[0] : 0;
+    }
+
+    public double getEndTime() {
+        return blockAmount > 0 ? blockEndTimes[blockAmount - 1] : 0;
+    }
+
+    public double getTime() {
+        return time;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long getId(int index) {
+        return ids[index];
+    }
+
+    public double getX(int index) {
+        return x[index] / (double) positionScale;
+    }
+
+    public double getY(int index) {
+        return y[index] / (double) positionScale;
+    }
+
+    public Gender getGender(int index) {
+        return Gender.values()[genders[index]];
+    }
+
+    public int getDeathAmount() {
+        return deathAmount;
+    }
+
+    public long getDeathId(int index) {
+        return deathIds[index];
+    }
+
+    public int getBirthAmount() {
+        return birthAmount;
+    }
+
+    public long getBirthId(int index) {
+        return births[4 * index];
+    }
+
+    public long getBirthFatherId(int index) {
+        return births[4 * index + 2];
+    }
+
+    public long getBirthMotherId(int index) {
+        return births[4 * index + 3];
+    }
+
+    public int getEatAmount() {
+        return eatAmount;
+    }
+
+    public long getEatId(int index) {
+        return eatIds[index];
+    }
+
+    public int getConceptionAmount() {
+        return conceptionAmount;
+    }
+
+    public long getConceptionMotherId(int index) {
+        return conceptions[2 * index];
+    }
+
+    public long getConceptionFatherId(int index) {
+        return conceptions[2 * index + 1];
+    }
+
+    @Override
+    public void close() throws IOException {
+        inflater.end();
+        channel.close();
+    }
+}
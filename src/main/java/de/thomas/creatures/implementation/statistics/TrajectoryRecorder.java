@@ -0,0 +1,512 @@
+package de.thomas.creatures.implementation.statistics;
+
+import de.thomas.creatures.implementation.model.Creature;
+import de.thomas.creatures.implementation.model.WorldModel;
+
+import java.awt.geom.Point2D;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+
+/**
+ * The TrajectoryRecorder class records the positions of all creatures after every world update, together with births,
+ * deaths, food intake and conceptions, to a compressed file.
+ * <p>
+ * On the simulation thread, an update only copies id, gender and quantized position of every creature into a tick
+ * frame. Encoding and compression run on a background thread. The frames come from a fixed pool, which bounds the
+ * amount of ticks waiting for the writer. When the pool is empty, the simulation waits for the writer; the waiting
+ * is counted and can be queried with getBlockedTicks() and getBlockedNanos().
+ * <p>
+ * The file starts with a header (magic, version, position scale, world width and height) followed by blocks of
+ * BLOCK_TICKS ticks, a block is ended earlier once it holds MAX_BLOCK_LENGTH bytes. Every block is compressed on its own with a Deflater and starts with a keyframe holding the
+ * absolute positions of all creatures, so reading can start at any block. A block header holds block magic,
+ * start time, end time, tick amount, uncompressed length and compressed length. Within a block, a tick holds:
+ * <ul>
+ *     <li>the time</li>
+ *     <li>the ids of the creatures which died since the tick before, in the order of the world</li>
+ *     <li>the born creatures with id, gender, father id, mother id and position</li>
+ *     <li>in a keyframe, id, gender and position of all creatures, otherwise the position change of every surviving creature</li>
+ *     <li>the ids of the creatures which ate and the mother and father ids of the conceptions</li>
+ * </ul>
+ * Positions are stored in units of 1 / POSITION_SCALE. All integers are stored as zigzag varints, ids as difference
+ * to the id before.
+ */
+public class TrajectoryRecorder {
+    public static final int MAGIC = 0x43525452;
+    public static final int BLOCK_MAGIC = 0x43524253;
+    public static final int VERSION = 1;
+    public static final String EXTENSION = "ctraj";
+    public static final int POSITION_SCALE = 16;
+    public static final int BLOCK_TICKS = 256;
+    public static final int HEADER_LENGTH = 4 * Integer.BYTES + 2 * Double.BYTES;
+    public static final int BLOCK_HEADER_LENGTH = 4 * Integer.BYTES + 2 * Double.BYTES;
+    public static final int QUEUE_CAPACITY = 16;
+    //Uncompressed bytes after which a block is written before it holds BLOCK_TICKS ticks
+    public static final int MAX_BLOCK_LENGTH = 1 << 26;
+    //The largest array the virtual machine can allocate
+    private static final int MAX_ARRAY_LENGTH = Integer.MAX_VALUE - 8;
+
+    private final FileChannel channel;
+    private final ExecutorService executor;
+    private final BlockingQueue<TickFrame> freeFrames = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private TickFrame current;
+    private long blockedTicks;
+    private long blockedNanos;
+
+    //Only used on the writer thread
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private byte[] block = new byte[1 << 16];
+    private int blockLength;
+    private byte[] compressed = new byte[1 << 16];
+    private int blockTicks;
+    private double blockStartTime;
+    private double lastTickTime;
+    private long[] previousIds = new long[0];
+    private int[] previousX = new int[0];
+    private int[] previousY = new int[0];
+    private int previousSize;
+
+    /**
+     * Constructs a TrajectoryRecorder writing to the given file.
+     *
+     * @param file  the trajectory file, which is overwritten
+     * @param world the recorded world
+     */
+    public TrajectoryRecorder(File file, WorldModel world) throws IOException {
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+        header.putInt(MAGIC);
+        header.putInt(VERSION);
+        header.putInt(POSITION_SCALE);
+        header.putInt(BLOCK_TICKS);
+        header.putDouble(world.getWidth());
+        header.putDouble(world.getHeight());
+        header.flip();
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+
+        for (int i = 0; i < QUEUE_CAPACITY; i++) {
+            freeFrames.add(new TickFrame());
+        }
+        current = freeFrames.poll();
+
+        executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Trajectory Recorder");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Records that a creature ate during the current update.
+     *
+     * @param creature the creature
+     */
+    public void eat(Creature creature) {
+        current.eatIds = append(current.eatIds, current.eatAmount++, creature.getId());
+    }
+
+    /**
+     * Records a conception during the current update.
+     *
+     * @param mother the mother
+     * @param father the father
+     */
+    public void conceive(Creature mother, Creature father) {
+        current.conceptions = append(current.conceptions, 2 * current.conceptionAmount, mother.getId());
+        current.conceptions = append(current.conceptions, 2 * current.conceptionAmount + 1, father.getId());
+        current.conceptionAmount++;
+    }
+
+    /**
+     * Records the parents of a creature born during the current update. Creatures appearing without it, for example
+     * creatures created by the user, are recorded without parents.
+     *
+     * @param creature the new born creature, already added to the world
+     */
+    public void birth(Creature creature) {
+        current.births = append(current.births, 3 * current.birthAmount, creature.getId());
+        current.births = append(current.births, 3 * current.birthAmount + 1, creature.getFatherId());
+        current.births = append(current.births, 3 * current.birthAmount + 2, creature.getMotherId());
+        current.birthAmount++;
+    }
+
+    /**
+     * Records the creatures of the world after an update and hands the tick to the writer.
+     * Must be called on the simulation thread.
+     *
+     * @param world the world
+     */
+    public void recordTick(WorldModel world) {
+        if (executor.isShutdown()) {
+            return;
+        }
+
+        List<Creature> creatures = world.getCreatures();
+        TickFrame frame = current;
+        frame.time = world.getTime();
+        frame.ensureCapacity(creatures.size());
+        frame.size = creatures.size();
+
+        for (int i = 0; i < frame.size; i++) {
+            Creature creature = creatures.get(i);
+            Point2D.Double position = creature.getPosition();
+
+            frame.ids[i] = creature.getId();
+            frame.x[i] = quantize(position.x);
+            frame.y[i] = quantize(position.y);
+            frame.genders[i] = (byte) creature.getGender().ordinal();
+        }
+
+        executor.execute(() -> {
+            try {
+                write(frame);
+            } catch (IOException | RuntimeException e) {
+                e.printStackTrace();
+                discardBlock();
+            } finally {
+                frame.clearEvents();
+                freeFrames.offer(frame);
+            }
+        });
+
+        current = nextFrame();
+    }
+
+    private TickFrame nextFrame() {
+        TickFrame frame = freeFrames.poll();
+
+        if (frame == null) {
+            long start = System.nanoTime();
+
+            try {
+                frame = freeFrames.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                frame = new TickFrame();
+            }
+
+            blockedTicks++;
+            blockedNanos += System.nanoTime() - start;
+        }
+
+        return frame;
+    }
+
+    /**
+     * Returns the amount of updates which had to wait for the writer, because QUEUE_CAPACITY ticks were pending.
+     *
+     * @return the amount of blocked updates
+     */
+    public long getBlockedTicks() {
+        return blockedTicks;
+    }
+
+    public long getBlockedNanos() {
+        return blockedNanos;
+    }
+
+    /**
+     * Returns the amount of ticks recorded but not yet encoded by the writer.
+     *
+     * @return the amount of pending ticks
+     */
+    public int getPendingTicks() {
+        return QUEUE_CAPACITY - 1 - freeFrames.size();
+    }
+
+    private void write(TickFrame frame) throws IOException {
+        long needed = getMaxTickLength(frame);
+
+        if (blockTicks > 0 && blockLength + needed > MAX_BLOCK_LENGTH) {
+            writeBlock(lastTickTime);
+        }
+
+        boolean keyframe = blockTicks == 0;
+        if (keyframe) {
+            blockStartTime = frame.time;
+        }
+
+        ensureBlockCapacity(needed);
+        putDouble(frame.time);
+
+        //Creatures keep their order, so survivors are matched in one pass and new creatures follow at the end
+        int survivorAmount = 0;
+        int deathAmount = 0;
+        int deathCountPosition = blockLength;
+        blockLength += 5;
+        long lastId = 0;
+
+        for (int i = 0; i < previousSize; i++) {
+            if (survivorAmount < frame.size && previousIds[i] == frame.ids[survivorAmount]) {
+                survivorAmount++;
+            } else {
+                putVarLong(previousIds[i] - lastId);
+                lastId = previousIds[i];
+                deathAmount++;
+            }
+        }
+        putFixedVarInt(deathCountPosition, deathAmount);
+
+        //Births are recorded in the order the new born are added and ids grow with every creature,
+        //so the parents are matched in the same pass
+        putVarLong(frame.size - survivorAmount);
+        lastId = 0;
+        int birth = 0;
+        for (int i = survivorAmount; i < frame.size; i++) {
+            long fatherId = -1;
+            long motherId = -1;
+
+            while (birth < frame.birthAmount && frame.births[3 * birth] < frame.ids[i]) {
+                birth++;
+            }
+            if (birth < frame.birthAmount && frame.births[3 * birth] == frame.ids[i]) {
+                fatherId = frame.births[3 * birth + 1];
+                motherId = frame.births[3 * birth + 2];
+                birth++;
+            }
+
+            putVarLong(frame.ids[i] - lastId);
+            lastId = frame.ids[i];
+            block[blockLength++] = frame.genders[i];
+            putVarLong(fatherId);
+            putVarLong(motherId);
+            putVarLong(frame.x[i]);
+            putVarLong(frame.y[i]);
+        }
+
+        if (keyframe) {
+            putVarLong(frame.size);
+            lastId = 0;
+
+            for (int i = 0; i < frame.size; i++) {
+                putVarLong(frame.ids[i] - lastId);
+                lastId = frame.ids[i];
+                block[blockLength++] = frame.genders[i];
+                putVarLong(frame.x[i]);
+                putVarLong(frame.y[i]);
+            }
+        } else {
+            int previous = 0;
+
+            for (int i = 0; i < survivorAmount; i++) {
+                while (previousIds[previous] != frame.ids[i]) {
+                    previous++;
+                }
+
+                putVarLong(frame.x[i] - previousX[previous]);
+                putVarLong(frame.y[i] - previousY[previous]);
+                previous++;
+            }
+        }
+
+        putVarLong(frame.eatAmount);
+        lastId = 0;
+        for (int k = 0; k < frame.eatAmount; k++) {
+            putVarLong(frame.eatIds[k] - lastId);
+            lastId = frame.eatIds[k];
+        }
+
+        putVarLong(frame.conceptionAmount);
+        for (int k = 0; k < 2 * frame.conceptionAmount; k++) {
+            putVarLong(frame.conceptions[k]);
+        }
+
+        if (previousIds.length < frame.size) {
+            previousIds = new long[frame.ids.length];
+            previousX = new int[frame.ids.length];
+            previousY = new int[frame.ids.length];
+        }
+        System.arraycopy(frame.ids, 0, previousIds, 0, frame.size);
+        System.arraycopy(frame.x, 0, previousX, 0, frame.size);
+        System.arraycopy(frame.y, 0, previousY, 0, frame.size);
+        previousSize = frame.size;
+
+        lastTickTime = frame.time;
+        blockTicks++;
+        if (blockTicks == BLOCK_TICKS) {
+            writeBlock(frame.time);
+        }
+    }
+
+    private void writeBlock(double endTime) throws IOException {
+        deflater.setInput(block, 0, blockLength);
+        deflater.finish();
+
+        int compressedLength = 0;
+        while (!deflater.finished()) {
+            if (compressedLength == compressed.length) {
+                if (compressed.length == MAX_ARRAY_LENGTH) {
+                    throw new IOException("Trajectory block does not compress into " + MAX_ARRAY_LENGTH + " bytes");
+                }
+                compressed = Arrays.copyOf(compressed, (int) Math.min(compressed.length * 2L, MAX_ARRAY_LENGTH));
+            }
+            compressedLength += deflater.deflate(compressed, compressedLength, compressed.length - compressedLength);
+        }
+        deflater.reset();
+
+        ByteBuffer header = ByteBuffer.allocate(BLOCK_HEADER_LENGTH);
+        header.putInt(BLOCK_MAGIC);
+        header.putDouble(blockStartTime);
+        header.putDouble(endTime);
+        header.putInt(blockTicks);
+        header.putInt(blockLength);
+        header.putInt(compressedLength);
+        header.flip();
+
+        ByteBuffer[] buffers = {header, ByteBuffer.wrap(compressed, 0, compressedLength)};
+        while (buffers[1].hasRemaining()) {
+            channel.write(buffers);
+        }
+
+        blockLength = 0;
+        blockTicks = 0;
+    }
+
+    /**
+     * Drops the ticks of the current block after a failed write, which may have left a part of a tick in it.
+     * The next tick starts a new block with a keyframe.
+     */
+    private void discardBlock() {
+        deflater.reset();
+        blockLength = 0;
+        blockTicks = 0;
+    }
+
+    //Upper bound of the bytes of one tick, a varint takes up to 10 bytes
+    private long getMaxTickLength(TickFrame frame) {
+        return Double.BYTES + 5 + 10L * (previousSize + 3 + 3L * frame.eatAmount + 2L * frame.conceptionAmount)
+                + 90L * frame.size;
+    }
+
+    private void ensureBlockCapacity(long needed) throws IOException {
+        long required = blockLength + needed;
+
+        if (required > MAX_ARRAY_LENGTH) {
+            throw new IOException("Tick of " + needed + " bytes does not fit into a trajectory block");
+        }
+
+        if (required > block.length) {
+            block = Arrays.copyOf(block, (int) Math.min(Math.max(block.length * 2L, required), MAX_ARRAY_LENGTH));
+        }
+    }
+
+    private void putDouble(double value) {
+        long bits = Double.doubleToRawLongBits(value);
+
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            block[blockLength++] = (byte) (bits >>> shift);
+        }
+    }
+
+    private void putVarLong(long value) {
+        long zigzag = (value << 1) ^ (value >> 63);
+
+        while ((zigzag & ~0x7FL) != 0) {
+            block[blockLength++] = (byte) ((zigzag & 0x7F) | 0x80);
+            zigzag >>>= 7;
+        }
+        block[blockLength++] = (byte) zigzag;
+    }
+
+    /**
+     * Writes a count into 5 reserved bytes, so it can be filled in after the counted values.
+     */
+    private void putFixedVarInt(int position, int value) {
+        long zigzag = ((long) value << 1) ^ (value >> 31);
+
+        for (int i = 0; i < 4; i++) {
+            block[position + i] = (byte) ((zigzag & 0x7F) | 0x80);
+            zigzag >>>= 7;
+        }
+        block[position + 4] = (byte) zigzag;
+    }
+
+    /**
+     * Writes the ticks still waiting and closes the file.
+     */
+    public void close() {
+        if (executor.isShutdown()) {
+            return;
+        }
+
+        executor.execute(() -> {
+            try {
+                if (blockTicks > 0) {
+                    writeBlock(lastTickTime);
+                }
+                channel.close();
+            } catch (IOException | RuntimeException e) {
+                e.printStackTrace();
+            } finally {
+                deflater.end();
+            }
+        });
+        executor.shutdown();
+    }
+
+    /**
+     * Waits until the file is closed.
+     *
+     * @param timeout the maximum time to wait in milliseconds
+     * @return true if the file was closed in time
+     */
+    public boolean awaitTermination(long timeout) throws InterruptedException {
+        return executor.awaitTermination(timeout, TimeUnit.MILLISECONDS);
+    }
+
+    public static int quantize(double position) {
+        return (int) Math.round(position * POSITION_SCALE);
+    }
+
+    private static long[] append(long[] values, int index, long value) {
+        if (index == values.length) {
+            values = Arrays.copyOf(values, Math.max(16, values.length * 2));
+        }
+        values[index] = value;
+        return values;
+    }
+
+    private static class TickFrame {
+        private double time;
+        private int size;
+        private long[] ids = new long[0];
+        private int[] x = new int[0];
+        private int[] y = new int[0];
+        private byte[] genders = new byte[0];
+        private long[] eatIds = new long[0];
+        private int eatAmount;
+        private long[] conceptions = new long[0];
+        private int conceptionAmount;
+        private long[] births = new long[0];
+        private int birthAmount;
+
+        private void ensureCapacity(int amount) {
+            if (ids.length < amount) {
+                int capacity = Math.max(amount, ids.length * 2);
+                ids = new long[capacity];
+                x = new int[capacity];
+                y = new int[capacity];
+                genders = new byte[capacity];
+            }
+        }
+
+        private void clearEvents() {
+            eatAmount = 0;
+            conceptionAmount = 0;
+            birthAmount = 0;
+        }
+    }
+}
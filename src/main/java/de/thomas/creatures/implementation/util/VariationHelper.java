@@ -1,10 +1,10 @@
 package de.thomas.creatures.implementation.util;
 
 public class VariationHelper {
-    public static double mutationFactor(double mutationRate) {
-        double mutationDelta = Math.random() * mutationRate;
+    public static double mutationFactor(double mutationRate, WorldRandom random) {
+        double mutationDelta = random.nextDouble() * mutationRate;
 
-        if (Math.random() > 0.5) {
+        if (random.nextDouble() > 0.5) {
             return 1 + mutationDelta;
         } else {
             return 1 - mutationDelta;
@@ -0,0 +1,37 @@
+package de.thomas.creatures.implementation.util;
+
+/**
+ * The WorldRandom class is the random number generator of a world (SplitMix64).
+ * Unlike Math.random, its whole state is a single long, so it can be saved with the world and restored,
+ * and worlds started from the same seed draw the same numbers.
+ * It is not thread safe and only used by the world update.
+ */
+public class WorldRandom {
+    private long state;
+
+    public WorldRandom(long seed) {
+        state = seed;
+    }
+
+    public long nextLong() {
+        long z = (state += 0x9E3779B97F4A7C15L);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * @return a value between 0 (inclusive) and 1 (exclusive), like Math.random
+     */
+    public double nextDouble() {
+        return (nextLong() >>> 11) * 0x1.0p-53;
+    }
+
+    public long getState() {
+        return state;
+    }
+
+    public void setState(long state) {
+        this.state = state;
+    }
+}
@@ -1,18 +1,15 @@
 package de.thomas.creatures.implementation.view;
 
-import de.thomas.creatures.implementation.ai.BasicAI;
 import de.thomas.creatures.implementation.controller.WorldController;
-import de.thomas.creatures.implementation.model.Creature;
-import de.thomas.creatures.implementation.model.Creature.Gender;
+import de.thomas.creatures.implementation.model.CreatureTemplate;
+import de.thomas.creatures.implementation.statistics.TraitDistributions.Trait;
 import de.thomas.creatures.implementation.util.AssertionException;
-import de.thomas.creatures.implementation.util.AssertionHelper;
-import de.thomas.creatures.implementation.util.VariationHelper;
+import de.thomas.creatures.implementation.util.WorldRandom;
 
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.awt.geom.Point2D;
 
 /**
  * This class represents the view for creating creatures with variance.
@@ -178,43 +175,27 @@ public class CreateCreaturesView extends JFrame implements ActionListener {
      * Creates creatures based on the user input.
      */
     private void createCreatures() {
-        double amount = 0;
-        double maxEnergy = 0;
-        double maxLife = 0;
-        double speed = 0;
-        double visionRange = 0;
-        double maleRation = 0;
-        double matingEnergyNeeded = 0;
-        double breedLength = 0;
-        double breedProgressSpeed = 0;
-
-        double maxEnergyVariance = 0;
-        double maxLifeVariance = 0;
-        double speedVariance = 0;
-        double visionRangeVariance = 0;
-        double matingEnergyNeededVariance = 0;
-        double breedLengthVariance = 0;
-        double breedProgressSpeedVariance = 0;
+        CreatureTemplate template = new CreatureTemplate();
 
         try {
             // Parse user input
-            amount = Double.parseDouble(amountInput.getText());
-            maxEnergy = Double.parseDouble(maxEnergyInput.getText());
-            maxLife = Double.parseDouble(maxLifeInput.getText());
-            speed = Double.parseDouble(speedInput.getText());
-            visionRange = Double.parseDouble(visionRangeInput.getText());
-            maleRation = Double.parseDouble(maleRationInput.getText());
-            matingEnergyNeeded = Double.parseDouble(matingEnergyNeededInput.getText());
-            breedLength = Double.parseDouble(breedLengthInput.getText());
-            breedProgressSpeed = Double.parseDouble(breedProgressSpeedInput.getText());
-
-            maxEnergyVariance = Double.parseDouble(maxEnergyVarianceInput.getText());
-            maxLifeVariance = Double.parseDouble(maxLifeVarianceInput.getText());
-            speedVariance = Double.parseDouble(speedVarianceInput.getText());
-            visionRangeVariance = Double.parseDouble(visionRangeVarianceInput.getText());
-            matingEnergyNeededVariance = Double.parseDouble(matingEnergyNeededVarianceInput.getText());
-            breedLengthVariance = Double.parseDouble(breedLengthVarianceInput.getText());
-            breedProgressSpeedVariance = Double.parseDouble(breedProgressSpeedVarianceInput.getText());
+            template.setAmount((int) Double.parseDouble(amountInput.getText()));
+            template.setMaleRatio(Double.parseDouble(maleRationInput.getText()));
+            template.setValue(Trait.MAX_ENERGY, Double.parseDouble(maxEnergyInput.getText()));
+            template.setValue(Trait.MAX_LIFE, Double.parseDouble(maxLifeInput.getText()));
+            template.setValue(Trait.SPEED, Double.parseDouble(speedInput.getText()));
+            template.setValue(Trait.VISION_RANGE, Double.parseDouble(visionRangeInput.getText()));
+            template.setValue(Trait.MATING_ENERGY_NEEDED, Double.parseDouble(matingEnergyNeededInput.getText()));
+            template.setValue(Trait.BREED_LENGTH, Double.parseDouble(breedLengthInput.getText()));
+            template.setValue(Trait.BREED_PROGRESS_SPEED, Double.parseDouble(breedProgressSpeedInput.getText()));
+
+            template.setVariance(Trait.MAX_ENERGY, Double.parseDouble(maxEnergyVarianceInput.getText()));
+            template.setVariance(Trait.MAX_LIFE, Double.parseDouble(maxLifeVarianceInput.getText()));
+            template.setVariance(Trait.SPEED, Double.parseDouble(speedVarianceInput.getText()));
+            template.setVariance(Trait.VISION_RANGE, Double.parseDouble(visionRangeVarianceInput.getText()));
+            template.setVariance(Trait.MATING_ENERGY_NEEDED, Double.parseDouble(matingEnergyNeededVarianceInput.getText()));
+            template.setVariance(Trait.BREED_LENGTH, Double.parseDouble(breedLengthVarianceInput.getText()));
+            template.setVariance(Trait.BREED_PROGRESS_SPEED, Double.parseDouble(breedProgressSpeedVarianceInput.getText()));
         } catch (NumberFormatException e) {
             JOptionPane.showMessageDialog(this, "Input must be a number.", "Wrong input", JOptionPane.WARNING_MESSAGE);
             return;
@@ -222,72 +203,15 @@ public class CreateCreaturesView extends JFrame implements ActionListener {
 
         try {
             // Check if input values are valid
-            AssertionHelper.checkSmallerZero(amount, "Amount");
-            AssertionHelper.checkSmallerZero(maxEnergy, "Max Energy");
-            AssertionHelper.checkSmallerZero(maxLife, "Max Life");
-            AssertionHelper.checkSmallerZero(speed, "Speed");
-            AssertionHelper.checkSmallerZero(visionRange, "Vision Range");
-            AssertionHelper.checkSmallerZero(maleRation, "Male Ratio");
-            AssertionHelper.checkSmallerZero(matingEnergyNeeded, "Mating Energy Needed");
-            AssertionHelper.checkSmallerZero(breedLength, "Breed Length");
-            AssertionHelper.checkSmallerZero(breedProgressSpeed, "Breed Progress Speed");
-            AssertionHelper.checkSmallerZero(maxEnergyVariance, "Max Energy Variance");
-            AssertionHelper.checkSmallerZero(maxLifeVariance, "Max Life Variance");
-            AssertionHelper.checkSmallerZero(speedVariance, "Speed Variance");
-            AssertionHelper.checkSmallerZero(visionRangeVariance, "Vision Range Variance");
-            AssertionHelper.checkSmallerZero(matingEnergyNeededVariance, "Mating Energy Needed Variance");
-            AssertionHelper.checkSmallerZero(breedLengthVariance, "Breed Length Variance");
-            AssertionHelper.checkSmallerZero(breedProgressSpeedVariance, "Breed Progress Speed Variance");
-
-            AssertionHelper.checkSmallerEqualThan(maleRation, 100, "Male Ratio");
-        } catch (AssertionException e) {
-            // Display error message if assertion fails
-            JOptionPane.showMessageDialog(this, e.getMessage(), "Invalid input", JOptionPane.WARNING_MESSAGE);
-        }
-    }
-}
-
-            AssertionHelper.checkSmallerEqualThan(maxEnergyVariance, maxEnergy, "Max Energy Variance");
-            AssertionHelper.checkSmallerEqualThan(maxLifeVariance, maxLife, "Max Life Variance");
-            AssertionHelper.checkSmallerEqualThan(speedVariance, speed, "Speed Variance");
-            AssertionHelper.checkSmallerEqualThan(visionRangeVariance, visionRange, "Vision Range Variance");
-            AssertionHelper.checkSmallerEqualThan(matingEnergyNeededVariance, matingEnergyNeeded, "Mating Energy Needed Variance");
-            AssertionHelper.checkSmallerEqualThan(breedLengthVariance, breedLength, "Breed Length Variance");
-            AssertionHelper.checkSmallerEqualThan(breedProgressSpeedVariance, breedProgressSpeed, "Breed Progress Speed Variance");
+            template.check();
         } catch (AssertionException e) {
             JOptionPane.showMessageDialog(this, e.getMessage(), "Wrong input", JOptionPane.WARNING_MESSAGE);
             return;
         }
 
-        for (int k = 0; k < amount; k++) {
-            Gender gnd;
-
-            if (Math.random() * 100 > maleRation)
-                gnd = Gender.FEMALE;
-            else
-                gnd = Gender.MALE;
-
-            double middleWidth = sizeX / 2;
-            double middleHeight = sizeY / 2;
-
-            Creature creature = new Creature(
-                    maxEnergy,
-                    maxEnergy * VariationHelper.mutationFactor(maxEnergyVariance / maxEnergy),
-                    maxLife * VariationHelper.mutationFactor(maxLifeVariance / maxLife),
-                    new Point2D.Double
-                            (middleWidth * VariationHelper.mutationFactor(0.95),
-                                    middleHeight * VariationHelper.mutationFactor(0.95)),
-                    speed * VariationHelper.mutationFactor(speedVariance / speed),
-                    visionRange * VariationHelper.mutationFactor(visionRangeVariance / visionRange),
-                    gnd,
-                    new BasicAI(),
-                    matingEnergyNeeded * VariationHelper.mutationFactor(matingEnergyNeededVariance / matingEnergyNeeded),
-                    breedLength * VariationHelper.mutationFactor(breedLengthVariance / breedLength),
-                    breedProgressSpeed * VariationHelper.mutationFactor(breedProgressSpeedVariance / breedProgressSpeed)
-            );
-
-
-            worldController.addCreature(creature);
+        WorldRandom random = new WorldRandom((long) (Math.random() * Long.MAX_VALUE));
+        for (int k = 0; k < template.getAmount(); k++) {
+            worldController.addCreature(template.createCreature(sizeX, sizeY, random));
         }
 
         dispose();
@@ -23,13 +23,14 @@ public class CreateWorldView extends JFrame implements ActionListener {
     private JTextField heightInput;
     private JLabel foodRateLabel;
     private JTextField foodRateInput;
+    private JCheckBox foodFieldCheckBox;
     private JButton createButton;
 
     public CreateWorldView(WorldCreator worldCreator) {
         this.worldCreator = worldCreator;
 
         setDefaultCloseOperation(WindowConstants.EXIT_ON_CLOSE);
-        setSize(220, 150);
+        setSize(220, 180);
         setLocationRelativeTo(null);
         setTitle("Create World");
 
@@ -69,7 +70,10 @@ public class CreateWorldView extends JFrame implements ActionListener {
 
         backPanel.add(widthPanel);
         backPanel.add(heightPanel);
+        foodFieldCheckBox = new JCheckBox("Food Field", false);
+
         backPanel.add(foodPanel);
+        backPanel.add(foodFieldCheckBox);
 
         createButton = new JButton("Create World");
         createButton.addActionListener(this);
@@ -111,7 +115,12 @@ public class CreateWorldView extends JFrame implements ActionListener {
             return;
         }
 
-        WorldModel model = WorldFactory.createEmptyWorld(width, height, foodRate);
+        WorldModel model;
+        if (foodFieldCheckBox.isSelected()) {
+            model = WorldFactory.createEmptyFieldWorld(width, height, foodRate);
+        } else {
+            model = WorldFactory.createEmptyWorld(width, height, foodRate);
+        }
         worldCreator.setupWorld(model);
         dispose();
     }
@@ -0,0 +1,175 @@
+package de.thomas.creatures.implementation.view;
+
+import de.thomas.creatures.implementation.model.RenderSnapshot;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+/**
+ * The FoodLayer class keeps the food of the world painted into an image at the current zoom factor, so a frame only
+ * has to draw the image instead of every food. After every snapshot only the cells of the snapshot grid whose food
+ * spawned or was eaten are cleared and painted again, found by comparing the food hash of every cell. As a food is
+ * painted to the right of and below its position, the cells its sprite reaches into are painted again with it.
+ * The whole layer is repainted when the zoom factor, the food size or the world size change.
+ * Worlds too large for an image at the current zoom factor have no layer, their food is painted directly.
+ */
+public class FoodLayer {
+    //About 64 MB of pixels
+    public static final int MAX_PIXELS = 4096 * 4096;
+
+    private BufferedImage image;
+    private int zoomFactor;
+    private int foodSize;
+    private int cellsX;
+    private int cellsY;
+    private double cellSize;
+    //The food hash of every cell as painted into the image
+    private long[] cellHashes = new long[0];
+    //The cells to paint again during an update
+    private boolean[] dirtyCells = new boolean[0];
+    private int lastRedrawnCells;
+
+    /**
+     * Brings the layer up to date with a snapshot.
+     *
+     * @param snapshot   the snapshot to paint the food of
+     * @param zoomFactor the zoom factor of the view
+     * @param foodSize   the size of a food in pixels at zoom factor 1
+     * @return false if the world is too large for a layer at this zoom factor
+     */
+    public boolean update(RenderSnapshot snapshot, int zoomFactor, int foodSize) {
+        int width = (int) Math.ceil((snapshot.getWidth() + foodSize) / zoomFactor);
+        int height = (int) Math.ceil((snapshot.getHeight() + foodSize) / zoomFactor);
+
+        if ((long) width * height > MAX_PIXELS) {
+            image = null;
+            return false;
+        }
+
+        if (image == null || image.getWidth() != width || image.getHeight() != height || this.zoomFactor != zoomFactor
+                || this.foodSize != foodSize || cellsX != snapshot.getCellsX() || cellsY != snapshot.getCellsY()
+                || cellSize != snapshot.getCellSize()) {
+            image = new BufferedImage(Math.max(width, 1), Math.max(height, 1), BufferedImage.TYPE_INT_ARGB);
+            this.zoomFactor = zoomFactor;
+            this.foodSize = foodSize;
+            cellsX = snapshot.getCellsX();
+            cellsY = snapshot.getCellsY();
+            cellSize = snapshot.getCellSize();
+            cellHashes = new long[cellsX * cellsY];
+            dirtyCells = new boolean[cellsX * cellsY];
+            repaintAll(snapshot);
+            lastRedrawnCells = cellsX * cellsY;
+            return true;
+        }
+
+        //Cells further away than this can not reach into a cell with their food
+        int reach = (int) Math.ceil(foodSize / cellSize);
+        boolean changed = false;
+
+        for (int cellY = 0; cellY < cellsY; cellY++) {
+            for (int cellX = 0; cellX < cellsX; cellX++) {
+                long hash = snapshot.getFoodCellHash(cellX, cellY);
+
+                if (hash != cellHashes[cellY * cellsX + cellX]) {
+                    cellHashes[cellY * cellsX + cellX] = hash;
+                    markDirty(cellX, cellY, reach);
+                    changed = true;
+                }
+            }
+        }
+
+        lastRedrawnCells = 0;
+        if (!changed) {
+            return true;
+        }
+
+        Graphics2D g = image.createGraphics();
+
+        try {
+            for (int cellY = 0; cellY < cellsY; cellY++) {
+                for (int cellX = 0; cellX < cellsX; cellX++) {
+                    if (dirtyCells[cellY * cellsX + cellX]) {
+                        dirtyCells[cellY * cellsX + cellX] = false;
+                        repaintCell(g, snapshot, cellX, cellY, reach);
+                        lastRedrawnCells++;
+                    }
+                }
+            }
+        } finally {
+            g.dispose();
+        }
+
+        return true;
+    }
+
+    /**
+     * Marks a changed cell and the cells its food reaches into, up to reach cells to the right and below.
+     */
+    private void markDirty(int cellX, int cellY, int reach) {
+        for (int y = cellY; y <= Math.min(cellY + reach, cellsY - 1); y++) {
+            for (int x = cellX; x <= Math.min(cellX + reach, cellsX - 1); x++) {
+                dirtyCells[y * cellsX + x] = true;
+            }
+        }
+    }
+
+    private void repaintAll(RenderSnapshot snapshot) {
+        Graphics2D g = image.createGraphics();
+
+        try {
+            g.setColor(WorldView.FOOD_COLOR);
+            for (int cellY = 0; cellY < cellsY; cellY++) {
+                paintFood(g, snapshot, snapshot.getFoodStart(0, cellY), snapshot.getFoodStart(cellsX, cellY));
+
+                for (int cellX = 0; cellX < cellsX; cellX++) {
+                    cellHashes[cellY * cellsX + cellX] = snapshot.getFoodCellHash(cellX, cellY);
+                }
+            }
+        } finally {
+            g.dispose();
+        }
+    }
+
+    /**
+     * Clears the pixels of a cell and paints the food reaching into them, from the cell itself and its neighbours.
+     */
+    private void repaintCell(Graphics2D g, RenderSnapshot snapshot, int cellX, int cellY, int reach) {
+        int x = (int) (cellX * cellSize / zoomFactor);
+        int y = (int) (cellY * cellSize / zoomFactor);
+        //Border cells also hold the food outside of the world
+        int right = cellX == cellsX - 1 ? image.getWidth() : (int) Math.ceil((cellX + 1) * cellSize / zoomFactor);
+        int bottom = cellY == cellsY - 1 ? image.getHeight() : (int) Math.ceil((cellY + 1) * cellSize / zoomFactor);
+
+        g.setClip(x, y, right - x, bottom - y);
+        g.setComposite(AlphaComposite.Clear);
+        g.fillRect(x, y, right - x, bottom - y);
+        g.setComposite(AlphaComposite.SrcOver);
+        g.setColor(WorldView.FOOD_COLOR);
+
+        int firstX = Math.max(cellX - reach, 0);
+        int lastX = Math.min(cellX + 1, cellsX - 1);
+
+        for (int neighbourY = Math.max(cellY - reach, 0); neighbourY <= Math.min(cellY + 1, cellsY - 1); neighbourY++) {
+            paintFood(g, snapshot, snapshot.getFoodStart(firstX, neighbourY), snapshot.getFoodStart(lastX + 1, neighbourY));
+        }
+    }
+
+    private void paintFood(Graphics2D g, RenderSnapshot snapshot, int from, int to) {
+        int size = foodSize / zoomFactor;
+
+        for (int i = from; i < to; i++) {
+            g.fillOval((int) (snapshot.getFoodX(i) / zoomFactor), (int) (snapshot.getFoodY(i) / zoomFactor), size, size);
+        }
+    }
+
+    public BufferedImage getImage() {
+        return image;
+    }
+
+    /**
+     * @return the number of cells painted again by the last update
+     */
+    public int getLastRedrawnCells() {
+        return lastRedrawnCells;
+    }
+}
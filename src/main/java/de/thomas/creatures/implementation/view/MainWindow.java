@@ -1,11 +1,17 @@
 package de.thomas.creatures.implementation.view;
 
 import de.thomas.creatures.implementation.WorldCreator;
+import de.thomas.creatures.implementation.controller.WorldCheckpointer;
 import de.thomas.creatures.implementation.controller.WorldController;
 import de.thomas.creatures.implementation.model.WorldModel;
-import de.thomas.creatures.implementation.statistics.StatElement;
+import de.thomas.creatures.implementation.model.WorldSnapshot;
+import de.thomas.creatures.implementation.statistics.BinaryStatisticsReader;
+import de.thomas.creatures.implementation.statistics.PopulationHeatmap;
+import de.thomas.creatures.implementation.statistics.BinaryStatisticsWriter;
+import de.thomas.creatures.implementation.statistics.StatHistory;
 import de.thomas.creatures.implementation.statistics.Statistics;
-import de.thomas.creatures.implementation.statistics.StatisticsSerializer;
+import de.thomas.creatures.implementation.statistics.TrajectoryReader;
+import de.thomas.creatures.implementation.statistics.TrajectoryRecorder;
 import org.apache.commons.io.FilenameUtils;
 
 import javax.swing.*;
@@ -16,7 +22,7 @@ import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.io.File;
-import java.util.ArrayList;
+import java.io.IOException;
 
 public class MainWindow extends JFrame implements ActionListener, ChangeListener {
     private static final long serialVersionUID = 1L;
@@ -36,7 +42,11 @@ public class MainWindow extends JFrame implements ActionListener, ChangeListener
 
     private JMenuBar mainMenuBar;
     private JMenu fileMenu;
-    private JMenuItem exportStatisticsItem;
+    private JCheckBoxMenuItem exportStatisticsItem;
+    private JMenuItem saveWorldItem;
+    private JMenuItem loadWorldItem;
+    private JCheckBoxMenuItem checkpointItem;
+    private JMenuItem restoreCheckpointItem;
     private JMenuItem closeItem;
 
     private JMenu worldMenu;
@@ -46,6 +56,12 @@ public class MainWindow extends JFrame implements ActionListener, ChangeListener
 
     private JMenu statisticsMenu;
     private JMenuItem showStatisticsItem;
+    private JMenuItem openStatisticsItem;
+    private JMenu heatmapMenu;
+    private JRadioButtonMenuItem[] heatmapItems;
+    private JCheckBoxMenuItem exportHeatmapItem;
+    private JCheckBoxMenuItem recordTrajectoriesItem;
+    private JMenuItem replayTrajectoriesItem;
 
     private boolean isExternalUpdate = false;
 
@@ -113,10 +129,23 @@ public class MainWindow extends JFrame implements ActionListener, ChangeListener
         mainMenuBar = new JMenuBar();
 
         fileMenu = new JMenu("File");
-        exportStatisticsItem = new JMenuItem("Export Statistics");
+        exportStatisticsItem = new JCheckBoxMenuItem("Export Statistics");
         exportStatisticsItem.addActionListener(this);
         closeItem = new JMenuItem("Close");
         closeItem.addActionListener(this);
+        saveWorldItem = new JMenuItem("Save World");
+        saveWorldItem.addActionListener(this);
+        loadWorldItem = new JMenuItem("Load World");
+        loadWorldItem.addActionListener(this);
+        fileMenu.add(saveWorldItem);
+        fileMenu.add(loadWorldItem);
+        checkpointItem = new JCheckBoxMenuItem("Write Checkpoints");
+        checkpointItem.addActionListener(this);
+        restoreCheckpointItem = new JMenuItem("Restore Checkpoint");
+        restoreCheckpointItem.addActionListener(this);
+        fileMenu.add(checkpointItem);
+        fileMenu.add(restoreCheckpointItem);
+        fileMenu.addSeparator();
         fileMenu.add(exportStatisticsItem);
         fileMenu.addSeparator();
         fileMenu.add(closeItem);
@@ -137,6 +166,32 @@ public class MainWindow extends JFrame implements ActionListener, ChangeListener
         showStatisticsItem = new JMenuItem("Show Statistics");
         showStatisticsItem.addActionListener(this);
         statisticsMenu.add(showStatisticsItem);
+        openStatisticsItem = new JMenuItem("Open Statistics File");
+        openStatisticsItem.addActionListener(this);
+        statisticsMenu.add(openStatisticsItem);
+
+        heatmapMenu = new JMenu("Heatmap");
+        String[] heatmapLabels = {"Off", "Creature Amount", "Average Speed", "Average Energy"};
+        ButtonGroup heatmapGroup = new ButtonGroup();
+        heatmapItems = new JRadioButtonMenuItem[heatmapLabels.length];
+        for (int k = 0; k < heatmapLabels.length; k++) {
+            heatmapItems[k] = new JRadioButtonMenuItem(heatmapLabels[k], k == 0);
+            heatmapItems[k].addActionListener(this);
+            heatmapGroup.add(heatmapItems[k]);
+            heatmapMenu.add(heatmapItems[k]);
+        }
+        heatmapMenu.addSeparator();
+        exportHeatmapItem = new JCheckBoxMenuItem("Export Heatmap");
+        exportHeatmapItem.addActionListener(this);
+        heatmapMenu.add(exportHeatmapItem);
+        statisticsMenu.add(heatmapMenu);
+        statisticsMenu.addSeparator();
+        recordTrajectoriesItem = new JCheckBoxMenuItem("Record Trajectories");
+        recordTrajectoriesItem.addActionListener(this);
+        statisticsMenu.add(recordTrajectoriesItem);
+        replayTrajectoriesItem = new JMenuItem("Replay Trajectories");
+        replayTrajectoriesItem.addActionListener(this);
+        statisticsMenu.add(replayTrajectoriesItem);
 
         mainMenuBar.add(fileMenu);
         mainMenuBar.add(worldMenu);
@@ -146,16 +201,30 @@ public class MainWindow extends JFrame implements ActionListener, ChangeListener
     }
 
     public void update(double delta) {
-        if (statistics.getStatElements().size() > 0) {
-            StatElement top = statistics.getTopStatElement();
+        StatHistory history = statistics.getHistory();
 
+        if (history.getRecentAmount() > 0) {
             String displayString = "";
-            displayString += "Creatures: " + top.getCreatureAmount() + "          " +
-                    "Avg. Speed: " + String.format("%1$,.2f", top.getAverageSpeed());
+            displayString += "Creatures: " + (int) history.getLatestValue(0) + "          " +
+                    "Avg. Speed: " + String.format("%1$,.2f", history.getLatestValue(5));
             ;
 
+            //Report when the simulation had to wait for the recording
+            TrajectoryRecorder recorder = worldModel.getTrajectoryRecorder();
+            if (recorder != null && recorder.getBlockedTicks() > 0) {
+                displayString += "          Recording behind: " + recorder.getBlockedTicks() + " updates waited " +
+                        String.format("%1$,.1f", recorder.getBlockedNanos() / 1E9) + "s";
+            }
+
             textLabel.setText(displayString);
         }
+
+        WorldCheckpointer checkpointer = controller.getCheckpointer();
+        if (checkpointer != null && checkpointer.getFailure() != null) {
+            controller.stopCheckpoints();
+            checkpointItem.setSelected(false);
+            JOptionPane.showMessageDialog(this, checkpointer.getFailure().getMessage(), "Checkpoints failed", JOptionPane.WARNING_MESSAGE);
+        }
     }
 
     @Override
@@ -186,8 +255,15 @@ public class MainWindow extends JFrame implements ActionListener, ChangeListener
         if (e.getSource() == closeItem) {
             System.exit(0);
         } else if (e.getSource() == exportStatisticsItem) {
+            if (!exportStatisticsItem.isSelected()) {
+                statistics.stopExport();
+                return;
+            }
+
             JFileChooser fileChooser = new JFileChooser();
             FileNameExtensionFilter csvFilter = new FileNameExtensionFilter("CSV (comma-separated) (*.csv)", "csv");
+            FileNameExtensionFilter binaryFilter = new FileNameExtensionFilter("Binary Statistics (*." + BinaryStatisticsWriter.EXTENSION + ")", BinaryStatisticsWriter.EXTENSION);
+            fileChooser.addChoosableFileFilter(binaryFilter);
             fileChooser.setFileFilter(csvFilter);
 
 
@@ -196,9 +272,86 @@ public class MainWindow extends JFrame implements ActionListener, ChangeListener
 
                 if (fileChooser.getFileFilter() == csvFilter && !FilenameUtils.getExtension(file.getName()).equalsIgnoreCase("csv")) {
                     file = new File(file.toString() + ".csv");
+                } else if (fileChooser.getFileFilter() == binaryFilter && !FilenameUtils.getExtension(file.getName()).equalsIgnoreCase(BinaryStatisticsWriter.EXTENSION)) {
+                    file = new File(file.toString() + "." + BinaryStatisticsWriter.EXTENSION);
                 }
 
-                new StatisticsSerializer().exportStatistics(statistics.getStatElements(), file);
+                try {
+                    statistics.startExport(file);
+                } catch (IOException ex) {
+                    exportStatisticsItem.setSelected(false);
+                    ex.printStackTrace();
+                }
+            } else {
+                exportStatisticsItem.setSelected(false);
+            }
+        } else if (e.getSource() == saveWorldItem) {
+            JFileChooser fileChooser = new JFileChooser();
+            fileChooser.setFileFilter(new FileNameExtensionFilter("World (*." + WorldSnapshot.EXTENSION + ")", WorldSnapshot.EXTENSION));
+
+            if (fileChooser.showSaveDialog(this) == JFileChooser.APPROVE_OPTION) {
+                File file = fileChooser.getSelectedFile();
+
+                if (!FilenameUtils.getExtension(file.getName()).equalsIgnoreCase(WorldSnapshot.EXTENSION)) {
+                    file = new File(file.toString() + "." + WorldSnapshot.EXTENSION);
+                }
+
+                try {
+                    WorldSnapshot.save(worldModel, file);
+                } catch (IOException ex) {
+                    JOptionPane.showMessageDialog(this, ex.getMessage(), "Saving failed", JOptionPane.WARNING_MESSAGE);
+                }
+            }
+        } else if (e.getSource() == loadWorldItem) {
+            JFileChooser fileChooser = new JFileChooser();
+            fileChooser.setFileFilter(new FileNameExtensionFilter("World (*." + WorldSnapshot.EXTENSION + ")", WorldSnapshot.EXTENSION));
+
+            if (fileChooser.showOpenDialog(this) == JFileChooser.APPROVE_OPTION) {
+                try {
+                    worldCreator.setupWorld(WorldSnapshot.load(fileChooser.getSelectedFile()));
+                    setSpeedSlider(WorldModel.speedFactor);
+                    maxFoodSpinner.setValue(WorldModel.maxFoodAmount);
+                } catch (IOException ex) {
+                    JOptionPane.showMessageDialog(this, ex.getMessage(), "Wrong file", JOptionPane.WARNING_MESSAGE);
+                }
+            }
+        } else if (e.getSource() == checkpointItem) {
+            if (!checkpointItem.isSelected()) {
+                controller.stopCheckpoints();
+                return;
+            }
+
+            JFileChooser fileChooser = new JFileChooser();
+            fileChooser.setFileFilter(new FileNameExtensionFilter("Checkpoints (*." + WorldCheckpointer.EXTENSION + ")", WorldCheckpointer.EXTENSION));
+
+            if (fileChooser.showSaveDialog(this) == JFileChooser.APPROVE_OPTION) {
+                File file = fileChooser.getSelectedFile();
+
+                if (!FilenameUtils.getExtension(file.getName()).equalsIgnoreCase(WorldCheckpointer.EXTENSION)) {
+                    file = new File(file.toString() + "." + WorldCheckpointer.EXTENSION);
+                }
+
+                try {
+                    controller.startCheckpoints(file, WorldCheckpointer.DEFAULT_INTERVAL);
+                } catch (IOException ex) {
+                    checkpointItem.setSelected(false);
+                    JOptionPane.showMessageDialog(this, ex.getMessage(), "Checkpoints failed", JOptionPane.WARNING_MESSAGE);
+                }
+            } else {
+                checkpointItem.setSelected(false);
+            }
+        } else if (e.getSource() == restoreCheckpointItem) {
+            JFileChooser fileChooser = new JFileChooser();
+            fileChooser.setFileFilter(new FileNameExtensionFilter("Checkpoints (*." + WorldCheckpointer.EXTENSION + ")", WorldCheckpointer.EXTENSION));
+
+            if (fileChooser.showOpenDialog(this) == JFileChooser.APPROVE_OPTION) {
+                try {
+                    worldCreator.setupWorld(WorldCheckpointer.restore(fileChooser.getSelectedFile()));
+                    setSpeedSlider(WorldModel.speedFactor);
+                    maxFoodSpinner.setValue(WorldModel.maxFoodAmount);
+                } catch (IOException ex) {
+                    JOptionPane.showMessageDialog(this, ex.getMessage(), "Wrong file", JOptionPane.WARNING_MESSAGE);
+                }
             }
         } else if (e.getSource() == createWorldItem) {
             new CreateWorldView(worldCreator);
@@ -207,8 +360,95 @@ public class MainWindow extends JFrame implements ActionListener, ChangeListener
         } else if (e.getSource() == createCreaturesItem) {
             new CreateCreaturesView(controller, worldModel.getWidth(), worldModel.getHeight());
         } else if (e.getSource() == showStatisticsItem) {
-            new StatisticsView(new ArrayList<>(statistics.getStatElements()));
+            new StatisticsView(statistics.getHistory());
+        } else if (e.getSource() instanceof JRadioButtonMenuItem) {
+            applyHeatmapLayer();
+        } else if (e.getSource() == exportHeatmapItem) {
+            if (!exportHeatmapItem.isSelected()) {
+                statistics.stopHeatmapExport();
+                return;
+            }
+
+            JFileChooser fileChooser = new JFileChooser();
+
+            if (fileChooser.showSaveDialog(this) == JFileChooser.APPROVE_OPTION) {
+                try {
+                    statistics.startHeatmapExport(fileChooser.getSelectedFile());
+                } catch (IOException ex) {
+                    exportHeatmapItem.setSelected(false);
+                    ex.printStackTrace();
+                }
+            } else {
+                exportHeatmapItem.setSelected(false);
+            }
+        } else if (e.getSource() == recordTrajectoriesItem) {
+            if (!recordTrajectoriesItem.isSelected()) {
+                stopRecording();
+                return;
+            }
+
+            JFileChooser fileChooser = new JFileChooser();
+            fileChooser.setFileFilter(new FileNameExtensionFilter("Trajectories (*." + TrajectoryRecorder.EXTENSION + ")", TrajectoryRecorder.EXTENSION));
+
+            if (fileChooser.showSaveDialog(this) == JFileChooser.APPROVE_OPTION) {
+                File file = fileChooser.getSelectedFile();
+
+                if (!FilenameUtils.getExtension(file.getName()).equalsIgnoreCase(TrajectoryRecorder.EXTENSION)) {
+                    file = new File(file.toString() + "." + TrajectoryRecorder.EXTENSION);
+                }
+
+                try {
+                    worldModel.setTrajectoryRecorder(new TrajectoryRecorder(file, worldModel));
+                } catch (IOException ex) {
+                    recordTrajectoriesItem.setSelected(false);
+                    JOptionPane.showMessageDialog(this, ex.getMessage(), "Recording failed", JOptionPane.WARNING_MESSAGE);
+                }
+            } else {
+                recordTrajectoriesItem.setSelected(false);
+            }
+        } else if (e.getSource() == replayTrajectoriesItem) {
+            JFileChooser fileChooser = new JFileChooser();
+            fileChooser.setFileFilter(new FileNameExtensionFilter("Trajectories (*." + TrajectoryRecorder.EXTENSION + ")", TrajectoryRecorder.EXTENSION));
+
+            if (fileChooser.showOpenDialog(this) == JFileChooser.APPROVE_OPTION) {
+                try {
+                    new ReplayView(new TrajectoryReader(fileChooser.getSelectedFile()));
+                } catch (IOException ex) {
+                    JOptionPane.showMessageDialog(this, ex.getMessage(), "Wrong file", JOptionPane.WARNING_MESSAGE);
+                }
+            }
+        } else if (e.getSource() == openStatisticsItem) {
+            JFileChooser fileChooser = new JFileChooser();
+            fileChooser.setFileFilter(new FileNameExtensionFilter("Binary Statistics (*." + BinaryStatisticsWriter.EXTENSION + ")", BinaryStatisticsWriter.EXTENSION));
+
+            if (fileChooser.showOpenDialog(this) == JFileChooser.APPROVE_OPTION) {
+                try {
+                    new StatisticsView(new BinaryStatisticsReader(fileChooser.getSelectedFile()));
+                } catch (IOException ex) {
+                    JOptionPane.showMessageDialog(this, ex.getMessage(), "Wrong file", JOptionPane.WARNING_MESSAGE);
+                }
+            }
+        }
+    }
+
+    private void applyHeatmapLayer() {
+        WorldView.HeatmapLayer layer = WorldView.HeatmapLayer.NONE;
+        for (int k = 0; k < heatmapItems.length; k++) {
+            if (heatmapItems[k].isSelected()) {
+                layer = WorldView.HeatmapLayer.values()[k];
+            }
         }
+
+        if (layer != WorldView.HeatmapLayer.NONE) {
+            if (worldModel.getHeatmap() == null) {
+                worldModel.setHeatmap(new PopulationHeatmap(worldModel.getWidth(), worldModel.getHeight(), PopulationHeatmap.DEFAULT_CELL_SIZE));
+            }
+
+            //The view paints the heatmap of the snapshot, which has to show up while the world is paused
+            controller.publishRenderSnapshot();
+        }
+
+        view.setHeatmapLayer(layer);
     }
 
     public void setView(WorldView view) {
@@ -218,6 +458,8 @@ public class MainWindow extends JFrame implements ActionListener, ChangeListener
 
     public void setStatistics(Statistics statistics) {
         this.statistics = statistics;
+        exportStatisticsItem.setSelected(statistics.isExporting());
+        exportHeatmapItem.setSelected(statistics.isHeatmapExporting());
     }
 
     public void setController(WorldController controller) {
@@ -228,7 +470,20 @@ public class MainWindow extends JFrame implements ActionListener, ChangeListener
         this.worldCreator = worldCreator;
     }
 
+    private void stopRecording() {
+        TrajectoryRecorder recorder = worldModel.getTrajectoryRecorder();
+
+        if (recorder != null) {
+            recorder.close();
+            worldModel.setTrajectoryRecorder(null);
+        }
+    }
+
     public void setWorldModel(WorldModel worldModel) {
         this.worldModel = worldModel;
+        applyHeatmapLayer();
+        //Checkpoints and recordings are written for one world only
+        checkpointItem.setSelected(false);
+        recordTrajectoriesItem.setSelected(worldModel.getTrajectoryRecorder() != null);
     }
 }
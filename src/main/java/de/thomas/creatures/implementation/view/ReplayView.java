@@ -0,0 +1,200 @@
+package de.thomas.creatures.implementation.view;
+
+import de.thomas.creatures.implementation.controller.WorldController;
+import de.thomas.creatures.implementation.model.WorldModel;
+import de.thomas.creatures.implementation.statistics.TrajectoryReader;
+
+import javax.swing.*;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.io.IOException;
+
+/**
+ * The ReplayView class plays a recorded trajectory file in a WorldView without updating a world.
+ * The reader is advanced by the world time passed since the last frame times the chosen speed,
+ * and moving the time slider seeks in the recording.
+ */
+public class ReplayView extends JFrame implements ActionListener, ChangeListener {
+    private static final long serialVersionUID = 1L;
+    //Milliseconds between two frames
+    private static final int FRAME_TIME = 15;
+    //Steps of the time slider per second of world time
+    private static final int SLIDER_STEPS = 10;
+
+    private final double[] speeds = {0.25, 0.5, 1, 2, 4, 8, 16};
+
+    private transient TrajectoryReader reader;
+    private WorldView view;
+    private transient WorldInputListener listener;
+
+    private JButton playButton;
+    private JComboBox<String> speedBox;
+    private JSlider timeSlider;
+    private JLabel timeLabel;
+    private Timer timer;
+
+    private boolean playing;
+    private double replayTime;
+    private long lastFrame;
+    private boolean isExternalUpdate = false;
+
+    public ReplayView(TrajectoryReader reader) throws IOException {
+        this.reader = reader;
+
+        WorldModel world = new WorldModel((int) reader.getWidth(), (int) reader.getHeight(), 0);
+        view = new WorldView(world);
+
+        WorldController controller = new WorldController(world, view);
+        listener = new WorldInputListener(controller);
+        view.addKeyListener(listener);
+        view.addMouseListener(listener);
+        view.addMouseWheelListener(listener);
+
+        reader.nextTick();
+        replayTime = reader.getTime();
+        view.setReplay(reader);
+
+        setDefaultCloseOperation(WindowConstants.DISPOSE_ON_CLOSE);
+        setSize(1366, 768);
+        setLocationRelativeTo(null);
+        setTitle("Replay");
+
+        initUI();
+
+        setResizable(true);
+        setVisible(true);
+
+        timer = new Timer(FRAME_TIME, this);
+        timer.start();
+        lastFrame = System.nanoTime();
+    }
+
+    private void initUI() {
+        JPanel backPanel = new JPanel();
+        backPanel.setLayout(new BorderLayout());
+        backPanel.add(view, BorderLayout.CENTER);
+
+        JPanel downPanel = new JPanel();
+        downPanel.setLayout(new BoxLayout(downPanel, BoxLayout.LINE_AXIS));
+
+        playButton = new JButton("Play");
+        playButton.addActionListener(this);
+        downPanel.add(playButton);
+
+        String[] speedLabels = new String[speeds.length];
+        for (int k = 0; k < speeds.length; k++) {
+            speedLabels[k] = speeds[k] + "x";
+        }
+        speedBox = new JComboBox<>(speedLabels);
+        speedBox.setSelectedIndex(2);
+        speedBox.setMaximumSize(speedBox.getPreferredSize());
+        downPanel.add(speedBox);
+
+        timeSlider = new JSlider(toSlider(reader.getStartTime()), Math.max(toSlider(reader.getEndTime()),
+                toSlider(reader.getStartTime())), toSlider(replayTime));
+        timeSlider.addChangeListener(this);
+        downPanel.add(timeSlider);
+
+        timeLabel = new JLabel();
+        downPanel.add(timeLabel);
+        updateControls();
+
+        backPanel.add(downPanel, BorderLayout.SOUTH);
+
+        setContentPane(backPanel);
+    }
+
+    private static int toSlider(double time) {
+        return (int) (time * SLIDER_STEPS);
+    }
+
+    private void setPlaying(boolean playing) {
+        this.playing = playing;
+        playButton.setText(playing ? "Pause" : "Play");
+    }
+
+    private void updateControls() {
+        isExternalUpdate = true;
+        timeSlider.setValue(toSlider(reader.getTime()));
+        isExternalUpdate = false;
+
+        timeLabel.setText(String.format(" %.1f s / %.1f s, %d creatures", reader.getTime(), reader.getEndTime(), reader.size()));
+    }
+
+    @Override
+    public void actionPerformed(ActionEvent e) {
+        if (e.getSource() == timer) {
+            long now = System.nanoTime();
+            double delta = (now - lastFrame) / 1E9;
+            lastFrame = now;
+
+            listener.handlePressedKeys();
+            listener.handlePressedMouseButtons(view.getZoomFactor());
+
+            if (playing) {
+                replayTime += delta * speeds[speedBox.getSelectedIndex()];
+
+                try {
+                    while (reader.getTime() < replayTime) {
+                        if (!reader.nextTick()) {
+                            setPlaying(false);
+                            break;
+                        }
+                    }
+                } catch (IOException ex) {
+                    setPlaying(false);
+                    ex.printStackTrace();
+                }
+
+                view.publishReplay();
+                updateControls();
+            }
+
+            view.repaint();
+        } else if (e.getSource() == playButton) {
+            if (!playing && reader.getTime() >= reader.getEndTime()) {
+                seek(reader.getStartTime());
+            }
+
+            replayTime = reader.getTime();
+            setPlaying(!playing);
+        }
+    }
+
+    @Override
+    public void stateChanged(ChangeEvent e) {
+        //Every seek decompresses a block, so a dragged slider only seeks once it is released
+        if (!isExternalUpdate && e.getSource() == timeSlider && !timeSlider.getValueIsAdjusting()) {
+            seek((double) timeSlider.getValue() / SLIDER_STEPS);
+        }
+    }
+
+    private void seek(double time) {
+        try {
+            reader.seek(time);
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        }
+
+        replayTime = reader.getTime();
+        view.publishReplay();
+        updateControls();
+        view.repaint();
+    }
+
+    @Override
+    public void dispose() {
+        timer.stop();
+
+        try {
+            reader.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+
+        super.dispose();
+    }
+}
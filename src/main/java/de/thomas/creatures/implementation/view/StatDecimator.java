@@ -0,0 +1,137 @@
+package de.thomas.creatures.implementation.view;
+
+import de.thomas.creatures.implementation.statistics.StatElement;
+import de.thomas.creatures.implementation.statistics.StatSeries;
+
+/**
+ * The StatDecimator class reduces a statistics time series to at most a fixed number of buckets for display.
+ * Every bucket covers the same number of consecutive samples and keeps the minimum and the maximum sample of each
+ * metric, so peaks stay visible. Once all buckets are in use, neighbouring buckets are merged and the samples per
+ * bucket double. Samples are added incrementally, the memory and the cost of drawing only depend on the number of
+ * buckets, not on the length of the series.
+ */
+public class StatDecimator {
+    private final int maxBuckets;
+    private int samplesPerBucket = 1;
+    private int bucketAmount;
+    private int samplesInBucket;
+    private long sampleAmount;
+
+    private final double[][] minTimes = new double[StatElement.METRIC_AMOUNT][];
+    private final double[][] minValues = new double[StatElement.METRIC_AMOUNT][];
+    private final double[][] maxTimes = new double[StatElement.METRIC_AMOUNT][];
+    private final double[][] maxValues = new double[StatElement.METRIC_AMOUNT][];
+
+    /**
+     * @param maxBuckets the maximum number of buckets, about the width of the chart in pixels
+     */
+    public StatDecimator(int maxBuckets) {
+        //An even number, so merging pairs leaves no bucket behind
+        this.maxBuckets = Math.max(2, maxBuckets + maxBuckets % 2);
+
+        for (int metric = 0; metric < StatElement.METRIC_AMOUNT; metric++) {
+            minTimes[metric] = new double[this.maxBuckets];
+            minValues[metric] = new double[this.maxBuckets];
+            maxTimes[metric] = new double[this.maxBuckets];
+            maxValues[metric] = new double[this.maxBuckets];
+        }
+    }
+
+    public void addAll(StatSeries series) {
+        double[] sample = new double[StatElement.METRIC_AMOUNT];
+
+        for (int i = 0; i < series.size(); i++) {
+            for (int metric = 0; metric < sample.length; metric++) {
+                sample[metric] = series.getValue(metric, i);
+            }
+
+            add(series.getTime(i), sample);
+        }
+    }
+
+    public void add(double time, double[] sample) {
+        if (bucketAmount == 0 || samplesInBucket == samplesPerBucket) {
+            if (bucketAmount == maxBuckets) {
+                mergeBuckets();
+            }
+
+            bucketAmount++;
+            samplesInBucket = 0;
+        }
+
+        int bucket = bucketAmount - 1;
+
+        for (int metric = 0; metric < sample.length; metric++) {
+            double value = sample[metric];
+
+            if (samplesInBucket == 0 || value < minValues[metric][bucket] || Double.isNaN(minValues[metric][bucket])) {
+                minValues[metric][bucket] = value;
+                minTimes[metric][bucket] = time;
+            }
+
+            if (samplesInBucket == 0 || value > maxValues[metric][bucket] || Double.isNaN(maxValues[metric][bucket])) {
+                maxValues[metric][bucket] = value;
+                maxTimes[metric][bucket] = time;
+            }
+        }
+
+        samplesInBucket++;
+        sampleAmount++;
+    }
+
+    private void mergeBuckets() {
+        for (int metric = 0; metric < StatElement.METRIC_AMOUNT; metric++) {
+            for (int bucket = 0; bucket < bucketAmount / 2; bucket++) {
+                int first = bucket * 2;
+                int second = first + 1;
+                int min = minValues[metric][second] < minValues[metric][first] ? second : first;
+                int max = maxValues[metric][second] > maxValues[metric][first] ? second : first;
+
+                minValues[metric][bucket] = minValues[metric][min];
+                minTimes[metric][bucket] = minTimes[metric][min];
+                maxValues[metric][bucket] = maxValues[metric][max];
+                maxTimes[metric][bucket] = maxTimes[metric][max];
+            }
+        }
+
+        bucketAmount /= 2;
+        samplesPerBucket *= 2;
+        samplesInBucket = samplesPerBucket;
+    }
+
+    /**
+     * Returns the number of points to draw per metric. While every bucket holds a single sample this is one point
+     * per bucket, otherwise the minimum and the maximum of every bucket in time order.
+     *
+     * @return the number of points
+     */
+    public int getPointAmount() {
+        return samplesPerBucket == 1 ? bucketAmount : bucketAmount * 2;
+    }
+
+    public double getTime(int metric, int point) {
+        if (samplesPerBucket == 1) {
+            return minTimes[metric][point];
+        }
+
+        int bucket = point / 2;
+        return isMinFirst(metric, bucket) == (point % 2 == 0) ? minTimes[metric][bucket] : maxTimes[metric][bucket];
+    }
+
+    public double getValue(int metric, int point) {
+        if (samplesPerBucket == 1) {
+            return minValues[metric][point];
+        }
+
+        int bucket = point / 2;
+        return isMinFirst(metric, bucket) == (point % 2 == 0) ? minValues[metric][bucket] : maxValues[metric][bucket];
+    }
+
+    private boolean isMinFirst(int metric, int bucket) {
+        return minTimes[metric][bucket] <= maxTimes[metric][bucket];
+    }
+
+    public long getSampleAmount() {
+        return sampleAmount;
+    }
+}
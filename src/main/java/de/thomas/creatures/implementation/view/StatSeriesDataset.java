@@ -0,0 +1,69 @@
+package de.thomas.creatures.implementation.view;
+
+import org.jfree.data.xy.AbstractXYDataset;
+
+import java.util.List;
+
+/**
+ * The StatSeriesDataset class shows metrics of a decimated statistics series in a chart without copying the points.
+ * Every selected metric is one series.
+ */
+public class StatSeriesDataset extends AbstractXYDataset {
+    private static final long serialVersionUID = 1L;
+
+    private final transient StatDecimator decimator;
+    private final String[] labels;
+    private final int[] metrics;
+
+    public StatSeriesDataset(StatDecimator decimator, String[] labels, List<Integer> metrics) {
+        this.decimator = decimator;
+        this.labels = labels;
+        this.metrics = new int[metrics.size()];
+
+        for (int k = 0; k < this.metrics.length; k++) {
+            this.metrics[k] = metrics.get(k);
+        }
+    }
+
+    /**
+     * Notifies the chart that samples were added to the decimator.
+     */
+    public void update() {
+        fireDatasetChanged();
+    }
+
+    @Override
+    public int getSeriesCount() {
+        return metrics.length;
+    }
+
+    @Override
+    public Comparable<?> getSeriesKey(int series) {
+        return labels[metrics[series]];
+    }
+
+    @Override
+    public int getItemCount(int series) {
+        return decimator.getPointAmount();
+    }
+
+    @Override
+    public Number getX(int series, int item) {
+        return getXValue(series, item);
+    }
+
+    @Override
+    public Number getY(int series, int item) {
+        return getYValue(series, item);
+    }
+
+    @Override
+    public double getXValue(int series, int item) {
+        return decimator.getTime(metrics[series], item);
+    }
+
+    @Override
+    public double getYValue(int series, int item) {
+        return decimator.getValue(metrics[series], item);
+    }
+}
@@ -1,24 +1,29 @@
 package de.thomas.creatures.implementation.view;
 
-import de.thomas.creatures.implementation.statistics.StatElement;
+import de.thomas.creatures.implementation.statistics.StatColumns;
+import de.thomas.creatures.implementation.statistics.StatHistory;
+import de.thomas.creatures.implementation.statistics.StatSeries;
 import org.jfree.chart.ChartFactory;
 import org.jfree.chart.ChartPanel;
 import org.jfree.chart.JFreeChart;
 import org.jfree.chart.plot.PlotOrientation;
 import org.jfree.chart.plot.XYPlot;
 import org.jfree.data.xy.XYDataset;
-import org.jfree.data.xy.XYSeries;
-import org.jfree.data.xy.XYSeriesCollection;
 
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
 
 public class StatisticsView extends JFrame implements ActionListener {
     private static final long serialVersionUID = 1L;
+    //Milliseconds between two updates in live mode
+    private static final int LIVE_UPDATE_INTERVAL = 500;
     private JFreeChart chart;
     private JPanel backPanel;
     private ChartPanel chartPanel;
@@ -27,7 +32,12 @@ public class StatisticsView extends JFrame implements ActionListener {
     private JCheckBox allCheckBox;
     private JCheckBox[] checkBoxes;
 
-    private List<StatElement> statElements;
+    private transient StatDecimator decimator;
+    private StatSeriesDataset dataset;
+
+    private transient StatHistory liveHistory;
+    private long nextLiveSample;
+    private Timer liveTimer;
 
     private String[] statLabels = {
         "Creatures",
@@ -60,22 +70,145 @@ public class StatisticsView extends JFrame implements ActionListener {
     };
 
 
-    public StatisticsView(List<StatElement> statElements) {
-        this.statElements = statElements;
+    /**
+     * Constructs a StatisticsView of recorded samples. The chart is filled once the samples are decimated
+     * on a background thread, so a large file opens without blocking the event dispatch thread.
+     *
+     * @param statSeries the samples, which must not change any more
+     */
+    public StatisticsView(StatSeries statSeries) {
+        decimator = new StatDecimator(getBucketAmount());
+
+        initFrame("Statistics");
+        loadSeries(statSeries);
+    }
+
+    /**
+     * Constructs a StatisticsView in live mode, which adds new samples of the history to the chart as they arrive.
+     *
+     * @param history the history of the running world
+     */
+    public StatisticsView(StatHistory history) {
+        decimator = new StatDecimator(getBucketAmount());
+        liveHistory = history;
+        liveTimer = new Timer(LIVE_UPDATE_INTERVAL, this);
+
+        initFrame("Statistics (live)");
+        loadLiveHistory();
+    }
+
+    /**
+     * Reads the samples recorded so far on a background thread, the spill file of a long run can be large.
+     * Only the samples in memory are copied on the event dispatch thread, which also adds the samples to the history.
+     * New samples are read by the live timer once the history is loaded.
+     */
+    private void loadLiveHistory() {
+        long spilledAmount = liveHistory.flushSpill();
+        File spillFile = liveHistory.getSpillFile();
+        StatColumns recent = liveHistory.getRecent();
+        nextLiveSample = liveHistory.getAddedAmount();
+        //The spill file only continues into the samples in memory if none were dropped
+        boolean readSpill = spilledAmount > 0 && spilledAmount == nextLiveSample - recent.size();
+
+        new SwingWorker<StatDecimator, Void>() {
+            @Override
+            protected StatDecimator doInBackground() throws IOException {
+                StatDecimator loaded = new StatDecimator(getBucketAmount());
+
+                if (readSpill) {
+                    StatHistory.readSpilled(spillFile, spilledAmount, loaded::add);
+                }
+                loaded.addAll(recent);
+
+                return loaded;
+            }
+
+            @Override
+            protected void done() {
+                if (showLoaded(this)) {
+                    liveTimer.start();
+                }
+            }
+        }.execute();
+    }
+
+    private void loadSeries(StatSeries statSeries) {
+        new SwingWorker<StatDecimator, Void>() {
+            @Override
+            protected StatDecimator doInBackground() {
+                StatDecimator loaded = new StatDecimator(getBucketAmount());
+                loaded.addAll(statSeries);
+
+                return loaded;
+            }
+
+            @Override
+            protected void done() {
+                showLoaded(this);
+            }
+        }.execute();
+    }
+
+    /**
+     * Shows the decimator filled by a finished worker.
+     *
+     * @return false if the frame was closed in the meantime
+     */
+    private boolean showLoaded(SwingWorker<StatDecimator, Void> worker) {
+        if (!isDisplayable()) {
+            return false;
+        }
+
+        try {
+            decimator = worker.get();
+        } catch (InterruptedException | ExecutionException e) {
+            e.printStackTrace();
+        }
+
+        updateChart();
+        return true;
+    }
+
+    //About one bucket per pixel column of a maximized window
+    private static int getBucketAmount() {
+        return Toolkit.getDefaultToolkit().getScreenSize().width;
+    }
 
+    private void initFrame(String title) {
         setDefaultCloseOperation(WindowConstants.EXIT_ON_CLOSE);
         setSize(1366, 768);
         setLocationRelativeTo(null);
-        setTitle("Statistics");
+        setTitle(title);
 
-        initUI(statElements);
+        initUI();
 
         setResizable(true);
         setVisible(true);
         setDefaultCloseOperation(WindowConstants.DISPOSE_ON_CLOSE);
     }
 
-    private void initUI(List<StatElement> statElements) {
+    private boolean readLiveSamples() {
+        long previous = nextLiveSample;
+
+        try {
+            nextLiveSample = liveHistory.readSince(nextLiveSample, decimator::add);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+
+        return nextLiveSample != previous;
+    }
+
+    @Override
+    public void dispose() {
+        if (liveTimer != null) {
+            liveTimer.stop();
+        }
+
+        super.dispose();
+    }
+
+    private void initUI() {
         backPanel = new JPanel();
 
         allCheckBox = new JCheckBox("Show all", true);
@@ -87,7 +220,7 @@ public class StatisticsView extends JFrame implements ActionListener {
             checkBoxes[k].addActionListener(this);
         }
 
-        XYDataset dataset = createDataset(statElements, false);
+        dataset = createDataset(false);
 
         List<Color> colors = getColors();
 
@@ -124,40 +257,16 @@ public class StatisticsView extends JFrame implements ActionListener {
         return colors;
     }
 
-    private XYDataset createDataset(List<StatElement> statElements, boolean relative) {
-        XYSeries[] allSeries = new XYSeries[statLabels.length];
-
-        for (int k = 0; k < allSeries.length; k++) {
-            allSeries[k] = new XYSeries(statLabels[k]);
-        }
-
-        double current = 0;
-        for (StatElement element : statElements) {
-            allSeries[0].add(current, element.getCreatureAmount());
-            allSeries[1].add(current, element.getAverageLife());
-            allSeries[2].add(current, element.getAverageMaxLife());
-            allSeries[3].add(current, element.getAverageEnergy());
-            allSeries[4].add(current, element.getAverageMaxEnergy());
-            allSeries[5].add(current, element.getAverageSpeed());
-            allSeries[6].add(current, element.getAverageVisionRange());
-            allSeries[7].add(current, element.getAverageMatingEnergyNeeded());
-            allSeries[8].add(current, element.getAverageBreedLength());
-            allSeries[9].add(current, element.getAverageBreedProgressSpeed());
-            allSeries[10].add(current, element.getGenderRatio());
-            allSeries[11].add(current, element.getPregnancyRatio());
-
-            current++;
-        }
-
-        final XYSeriesCollection dataset = new XYSeriesCollection();
+    private StatSeriesDataset createDataset(boolean relative) {
+        List<Integer> metrics = new ArrayList<>();
 
-        for (int k = 0; k < allSeries.length; k++) {
+        for (int k = 0; k < checkBoxes.length; k++) {
             if (checkBoxes[k].isSelected()) {
-                dataset.addSeries(allSeries[k]);
+                metrics.add(k);
             }
         }
 
-        return dataset;
+        return new StatSeriesDataset(decimator, statLabels, metrics);
     }
 
     private JFreeChart createChart(final XYDataset dataset, List<Color> colors) {
@@ -190,7 +299,11 @@ public class StatisticsView extends JFrame implements ActionListener {
     public void actionPerformed(ActionEvent e) {
         Object source = e.getSource();
 
-        if (source instanceof JCheckBox) {
+        if (source == liveTimer) {
+            if (readLiveSamples()) {
+                dataset.update();
+            }
+        } else if (source instanceof JCheckBox) {
             JCheckBox selectedBox = (JCheckBox) source;
 
             if (selectedBox == allCheckBox) {
@@ -199,18 +312,22 @@ public class StatisticsView extends JFrame implements ActionListener {
                 }
             }
 
-            List<Color> colors = getColors();
-            XYDataset dataset = createDataset(statElements, false);
-            chart = createChart(dataset, colors);
+            updateChart();
+        }
+    }
 
-            backPanel.remove(chartPanel);
+    private void updateChart() {
+        List<Color> colors = getColors();
+        dataset = createDataset(false);
+        chart = createChart(dataset, colors);
+
+        backPanel.remove(chartPanel);
 
-            chartPanel = new ChartPanel(chart);
+        chartPanel = new ChartPanel(chart);
 
-            backPanel.add(chartPanel, BorderLayout.CENTER);
+        backPanel.add(chartPanel, BorderLayout.CENTER);
 
-            revalidate();
-            repaint();
-        }
+        revalidate();
+        repaint();
     }
 }
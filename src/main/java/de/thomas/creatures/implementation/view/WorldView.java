@@ -1,71 +1,361 @@
 package de.thomas.creatures.implementation.view;
 
-import de.thomas.creatures.implementation.model.Creature;
 import de.thomas.creatures.implementation.model.Creature.Gender;
-import de.thomas.creatures.implementation.model.Food;
+import de.thomas.creatures.implementation.model.FoodField;
+import de.thomas.creatures.implementation.model.RenderBuffer;
+import de.thomas.creatures.implementation.model.RenderSnapshot;
 import de.thomas.creatures.implementation.model.WorldModel;
+import de.thomas.creatures.implementation.statistics.PopulationHeatmap;
+import de.thomas.creatures.implementation.statistics.TrajectoryReader;
 
 import javax.swing.*;
 import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
 
 public class WorldView extends JPanel {
     private static final long serialVersionUID = 5628493124295876371L;
     public static int CREATURE_SIZE = 12;
     public static int FOOD_SIZE = 8;
     public static boolean DEBUG_MODE = true;
+    //Pixels around the view within which creatures and food are still painted, as their sprite and text reach into it
+    private static final int CULL_MARGIN = 64;
+    public static final Color FOOD_COLOR = new Color(116, 195, 101);
+    public static final Color MALE_COLOR = new Color(0, 0, 255);
+    public static final Color FEMALE_COLOR = new Color(255, 0, 0);
+    //The heatmap colour at every alpha value, so painting a cell creates no colour
+    private static final Color[] HEATMAP_COLORS = createAlphaColors(new Color(255, 140, 0));
+    private static final Color[] FOOD_FIELD_COLORS = createAlphaColors(FOOD_COLOR);
 
     private transient WorldModel world;
+    //Creatures and food are painted from the snapshots the simulation publishes into this buffer
+    private transient RenderBuffer renderBuffer = new RenderBuffer();
+    private transient FoodLayer foodLayer = new FoodLayer();
+    //The pixels of one pre-rendered creature per gender at the current zoom factor
+    private transient int[][] spritePixels = new int[Gender.values().length][];
+    private int spriteSize = -1;
+    //The creatures are copied into the pixels of this image of the view size, which is drawn at once
+    private transient BufferedImage creatureImage;
+    private transient int[] creaturePixels;
+    //Buffer the debug text of a creature is formatted into
+    private transient char[] debugChars = new char[32];
 
     private int zoomFactor;
     private int offsetX;
     private int offsetY;
+    private HeatmapLayer heatmapLayer = HeatmapLayer.NONE;
+    //The area of the world visible during the current paint, including the margin
+    private double visibleMinX;
+    private double visibleMinY;
+    private double visibleMaxX;
+    private double visibleMaxY;
+    //Only set while a recording is replayed, its current tick is published to the render buffer then
+    private transient TrajectoryReader replay;
+
+    public enum HeatmapLayer {NONE, CREATURE_AMOUNT, AVERAGE_SPEED, AVERAGE_ENERGY}
 
     public WorldView(WorldModel world) {
         this.world = world;
         zoomFactor = 1;
+        attachRenderBuffer();
 
         setFocusable(true);
     }
 
+    private void attachRenderBuffer() {
+        renderBuffer.publish(world);
+        world.setRenderBuffer(renderBuffer);
+    }
+
     public void paint(Graphics g) {
         super.paint(g);
+        RenderSnapshot snapshot = renderBuffer.read();
+        updateVisibleArea();
+
+        //Only the cells of the snapshot overlapping the visible area are visited
+        int firstCellX = snapshot.getCellX(visibleMinX);
+        int firstCellY = snapshot.getCellY(visibleMinY);
+        int lastCellX = snapshot.getCellX(visibleMaxX);
+        int lastCellY = snapshot.getCellY(visibleMaxY);
+
+        //Draw food field
+        if (snapshot.getFoodField() != null) {
+            paintFoodField(g, snapshot.getFoodField());
+        }
 
-        //Draw food
-        g.setColor(new Color(116, 195, 101));
-        for (Food food : world.getFoods()) {
-            g.fillOval((int) (food.getPosition().x / zoomFactor + (double) offsetX / zoomFactor),
-                    (int) (food.getPosition().y / zoomFactor + (double) offsetY / zoomFactor),
-                    FOOD_SIZE / zoomFactor,
-                    FOOD_SIZE / zoomFactor);
+        //Draw food, from the cached layer if the world is small enough
+        if (foodLayer.update(snapshot, zoomFactor, FOOD_SIZE)) {
+            g.drawImage(foodLayer.getImage(), (int) ((double) offsetX / zoomFactor), (int) ((double) offsetY / zoomFactor), null);
+        } else {
+            paintFood(g, snapshot, firstCellX, firstCellY, lastCellX, lastCellY);
+        }
+
+        //Draw heatmap
+        if (heatmapLayer != HeatmapLayer.NONE && snapshot.getHeatmap() != null) {
+            paintHeatmap(g, snapshot.getHeatmap());
         }
 
         //Draw creatures
-        for (Creature creature : world.getCreatures()) {
-            if (creature.getGender() == Gender.MALE) {
-                g.setColor(new Color(0, 0, 255));
-            } else {
-                g.setColor(new Color(255, 0, 0));
+        updateCreatureSprites();
+        if (spriteSize > 0 && updateCreatureImage()) {
+            for (int cellY = firstCellY; cellY <= lastCellY; cellY++) {
+                for (int i = snapshot.getCreatureStart(firstCellX, cellY); i < snapshot.getCreatureStart(lastCellX + 1, cellY); i++) {
+                    copySprite(spritePixels[snapshot.getGender(i).ordinal()],
+                            (int) (snapshot.getCreatureX(i) / zoomFactor + (double) offsetX / zoomFactor),
+                            (int) (snapshot.getCreatureY(i) / zoomFactor + (double) offsetY / zoomFactor));
+                }
+            }
+
+            g.drawImage(creatureImage, 0, 0, null);
+        }
+
+        //A recording holds no life and energy to show
+        if (DEBUG_MODE && replay == null) {
+            g.setColor(Color.black);
+
+            for (int cellY = firstCellY; cellY <= lastCellY; cellY++) {
+                for (int i = snapshot.getCreatureStart(firstCellX, cellY); i < snapshot.getCreatureStart(lastCellX + 1, cellY); i++) {
+                    if (!isVisible(snapshot.getCreatureX(i), snapshot.getCreatureY(i))) {
+                        continue;
+                    }
+
+                    //Formatted without creating a String for every creature
+                    int length = formatDebugText((int) snapshot.getLifeRatio(i), (int) snapshot.getEnergy(i));
+
+                    g.drawChars(debugChars, 0, length,
+                            (int) (snapshot.getCreatureX(i) / zoomFactor + (double) offsetX / zoomFactor),
+                            (int) (snapshot.getCreatureY(i) / zoomFactor + (double) offsetY / zoomFactor));
+                }
+            }
+        }
+    }
+
+    /**
+     * Recreates the creature image if the view size changed, else clears it.
+     *
+     * @return false if the view has no area
+     */
+    private boolean updateCreatureImage() {
+        if (getWidth() <= 0 || getHeight() <= 0) {
+            return false;
+        }
+
+        if (creatureImage == null || creatureImage.getWidth() != getWidth() || creatureImage.getHeight() != getHeight()) {
+            creatureImage = new BufferedImage(getWidth(), getHeight(), BufferedImage.TYPE_INT_ARGB);
+            creaturePixels = ((DataBufferInt) creatureImage.getRaster().getDataBuffer()).getData();
+        } else {
+            Arrays.fill(creaturePixels, 0);
+        }
+
+        return true;
+    }
+
+    /**
+     * Copies the opaque pixels of a sprite into the creature image, the parts outside of the image are cut off.
+     */
+    private void copySprite(int[] sprite, int x, int y) {
+        int width = creatureImage.getWidth();
+        int height = creatureImage.getHeight();
+
+        if (x >= width || y >= height || x + spriteSize <= 0 || y + spriteSize <= 0) {
+            return;
+        }
+
+        int firstX = Math.max(-x, 0);
+        int lastX = Math.min(spriteSize, width - x);
+        int lastY = Math.min(spriteSize, height - y);
+
+        for (int spriteY = Math.max(-y, 0); spriteY < lastY; spriteY++) {
+            int row = (y + spriteY) * width + x;
+            int spriteRow = spriteY * spriteSize;
+
+            for (int spriteX = firstX; spriteX < lastX; spriteX++) {
+                int pixel = sprite[spriteRow + spriteX];
+
+                if (pixel != 0) {
+                    creaturePixels[row + spriteX] = pixel;
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes "life | energy" into debugChars.
+     *
+     * @return the number of chars written
+     */
+    private int formatDebugText(int life, int energy) {
+        int length = formatInt(life, 0);
+        debugChars[length++] = ' ';
+        debugChars[length++] = '|';
+        debugChars[length++] = ' ';
+        return formatInt(energy, length);
+    }
+
+    private int formatInt(int value, int position) {
+        if (value < 0) {
+            debugChars[position++] = '-';
+        }
+
+        int digits = 1;
+        for (int rest = value / 10; rest != 0; rest /= 10) {
+            digits++;
+        }
+
+        for (int i = position + digits - 1; i >= position; i--) {
+            debugChars[i] = (char) ('0' + Math.abs(value % 10));
+            value /= 10;
+        }
+
+        return position + digits;
+    }
+
+    private void paintFood(Graphics g, RenderSnapshot snapshot, int firstCellX, int firstCellY, int lastCellX, int lastCellY) {
+        g.setColor(FOOD_COLOR);
+
+        for (int cellY = firstCellY; cellY <= lastCellY; cellY++) {
+            for (int i = snapshot.getFoodStart(firstCellX, cellY); i < snapshot.getFoodStart(lastCellX + 1, cellY); i++) {
+                if (isVisible(snapshot.getFoodX(i), snapshot.getFoodY(i))) {
+                    g.fillOval((int) (snapshot.getFoodX(i) / zoomFactor + (double) offsetX / zoomFactor),
+                            (int) (snapshot.getFoodY(i) / zoomFactor + (double) offsetY / zoomFactor),
+                            FOOD_SIZE / zoomFactor,
+                            FOOD_SIZE / zoomFactor);
+                }
             }
+        }
+    }
+
+    /**
+     * Renders the creature sprites again if the zoom factor or the creature size changed.
+     * Creatures smaller than a pixel have no sprite and are not painted.
+     */
+    private void updateCreatureSprites() {
+        int size = CREATURE_SIZE / zoomFactor;
+        if (size == spriteSize) {
+            return;
+        }
+
+        spriteSize = size;
+        for (Gender gender : Gender.values()) {
+            BufferedImage sprite = size > 0 ? createSprite(gender == Gender.MALE ? MALE_COLOR : FEMALE_COLOR, size) : null;
+
+            spritePixels[gender.ordinal()] = sprite != null ? sprite.getRGB(0, 0, size, size, null, 0, size) : null;
+        }
+    }
+
+    private static BufferedImage createSprite(Color color, int size) {
+        BufferedImage sprite = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = sprite.createGraphics();
+
+        g.setColor(color);
+        g.fillOval(0, 0, size, size);
+        g.dispose();
+
+        return sprite;
+    }
+
+    /**
+     * Computes the area of the world shown with the current size, zoom and offset, plus the cull margin.
+     * A world position is painted at (position + offset) / zoomFactor.
+     */
+    private void updateVisibleArea() {
+        double margin = (double) CULL_MARGIN * zoomFactor;
+
+        visibleMinX = -offsetX - margin;
+        visibleMinY = -offsetY - margin;
+        visibleMaxX = (double) getWidth() * zoomFactor - offsetX + margin;
+        visibleMaxY = (double) getHeight() * zoomFactor - offsetY + margin;
+    }
+
+    private boolean isVisible(double x, double y) {
+        return x >= visibleMinX && x <= visibleMaxX && y >= visibleMinY && y <= visibleMaxY;
+    }
+
+    private void paintFoodField(Graphics g, FoodField foodField) {
+        double capacity = foodField.getCapacity(world);
+        int cellSize = (int) Math.ceil(foodField.getCellSize() / zoomFactor);
+        int cellsX = foodField.getCellsX();
+        int firstCell = foodField.getCell(visibleMinX, visibleMinY);
+        int lastCell = foodField.getCell(visibleMaxX, visibleMaxY);
+
+        //Only the visible columns of the visible rows are visited
+        for (int cellY = firstCell / cellsX; cellY <= lastCell / cellsX; cellY++) {
+            for (int cellX = firstCell % cellsX; cellX <= lastCell % cellsX; cellX++) {
+                int cell = cellY * cellsX + cellX;
+                int alpha = (int) (Math.min(foodField.getEnergy(cell) / capacity, 1) * 255);
+
+                if (alpha > 0) {
+                    g.setColor(FOOD_FIELD_COLORS[alpha]);
+                    g.fillRect((int) ((foodField.getCellCenterX(cell) - foodField.getCellSize() / 2) / zoomFactor + (double) offsetX / zoomFactor),
+                            (int) ((foodField.getCellCenterY(cell) - foodField.getCellSize() / 2) / zoomFactor + (double) offsetY / zoomFactor),
+                            cellSize,
+                            cellSize);
+                }
+            }
+        }
+    }
 
-            g.fillOval((int) (creature.getPosition().x / zoomFactor + (double) offsetX / zoomFactor),
-                    (int) (creature.getPosition().y / zoomFactor + (double) offsetY / zoomFactor),
-                    CREATURE_SIZE / zoomFactor,
-                    CREATURE_SIZE / zoomFactor);
+    private void paintHeatmap(Graphics g, PopulationHeatmap heatmap) {
+        double maxValue = 0;
+        for (int cell = 0; cell < heatmap.getCellAmount(); cell++) {
+            maxValue = Math.max(maxValue, getHeatmapValue(heatmap, cell));
         }
 
-        if (DEBUG_MODE) {
-            for (Creature creature : world.getCreatures()) {
-                g.setColor(Color.black);
-                String displayString = ((int) ((creature.getLife() / creature.getMaxLife()) * 100)) + " | "
-                        + ((int) creature.getEnergy());
+        if (maxValue <= 0) {
+            return;
+        }
+
+        int cellSize = (int) Math.ceil(heatmap.getCellSize() / zoomFactor);
+        int cellsX = heatmap.getCellsX();
+        int firstCell = heatmap.getCell(visibleMinX, visibleMinY);
+        int lastCell = heatmap.getCell(visibleMaxX, visibleMaxY);
+
+        //The maximum is taken over the whole world, so the colours do not change when the view is moved
+        for (int cellY = firstCell / cellsX; cellY <= lastCell / cellsX; cellY++) {
+            for (int cellX = firstCell % cellsX; cellX <= lastCell % cellsX; cellX++) {
+                int alpha = (int) (getHeatmapValue(heatmap, cellY * cellsX + cellX) / maxValue * 160);
 
-                g.drawString(displayString,
-                        (int) (creature.getPosition().x / zoomFactor + (double) offsetX / zoomFactor),
-                        (int) (creature.getPosition().y / zoomFactor + (double) offsetY / zoomFactor));
+                if (alpha > 0) {
+                    g.setColor(HEATMAP_COLORS[alpha]);
+                    g.fillRect((int) (cellX * heatmap.getCellSize() / zoomFactor + (double) offsetX / zoomFactor),
+                            (int) (cellY * heatmap.getCellSize() / zoomFactor + (double) offsetY / zoomFactor),
+                            cellSize,
+                            cellSize);
+                }
             }
         }
     }
 
+    private static Color[] createAlphaColors(Color color) {
+        Color[] colors = new Color[256];
+
+        for (int alpha = 0; alpha < colors.length; alpha++) {
+            colors[alpha] = new Color(color.getRed(), color.getGreen(), color.getBlue(), alpha);
+        }
+
+        return colors;
+    }
+
+    private double getHeatmapValue(PopulationHeatmap heatmap, int cell) {
+        switch (heatmapLayer) {
+            case CREATURE_AMOUNT:
+                return heatmap.getCount(cell);
+            case AVERAGE_SPEED:
+                return heatmap.getMeanSpeed(cell);
+            default:
+                return heatmap.getMeanEnergy(cell);
+        }
+    }
+
+    public HeatmapLayer getHeatmapLayer() {
+        return heatmapLayer;
+    }
+
+    public void setHeatmapLayer(HeatmapLayer heatmapLayer) {
+        this.heatmapLayer = heatmapLayer;
+    }
+
     public int getZoomFactor() {
         return zoomFactor;
     }
@@ -90,7 +380,37 @@ public class WorldView extends JPanel {
         this.offsetY = offsetY;
     }
 
+    public TrajectoryReader getReplay() {
+        return replay;
+    }
+
+    /**
+     * Paints the ticks of a recording instead of the world, starting with its current tick.
+     *
+     * @param replay the reader of the recording, or null to paint the world again
+     */
+    public void setReplay(TrajectoryReader replay) {
+        this.replay = replay;
+
+        if (replay != null) {
+            renderBuffer.publish(replay);
+        } else {
+            renderBuffer.publish(world);
+        }
+    }
+
+    /**
+     * Publishes the current tick of the replayed recording, after the reader was advanced or moved.
+     */
+    public void publishReplay() {
+        renderBuffer.publish(replay);
+    }
+
     public void setWorld(WorldModel worldModel) {
+        world.setRenderBuffer(null);
         this.world = worldModel;
+        renderBuffer = new RenderBuffer();
+        foodLayer = new FoodLayer();
+        attachRenderBuffer();
     }
 }
@@ -0,0 +1,70 @@
+package de.thomas.creatures.tests;
+
+import de.thomas.creatures.implementation.statistics.BinaryStatisticsReader;
+import de.thomas.creatures.implementation.statistics.BinaryStatisticsWriter;
+import de.thomas.creatures.implementation.statistics.StatElement;
+import de.thomas.creatures.implementation.statistics.StatisticsSerializer;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class BinaryStatisticsTest {
+
+    @Test
+    public void testRoundTripAcrossChunks() throws Exception {
+        File file = File.createTempFile("statistics", "." + BinaryStatisticsWriter.EXTENSION);
+        file.deleteOnExit();
+        double[] sample = new double[StatElement.METRIC_AMOUNT];
+
+        try (BinaryStatisticsWriter writer = new BinaryStatisticsWriter(file, 16)) {
+            for (int i = 0; i < 40; i++) {
+                for (int metric = 0; metric < sample.length; metric++) {
+                    sample[metric] = i * 100 + metric;
+                }
+                writer.write(i * 0.5, sample);
+
+                if (i == 20) {
+                    writer.flush();
+                }
+            }
+        }
+
+        BinaryStatisticsReader reader = new BinaryStatisticsReader(file);
+
+        assertEquals(40, reader.size());
+        for (int i = 0; i < 40; i++) {
+            assertEquals(i * 0.5, reader.getTime(i));
+            assertEquals(i * 100.0 + 7, reader.getValue(7, i));
+        }
+
+        File csvFile = File.createTempFile("statistics", ".csv");
+        csvFile.deleteOnExit();
+        new StatisticsSerializer().convertToCsv(file, csvFile);
+
+        assertEquals(41, Files.readAllLines(csvFile.toPath()).size());
+    }
+
+    @Test
+    public void testInvalidChunkSizeIsRejected() throws Exception {
+        File file = File.createTempFile("statistics", "." + BinaryStatisticsWriter.EXTENSION);
+        file.deleteOnExit();
+
+        try (BinaryStatisticsWriter writer = new BinaryStatisticsWriter(file, 16)) {
+            writer.write(0, new double[StatElement.METRIC_AMOUNT]);
+        }
+
+        //The chunk size follows the magic number and the version
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(2 * Integer.BYTES);
+            raf.writeInt(0);
+        }
+
+        assertThrows(IOException.class, () -> new BinaryStatisticsReader(file));
+    }
+}
@@ -0,0 +1,118 @@
+package de.thomas.creatures.tests;
+
+import de.thomas.creatures.implementation.statistics.ConvergenceDetector;
+import de.thomas.creatures.implementation.statistics.ConvergenceDetector.Reason;
+import de.thomas.creatures.implementation.statistics.StatElement;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ConvergenceDetectorTest {
+    private static final int SPEED = 5;
+
+    private static StatElement element(int amount, double speed, double genderRatio, double pregnancyRatio) {
+        return new StatElement(amount, 1, 1, 1, 1, speed, 1, 1, 1, 1, genderRatio, pregnancyRatio);
+    }
+
+    @Test
+    public void testExtinction() {
+        ConvergenceDetector detector = new ConvergenceDetector();
+
+        detector.add(1, element(10, 1, 0.5, 0));
+        assertFalse(detector.isConverged());
+        assertNull(detector.getReason());
+        assertTrue(Double.isNaN(detector.getTime()));
+
+        detector.add(2, element(0, Double.NaN, Double.NaN, Double.NaN));
+        assertEquals(Reason.EXTINCTION, detector.getReason());
+        assertEquals(2.0, detector.getTime(), 0.0);
+
+        //The first convergence is kept
+        detector.add(3, element(10, 1, 1, 0));
+        assertEquals(Reason.EXTINCTION, detector.getReason());
+        assertEquals(2.0, detector.getTime(), 0.0);
+    }
+
+    @Test
+    public void testFemalesWithPregnanciesDoNotConverge() {
+        ConvergenceDetector detector = new ConvergenceDetector();
+
+        //Females only, but some of them may still give birth to males
+        for (int i = 0; i < 10; i++) {
+            detector.add(i, element(10, 1, 1, 0.2));
+        }
+        assertFalse(detector.isConverged());
+
+        detector.add(10, element(10, 1, 1, 0));
+        assertEquals(Reason.SINGLE_GENDER, detector.getReason());
+        assertEquals(10.0, detector.getTime(), 0.0);
+
+        detector = new ConvergenceDetector();
+        detector.add(0, element(10, 1, 0, 0));
+        assertEquals(Reason.SINGLE_GENDER, detector.getReason());
+    }
+
+    @Test
+    public void testSteadyStateNeedsFullSettledWindow() {
+        ConvergenceDetector detector = new ConvergenceDetector();
+        detector.watchVariance(SPEED, 4, 0.01);
+
+        double[] speeds = {10, 20, 30, 30, 30, 30.1};
+        for (int i = 0; i < speeds.length - 1; i++) {
+            detector.add(i, element(10, speeds[i], 0.5, 0));
+            assertFalse(detector.isConverged());
+        }
+
+        //Only the last four samples count, the window is 30, 30, 30, 30.1
+        detector.add(5, element(10, speeds[5], 0.5, 0));
+        assertEquals(Reason.STEADY_STATE, detector.getReason());
+        assertEquals(5.0, detector.getTime(), 0.0);
+    }
+
+    @Test
+    public void testNaNSamplesNeverSettle() {
+        ConvergenceDetector detector = new ConvergenceDetector();
+        detector.watchVariance(SPEED, 3, 0.01);
+
+        for (int i = 0; i < 10; i++) {
+            detector.add(i, element(10, Double.NaN, 0.5, 0));
+        }
+        assertFalse(detector.isConverged());
+
+        //A NaN sample still in the window keeps the metric unsettled
+        detector.add(10, element(10, 1, 0.5, 0));
+        detector.add(11, element(10, 1, 0.5, 0));
+        assertFalse(detector.isConverged());
+
+        detector.add(12, element(10, 1, 0.5, 0));
+        assertEquals(Reason.STEADY_STATE, detector.getReason());
+        assertEquals(12.0, detector.getTime(), 0.0);
+    }
+
+    @Test
+    public void testCopyKeepsSettingsButNotState() {
+        ConvergenceDetector detector = new ConvergenceDetector();
+        detector.setDetectExtinction(false);
+        detector.setDetectSingleGender(false);
+        detector.watchVariance(SPEED, 2, 0.01);
+        detector.add(0, element(10, 1, 0.5, 0));
+        detector.add(1, element(10, 1, 0.5, 0));
+        assertEquals(Reason.STEADY_STATE, detector.getReason());
+
+        ConvergenceDetector copy = new ConvergenceDetector(detector);
+        assertFalse(copy.isConverged());
+
+        //Disabled detections are copied
+        copy.add(0, element(0, Double.NaN, Double.NaN, Double.NaN));
+        copy.add(1, element(10, 2, 0, 0));
+        assertFalse(copy.isConverged());
+
+        //The watch is copied with its window but without its samples
+        copy.add(2, element(10, 2, 0, 0));
+        assertEquals(Reason.STEADY_STATE, copy.getReason());
+        assertEquals(2.0, copy.getTime(), 0.0);
+    }
+}
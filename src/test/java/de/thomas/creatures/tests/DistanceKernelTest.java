@@ -0,0 +1,51 @@
+package de.thomas.creatures.tests;
+
+import de.thomas.creatures.implementation.kernel.DistanceKernel;
+import de.thomas.creatures.implementation.kernel.ScalarDistanceKernel;
+import de.thomas.creatures.implementation.kernel.VectorDistanceKernel;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class DistanceKernelTest {
+
+    @Test
+    public void testVectorKernelMatchesScalarKernel() {
+        DistanceKernel scalar = new ScalarDistanceKernel();
+        DistanceKernel vector = new VectorDistanceKernel();
+        long seed = 11;
+        Random random = new Random(seed);
+
+        double[] xs = new double[103];
+        double[] ys = new double[103];
+        for (int i = 0; i < xs.length; i++) {
+            xs[i] = random.nextDouble() * 100;
+            ys[i] = random.nextDouble() * 100;
+        }
+
+        for (int k = 0; k < 200; k++) {
+            double x = random.nextDouble() * 100;
+            double y = random.nextDouble() * 100;
+            double rangeSq = random.nextDouble() * 400;
+            int from = (int) (random.nextDouble() * 20);
+            int to = xs.length - (int) (random.nextDouble() * 20);
+
+            assertEquals(scalar.nearestWithin(xs, ys, from, to, x, y, rangeSq),
+                    vector.nearestWithin(xs, ys, from, to, x, y, rangeSq), "seed " + seed + ", query " + k);
+            assertEquals(scalar.nextWithin(xs, ys, from, to, x, y, rangeSq),
+                    vector.nextWithin(xs, ys, from, to, x, y, rangeSq), "seed " + seed + ", query " + k);
+        }
+    }
+
+    @Test
+    public void testNothingInRange() {
+        double[] xs = {0, 10, 20};
+        double[] ys = {0, 10, 20};
+
+        assertEquals(-1, new ScalarDistanceKernel().nearestWithin(xs, ys, 0, 3, 100, 100, 1));
+        assertEquals(-1, new ScalarDistanceKernel().nextWithin(xs, ys, 0, 3, 100, 100, 1));
+        assertEquals(1, new ScalarDistanceKernel().nextWithin(xs, ys, 1, 3, 0, 0, 1000));
+    }
+}
@@ -8,8 +8,10 @@ import de.thomas.creatures.implementation.model.WorldModel;
 import org.junit.jupiter.api.Test;
 
 import java.awt.geom.Point2D;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 //TODO Add tests!
@@ -37,4 +39,32 @@ public class FirstTest {
             assertTrue(p.y >= 0);
         }
     }
+
+    @Test
+    public void testWayPointsAreStablePerCreature() {
+        WorldModel model = new WorldModel(1000, 500, 50);
+
+        BasicAI first = createBasicAI(model, 7);
+        BasicAI sameSeed = createBasicAI(model, 7);
+        BasicAI otherSeed = createBasicAI(model, 8);
+
+        assertEquals(model.getWayPointGrid().size(), first.getWayPoints().size());
+        assertEquals(first.getWayPoints(), sameSeed.getWayPoints());
+
+        //The shared grid points are jittered differently for every seed
+        List<Point2D.Double> firstPoints = first.getWayPoints();
+        List<Point2D.Double> otherPoints = otherSeed.getWayPoints();
+        for (int i = 0; i < firstPoints.size(); i++) {
+            assertNotEquals(firstPoints.get(i), otherPoints.get(i));
+        }
+    }
+
+    private static BasicAI createBasicAI(WorldModel model, long wayPointSeed) {
+        BasicAI basicAI = new BasicAI(wayPointSeed);
+        basicAI.setCreature(new Creature(new Point2D.Double(100, 100), Gender.MALE));
+        basicAI.setWorldModel(model);
+        basicAI.init();
+
+        return basicAI;
+    }
 }
@@ -0,0 +1,84 @@
+package de.thomas.creatures.tests;
+
+import de.thomas.creatures.implementation.model.Food;
+import de.thomas.creatures.implementation.model.RenderSnapshot;
+import de.thomas.creatures.implementation.model.WorldModel;
+import de.thomas.creatures.implementation.view.FoodLayer;
+import de.thomas.creatures.implementation.view.WorldView;
+import org.junit.jupiter.api.Test;
+
+import java.awt.geom.Point2D;
+import java.awt.image.BufferedImage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class FoodLayerTest {
+
+    @Test
+    public void testOnlyChangedCellsAreRepainted() {
+        WorldModel world = new WorldModel(800, 600, 0);
+        for (int i = 0; i < 10; i++) {
+            world.getFoods().add(new Food(new Point2D.Double(50 + i * 70, 100 + i * 40), 10));
+        }
+
+        RenderSnapshot snapshot = new RenderSnapshot();
+        snapshot.capture(world);
+        FoodLayer layer = new FoodLayer();
+        assertTrue(layer.update(snapshot, 1, 8));
+        assertEquals(snapshot.getCellsX() * snapshot.getCellsY(), layer.getLastRedrawnCells());
+        assertEquals(WorldView.FOOD_COLOR.getRGB(), layer.getImage().getRGB(54, 104));
+
+        //Nothing changed
+        snapshot.capture(world);
+        layer.update(snapshot, 1, 8);
+        assertEquals(0, layer.getLastRedrawnCells());
+
+        //An eaten food and a spawned one, whose sprite reaches into the next cells
+        world.getFoods().remove(0);
+        world.getFoods().add(new Food(new Point2D.Double(300, 500), 10));
+        snapshot.capture(world);
+        layer.update(snapshot, 1, 8);
+        //Both cells and the cells their food reaches into, two cells to the right and below at 6.25 pixels per cell
+        assertEquals(18, layer.getLastRedrawnCells());
+        assertEquals(0, layer.getImage().getRGB(54, 104));
+        assertEquals(WorldView.FOOD_COLOR.getRGB(), layer.getImage().getRGB(304, 504));
+        assertEquals(WorldView.FOOD_COLOR.getRGB(), layer.getImage().getRGB(124, 144));
+
+        //A zoomed out layer is painted again at its size
+        layer.update(snapshot, 2, 8);
+        assertEquals(snapshot.getCellsX() * snapshot.getCellsY(), layer.getLastRedrawnCells());
+        assertEquals(WorldView.FOOD_COLOR.getRGB(), layer.getImage().getRGB(152, 252));
+
+        //No layer for worlds too large for an image
+        WorldModel largeWorld = new WorldModel(100000, 100000, 0);
+        snapshot.capture(largeWorld);
+        assertFalse(layer.update(snapshot, 1, 8));
+    }
+
+    @Test
+    public void testEatenFoodLeavesNoPixels() {
+        WorldModel world = new WorldModel(800, 600, 0);
+        //Food close to the right and bottom edges of their cells, their sprites reach into the next cells
+        for (int i = 0; i < 40; i++) {
+            world.getFoods().add(new Food(new Point2D.Double(6 + i * 18.75, 6 + i * 14.5), 10));
+        }
+
+        RenderSnapshot snapshot = new RenderSnapshot();
+        snapshot.capture(world);
+        FoodLayer layer = new FoodLayer();
+        layer.update(snapshot, 1, 8);
+
+        world.getFoods().clear();
+        snapshot.capture(world);
+        layer.update(snapshot, 1, 8);
+
+        BufferedImage image = layer.getImage();
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                assertEquals(0, image.getRGB(x, y));
+            }
+        }
+    }
+}
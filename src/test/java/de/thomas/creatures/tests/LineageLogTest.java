@@ -0,0 +1,55 @@
+package de.thomas.creatures.tests;
+
+import de.thomas.creatures.implementation.model.Creature;
+import de.thomas.creatures.implementation.model.Creature.Gender;
+import de.thomas.creatures.implementation.statistics.LineageLog;
+import de.thomas.creatures.implementation.statistics.TraitDistributions.Trait;
+import org.junit.jupiter.api.Test;
+
+import java.awt.geom.Point2D;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LineageLogTest {
+
+    @Test
+    public void testQueriesAcrossSpilledChunks() {
+        LineageLog log = new LineageLog();
+        Creature creature = new Creature(new Point2D.Double(0, 0), Gender.FEMALE);
+
+        //Two founders, then a maternal line through founder 0 in which the speed grows by one per generation
+        log.addBirth(creature, 0);
+        log.addBirth(creature, 0);
+
+        int births = LineageLog.CHUNK_ROWS + 1000;
+        for (int i = 2; i < births; i++) {
+            creature.setMotherId(i - 1 == 1 ? 0 : i - 1);
+            creature.setFatherId(1);
+            creature.setSpeed(24 + i);
+            log.addBirth(creature, i);
+        }
+        log.addDeath(5, 100);
+
+        assertEquals(births, log.size());
+        assertEquals(births - 2, log.countDescendants(0));
+        assertEquals(births - 3, log.countDescendants(2));
+        assertEquals(100.0, log.getDeathTime(5));
+        assertTrue(Double.isNaN(log.getDeathTime(6)));
+        assertEquals(births - 2.0, log.getBirthTime(births - 2));
+
+        double[] line = log.getLineTrait(births - 1, Trait.SPEED, true);
+        assertEquals(births - 1, line.length);
+        assertEquals(24.0, line[0]);
+        assertEquals(24.0 + births - 1, line[line.length - 1]);
+
+        double[] drift = log.getDescendantTraitDrift(LineageLog.CHUNK_ROWS - 10, Trait.SPEED);
+        assertEquals(1010, drift.length);
+        assertEquals(24.0 + LineageLog.CHUNK_ROWS + 10, drift[20]);
+        assertThrows(IndexOutOfBoundsException.class, () -> log.getDescendantTraitDrift(births, Trait.SPEED));
+        assertThrows(IndexOutOfBoundsException.class, () -> log.getDescendantTraitDrift(-1, Trait.SPEED));
+
+        log.close();
+    }
+}
@@ -0,0 +1,119 @@
+package de.thomas.creatures.tests;
+
+import de.thomas.creatures.implementation.controller.ParameterSweep;
+import de.thomas.creatures.implementation.model.Creature;
+import de.thomas.creatures.implementation.model.WorldModel;
+import de.thomas.creatures.implementation.statistics.ConvergenceDetector;
+import de.thomas.creatures.implementation.statistics.StatColumns;
+import de.thomas.creatures.implementation.statistics.StatElement;
+import de.thomas.creatures.implementation.statistics.TraitDistributions.Trait;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ParameterSweepTest {
+
+    @Test
+    public void testGridIsRunAndAggregated() throws Exception {
+        ParameterSweep sweep = new ParameterSweep();
+        sweep.getTemplate().setAmount(30);
+        sweep.getTemplate().setVariance(Trait.SPEED, 8);
+        sweep.setReplicateAmount(3);
+        sweep.addFactor(ParameterSweep.Factor.mutationRate(0, 0.2));
+        sweep.addFactor(ParameterSweep.Factor.foodCreationRate(20, 50, 80));
+        sweep.addFactor(ParameterSweep.Factor.trait(Trait.SPEED, 16, 32));
+        sweep.createGrid();
+
+        List<ParameterSweep.Configuration> configurations = sweep.getConfigurations();
+        assertEquals(12, configurations.size());
+        assertEquals(0.2, configurations.get(6).getParameters().getMutationRate());
+        assertEquals(50, configurations.get(8).getFoodCreationRate());
+        assertEquals(32.0, configurations.get(9).getTemplate().getValue(Trait.SPEED));
+
+        //The initial traits follow the template of the configuration
+        WorldModel world = sweep.createWorld(configurations.get(1), 5);
+        assertEquals(30, world.getCreatures().size());
+        for (Creature c : world.getCreatures()) {
+            assertTrue(c.getSpeed() >= 24 && c.getSpeed() <= 40);
+        }
+
+        sweep.run(5, 0.015, 1);
+
+        File file = File.createTempFile("sweep", ".csv");
+        file.deleteOnExit();
+        sweep.writeResults(file);
+
+        List<String> lines = Files.readAllLines(file.toPath());
+        int columnAmount = 1 + 3 + 6 + 2 * StatElement.METRIC_AMOUNT;
+        assertEquals(columnAmount, lines.get(0).split(";").length);
+
+        int rowAmount = 0;
+        for (ParameterSweep.Configuration configuration : configurations) {
+            StatColumns[] replicates = configuration.getReplicates();
+            assertEquals(3, replicates.length);
+            rowAmount += replicates[0].size() + 1;
+        }
+        assertEquals(rowAmount + 1, lines.size());
+
+        //The final row of the first configuration holds the mean creature amount of its replicates
+        StatColumns[] replicates = configurations.get(0).getReplicates();
+        double mean = 0;
+        for (StatColumns replicate : replicates) {
+            mean += replicate.getValue(0, replicate.size() - 1) / replicates.length;
+        }
+        String[] finalRow = lines.get(replicates[0].size() + 1).split(";");
+        assertEquals(columnAmount, finalRow.length);
+        assertEquals("1.0000", finalRow[4]);
+        assertEquals(mean, Double.parseDouble(finalRow[10]), 1E-4);
+
+        //The trait distributions hold the final creatures of all replicates
+        File traitFile = File.createTempFile("sweep-traits", ".csv");
+        traitFile.deleteOnExit();
+        sweep.writeTraitResults(traitFile);
+
+        List<String> traitLines = Files.readAllLines(traitFile.toPath());
+        assertEquals(configurations.size() + 1, traitLines.size());
+        assertEquals(1 + 3 + 1 + 3 * Trait.values().length, traitLines.get(0).split(";").length);
+
+        String[] traitRow = traitLines.get(1).split(";");
+        assertEquals(mean * replicates.length, Double.parseDouble(traitRow[4]), 1E-4);
+        double medianSpeed = Double.parseDouble(traitRow[5 + 3 * Trait.SPEED.ordinal() + 1]);
+        //The first configuration starts with a speed of 16 and a variance of 8, without mutations
+        assertTrue(medianSpeed >= 8 * 0.99 && medianSpeed <= 24 * 1.01);
+    }
+
+    @Test
+    public void testConvergedRunsStopEarly() throws Exception {
+        ParameterSweep sweep = new ParameterSweep();
+        sweep.getTemplate().setAmount(20);
+        sweep.getTemplate().setMaleRatio(100);
+        sweep.setReplicateAmount(2);
+        sweep.setConvergenceDetector(new ConvergenceDetector());
+        sweep.addFactor(ParameterSweep.Factor.mutationRate(0, 0.2));
+        sweep.createGrid();
+        sweep.run(30, 0.015, 1);
+
+        //A population of males only stops at the first sample
+        for (ParameterSweep.Configuration configuration : sweep.getConfigurations()) {
+            for (int r = 0; r < 2; r++) {
+                assertEquals(ConvergenceDetector.Reason.SINGLE_GENDER, configuration.getStopReasons()[r]);
+                assertTrue(configuration.getReplicates()[r].size() < 3);
+            }
+        }
+
+        File file = File.createTempFile("sweep", ".csv");
+        file.deleteOnExit();
+        sweep.writeResults(file);
+
+        List<String> lines = Files.readAllLines(file.toPath());
+        String[] finalRow = lines.get(lines.size() - 1).split(";");
+        assertEquals(2, Double.parseDouble(finalRow[4]), 1E-9);
+        assertEquals(0, Double.parseDouble(finalRow[5]), 1E-9);
+        assertEquals(2, Double.parseDouble(finalRow[6]), 1E-9);
+    }
+}
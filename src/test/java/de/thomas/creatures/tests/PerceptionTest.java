@@ -0,0 +1,60 @@
+package de.thomas.creatures.tests;
+
+import de.thomas.creatures.implementation.model.Perception;
+import de.thomas.creatures.implementation.model.Creature;
+import de.thomas.creatures.implementation.model.Creature.Gender;
+import de.thomas.creatures.implementation.model.Food;
+import de.thomas.creatures.implementation.model.WorldModel;
+import org.junit.jupiter.api.Test;
+
+import java.awt.geom.Point2D;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PerceptionTest {
+
+    @Test
+    public void testBatchMatchesFullScan() {
+        WorldModel model = new WorldModel(1000, 800, 50);
+
+        for (int i = 0; i < 200; i++) {
+            Creature creature = new Creature(new Point2D.Double(Math.random() * 1000, Math.random() * 800), Gender.MALE);
+            creature.setVisionRange(20 + Math.random() * 100);
+            model.addCreature(creature);
+        }
+
+        for (int i = 0; i < 500; i++) {
+            model.addFood(new Food(new Point2D.Double(Math.random() * 1000, Math.random() * 800), 50));
+        }
+
+        Perception perception = model.getPerception();
+        perception.update();
+
+        for (Creature creature : model.getCreatures()) {
+            assertTrue(perception.isCurrent(creature));
+
+            double nearestDistance = Double.MAX_VALUE;
+            for (Food food : model.getFoods()) {
+                double distance = food.getPosition().distance(creature.getPosition());
+
+                if (distance < creature.getVisionRange() && distance < nearestDistance) {
+                    nearestDistance = distance;
+                }
+            }
+
+            Food perceived = perception.getNearestFood(creature);
+            double perceivedDistance = perceived == null ? Double.MAX_VALUE : perceived.getPosition().distance(creature.getPosition());
+            assertEquals(nearestDistance, perceivedDistance, 1E-9);
+        }
+    }
+
+    @Test
+    public void testUnknownCreatureIsNotCurrent() {
+        WorldModel model = new WorldModel(1000, 800, 50);
+        model.getPerception().update();
+
+        assertFalse(model.getPerception().isCurrent(new Creature(new Point2D.Double(10, 10), Gender.FEMALE)));
+    }
+}
@@ -0,0 +1,71 @@
+package de.thomas.creatures.tests;
+
+import de.thomas.creatures.implementation.controller.WorldController;
+import de.thomas.creatures.implementation.model.Creature;
+import de.thomas.creatures.implementation.model.WorldFactory;
+import de.thomas.creatures.implementation.model.WorldModel;
+import de.thomas.creatures.implementation.statistics.PopulationHeatmap;
+import de.thomas.creatures.implementation.statistics.PopulationTotals;
+import de.thomas.creatures.implementation.statistics.TraitDistributions.Trait;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class PopulationTotalsTest {
+
+    @Test
+    public void testRunningTotalsMatchRescan() {
+        WorldModel world = WorldFactory.createBasicWorld(600, 400, 60, 50);
+        WorldController controller = new WorldController(world, null);
+
+        for (int tick = 0; tick < 2000; tick++) {
+            world.getPerception().update();
+
+            for (Creature c : world.getCreatures()) {
+                c.update();
+            }
+
+            controller.updateWorld(0.015);
+        }
+
+        PopulationTotals running = world.getPopulationTotals();
+        PopulationTotals rescanned = new PopulationTotals();
+        rescanned.recompute(world.getCreatures());
+
+        assertEquals(rescanned.getCreatureAmount(), running.getCreatureAmount());
+        assertEquals(rescanned.getFemaleAmount(), running.getFemaleAmount());
+        assertEquals(rescanned.getPregnancyAmount(), running.getPregnancyAmount());
+        assertEquals(rescanned.getTotalEnergy(), running.getTotalEnergy(), 1E-6 * Math.max(1, rescanned.getTotalEnergy()));
+        assertEquals(rescanned.getTotalLife(), running.getTotalLife(), 1E-6 * Math.max(1, rescanned.getTotalLife()));
+        assertEquals(rescanned.getTotalSpeed(), running.getTotalSpeed(), 1E-6 * Math.max(1, rescanned.getTotalSpeed()));
+        assertEquals(rescanned.getTraitDistributions().getQuantile(Trait.SPEED, 0.5),
+                running.getTraitDistributions().getQuantile(Trait.SPEED, 0.5));
+    }
+
+    @Test
+    public void testHeatmapMatchesRebuild() {
+        WorldModel world = WorldFactory.createBasicWorld(600, 400, 60, 50);
+        WorldController controller = new WorldController(world, null);
+        world.setHeatmap(new PopulationHeatmap(world.getWidth(), world.getHeight(), PopulationHeatmap.DEFAULT_CELL_SIZE));
+
+        for (int tick = 0; tick < 2000; tick++) {
+            world.getPerception().update();
+
+            for (Creature c : world.getCreatures()) {
+                c.update();
+            }
+
+            controller.updateWorld(0.015);
+        }
+
+        PopulationHeatmap running = world.getHeatmap();
+        PopulationHeatmap rebuilt = new PopulationHeatmap(world.getWidth(), world.getHeight(), PopulationHeatmap.DEFAULT_CELL_SIZE);
+        rebuilt.rebuild(world.getCreatures());
+
+        for (int cell = 0; cell < running.getCellAmount(); cell++) {
+            assertEquals(rebuilt.getCount(cell), running.getCount(cell));
+            assertEquals(rebuilt.getMeanSpeed(cell), running.getMeanSpeed(cell), 1E-6);
+            assertEquals(rebuilt.getMeanEnergy(cell), running.getMeanEnergy(cell), 1E-6 * Math.max(1, rebuilt.getMeanEnergy(cell)));
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package de.thomas.creatures.tests;
+
+import de.thomas.creatures.implementation.model.Creature;
+import de.thomas.creatures.implementation.model.Creature.Gender;
+import de.thomas.creatures.implementation.model.Food;
+import de.thomas.creatures.implementation.model.RenderBuffer;
+import de.thomas.creatures.implementation.model.RenderSnapshot;
+import de.thomas.creatures.implementation.model.WorldFactory;
+import de.thomas.creatures.implementation.model.WorldModel;
+import de.thomas.creatures.implementation.statistics.PopulationHeatmap;
+import org.junit.jupiter.api.Test;
+
+import java.awt.geom.Point2D;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RenderBufferTest {
+
+    @Test
+    public void testReadReturnsLatestPublishedSnapshot() {
+        WorldModel world = WorldFactory.createBasicWorld(600, 400, 20, 50);
+        RenderBuffer buffer = new RenderBuffer();
+
+        buffer.publish(world);
+        RenderSnapshot first = buffer.read();
+        assertEquals(world.getCreatures().size(), first.getCreatureAmount());
+        assertEquals(world.getFoods().size(), first.getFoodAmount());
+
+        //The snapshot is sorted by cell, so only the totals are compared
+        double sumX = 0;
+        double sumY = 0;
+        int males = 0;
+        for (int i = 0; i < first.getCreatureAmount(); i++) {
+            Creature creature = world.getCreatures().get(i);
+            sumX += creature.getPosition().x - first.getCreatureX(i);
+            sumY += creature.getPosition().y - first.getCreatureY(i);
+            males += (creature.getGender() == Gender.MALE ? 1 : 0) - (first.getGender(i) == Gender.MALE ? 1 : 0);
+        }
+        assertEquals(0, sumX, 1E-9);
+        assertEquals(0, sumY, 1E-9);
+        assertEquals(0, males);
+
+        //Without a new publication the view keeps its snapshot
+        assertSame(first, buffer.read());
+
+        //The snapshot being painted is never captured into, only the newest of several publications is read
+        world.getCreatures().remove(0);
+        buffer.publish(world);
+        world.getCreatures().remove(0);
+        buffer.publish(world);
+        assertEquals(20, first.getCreatureAmount());
+
+        RenderSnapshot latest = buffer.read();
+        assertNotSame(first, latest);
+        assertEquals(18, latest.getCreatureAmount());
+    }
+
+    @Test
+    public void testConcurrentPublishAndRead() throws Exception {
+        WorldModel world = WorldFactory.createBasicWorld(600, 400, 20, 50);
+        RenderBuffer buffer = new RenderBuffer();
+        for (Creature creature : world.getCreatures()) {
+            creature.getPosition().x = 0;
+        }
+        buffer.publish(world);
+
+        Thread publisher = new Thread(() -> {
+            for (int i = 0; i < 20000; i++) {
+                //Every creature is moved to the same position, a snapshot mixing two publications would differ
+                for (Creature creature : world.getCreatures()) {
+                    creature.getPosition().x = i;
+                }
+                buffer.publish(world);
+            }
+        });
+        publisher.start();
+
+        double lastX = -1;
+        while (publisher.isAlive()) {
+            RenderSnapshot snapshot = buffer.read();
+            double x = snapshot.getCreatureX(0);
+            for (int i = 1; i < snapshot.getCreatureAmount(); i++) {
+                assertEquals(x, snapshot.getCreatureX(i));
+            }
+            assertTrue(x >= lastX);
+            lastX = x;
+        }
+        publisher.join();
+
+        assertEquals(19999.0, buffer.read().getCreatureX(0));
+    }
+
+    @Test
+    public void testCellRangesHoldTheElementsOfTheirCells() {
+        WorldModel world = WorldFactory.createBasicWorld(600, 400, 500, 50);
+        for (int i = 0; i < 300; i++) {
+            world.getFoods().add(new Food(new Point2D.Double(Math.random() * 600, Math.random() * 400), 10));
+        }
+        //Elements outside of the world belong to the border cells
+        world.getCreatures().get(0).getPosition().x = -50;
+        world.getCreatures().get(1).getPosition().y = 1000;
+
+        RenderSnapshot snapshot = new RenderSnapshot();
+        snapshot.capture(world);
+
+        int creatureAmount = 0;
+        int foodAmount = 0;
+        for (int cellY = 0; cellY < snapshot.getCellsY(); cellY++) {
+            for (int cellX = 0; cellX < snapshot.getCellsX(); cellX++) {
+                for (int i = snapshot.getCreatureStart(cellX, cellY); i < snapshot.getCreatureStart(cellX + 1, cellY); i++) {
+                    assertEquals(cellX, snapshot.getCellX(snapshot.getCreatureX(i)));
+                    assertEquals(cellY, snapshot.getCellY(snapshot.getCreatureY(i)));
+                    creatureAmount++;
+                }
+                for (int i = snapshot.getFoodStart(cellX, cellY); i < snapshot.getFoodStart(cellX + 1, cellY); i++) {
+                    assertEquals(cellX, snapshot.getCellX(snapshot.getFoodX(i)));
+                    assertEquals(cellY, snapshot.getCellY(snapshot.getFoodY(i)));
+                    foodAmount++;
+                }
+            }
+        }
+        assertEquals(world.getCreatures().size(), creatureAmount);
+        assertEquals(world.getFoods().size(), foodAmount);
+    }
+
+    @Test
+    public void testFoodFieldAndHeatmapAreCopied() {
+        WorldModel world = WorldFactory.createEmptyFieldWorld(600, 400, 50);
+        world.setHeatmap(new PopulationHeatmap(600, 400, PopulationHeatmap.DEFAULT_CELL_SIZE));
+        world.getFoodField().setEnergy(0, 5);
+
+        RenderSnapshot snapshot = new RenderSnapshot();
+        snapshot.capture(world);
+        assertNotSame(world.getFoodField(), snapshot.getFoodField());
+        assertNotSame(world.getHeatmap(), snapshot.getHeatmap());
+        assertEquals(world.getFoodField().getCellAmount(), snapshot.getFoodField().getCellAmount());
+        assertEquals(world.getHeatmap().getCellAmount(), snapshot.getHeatmap().getCellAmount());
+
+        //The simulation changing the field does not change the snapshot being painted
+        world.getFoodField().setEnergy(0, 7);
+        assertEquals(5.0, snapshot.getFoodField().getEnergy(0));
+
+        snapshot.capture(world);
+        assertEquals(7.0, snapshot.getFoodField().getEnergy(0));
+    }
+}
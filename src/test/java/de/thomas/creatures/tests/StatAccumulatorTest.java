@@ -0,0 +1,101 @@
+package de.thomas.creatures.tests;
+
+import de.thomas.creatures.implementation.controller.WorldController;
+import de.thomas.creatures.implementation.model.Creature;
+import de.thomas.creatures.implementation.model.WorldFactory;
+import de.thomas.creatures.implementation.model.WorldModel;
+import de.thomas.creatures.implementation.statistics.ConvergenceDetector;
+import de.thomas.creatures.implementation.statistics.StatAccumulator;
+import de.thomas.creatures.implementation.statistics.StatColumns;
+import de.thomas.creatures.implementation.statistics.StatElement;
+import de.thomas.creatures.implementation.statistics.Statistics;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class StatAccumulatorTest {
+
+    @Test
+    public void testAccumulatedSampleMatchesRunningTotals() {
+        WorldModel world = WorldFactory.createBasicWorld(600, 400, 60, 50);
+        WorldController controller = new WorldController(world, null);
+        Statistics accumulated = new Statistics(world);
+        Statistics totals = new Statistics(world);
+        accumulated.setSampleInterval(0);
+        totals.setSampleInterval(0);
+        StatAccumulator accumulator = controller.attachAccumulator(accumulated, 1);
+
+        world.getPerception().update();
+        for (Creature c : world.getCreatures()) {
+            c.update();
+        }
+        controller.updateWorld(0.015);
+        accumulated.update(0.015);
+        totals.update(0.015);
+
+        StatElement sample = accumulated.getTopStatElement();
+        StatElement expected = totals.getTopStatElement();
+        assertTrue(accumulator.isUpdated());
+        assertEquals(world.getPopulationTotals().getCreatureAmount(), sample.getCreatureAmount());
+        assertEquals(expected.getCreatureAmount(), sample.getCreatureAmount());
+        assertEquals(expected.getGenderRatio(), sample.getGenderRatio(), 1E-9);
+        assertEquals(expected.getAverageSpeed(), sample.getAverageSpeed(), 1E-9);
+        assertEquals(expected.getAverageVisionRange(), sample.getAverageVisionRange(), 1E-9);
+        assertEquals(expected.getAverageMaxLife(), sample.getAverageMaxLife(), 1E-9);
+        assertEquals(expected.getAverageBreedLength(), sample.getAverageBreedLength(), 1E-9);
+        //Energy and life are taken after depletion, as the running totals do, no creature is born in the first update
+        assertEquals(expected.getAverageEnergy(), sample.getAverageEnergy(), 1E-9);
+        assertEquals(expected.getAverageLife(), sample.getAverageLife(), 1E-9);
+
+        accumulated.close();
+        totals.close();
+    }
+
+    @Test
+    public void testHeadlessRunSamplesOnlyEveryNthCreature() {
+        WorldModel world = WorldFactory.createBasicWorld(600, 400, 60, 50);
+        WorldController controller = new WorldController(world, null);
+        //A stride larger than the population only samples the first creature
+        controller.setStatisticsStride(1000);
+
+        StatColumns samples = controller.runHeadless(5, 0.015, 1);
+
+        assertTrue(samples.size() >= 4);
+        for (int i = 0; i < samples.size(); i++) {
+            //The creature amount stays exact, the gender ratio is the gender of the single sampled creature
+            assertTrue(samples.getValue(0, i) > 1);
+            double genderRatio = samples.getValue(10, i);
+            assertTrue(genderRatio == 0 || genderRatio == 1);
+        }
+    }
+
+    @Test
+    public void testSampledGenderRatioDoesNotConverge() {
+        WorldModel world = WorldFactory.createBasicWorld(600, 400, 60, 50);
+        WorldController controller = new WorldController(world, null);
+        Statistics statistics = new Statistics(world);
+        statistics.setSampleInterval(0);
+        ConvergenceDetector detector = new ConvergenceDetector();
+        statistics.setConvergenceDetector(detector);
+        //The single sampled creature has one gender, the world has both
+        controller.attachAccumulator(statistics, 1000);
+
+        for (int i = 0; i < 5; i++) {
+            world.getPerception().update();
+            for (Creature c : world.getCreatures()) {
+                c.update();
+            }
+            controller.updateWorld(0.015);
+            statistics.update(0.015);
+        }
+
+        assertTrue(statistics.getTopStatElement().getGenderRatio() == 0
+                || statistics.getTopStatElement().getGenderRatio() == 1);
+        assertTrue(world.getPopulationTotals().getFemaleAmount() > 0);
+        assertFalse(detector.isConverged());
+
+        statistics.close();
+    }
+}
@@ -0,0 +1,44 @@
+package de.thomas.creatures.tests;
+
+import de.thomas.creatures.implementation.statistics.StatElement;
+import de.thomas.creatures.implementation.statistics.StatHistory;
+import de.thomas.creatures.implementation.view.StatDecimator;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class StatDecimatorTest {
+
+    @Test
+    public void testLiveSamplesAreDecimatedWithPeaks() throws Exception {
+        StatHistory history = new StatHistory(100);
+        StatDecimator decimator = new StatDecimator(64);
+        long next = 0;
+
+        for (int i = 0; i < 10000; i++) {
+            double amount = i == 4321 ? 1000 : i % 10;
+            history.add(i, StatElement.fromValues(new double[]{amount, 1, 1, 1, 1, 1, 1, 1, 1, 1, 0.5, 0}));
+
+            if (i % 777 == 0) {
+                next = history.readSince(next, decimator::add);
+            }
+        }
+        next = history.readSince(next, decimator::add);
+
+        assertEquals(10000, next);
+        assertEquals(10000, decimator.getSampleAmount());
+        assertTrue(decimator.getPointAmount() <= 128);
+
+        double max = 0;
+        double lastTime = -1;
+        for (int point = 0; point < decimator.getPointAmount(); point++) {
+            max = Math.max(max, decimator.getValue(0, point));
+            assertTrue(decimator.getTime(0, point) >= lastTime);
+            lastTime = decimator.getTime(0, point);
+        }
+        assertEquals(1000.0, max);
+
+        history.close();
+    }
+}
@@ -0,0 +1,90 @@
+package de.thomas.creatures.tests;
+
+import de.thomas.creatures.implementation.statistics.StatColumns;
+import de.thomas.creatures.implementation.statistics.StatElement;
+import de.thomas.creatures.implementation.statistics.StatHistory;
+import de.thomas.creatures.implementation.statistics.StatRollup;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class StatHistoryTest {
+
+    private static StatElement element(int amount) {
+        return new StatElement(amount, amount, 0, 0, 0, amount * 2, 0, 0, 0, 0, 0.5, 0);
+    }
+
+    @Test
+    public void testSpilledSamplesAreKeptInOrder() throws IOException {
+        File spillFile = File.createTempFile("stat-history-test", ".bin");
+        spillFile.deleteOnExit();
+        StatHistory history = new StatHistory(100, spillFile);
+
+        for (int i = 0; i < 250; i++) {
+            history.add(i, element(i));
+        }
+
+        assertEquals(100, history.getRecentAmount());
+        assertEquals(250, history.getTotalAmount());
+        assertEquals(249, history.getLatest().getCreatureAmount());
+
+        StatColumns all = new StatColumns();
+        assertEquals(250, history.readSince(0, all::add));
+
+        assertEquals(250, all.size());
+        for (int i = 0; i < all.size(); i++) {
+            assertEquals(i, all.getTime(i), 0);
+            assertEquals(i, all.getValue(0, i), 0);
+            assertEquals(i * 2, all.getValue(5, i), 1E-9);
+        }
+        assertEquals(124.5, all.getMean(0), 1E-9);
+
+        history.close();
+    }
+
+    @Test
+    public void testTemporarySpillFileIsCreatedLazilyAndDeletedOnClose() throws IOException {
+        StatHistory history = new StatHistory(10);
+
+        for (int i = 0; i < 10; i++) {
+            history.add(i, element(i));
+        }
+        assertNull(history.getSpillFile());
+
+        history.add(10, element(10));
+        File spillFile = history.getSpillFile();
+        assertTrue(spillFile.exists());
+
+        history.close();
+        assertFalse(spillFile.exists());
+
+        //Only the samples in memory are left
+        StatColumns rest = new StatColumns();
+        history.readSince(0, rest::add);
+        assertEquals(10, rest.size());
+        assertEquals(1, rest.getTime(0), 0);
+    }
+
+    @Test
+    public void testMinuteRollups() {
+        StatHistory history = new StatHistory(10, null);
+
+        for (int i = 0; i < 150; i++) {
+            history.add(i, element(i));
+        }
+
+        List<StatRollup> rollups = history.getMinuteTier().getRollups();
+        assertEquals(3, rollups.size());
+        assertEquals(0, rollups.get(0).getMin(0), 0);
+        assertEquals(59, rollups.get(0).getMax(0), 0);
+        assertEquals(29.5, rollups.get(0).getMean(0), 1E-9);
+        assertEquals(30, rollups.get(2).getCount());
+    }
+}
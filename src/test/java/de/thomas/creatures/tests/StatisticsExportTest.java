@@ -0,0 +1,99 @@
+package de.thomas.creatures.tests;
+
+import de.thomas.creatures.implementation.statistics.CsvStatisticsWriter;
+import de.thomas.creatures.implementation.statistics.StatElement;
+import de.thomas.creatures.implementation.statistics.StatHistory;
+import de.thomas.creatures.implementation.statistics.StatisticsExporter;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.text.DecimalFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class StatisticsExportTest {
+
+    @Test
+    public void testRowsMatchDecimalFormat() throws Exception {
+        File file = File.createTempFile("export", ".csv");
+        file.deleteOnExit();
+        Random random = new Random(3);
+        DecimalFormat df = new DecimalFormat("#.0000");
+        double[] sample = new double[StatElement.METRIC_AMOUNT];
+
+        try (CsvStatisticsWriter writer = new CsvStatisticsWriter(file, false)) {
+            sample[0] = 42;
+            for (int metric = 1; metric < sample.length; metric++) {
+                sample[metric] = (random.nextDouble() - 0.2) * Math.pow(10, metric % 5);
+            }
+            writer.writeRow(sample);
+        }
+
+        List<String> lines = Files.readAllLines(file.toPath());
+        String[] cells = lines.get(1).split(";");
+
+        assertEquals("42", cells[0]);
+        for (int metric = 1; metric < sample.length; metric++) {
+            assertEquals(df.format(sample[metric]), cells[metric]);
+        }
+    }
+
+    @Test
+    public void testTiesAndLocaleMatchDecimalFormat() throws Exception {
+        Locale defaultLocale = Locale.getDefault();
+        Locale.setDefault(Locale.GERMANY);
+
+        try {
+            File file = File.createTempFile("export", ".csv");
+            file.deleteOnExit();
+            DecimalFormat df = new DecimalFormat("#.0000");
+            double[] values = {0.03125, 1.00005, 2.5E-5, 0.00015, -0.00005, -0.0, 1234.56785, -17.5};
+            double[] sample = new double[StatElement.METRIC_AMOUNT];
+
+            try (CsvStatisticsWriter writer = new CsvStatisticsWriter(file, false)) {
+                for (int metric = 1; metric < sample.length; metric++) {
+                    sample[metric] = values[metric % values.length];
+                }
+                writer.writeRow(sample);
+            }
+
+            String[] cells = Files.readAllLines(file.toPath()).get(1).split(";");
+
+            for (int metric = 1; metric < sample.length; metric++) {
+                assertEquals(df.format(sample[metric]), cells[metric]);
+            }
+        } finally {
+            Locale.setDefault(defaultLocale);
+        }
+    }
+
+    @Test
+    public void testExportContainsSpilledAndAppendedSamples() throws Exception {
+        File file = File.createTempFile("export", ".csv");
+        file.deleteOnExit();
+        StatHistory history = new StatHistory(10);
+
+        for (int i = 0; i < 25; i++) {
+            history.add(i, StatElement.fromValues(new double[]{i, 1, 1, 1, 1, 1, 1, 1, 1, 1, 0.5, 0}));
+        }
+
+        StatisticsExporter exporter = new StatisticsExporter(new CsvStatisticsWriter(file, false));
+        exporter.exportHistory(history);
+        exporter.append(25, StatElement.fromValues(new double[]{25, 1, 1, 1, 1, 1, 1, 1, 1, 1, 0.5, 0}));
+        exporter.close();
+        assertTrue(exporter.awaitTermination(5000));
+
+        List<String> lines = Files.readAllLines(file.toPath());
+        assertEquals(27, lines.size());
+        for (int i = 0; i <= 25; i++) {
+            assertEquals(String.valueOf(i), lines.get(i + 1).split(";")[0]);
+        }
+
+        history.close();
+    }
+}
@@ -0,0 +1,53 @@
+package de.thomas.creatures.tests;
+
+import de.thomas.creatures.implementation.statistics.TraitSketch;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class TraitSketchTest {
+
+    @Test
+    public void testQuantilesWithinRelativeAccuracy() {
+        Random random = new Random(7);
+        double[] values = new double[10000];
+        TraitSketch sketch = new TraitSketch();
+
+        for (int i = 0; i < values.length; i++) {
+            values[i] = 20 + random.nextGaussian() * 5 + 10;
+            sketch.add(values[i]);
+        }
+
+        Arrays.sort(values);
+
+        for (double quantile : new double[]{0.1, 0.5, 0.9}) {
+            double exact = values[(int) (quantile * (values.length - 1))];
+            assertEquals(exact, sketch.getQuantile(quantile), exact * TraitSketch.DEFAULT_RELATIVE_ACCURACY * 1.01);
+        }
+    }
+
+    @Test
+    public void testRemoveAndMerge() {
+        TraitSketch first = new TraitSketch();
+        TraitSketch second = new TraitSketch();
+
+        for (int i = 1; i <= 100; i++) {
+            first.add(i);
+            second.add(i + 100);
+        }
+
+        for (int i = 51; i <= 100; i++) {
+            first.remove(i);
+        }
+
+        first.merge(second);
+
+        assertEquals(150, first.getCount());
+        assertEquals(1, first.getQuantile(0), 0.01);
+        assertEquals(200, first.getQuantile(1), 200 * 0.01);
+        assertEquals(150, Arrays.stream(first.getHistogram(0, 250, 5)).sum());
+    }
+}
@@ -0,0 +1,176 @@
+package de.thomas.creatures.tests;
+
+import de.thomas.creatures.implementation.controller.WorldController;
+import de.thomas.creatures.implementation.model.Creature;
+import de.thomas.creatures.implementation.model.RenderSnapshot;
+import de.thomas.creatures.implementation.model.WorldFactory;
+import de.thomas.creatures.implementation.model.WorldModel;
+import de.thomas.creatures.implementation.statistics.TrajectoryReader;
+import de.thomas.creatures.implementation.statistics.TrajectoryRecorder;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TrajectoryRecorderTest {
+
+    @Test
+    public void testRecordingMatchesTheRun() throws Exception {
+        WorldModel world = WorldFactory.createBasicWorld(600, 400, 60, 50);
+        int initialAmount = world.getCreatures().size();
+        File file = File.createTempFile("run", "." + TrajectoryRecorder.EXTENSION);
+        file.deleteOnExit();
+        List<long[]> ticks = recordRun(world, file);
+
+        int births = 0;
+        int deaths = 0;
+        int eats = 0;
+        int conceptions = 0;
+        int bornWithParents = 0;
+
+        try (TrajectoryReader reader = new TrajectoryReader(file)) {
+            assertEquals(13, reader.getBlockAmount());
+
+            for (long[] state : ticks) {
+                assertTrue(reader.nextTick());
+                assertState(state, reader);
+
+                births += reader.getBirthAmount();
+                for (int k = 0; k < reader.getBirthAmount(); k++) {
+                    if (reader.getBirthMotherId(k) >= 0) {
+                        bornWithParents++;
+                    }
+                }
+                conceptions += reader.getConceptionAmount();
+                deaths += reader.getDeathAmount();
+                eats += reader.getEatAmount();
+            }
+
+            assertFalse(reader.nextTick());
+        }
+
+        //The creatures of the first tick are recorded as born
+        int lastAmount = ticks.get(ticks.size() - 1).length / 3;
+        assertEquals(births - deaths, lastAmount);
+        assertTrue(births > initialAmount);
+        assertEquals(births - initialAmount, bornWithParents);
+        assertTrue(conceptions >= bornWithParents);
+        assertTrue(eats > 0);
+    }
+
+    @Test
+    public void testReplayTickIsSortedIntoCells() throws Exception {
+        WorldModel world = WorldFactory.createBasicWorld(600, 400, 60, 50);
+        File file = File.createTempFile("run", "." + TrajectoryRecorder.EXTENSION);
+        file.deleteOnExit();
+        recordRun(world, file);
+
+        try (TrajectoryReader reader = new TrajectoryReader(file)) {
+            assertTrue(reader.nextTick());
+            RenderSnapshot snapshot = new RenderSnapshot();
+            snapshot.capture(reader);
+
+            int creatureAmount = 0;
+            double sumX = 0;
+            for (int cellY = 0; cellY < snapshot.getCellsY(); cellY++) {
+                for (int i = snapshot.getCreatureStart(0, cellY); i < snapshot.getCreatureStart(snapshot.getCellsX(), cellY); i++) {
+                    assertEquals(cellY, snapshot.getCellY(snapshot.getCreatureY(i)));
+                    sumX += snapshot.getCreatureX(i);
+                    creatureAmount++;
+                }
+            }
+            for (int i = 0; i < reader.size(); i++) {
+                sumX -= reader.getX(i);
+            }
+
+            assertEquals(reader.size(), creatureAmount);
+            assertEquals(0, sumX, 1E-6);
+            assertEquals(0, snapshot.getFoodAmount());
+            assertEquals(reader.getTime(), snapshot.getTime(), 0.0);
+        }
+    }
+
+    @Test
+    public void testSeekReadsTheSameTickAsReadingThrough() throws Exception {
+        WorldModel world = WorldFactory.createBasicWorld(600, 400, 60, 50);
+        File file = File.createTempFile("run", "." + TrajectoryRecorder.EXTENSION);
+        file.deleteOnExit();
+        List<long[]> ticks = recordRun(world, file);
+
+        List<Double> times = new ArrayList<>();
+        try (TrajectoryReader reader = new TrajectoryReader(file)) {
+            while (reader.nextTick()) {
+                times.add(reader.getTime());
+            }
+        }
+
+        try (TrajectoryReader reader = new TrajectoryReader(file)) {
+            //Backwards, across block starts and into the middle of blocks
+            int[] targets = {ticks.size() - 1, 5 * TrajectoryRecorder.BLOCK_TICKS + 100,
+                    5 * TrajectoryRecorder.BLOCK_TICKS, 2 * TrajectoryRecorder.BLOCK_TICKS - 1, 0};
+
+            for (int target : targets) {
+                assertTrue(reader.seek(times.get(target)));
+                assertEquals(times.get(target), reader.getTime());
+                assertState(ticks.get(target), reader);
+            }
+
+            //Times between two ticks move to the later tick
+            double between = (times.get(300) + times.get(301)) / 2;
+            assertTrue(reader.seek(between));
+            assertState(ticks.get(301), reader);
+            assertTrue(reader.nextTick());
+            assertState(ticks.get(302), reader);
+
+            assertFalse(reader.seek(times.get(ticks.size() - 1) + 1));
+        }
+    }
+
+    //Runs the world and returns the ids and quantized positions of every tick
+    private static List<long[]> recordRun(WorldModel world, File file) throws Exception {
+        WorldController controller = new WorldController(world, null);
+        TrajectoryRecorder recorder = new TrajectoryRecorder(file, world);
+        world.setTrajectoryRecorder(recorder);
+
+        List<long[]> ticks = new ArrayList<>();
+
+        for (int tick = 0; tick < 12 * TrajectoryRecorder.BLOCK_TICKS + 10; tick++) {
+            world.getPerception().update();
+
+            for (Creature c : world.getCreatures()) {
+                c.update();
+            }
+
+            controller.updateWorld(0.015);
+
+            long[] state = new long[3 * world.getCreatures().size()];
+            for (int i = 0; i < world.getCreatures().size(); i++) {
+                Creature c = world.getCreatures().get(i);
+                state[3 * i] = c.getId();
+                state[3 * i + 1] = TrajectoryRecorder.quantize(c.getPosition().x);
+                state[3 * i + 2] = TrajectoryRecorder.quantize(c.getPosition().y);
+            }
+            ticks.add(state);
+        }
+
+        recorder.close();
+        assertTrue(recorder.awaitTermination(10000));
+
+        return ticks;
+    }
+
+    private static void assertState(long[] state, TrajectoryReader reader) {
+        assertEquals(state.length / 3, reader.size());
+
+        for (int i = 0; i < reader.size(); i++) {
+            assertEquals(state[3 * i], reader.getId(i));
+            assertEquals(state[3 * i + 1], TrajectoryRecorder.quantize(reader.getX(i)));
+            assertEquals(state[3 * i + 2], TrajectoryRecorder.quantize(reader.getY(i)));
+        }
+    }
+}
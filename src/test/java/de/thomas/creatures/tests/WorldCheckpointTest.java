@@ -0,0 +1,157 @@
+package de.thomas.creatures.tests;
+
+import de.thomas.creatures.implementation.controller.WorldCheckpointer;
+import de.thomas.creatures.implementation.controller.WorldController;
+import de.thomas.creatures.implementation.model.Creature;
+import de.thomas.creatures.implementation.model.FoodField;
+import de.thomas.creatures.implementation.model.WorldFactory;
+import de.thomas.creatures.implementation.model.WorldModel;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class WorldCheckpointTest {
+
+    @Test
+    public void testRestoredWorldMatchesTheCheckpointedState() throws Exception {
+        assertRestoredAfterRun(WorldFactory.createBasicWorld(600, 400, 60, 50));
+    }
+
+    @Test
+    public void testRestoredFoodFieldMatchesTheCheckpointedState() throws Exception {
+        WorldModel world = WorldFactory.createBasicWorld(600, 400, 60, 50);
+        FoodField foodField = new FoodField(world.getWidth(), world.getHeight(), FoodField.DEFAULT_CELL_SIZE);
+        foodField.fill(world, 0.5);
+        world.setFoodField(foodField);
+
+        assertRestoredAfterRun(world);
+    }
+
+    private static void assertRestoredAfterRun(WorldModel world) throws Exception {
+        WorldController controller = new WorldController(world, null);
+        File file = File.createTempFile("world", "." + WorldCheckpointer.EXTENSION);
+        file.deleteOnExit();
+        controller.startCheckpoints(file, 0.2);
+
+        //State of the world after every update, by world time
+        Map<Double, double[]> states = new HashMap<>();
+
+        for (int tick = 0; tick < 2000; tick++) {
+            world.getPerception().update();
+
+            for (Creature c : world.getCreatures()) {
+                c.update();
+            }
+
+            controller.updateWorld(0.015);
+
+            states.put(world.getTime(), describe(world));
+        }
+
+        WorldCheckpointer checkpointer = controller.getCheckpointer();
+        controller.stopCheckpoints();
+        assertTrue(checkpointer.awaitTermination(10000));
+
+        WorldModel restored = WorldCheckpointer.restore(file);
+        assertRestored(states, restored);
+        assertTrue(restored.getTime() > 25);
+
+        //A damaged checkpoint falls back to the previous one
+        try (RandomAccessFile access = new RandomAccessFile(file, "rw")) {
+            access.seek(access.length() - 100);
+            int value = access.read();
+            access.seek(access.length() - 100);
+            access.write(value ^ 0xFF);
+        }
+        WorldModel previous = WorldCheckpointer.restore(file);
+        assertRestored(states, previous);
+        assertTrue(previous.getTime() < restored.getTime());
+
+        //A checkpoint cut off by a crash as well
+        try (RandomAccessFile access = new RandomAccessFile(file, "rw")) {
+            access.setLength(access.length() - 100);
+        }
+        assertEquals(previous.getTime(), WorldCheckpointer.restore(file).getTime());
+    }
+
+    @Test
+    public void testFailedCheckpointIsCutOff() throws Exception {
+        WorldModel world = WorldFactory.createBasicWorld(600, 400, 60, 50);
+        WorldController controller = new WorldController(world, null);
+        File file = File.createTempFile("world", "." + WorldCheckpointer.EXTENSION);
+        file.deleteOnExit();
+        controller.startCheckpoints(file, 0.2);
+        WorldCheckpointer checkpointer = controller.getCheckpointer();
+        Map<Double, double[]> states = new HashMap<>();
+        double failedTime = Double.NaN;
+
+        for (int tick = 0; tick < 300; tick++) {
+            world.getPerception().update();
+
+            for (Creature c : world.getCreatures()) {
+                c.update();
+            }
+
+            //An invalid id lets the write of the checkpoint taken in the middle of the run fail
+            Creature creature = world.getCreatures().get(0);
+            long id = creature.getId();
+            boolean fail = tick > 100 && Double.isNaN(failedTime) && checkpointer.isDue(world.getTime() + 0.015);
+            if (fail) {
+                creature.setId(-1);
+            }
+
+            controller.updateWorld(0.015);
+
+            if (fail) {
+                while (!checkpointer.isDue(Double.MAX_VALUE)) {
+                    Thread.sleep(1);
+                }
+                creature.setId(id);
+                failedTime = world.getTime();
+            }
+
+            states.put(world.getTime(), describe(world));
+        }
+
+        controller.stopCheckpoints();
+        assertTrue(checkpointer.awaitTermination(10000));
+        assertNull(checkpointer.getFailure());
+
+        //The checkpoints after the failed one build on a full checkpoint again
+        WorldModel restored = WorldCheckpointer.restore(file);
+        assertRestored(states, restored);
+        assertTrue(restored.getTime() > failedTime + 1);
+    }
+
+    private static double[] describe(WorldModel world) {
+        double energySum = 0;
+        double positionSum = 0;
+        double lifeSum = 0;
+        for (Creature c : world.getCreatures()) {
+            energySum += c.getEnergy();
+            positionSum += c.getPosition().x + c.getPosition().y;
+            lifeSum += c.getLife() + c.getBreedTime();
+        }
+
+        double fieldEnergy = world.getFoodField() != null ? world.getFoodField().getTotalEnergy() : 0;
+
+        return new double[]{world.getCreatures().size(), energySum, positionSum, lifeSum,
+                world.getFoods().size(), world.getPopulationTotals().getPregnancyAmount(), fieldEnergy};
+    }
+
+    private static void assertRestored(Map<Double, double[]> states, WorldModel restored) {
+        double[] state = states.get(restored.getTime());
+        double[] restoredState = describe(restored);
+
+        for (int i = 0; i < state.length; i++) {
+            assertEquals(state[i], restoredState[i]);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package de.thomas.creatures.tests;
+
+import de.thomas.creatures.implementation.controller.WorldFork;
+import de.thomas.creatures.implementation.model.Creature;
+import de.thomas.creatures.implementation.model.WorldFactory;
+import de.thomas.creatures.implementation.model.WorldModel;
+import de.thomas.creatures.implementation.statistics.StatColumns;
+import de.thomas.creatures.implementation.statistics.StatElement;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class WorldForkTest {
+
+    @Test
+    public void testBranchesRunIndependently() throws Exception {
+        WorldModel world = WorldFactory.createBasicWorld(600, 400, 60, 50);
+        double mutationRate = WorldModel.mutationRate;
+        double minSpeed = Double.MAX_VALUE;
+        double maxSpeed = 0;
+        for (Creature c : world.getCreatures()) {
+            minSpeed = Math.min(minSpeed, c.getSpeed());
+            maxSpeed = Math.max(maxSpeed, c.getSpeed());
+        }
+
+        WorldFork fork = new WorldFork(world);
+        WorldFork.Branch first = fork.addBranch("first", 42, null);
+        WorldFork.Branch second = fork.addBranch("second", 42, null);
+        WorldFork.Branch unmutated = fork.addBranch("unmutated", 7, parameters -> parameters.setMutationRate(0));
+        fork.run(60, 0.015, 1);
+
+        //Branches with the same seed and parameters take the same course
+        StatColumns firstSamples = first.getSamples();
+        StatColumns secondSamples = second.getSamples();
+        assertTrue(firstSamples.size() >= 59);
+        assertEquals(firstSamples.size(), secondSamples.size());
+        for (int i = 0; i < firstSamples.size(); i++) {
+            for (int metric = 0; metric < StatElement.METRIC_AMOUNT; metric++) {
+                assertEquals(firstSamples.getValue(metric, i), secondSamples.getValue(metric, i));
+            }
+        }
+
+        //Without mutation the traits of children stay within the range of their parents
+        assertTrue(unmutated.getWorld().getLineageLog().size() > world.getCreatures().size());
+        for (Creature c : unmutated.getWorld().getCreatures()) {
+            assertTrue(c.getSpeed() >= minSpeed - 1E-9 && c.getSpeed() <= maxSpeed + 1E-9);
+        }
+
+        //The forked world and the static parameters are left alone
+        assertEquals(mutationRate, WorldModel.mutationRate);
+        assertEquals(0.0, world.getTime());
+
+        File file = File.createTempFile("fork", ".csv");
+        file.deleteOnExit();
+        fork.writeStatistics(file);
+
+        List<String> lines = Files.readAllLines(file.toPath());
+        assertEquals(firstSamples.size() + 1, lines.size());
+        assertEquals(1 + 3 * StatElement.METRIC_AMOUNT, lines.get(0).split(";").length);
+        assertEquals(1 + 3 * StatElement.METRIC_AMOUNT, lines.get(1).split(";").length);
+        assertTrue(lines.get(0).contains("\"unmutated Average Speed\""));
+    }
+}
@@ -0,0 +1,53 @@
+package de.thomas.creatures.tests;
+
+import de.thomas.creatures.implementation.controller.WorldController;
+import de.thomas.creatures.implementation.model.Creature;
+import de.thomas.creatures.implementation.model.WorldFactory;
+import de.thomas.creatures.implementation.model.WorldModel;
+import de.thomas.creatures.implementation.model.WorldSnapshot;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class WorldSnapshotTest {
+
+    private static void run(WorldModel world, WorldController controller, int ticks) {
+        for (int tick = 0; tick < ticks; tick++) {
+            world.getPerception().update();
+
+            for (Creature c : world.getCreatures()) {
+                c.update();
+            }
+
+            controller.updateWorld(0.015);
+        }
+    }
+
+    @Test
+    public void testLoadedWorldContinuesLikeTheOriginal() throws Exception {
+        WorldModel world = WorldFactory.createBasicWorld(600, 400, 60, 50);
+        WorldController controller = new WorldController(world, null);
+        run(world, controller, 1000);
+
+        File file = File.createTempFile("world", "." + WorldSnapshot.EXTENSION);
+        file.deleteOnExit();
+        WorldSnapshot.save(world, file);
+        WorldModel loaded = WorldSnapshot.load(file);
+
+        assertEquals(world.getCreatures().size(), loaded.getCreatures().size());
+        assertEquals(world.getFoods().size(), loaded.getFoods().size());
+        assertEquals(world.getPopulationTotals().getPregnancyAmount(), loaded.getPopulationTotals().getPregnancyAmount());
+        assertEquals(world.getRandom().getState(), loaded.getRandom().getState());
+
+        run(world, controller, 500);
+        run(loaded, new WorldController(loaded, null), 500);
+
+        assertEquals(world.getCreatures().size(), loaded.getCreatures().size());
+        assertEquals(world.getPopulationTotals().getTotalEnergy(), loaded.getPopulationTotals().getTotalEnergy(), 1E-6);
+        for (int i = 0; i < world.getCreatures().size(); i++) {
+            assertEquals(world.getCreatures().get(i).getPosition().x, loaded.getCreatures().get(i).getPosition().x);
+        }
+    }
+}